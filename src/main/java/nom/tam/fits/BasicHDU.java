@@ -1,5 +1,6 @@
 package nom.tam.fits;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Date;
@@ -13,7 +14,9 @@ import nom.tam.fits.header.Standard;
 import nom.tam.fits.utilities.FitsCheckSum;
 import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ChecksumOutputStream;
 import nom.tam.util.FitsOutput;
+import nom.tam.util.FitsOutputStream;
 import nom.tam.util.RandomAccess;
 
 /*
@@ -84,6 +87,9 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
 
     private static final int MAX_NAXIS_ALLOWED = 999;
 
+    /** Mask for the byte offset inside the 4-byte words, which checksums are calculated from */
+    private static final long CHECKSUM_WORD_MASK = 3L;
+
     private static final Logger LOG = getLogger(BasicHDU.class);
 
     /**
@@ -923,17 +929,165 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
         return myHeader.reset();
     }
 
+    /**
+     * Rewrites the HDU in place, in the file it was read from. If the header records checksums (<code>CHECKSUM</code>
+     * and/or <code>DATASUM</code>), these are updated before the header is rewritten. A missing
+     * <code>DATASUM</code> is added next to an existing <code>CHECKSUM</code> only if it fits in the space the header
+     * occupies in the file, or else the stale <code>CHECKSUM</code> is dropped. Data in deferred read mode are not
+     * rewritten (as they cannot have changed), and their stored <code>DATASUM</code> is reused, so rewriting the HDU
+     * after changes to the header only takes time proportional to the size of the header, even if the data are huge.
+     *
+     * @throws FitsException if the HDU cannot be rewritten in place, or if there was an error serializing it.
+     * @throws IOException   if there was an I/O error accessing the file.
+     *
+     * @see                  #rewriteable()
+     * @see                  #rewriteData(long, byte[])
+     */
     @Override
     public void rewrite() throws FitsException, IOException {
         if (!rewriteable()) {
             throw new FitsException("Invalid attempt to rewrite HDU");
         }
+
+        if (hasChecksums()) {
+            long datasum;
+            if (!myData.isDeferred()) {
+                datasum = myData.calcChecksum();
+            } else if (myHeader.containsKey(Checksum.DATASUM)) {
+                datasum = getStoredDatasum();
+            } else {
+                datasum = calcFileDatasum();
+            }
+            updateChecksums(datasum);
+        }
+
         myHeader.rewrite();
         if (!myData.isDeferred()) {
             myData.rewrite();
         }
     }
 
+    /**
+     * Overwrites a segment of the data in the file, in place, such as to patch a row in a table, while leaving the rest
+     * of the data untouched on disk. The data must be in deferred read mode (that is, not loaded into memory), and the
+     * HDU must be rewriteable. If the header records checksums (<code>CHECKSUM</code> and/or <code>DATASUM</code>),
+     * these are updated incrementally, from the checksums of the old and the new contents of the segment only, and the
+     * header is rewritten also, under the same rules as in {@link #rewrite()}. As such, the operation takes time
+     * proportional to the size of the modified segment, rather than to the size of the data.
+     *
+     * @param  offset                   the byte offset of the segment, relative to the start of the data.
+     * @param  b                        the new bytes for the segment, in FITS binary representation.
+     *
+     * @throws IllegalArgumentException if the segment extends beyond the data.
+     * @throws FitsException            if the data is not in deferred read mode, or if the HDU cannot be rewritten in
+     *                                      place.
+     * @throws IOException              if there was an I/O error accessing the file.
+     *
+     * @see                             #rewrite()
+     * @see                             FitsCheckSum#updateSum(long, long, long)
+     *
+     * @since                           1.22
+     */
+    @SuppressWarnings("resource")
+    public void rewriteData(long offset, byte[] b) throws IllegalArgumentException, FitsException, IOException {
+        if (offset < 0 || offset + b.length > myData.getTrueSize()) {
+            throw new IllegalArgumentException("Segment [" + offset + ":" + (offset + b.length)
+                    + "] is outside data of " + myData.getTrueSize() + " bytes");
+        }
+
+        if (!myData.isDeferred()) {
+            throw new FitsException("Data is loaded in memory: use rewrite() instead");
+        }
+
+        if (!rewriteable()) {
+            throw new FitsException("Invalid attempt to rewrite HDU data");
+        }
+
+        RandomAccess file = myData.getRandomAccessInput();
+        long pos = myData.getFileOffset() + offset;
+
+        // The old and new contents of the 4-byte words that contain the segment
+        long start = pos & ~CHECKSUM_WORD_MASK;
+        byte[] before = new byte[(int) (((pos + b.length + CHECKSUM_WORD_MASK) & ~CHECKSUM_WORD_MASK) - start)];
+        boolean isChecked = hasChecksums() && myHeader.containsKey(Checksum.DATASUM);
+
+        if (isChecked) {
+            file.readFully(start, before, 0, before.length);
+        }
+
+        file.position(pos);
+        ((ArrayDataOutput) file).write(b);
+        ((ArrayDataOutput) file).flush();
+
+        if (!hasChecksums()) {
+            return;
+        }
+
+        long datasum = -1L;
+
+        if (isChecked) {
+            byte[] after = before.clone();
+            System.arraycopy(b, 0, after, (int) (pos - start), b.length);
+            datasum = FitsCheckSum.updateSum(getStoredDatasum(), FitsCheckSum.checksum(before),
+                    FitsCheckSum.checksum(after));
+        }
+
+        if (datasum < 0) {
+            datasum = calcFileDatasum();
+        }
+
+        updateChecksums(datasum);
+        myHeader.rewrite();
+    }
+
+    /**
+     * Checks if the header records checksums that should be kept up to date when rewriting.
+     *
+     * @return <code>true</code> if the header has a <code>CHECKSUM</code> or <code>DATASUM</code> keyword.
+     */
+    private boolean hasChecksums() {
+        return myHeader.containsKey(Checksum.CHECKSUM) || myHeader.containsKey(Checksum.DATASUM);
+    }
+
+    /**
+     * Updates the checksum keywords in the header for the specified datasum, without growing the header beyond the
+     * space it occupies in the file. A <code>DATASUM</code> alone is updated by itself. A <code>CHECKSUM</code> needs a
+     * <code>DATASUM</code> also, which is added only if the header has room for it. Otherwise both are dropped, as the
+     * header would otherwise be written (see {@link Header#write(ArrayDataOutput)}).
+     *
+     * @param  datasum       the checksum of the data segment that follows the header.
+     *
+     * @throws FitsException if there was an error serializing the header.
+     */
+    private void updateChecksums(long datasum) throws FitsException {
+        HeaderCard card = myHeader.getCard(Checksum.DATASUM);
+
+        if (card != null && !myHeader.containsKey(Checksum.CHECKSUM)) {
+            card.setValue(Long.toString(datasum));
+            card.setComment("data checksum at " + FitsDate.getFitsDateString());
+            return;
+        }
+
+        FitsCheckSum.setDatasum(myHeader, datasum);
+
+        if (card == null && !myHeader.rewriteable()) {
+            myHeader.deleteKey(Checksum.DATASUM);
+            myHeader.deleteKey(Checksum.CHECKSUM);
+        }
+    }
+
+    /**
+     * Calculates the datasum directly from the file, for data in deferred read mode.
+     *
+     * @return             the checksum of the data segment in the file.
+     *
+     * @throws IOException if there was an I/O error reading the file.
+     */
+    @SuppressWarnings("resource")
+    private long calcFileDatasum() throws IOException {
+        return FitsCheckSum.checksum(myData.getRandomAccessInput(), myData.getFileOffset(), myData.getSize());
+    }
+
     @Override
     public boolean rewriteable() {
         return myHeader.rewriteable() && myData.rewriteable();
@@ -985,6 +1139,11 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
             setPrimaryHDU(canBePrimary() && isFirst);
         }
 
+        if (stream instanceof ChecksumOutputStream && ((ChecksumOutputStream) stream).isRewritable()) {
+            writeWithChecksums((ChecksumOutputStream) stream);
+            return;
+        }
+
         myHeader.write(stream);
 
         if (myData != null) {
@@ -996,4 +1155,48 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
             throw new FitsException("Error flushing at end of HDU", e);
         }
     }
+
+    /**
+     * Writes this HDU to a checksumming file output, filling in the <code>DATASUM</code> and <code>CHECKSUM</code>
+     * keywords along the way. The header is first written with placeholder checksums, the datasum is accumulated as the
+     * data is written, and then only the header block is rewritten in place with the final values. The data is thus
+     * serialized only once, and no extra pass (or thread) is necessary for calculating the checksums.
+     *
+     * @param  out           the checksumming file output
+     *
+     * @throws FitsException if the HDU could not be written.
+     */
+    private void writeWithChecksums(ChecksumOutputStream out) throws FitsException {
+        // Placeholder checksums, which reserve the header space for the final values.
+        FitsCheckSum.setDatasum(myHeader, 0L);
+
+        try {
+            out.nextChecksum();
+            long pos = out.getPosition();
+
+            myHeader.write(out);
+            long headerSize = out.getPosition() - pos;
+            out.nextChecksum();
+
+            if (myData != null) {
+                myData.write(out);
+            }
+            out.flush();
+
+            FitsCheckSum.setDatasum(myHeader, out.nextChecksum());
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) headerSize);
+            try (FitsOutputStream hout = new FitsOutputStream(bytes)) {
+                myHeader.writeUnchecked(hout);
+            }
+
+            if (bytes.size() != headerSize) {
+                throw new FitsException("Header size changed while updating checksums");
+            }
+
+            out.rewrite(pos, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new FitsException("Error writing HDU with checksums", e);
+        }
+    }
 }
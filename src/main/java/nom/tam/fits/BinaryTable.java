@@ -39,6 +39,7 @@ import java.text.DecimalFormat;
 import java.text.ParsePosition;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.logging.Logger;
@@ -88,6 +89,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     /** The substring convention marker */
     private static final String SUBSTRING_MARKER = ":SSTR";
 
+    /** (FITS blocks) The preferred amount of raw row data to read at once when decoding rows in bulk */
+    private static final int ROW_BUFFER_BLOCKS = 64;
+
     /**
      * Describes the data type and shape stored in a binary table column.
      */
@@ -552,8 +556,25 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
          * @since                1.18
          */
         public static ColumnDesc createForVariableSize(Class<?> type) throws FitsException {
+            return createForVariableSize(type, false);
+        }
+
+        /**
+         * Like {@link #createForVariableSize(Class)}, but with a choice of 32-bit (P type) or 64-bit (Q type) heap
+         * pointers. 64-bit pointers are necessary for heaps larger than 2 GB.
+         * 
+         * @param  type            The Java type of base elements that this column is designated to contain.
+         * @param  useLongPointers <code>true</code> to use 64-bit heap pointers, or <code>false</code> for 32-bit ones.
+         * 
+         * @return                 the new column descriptor
+         * 
+         * @throws FitsException   if the base type is not one that can be used in binary table columns.
+         * 
+         * @since                  1.22
+         */
+        public static ColumnDesc createForVariableSize(Class<?> type, boolean useLongPointers) throws FitsException {
             ColumnDesc c = new ColumnDesc(type);
-            c.setVariableSize(false);
+            c.setVariableSize(useLongPointers);
             return c;
         }
 
@@ -945,7 +966,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
          * 
          * @see            #getFitsBase()
          */
-        private int getFitsBaseCount(int fitsLen) {
+        int getFitsBaseCount(int fitsLen) {
             if (isBits) {
                 return (fitsLen + Byte.SIZE - 1) / Byte.SIZE;
             }
@@ -992,6 +1013,17 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
          */
         @Deprecated
         public Object newInstance(int nRow) {
+            return newStorage(nRow);
+        }
+
+        /**
+         * (<i>for internal use</i>) Allocates main table storage for this column, for the specified number of rows.
+         * 
+         * @param  nRow the number of rows to allocate the array for
+         * 
+         * @return      new instance of the array with space for the specified number of rows.
+         */
+        Object newStorage(int nRow) {
             return ArrayFuncs.newInstance(getTableBase(), getTableBaseCount() * nRow);
         }
 
@@ -1335,7 +1367,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     /**
      * The original heap size (from the header)
      */
-    private int heapFileSize;
+    private long heapFileSize;
 
     /**
      * A list describing each of the columns in the table
@@ -1454,16 +1486,13 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         if (heapSizeL < 0) {
             throw new FitsException("Inconsistent THEAP and PCOUNT");
         }
-        if (heapSizeL > Integer.MAX_VALUE) {
-            throw new FitsException("Heap size > 2 GB");
-        }
         if (heapSizeL == 0L) {
             // There is no heap. Forget the offset
             heapAddress = 0;
         }
 
-        heapAddress = (int) heapOffsetL;
-        heapFileSize = (int) heapSizeL;
+        heapAddress = heapOffsetL;
+        heapFileSize = heapSizeL;
 
         int nCol = header.getIntValue(Standard.TFIELDS);
 
@@ -2213,16 +2242,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                 flatRow[i] = putOnHeap(c, o[i], null);
             } else {
                 flatRow[i] = javaToFits1D(c, ArrayFuncs.flatten(o[i]));
-
-                int nexp = c.getElementCount();
-                if (c.stringLength > 0) {
-                    nexp *= c.stringLength;
-                }
-
-                if (Array.getLength(flatRow[i]) != nexp) {
-                    throw new IllegalArgumentException("Mismatched element count for column " + i + ": got "
-                            + Array.getLength(flatRow[i]) + ", expected " + nexp);
-                }
+                checkElementCount(c, i, flatRow[i]);
             }
         }
 
@@ -2492,9 +2512,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @see    #compact()
      * @see    #reserveHeapSpace(int)
      */
-    private synchronized int getHeapSize() {
-        if (heap != null && heap.size() + heapReserve > heapFileSize) {
-            return heap.size() + heapReserve;
+    private synchronized long getHeapSize() {
+        if (heap != null && heap.getSize() + heapReserve > heapFileSize) {
+            return heap.getSize() + heapReserve;
         }
         return heapFileSize;
     }
@@ -2553,18 +2573,582 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws IOException   If there was an I/O error accessing the input
      * @throws FitsException If there was some other error
      */
-    private synchronized void readTableElement(Object o, ColumnDesc c, int row) throws IOException, FitsException {
+    private void readTableElement(Object o, ColumnDesc c, int row) throws IOException, FitsException {
         @SuppressWarnings("resource")
         RandomAccess in = getRandomAccessInput();
+        long pos;
 
         synchronized (this) {
-            in.position(getFileOffset() + row * (long) rowLen + c.offset);
+            pos = getFileOffset() + row * (long) rowLen + c.offset;
         }
 
+        // Positional read, without holding the table's lock or moving the shared file pointer.
         if (c.isLogical()) {
-            in.readArrayFully(o);
+            in.readArrayFully(pos, o);
         } else {
-            in.readImage(o);
+            in.readImage(pos, o);
+        }
+    }
+
+    /**
+     * Returns a new table that contains only the selected columns of this table, in the specified order. When this
+     * table is in deferred read mode, only the selected columns are decoded from the input, reading the rows in bulk
+     * and skipping all other data in them. The heap is read only if variable-length columns are selected, in which
+     * case just their entries are copied to the heap of the projected table. For wide tables, from which only a few
+     * columns are of interest, this is much faster and uses much less memory than loading the entire table. The
+     * returned table is independent of this one (and of its input) and is always fully loaded in memory, so you may
+     * access its flattened column data directly, e.g. via {@link #getFlattenedColumn(int)}.
+     * 
+     * @param  cols          the zero-based indices of the columns to include, in the order in which they should appear
+     *                           in the projected table. The same column may be selected more than once.
+     * 
+     * @return               a new binary table containing just the selected columns.
+     * 
+     * @throws FitsException if any of the column indices is invalid, or if there was an error reading the data from
+     *                           the input.
+     * 
+     * @see                  #project(String...)
+     * @see                  #copy()
+     * 
+     * @since                1.22
+     */
+    public BinaryTable project(int... cols) throws FitsException {
+        ColumnDesc[] src = getDescriptors(cols);
+        int rows = getNRows();
+
+        Object[] data = new Object[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            data[i] = src[i].newInstance(rows);
+        }
+
+        if (rows > 0) {
+            getRows(0, rows, cols, data, null);
+        }
+
+        return createDerived(src, data, rows);
+    }
+
+    /**
+     * Returns the descriptors of selected columns, after checking that the column indices are valid.
+     * 
+     * @param  cols           the zero-based column indices
+     * 
+     * @return                the descriptors of the selected columns
+     * 
+     * @throws TableException if any of the column indices is invalid
+     */
+    private synchronized ColumnDesc[] getDescriptors(int[] cols) throws TableException {
+        ColumnDesc[] c = new ColumnDesc[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            if (!validColumn(cols[i])) {
+                throw new TableException("No such column: " + cols[i]);
+            }
+            c[i] = columns.get(cols[i]);
+        }
+        return c;
+    }
+
+    /**
+     * Creates a new in-memory table from the selected columns of this table and the data for them. If any of the
+     * columns is variable-length, the heap entries referenced by the data are copied into a new heap, which is held in
+     * memory also.
+     * 
+     * @param  src           the descriptors of the columns in this table
+     * @param  data          the flattened storage arrays for each of the columns
+     * @param  rows          the number of rows in the data
+     * 
+     * @return               a new table with the specified columns and data
+     * 
+     * @throws FitsException if the heap could not be read from the input
+     */
+    private BinaryTable createDerived(ColumnDesc[] src, Object[] data, int rows) throws FitsException {
+        BinaryTable p = new BinaryTable();
+        int[] sizes = new int[src.length];
+        boolean hasVLAs = false;
+
+        for (int i = 0; i < src.length; i++) {
+            p.addColumn(src[i].clone());
+            sizes[i] = src[i].getTableBaseCount();
+            hasVLAs |= src[i].isVariableSize();
+        }
+
+        // Relocate the heap entries before the descriptors are stored in the table
+        if (hasVLAs) {
+            p.heap = getHeap().copyEntries(src, data, rows);
+        }
+
+        p.table = createColumnTable(data, sizes);
+        p.nRow = rows;
+        return p;
+    }
+
+    /**
+     * Returns a new table that contains only the columns by the selected names, in the specified order. It is otherwise
+     * the same as {@link #project(int...)}.
+     * 
+     * @param  names         the names of the columns (case sensitive) to include, in the order in which they should
+     *                           appear in the projected table.
+     * 
+     * @return               a new binary table containing just the selected columns.
+     * 
+     * @throws FitsException if this table has no column by one of the specified names, or if there was an error reading
+     *                           the data from the input.
+     * 
+     * @see                  #project(int...)
+     * @see                  #indexOf(String)
+     * 
+     * @since                1.22
+     */
+    public BinaryTable project(String... names) throws FitsException {
+        int[] cols = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            cols[i] = indexOf(names[i]);
+            if (cols[i] < 0) {
+                throw new TableException("No column named: " + names[i]);
+            }
+        }
+        return project(cols);
+    }
+
+    /**
+     * Returns a new cursor, which iterates over a range of rows in batches, providing the data of the selected columns
+     * in reusable primitive arrays. For tables in deferred read mode, each batch is obtained with a single bulk read
+     * from the input, decoding only the selected columns, without loading the table into memory. It is the preferred
+     * way for scanning through (parts of) large tables.
+     * 
+     * @param  from                     the zero-based index of the first row
+     * @param  to                       the zero-based index of the row after the last one (exclusive end)
+     * @param  batchSize                the maximum number of rows per batch
+     * @param  cols                     the zero-based indices of the selected columns, or none to select all columns.
+     * 
+     * @return                          a new cursor over the specified rows and columns, positioned before the first
+     *                                      batch.
+     * 
+     * @throws IllegalArgumentException if the batch size is not positive, or too large for the table
+     * @throws TableException           if the row range, or one of the column indices, is invalid for this table.
+     * 
+     * @see                             RowBatchCursor#next()
+     * @see                             #project(int...)
+     * 
+     * @since                           1.22
+     */
+    public RowBatchCursor rowBatches(int from, int to, int batchSize, int... cols)
+            throws IllegalArgumentException, TableException {
+        return new RowBatchCursor(this, from, to, batchSize, cols);
+    }
+
+    /**
+     * Returns the indices of the rows that match all of the specified predicates. Only the columns tested by the
+     * predicates are accessed. They are processed in batches, and in deferred read mode they are decoded from rows read
+     * from the input in bulk, without loading the table into memory. It is much faster than testing the values of each
+     * row via {@link #getDouble(int, int)} or similar, and does not box values.
+     * 
+     * @param  predicates    the predicates that selected rows must all match. If none are specified, all rows are
+     *                           selected.
+     * 
+     * @return               the indices of the selected rows, as set bits.
+     * 
+     * @throws FitsException if a predicate refers to a column that does not exist or is not a scalar numerical column,
+     *                           or if there was an error reading the data from the input.
+     * 
+     * @see                  #filter(ColumnPredicate...)
+     * @see                  #select(BitSet, int...)
+     * 
+     * @since                1.22
+     */
+    public BitSet findRows(ColumnPredicate... predicates) throws FitsException {
+        int[] cols = new int[predicates.length];
+        Quantizer[] q = new Quantizer[predicates.length];
+
+        for (int i = 0; i < predicates.length; i++) {
+            cols[i] = predicates[i].getColumn(this);
+            q[i] = getDescriptor(cols[i]).getQuantizer();
+        }
+
+        int rows = getNRows();
+        BitSet selected = new BitSet(rows);
+
+        if (predicates.length == 0) {
+            selected.set(0, rows);
+            return selected;
+        }
+
+        RowBatchCursor c = rowBatches(0, rows, getDefaultBatchRows(), cols);
+        boolean[] match = new boolean[Math.min(rows, getDefaultBatchRows())];
+
+        while (c.next()) {
+            int n = c.size();
+            Arrays.fill(match, 0, n, true);
+
+            for (int i = 0; i < predicates.length; i++) {
+                predicates[i].test(c.getColumn(i), n, q[i], match);
+            }
+
+            for (int i = 0; i < n; i++) {
+                if (match[i]) {
+                    selected.set(c.getFirstRow() + i);
+                }
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Returns a new table that contains only the selected rows and columns of this table. In deferred read mode, only
+     * the parts of the table that contain selected rows are read from the input, in bulk, and only the selected
+     * columns of the selected rows are decoded. The heap is read only if variable-length columns are selected, in
+     * which case just the entries of the selected rows are copied to the heap of the new table.
+     * 
+     * @param  rows          the indices of the rows to include, as set bits, such as returned by
+     *                           {@link #findRows(ColumnPredicate...)}. Bits beyond the last table row are ignored.
+     * @param  cols          the zero-based indices of the columns to include, in the order in which they should appear
+     *                           in the new table, or none to include all columns.
+     * 
+     * @return               a new binary table containing just the selected rows and columns.
+     * 
+     * @throws FitsException if any of the column indices is invalid, or if there was an error reading the data from
+     *                           the input.
+     * 
+     * @see                  #findRows(ColumnPredicate...)
+     * @see                  #project(int...)
+     * 
+     * @since                1.22
+     */
+    public BinaryTable select(BitSet rows, int... cols) throws FitsException {
+        if (cols.length == 0) {
+            cols = new int[getNCols()];
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = i;
+            }
+        }
+
+        ColumnDesc[] src = getDescriptors(cols);
+        BitSet selected = rows.get(0, getNRows());
+        int n = selected.cardinality();
+
+        Object[] data = new Object[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            data[i] = src[i].newInstance(n);
+        }
+
+        if (n > 0) {
+            getRows(selected, src, cols, data);
+        }
+
+        return createDerived(src, data, n);
+    }
+
+    /**
+     * Returns a new table that contains only the rows that match all of the specified predicates. The columns tested by
+     * the predicates are scanned first, and only then are the other columns of the matching rows decoded. It is the
+     * same as calling <code>select(findRows(predicates))</code>.
+     * 
+     * @param  predicates    the predicates that selected rows must all match.
+     * 
+     * @return               a new binary table containing just the matching rows.
+     * 
+     * @throws FitsException if a predicate refers to a column that does not exist or is not a scalar numerical column,
+     *                           or if there was an error reading the data from the input.
+     * 
+     * @see                  #findRows(ColumnPredicate...)
+     * @see                  #select(BitSet, int...)
+     * 
+     * @since                1.22
+     */
+    public BinaryTable filter(ColumnPredicate... predicates) throws FitsException {
+        return select(findRows(predicates));
+    }
+
+    /**
+     * Returns a typed view of a column, which provides access to the primitive elements in which the column data is
+     * stored, without boxing or allocation. The returned view is a {@link ByteColumnView}, {@link ShortColumnView},
+     * {@link IntColumnView}, {@link LongColumnView}, {@link FloatColumnView}, or {@link DoubleColumnView} matching the
+     * storage type of the column (see {@link ColumnView} for details). For example:
+     * 
+     * <pre>
+     *   DoubleColumnView energy = (DoubleColumnView) table.getColumnView(table.indexOf("ENERGY"));
+     *   double sum = 0.0;
+     *
+     *   for (int row = 0; row &lt; energy.getNRows(); row++) {
+     *       sum += energy.get(row);
+     *   }
+     * </pre>
+     * 
+     * @param  col           the zero-based column index
+     * 
+     * @return               a new view of the column's stored primitive elements
+     * 
+     * @throws FitsException if the column index is invalid, or if the column is stored as <code>char</code> values,
+     *                           for which there is no view.
+     * 
+     * @see                  #rowCursor(int, int, int...)
+     * 
+     * @since                1.22
+     */
+    public ColumnView getColumnView(int col) throws FitsException {
+        if (!validColumn(col)) {
+            throw new TableException("No such column: " + col);
+        }
+
+        Class<?> type = getDescriptor(col).getTableBase();
+
+        if (type == byte.class) {
+            return new ByteColumnView(this, col);
+        }
+        if (type == short.class) {
+            return new ShortColumnView(this, col);
+        }
+        if (type == int.class) {
+            return new IntColumnView(this, col);
+        }
+        if (type == long.class) {
+            return new LongColumnView(this, col);
+        }
+        if (type == float.class) {
+            return new FloatColumnView(this, col);
+        }
+        if (type == double.class) {
+            return new DoubleColumnView(this, col);
+        }
+
+        throw new TableException("No column view for " + type.getName() + " storage");
+    }
+
+    /**
+     * Returns a new cursor, which iterates over a range of rows one at a time, providing access to the primitive
+     * storage elements of the selected columns in the current row, without boxing or allocation. For tables in deferred
+     * read mode, the cursor decodes rows from the input in batches, with a single bulk read per batch.
+     * 
+     * @param  from           the zero-based index of the first row
+     * @param  to             the zero-based index of the row after the last one (exclusive end)
+     * @param  cols           the zero-based indices of the selected columns, or none to select all columns.
+     * 
+     * @return                a new cursor over the specified rows and columns, positioned before the first row.
+     * 
+     * @throws TableException if the row range, or one of the column indices, is invalid for this table.
+     * 
+     * @see                   RowCursor#next()
+     * @see                   #rowBatches(int, int, int, int...)
+     * @see                   #getColumnView(int)
+     * 
+     * @since                 1.22
+     */
+    public RowCursor rowCursor(int from, int to, int... cols) throws TableException {
+        return new RowCursor(this, from, to, cols);
+    }
+
+    /**
+     * Returns the flattened storage arrays of selected columns, if the table is loaded in memory. The arrays are the
+     * ones used by the table, not copies.
+     * 
+     * @param  cols the zero-based indices of the selected columns
+     * 
+     * @return      the flattened storage arrays of the columns, or <code>null</code> if the table data is not in
+     *                  memory.
+     */
+    synchronized Object[] getStorage(int[] cols) {
+        if (table == null) {
+            return null;
+        }
+
+        Object[] data = new Object[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            data[i] = table.getColumn(cols[i]);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the default number of rows to process in a batch, such that the raw row data for a batch occupies a
+     * reasonably sized buffer.
+     * 
+     * @return the default number of rows per batch.
+     */
+    synchronized int getDefaultBatchRows() {
+        return Math.max(1, ROW_BUFFER_BLOCKS * FitsFactory.FITS_BLOCK_SIZE / Math.max(1, rowLen));
+    }
+
+    /**
+     * Copies the flattened storage data of selected columns for the selected rows into the supplied arrays, in which
+     * the selected rows are placed contiguously. It is otherwise like {@link #getRows(int, int, int[], Object[],
+     * byte[])} except that in deferred read mode, only the stretches of the table that contain selected rows are read
+     * from the input, and only the selected rows are decoded.
+     * 
+     * @param  rows          the indices of the selected rows, as set bits, none of which may be beyond the end of the
+     *                           table.
+     * @param  c             the descriptors of the selected columns
+     * @param  cols          the zero-based indices of the selected columns
+     * @param  dst           the flattened storage arrays, one for each of the selected columns, to copy data into
+     * 
+     * @throws FitsException if there was an error reading the data from the input.
+     */
+    private void getRows(BitSet rows, ColumnDesc[] c, int[] cols, Object[] dst) throws FitsException {
+        synchronized (this) {
+            if (table != null) {
+                int k = 0;
+                for (int from = rows.nextSetBit(0); from >= 0; from = rows.nextSetBit(from)) {
+                    int n = rows.nextClearBit(from) - from;
+                    for (int i = 0; i < cols.length; i++) {
+                        int count = c[i].getTableBaseCount();
+                        System.arraycopy(table.getColumn(cols[i]), from * count, dst[i], k * count, n * count);
+                    }
+                    k += n;
+                    from += n;
+                }
+                return;
+            }
+
+            if (!isDeferred() || rowLen == 0) {
+                // No data to read
+                return;
+            }
+        }
+
+        try {
+            readRows(rows, c, dst);
+        } catch (IOException e) {
+            throw new FitsException("Error reading from input: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (<i>for internal use</i>) Copies the flattened storage data of selected columns for a contiguous range of rows
+     * into the supplied arrays. The data is copied from memory if the table is loaded, or else decoded directly from
+     * the input in deferred read mode, in which case only the selected columns are decoded from raw rows read in bulk,
+     * with positional reads that do not hold the table's lock or move the shared file pointer. For variable-length
+     * columns the heap pointers are returned, as they are stored in the main table. The caller is responsible for
+     * checking that the columns and rows are valid.
+     * 
+     * @param  from          the zero-based index of the first row to copy
+     * @param  n             the number of rows to copy
+     * @param  cols          the zero-based indices of the columns to copy
+     * @param  dst           the flattened storage arrays, one for each of the selected columns, such as returned by
+     *                           {@link ColumnDesc#newInstance(int)}, to copy data into, starting at their first element
+     * @param  buf           a buffer for the raw row data of deferred tables, which must be large enough to hold at
+     *                           least one row, or <code>null</code> to use a buffer of some default size. The number of
+     *                           rows it can hold is the number of rows that are read from the input at once.
+     * 
+     * @throws FitsException if there was an error reading the data from the input.
+     * 
+     * @see                  #getRowBytes()
+     */
+    void getRows(int from, int n, int[] cols, Object[] dst, byte[] buf) throws FitsException {
+        ColumnDesc[] c = new ColumnDesc[cols.length];
+
+        synchronized (this) {
+            if (table != null) {
+                for (int i = 0; i < cols.length; i++) {
+                    int count = columns.get(cols[i]).getTableBaseCount();
+                    System.arraycopy(table.getColumn(cols[i]), from * count, dst[i], 0, n * count);
+                }
+                return;
+            }
+
+            if (!isDeferred() || rowLen == 0) {
+                // No data to read
+                return;
+            }
+
+            for (int i = 0; i < cols.length; i++) {
+                c[i] = columns.get(cols[i]);
+            }
+
+            if (buf == null) {
+                buf = new byte[Math.min(n, getDefaultBatchRows()) * rowLen];
+            }
+        }
+
+        try {
+            readRows(from, n, c, dst, buf);
+        } catch (IOException e) {
+            throw new FitsException("Error reading from input: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the selected columns for a contiguous range of rows directly from the input, in bulk. This method should
+     * never be called unless we have a random-accessible input associated, which is a requirement for deferred read
+     * mode.
+     * 
+     * @param  from        the zero-based index of the first row to read
+     * @param  n           the number of rows to read
+     * @param  cols        the descriptors of the columns to decode
+     * @param  dst         the flattened storage arrays, one for each of the selected columns, to decode data into
+     * @param  buf         the buffer to read raw rows into, as many at a time as it can hold.
+     * 
+     * @throws IOException if there was an error reading the input
+     */
+    private void readRows(int from, int n, ColumnDesc[] cols, Object[] dst, byte[] buf) throws IOException {
+        @SuppressWarnings("resource")
+        RandomAccess in = getRandomAccessInput();
+        int len;
+        long start;
+
+        synchronized (this) {
+            len = rowLen;
+            start = getFileOffset();
+        }
+
+        int batch = buf.length / len;
+        RowDecoder decoder = new RowDecoder(buf, len);
+
+        for (int done = 0; done < n;) {
+            int k = Math.min(batch, n - done);
+            in.readFully(start + (from + done) * (long) len, buf, 0, k * len);
+            for (int i = 0; i < cols.length; i++) {
+                decoder.decode(0, k, cols[i].offset, cols[i].getTableBaseCount(), dst[i], done);
+            }
+            done += k;
+        }
+    }
+
+    /**
+     * Decodes the selected columns for the selected rows directly from the input. Stretches of the table starting at
+     * selected rows are read in bulk, and only the selected rows in them are decoded. This method should never be
+     * called unless we have a random-accessible input associated, which is a requirement for deferred read mode.
+     * 
+     * @param  rows        the indices of the selected rows, as set bits, none of which may be beyond the end of the
+     *                         table.
+     * @param  cols        the descriptors of the columns to decode
+     * @param  dst         the flattened storage arrays, one for each of the selected columns, to decode data into, in
+     *                         which the selected rows are placed contiguously.
+     * 
+     * @throws IOException if there was an error reading the input
+     */
+    private void readRows(BitSet rows, ColumnDesc[] cols, Object[] dst) throws IOException {
+        @SuppressWarnings("resource")
+        RandomAccess in = getRandomAccessInput();
+        int len;
+        int end;
+        long start;
+
+        synchronized (this) {
+            len = rowLen;
+            end = nRow;
+            start = getFileOffset();
+        }
+
+        int batch = getDefaultBatchRows();
+        byte[] buf = new byte[batch * len];
+        RowDecoder decoder = new RowDecoder(buf, len);
+        int k = 0;
+
+        for (int first = rows.nextSetBit(0); first >= 0;) {
+            int last = Math.min(first + batch, end);
+            in.readFully(start + first * (long) len, buf, 0, (last - first) * len);
+
+            int from = first;
+            while (from >= 0 && from < last) {
+                int n = Math.min(rows.nextClearBit(from), last) - from;
+                for (int i = 0; i < cols.length; i++) {
+                    decoder.decode((from - first) * len, n, cols[i].offset, cols[i].getTableBaseCount(), dst[i], k);
+                }
+                k += n;
+                from = rows.nextSetBit(from + n);
+            }
+
+            first = from;
         }
     }
 
@@ -2584,24 +3168,29 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws     FitsException if the operation failed
      */
     @Deprecated
-    public synchronized Object getRawElement(int row, int col) throws FitsException {
-        if (!validRow(row) || !validColumn(col)) {
-            throw new TableException("No such element (" + row + "," + col + ")");
-        }
+    public Object getRawElement(int row, int col) throws FitsException {
+        ColumnDesc c = null;
 
-        if (table == null) {
-            try {
-                ColumnDesc c = columns.get(col);
-                Object e = c.newInstance(1);
-                readTableElement(e, c, row);
-                return e;
-            } catch (IOException e) {
-                throw new FitsException("Error reading from input: " + e.getMessage(), e);
+        synchronized (this) {
+            if (!validRow(row) || !validColumn(col)) {
+                throw new TableException("No such element (" + row + "," + col + ")");
             }
+
+            if (table != null) {
+                ensureData();
+                return table.getElement(row, col);
+            }
+
+            c = columns.get(col);
         }
 
-        ensureData();
-        return table.getElement(row, col);
+        try {
+            Object e = c.newInstance(1);
+            readTableElement(e, c, row);
+            return e;
+        } catch (IOException e) {
+            throw new FitsException("Error reading from input: " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -3571,27 +4160,14 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     private Object putOnHeap(FitsHeap h, ColumnDesc c, Object o, Object oldPointer) throws FitsException {
         // Flatten data for heap
-        o = ArrayFuncs.flatten(o);
+        Object flat = ArrayFuncs.flatten(o);
 
         // By default put data at the end of the heap;
         int off = h.size();
 
-        // The number of Java elements is the same as the number of FITS elements, except for strings and complex
-        // numbers
-        int len = (c.isComplex() || c.isString()) ? -1 : Array.getLength(o);
-
         // Convert to FITS storage array
-        o = javaToFits1D(c, o);
-
-        // For complex values and strings, determine length from converted object....
-        if (len < 0) {
-            len = Array.getLength(o);
-
-            // If complex in primitive 1D form, then length is half the number of elements.
-            if (c.isComplex() && o.getClass().getComponentType().isPrimitive()) {
-                len >>>= 1;
-            }
-        }
+        o = javaToFits1D(c, flat);
+        int len = getHeapCount(c, flat, o);
 
         if (oldPointer != null) {
             if (len <= getPointerCount(oldPointer)) {
@@ -3605,6 +4181,53 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         return c.hasLongPointers() ? new long[] {len, off} : new int[] {len, off};
     }
 
+    /**
+     * Returns the element count to record in the heap descriptor of a variable-length entry.
+     * 
+     * @param  c    The column descriptor
+     * @param  flat The flattened Java array of the entry
+     * @param  fits The FITS storage array of the entry, as returned by {@link #javaToFits1D(ColumnDesc, Object)}
+     * 
+     * @return      the number of FITS elements in the entry
+     */
+    static int getHeapCount(ColumnDesc c, Object flat, Object fits) {
+        // The number of Java elements is the same as the number of FITS elements, except for strings and complex
+        // numbers
+        if (!c.isComplex() && !c.isString()) {
+            return Array.getLength(flat);
+        }
+
+        // For complex values and strings, determine length from converted object....
+        int len = Array.getLength(fits);
+
+        // If complex in primitive 1D form, then length is half the number of elements.
+        if (c.isComplex() && fits.getClass().getComponentType().isPrimitive()) {
+            len >>>= 1;
+        }
+        return len;
+    }
+
+    /**
+     * Checks that the FITS storage array of a fixed-size entry has the number of elements the column requires.
+     * 
+     * @param  c                        The column descriptor
+     * @param  col                      The zero-based column index (for reporting)
+     * @param  fits                     The FITS storage array of the entry
+     * 
+     * @throws IllegalArgumentException if the array has the wrong number of elements for the column.
+     */
+    static void checkElementCount(ColumnDesc c, int col, Object fits) throws IllegalArgumentException {
+        int nexp = c.getElementCount();
+        if (c.stringLength > 0) {
+            nexp *= c.stringLength;
+        }
+
+        if (Array.getLength(fits) != nexp) {
+            throw new IllegalArgumentException("Mismatched element count for column " + col + ": got "
+                    + Array.getLength(fits) + ", expected " + nexp);
+        }
+    }
+
     /**
      * Returns a FITS data array from the heap
      * 
@@ -3623,8 +4246,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         long len = getPointerCount(p);
         long off = getPointerOffset(p);
 
-        if (off > Integer.MAX_VALUE || len > Integer.MAX_VALUE) {
-            throw new FitsException("Data located beyond 32-bit accessible heap limit: off=" + off + ", len=" + len);
+        if (len > Integer.MAX_VALUE) {
+            throw new FitsException("Heap entry too large for a Java array: len=" + len);
         }
 
         Object e = null;
@@ -3651,7 +4274,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * 
      * @throws FitsException if the operation failed
      */
-    private static Object javaToFits1D(ColumnDesc c, Object o) throws FitsException {
+    static Object javaToFits1D(ColumnDesc c, Object o) throws FitsException {
 
         if (c.isBits()) {
             if (o instanceof Boolean && c.isSingleton()) {
@@ -3940,16 +4563,22 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     }
 
     /**
-     * Returns the heap, after initializing it from the input as necessary
+     * Returns the heap, after initializing it from the input as necessary. When the table is in deferred read mode, the
+     * heap is file-backed, reading the referenced entries from the input only when they are requested.
      * 
      * @return               the initialized heap
      * 
      * @throws FitsException if we had trouble initializing it from the input.
      */
-    @SuppressWarnings("resource")
+    @SuppressWarnings({"resource", "deprecation"})
     private synchronized FitsHeap getHeap() throws FitsException {
         if (heap == null) {
-            readHeap(getRandomAccessInput());
+            RandomAccess in = getRandomAccessInput();
+            if (in != null) {
+                heap = FitsHeap.fromInput(in, getFileOffset() + getHeapAddress(), heapFileSize);
+            } else {
+                readHeap((ArrayDataInput) null);
+            }
         }
         return heap;
     }
@@ -3964,7 +4593,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws FitsException if there was an issue accessing the heap
      */
     protected void readHeap(long offset, Object array) throws FitsException {
-        getHeap().getData((int) offset, array);
+        getHeap().getData(offset, array);
     }
 
     /**
@@ -3980,11 +4609,14 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     @Deprecated
     protected synchronized void readHeap(ArrayDataInput input) throws FitsException {
-        if (input instanceof RandomAccess) {
-            FitsUtil.reposition(input, getFileOffset() + getHeapAddress());
+        if (heapFileSize > Integer.MAX_VALUE) {
+            throw new FitsException("Heap size > 2 GB");
         }
-        heap = new FitsHeap(heapFileSize);
-        if (input != null) {
+
+        heap = new FitsHeap((int) heapFileSize);
+        if (input instanceof RandomAccess) {
+            heap.read((RandomAccess) input, getFileOffset() + getHeapAddress());
+        } else if (input != null) {
             heap.read(input);
         }
     }
@@ -3998,10 +4630,15 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     protected synchronized void readTrueData(ArrayDataInput i) throws FitsException {
         try {
-            table.read(i);
+            table.read(i, FitsFactory.threadPool());
             i.skipAllBytes(getHeapOffset());
-            if (heap == null) {
-                readHeap(i);
+            if (heap == null || heap.isFileBacked()) {
+                if (heapFileSize > Integer.MAX_VALUE && i instanceof RandomAccess) {
+                    // Too large to hold in memory, so access it in-situ
+                    heap = FitsHeap.fromInput((RandomAccess) i, getFileOffset() + getHeapAddress(), heapFileSize);
+                } else {
+                    readHeap(i);
+                }
             }
         } catch (IOException e) {
             throw new FitsException("Error reading binary table data:" + e, e);
@@ -4303,7 +4940,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         }
 
         FitsHeap hp = getHeap();
-        long oldSize = hp.size();
+        long oldSize = hp.getSize();
         FitsHeap compact = new FitsHeap(0);
 
         for (int i = 0; i < nRow; i++) {
@@ -4315,7 +4952,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                     int len = (int) getPointerCount(p);
 
                     // Copy to new heap...
-                    int pos = compact.copyFrom(hp, (int) getPointerOffset(p), c.getFitsBaseCount(len) * eSize[j]);
+                    int pos = compact.copyFrom(hp, getPointerOffset(p), c.getFitsBaseCount(len) * eSize[j]);
 
                     // Same length as before...
                     if (p instanceof long[]) {
@@ -0,0 +1,259 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.function.DoublePredicate;
+import java.util.function.LongPredicate;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.util.Quantizer;
+import nom.tam.util.TableException;
+
+/**
+ * <p>
+ * A condition on the values of a scalar numerical column of a binary table, for selecting table rows without boxing or
+ * per-row element access. Predicates are tested in bulk, on batches of column data decoded directly from the stored
+ * table (or from the input in deferred read mode), and can be combined, so that only rows which match all of them are
+ * selected. For example, to select events with <code>ENERGY &gt; 2.0</code> and <code>TIME</code> in the [a, b] range:
+ * </p>
+ * 
+ * <pre>
+ *   BinaryTable selected = table.filter(ColumnPredicate.of("ENERGY", e -&gt; e &gt; 2.0),
+ *           ColumnPredicate.between("TIME", a, b));
+ * </pre>
+ * <p>
+ * Predicates on decimal values see the same values as {@link BinaryTable#getDouble(int, int)}, that is integer columns
+ * with a quantizer are converted to their physical values (and blanked values to NaN). Predicates on integer values see
+ * the stored integers, just like {@link BinaryTable#getNumber(int, int)}, and can be used with integer columns only.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable#findRows(ColumnPredicate...)
+ * @see    BinaryTable#filter(ColumnPredicate...)
+ */
+public final class ColumnPredicate {
+
+    /** The zero-based column index, or -1 if the column is identified by name */
+    private final int col;
+
+    /**
+     * The column name, or <code>null</code> if the column is identified by index
+     */
+    private final String name;
+
+    /**
+     * The test for decimal values, or <code>null</code> if testing integer values
+     */
+    private final DoublePredicate doubleTest;
+
+    /**
+     * The test for integer values, or <code>null</code> if testing decimal values
+     */
+    private final LongPredicate longTest;
+
+    private ColumnPredicate(int col, String name, DoublePredicate doubleTest, LongPredicate longTest) {
+        this.col = col;
+        this.name = name;
+        this.doubleTest = doubleTest;
+        this.longTest = longTest;
+    }
+
+    /**
+     * Returns a new predicate that tests the decimal values of a scalar numerical column.
+     * 
+     * @param  col  the zero-based column index
+     * @param  test the test to apply to the (physical) decimal column values
+     * 
+     * @return      a new predicate on the column.
+     */
+    public static ColumnPredicate of(int col, DoublePredicate test) {
+        return new ColumnPredicate(col, null, test, null);
+    }
+
+    /**
+     * Returns a new predicate that tests the decimal values of a scalar numerical column.
+     * 
+     * @param  name the column name (case sensitive)
+     * @param  test the test to apply to the (physical) decimal column values
+     * 
+     * @return      a new predicate on the column.
+     */
+    public static ColumnPredicate of(String name, DoublePredicate test) {
+        return new ColumnPredicate(-1, name, test, null);
+    }
+
+    /**
+     * Returns a new predicate that tests the stored values of a scalar integer column.
+     * 
+     * @param  col  the zero-based column index
+     * @param  test the test to apply to the stored integer column values
+     * 
+     * @return      a new predicate on the column.
+     */
+    public static ColumnPredicate ofLong(int col, LongPredicate test) {
+        return new ColumnPredicate(col, null, null, test);
+    }
+
+    /**
+     * Returns a new predicate that tests the stored values of a scalar integer column.
+     * 
+     * @param  name the column name (case sensitive)
+     * @param  test the test to apply to the stored integer column values
+     * 
+     * @return      a new predicate on the column.
+     */
+    public static ColumnPredicate ofLong(String name, LongPredicate test) {
+        return new ColumnPredicate(-1, name, null, test);
+    }
+
+    /**
+     * Returns a new predicate that selects (physical) decimal values of a scalar numerical column within an inclusive
+     * range. NaN values are never selected.
+     * 
+     * @param  col the zero-based column index
+     * @param  min the smallest value to select
+     * @param  max the largest value to select
+     * 
+     * @return     a new predicate on the column.
+     */
+    public static ColumnPredicate between(int col, double min, double max) {
+        return of(col, x -> x >= min && x <= max);
+    }
+
+    /**
+     * Returns a new predicate that selects (physical) decimal values of a scalar numerical column within an inclusive
+     * range. NaN values are never selected.
+     * 
+     * @param  name the column name (case sensitive)
+     * @param  min  the smallest value to select
+     * @param  max  the largest value to select
+     * 
+     * @return      a new predicate on the column.
+     */
+    public static ColumnPredicate between(String name, double min, double max) {
+        return of(name, x -> x >= min && x <= max);
+    }
+
+    /**
+     * Returns the index of the column in a table that this predicate applies to, after checking that the predicate can
+     * be used with it.
+     * 
+     * @param  tab            the binary table
+     * 
+     * @return                the zero-based index of the column in the table
+     * 
+     * @throws TableException if the table has no such column, or if the column is not of a type that the predicate can
+     *                            be tested on.
+     */
+    int getColumn(BinaryTable tab) throws TableException {
+        int i = name == null ? col : tab.indexOf(name);
+
+        if (!tab.validColumn(i)) {
+            throw new TableException("No such column: " + (name == null ? col : name));
+        }
+
+        ColumnDesc c = tab.getDescriptor(i);
+        Class<?> type = c.getFitsBase();
+
+        if (!c.isSingleton() || c.isVariableSize() || c.isComplex() || c.isLogical() || c.isBits() || c.isString()
+                || type == char.class) {
+            throw new TableException("Not a scalar numerical column: " + c.name());
+        }
+
+        if (longTest != null && (type == float.class || type == double.class)) {
+            throw new TableException("Not an integer column: " + c.name());
+        }
+
+        return i;
+    }
+
+    /**
+     * Tests the values of the column for a batch of rows, clearing the flags of rows that do not match. Rows whose
+     * flags are already cleared are not tested.
+     * 
+     * @param data  the flattened data of the column for the batch of rows
+     * @param n     the number of rows in the batch
+     * @param q     the column's quantizer, or <code>null</code>
+     * @param match the flags of the rows that match, to be cleared for rows that do not match this predicate
+     */
+    void test(Object data, int n, Quantizer q, boolean[] match) {
+        if (data instanceof float[]) {
+            float[] a = (float[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && doubleTest.test(a[i]);
+            }
+        } else if (data instanceof double[]) {
+            double[] a = (double[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && doubleTest.test(a[i]);
+            }
+        } else if (data instanceof byte[]) {
+            byte[] a = (byte[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && test(a[i], q);
+            }
+        } else if (data instanceof short[]) {
+            short[] a = (short[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && test(a[i], q);
+            }
+        } else if (data instanceof int[]) {
+            int[] a = (int[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && test(a[i], q);
+            }
+        } else {
+            long[] a = (long[]) data;
+            for (int i = 0; i < n; i++) {
+                match[i] = match[i] && test(a[i], q);
+            }
+        }
+    }
+
+    /**
+     * Tests a stored integer value.
+     * 
+     * @param  value the stored integer value
+     * @param  q     the column's quantizer, or <code>null</code>
+     * 
+     * @return       whether the value matches this predicate
+     */
+    private boolean test(long value, Quantizer q) {
+        if (longTest != null) {
+            return longTest.test(value);
+        }
+        return doubleTest.test(q == null ? value : q.toDouble(value));
+    }
+}
@@ -0,0 +1,215 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.util.TableException;
+
+/**
+ * <p>
+ * Base class for typed views of a binary table column, which provide access to the primitive storage elements of the
+ * column without boxing, and without allocating new objects for each access. Concrete views, such as
+ * {@link IntColumnView} or {@link DoubleColumnView}, match the primitive type in which the column data is stored in the
+ * table (e.g. <code>byte</code> for logicals, bits and strings, or <code>int</code> / <code>long</code> heap pointers
+ * for variable-length columns). Table entries that are fixed-size arrays are accessed element by element, by their
+ * (flattened) index within the entry.
+ * </p>
+ * <p>
+ * For tables in memory, views access the column storage directly (with the appropriate offset and stride for the
+ * selected row and element). For tables in deferred read mode, views decode the column from the input in batches of
+ * rows, with one bulk read per batch, and serve elements from the batch that was decoded last. Thus, accessing elements
+ * in (approximately) sequential row order is the most efficient in deferred mode.
+ * </p>
+ * <p>
+ * Views of tables in memory access the storage that was current when the view was created. They will see changes to the
+ * values of existing table entries, but not rows or columns that are added to, or deleted from, the table afterwards.
+ * Views are not thread-safe, but different threads may use their own views of the same table concurrently.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable#getColumnView(int)
+ * @see    RowCursor
+ */
+public abstract class ColumnView {
+
+    /** The table we are viewing */
+    private final BinaryTable table;
+
+    /** The index of the column in the table */
+    private final int[] cols;
+
+    /** The number of primitive storage elements per row */
+    private final int count;
+
+    /** The number of rows in the table */
+    private final int rows;
+
+    /** The array holding the data for the current window of rows */
+    private final Object[] data;
+
+    /**
+     * The buffer for raw rows, when reading in deferred mode, or else <code>null</code>
+     */
+    private final byte[] raw;
+
+    /** The number of rows in a batch, when reading in deferred mode */
+    private final int batchSize;
+
+    /** The index of the first row in the current window */
+    private int first;
+
+    /** The number of rows in the current window */
+    private int size;
+
+    /**
+     * Creates a new view of a table column.
+     * 
+     * @param  table          the binary table
+     * @param  col            the zero-based column index
+     * 
+     * @throws TableException if the column index is invalid
+     */
+    ColumnView(BinaryTable table, int col) throws TableException {
+        if (!table.validColumn(col)) {
+            throw new TableException("No such column: " + col);
+        }
+
+        this.table = table;
+        cols = new int[]{
+            col
+        };
+        rows = table.getNRows();
+
+        ColumnDesc c = table.getDescriptor(col);
+        count = c.getTableBaseCount();
+
+        Object[] storage = table.getStorage(cols);
+
+        if (storage != null) {
+            data = storage;
+            size = rows;
+            batchSize = rows;
+            raw = null;
+        } else {
+            batchSize = Math.min(rows, table.getDefaultBatchRows());
+            data = new Object[] {c.newStorage(batchSize)};
+            raw = new byte[batchSize * table.getRowBytes()];
+        }
+    }
+
+    /**
+     * Returns the array that holds the column data for the current window of rows. It is always the same array for a
+     * view.
+     * 
+     * @return the flattened primitive storage array
+     */
+    final Object getData() {
+        return data[0];
+    }
+
+    /**
+     * Returns the index of the table column that is viewed.
+     * 
+     * @return the zero-based index of the column in the table.
+     */
+    public final int getColumn() {
+        return cols[0];
+    }
+
+    /**
+     * Returns the number of rows that can be accessed through this view.
+     * 
+     * @return the number of table rows.
+     */
+    public final int getNRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of primitive storage elements in each table entry of the column, e.g. 1 for scalar columns,
+     * the number of bytes for fixed-length strings, or 2 for the heap pointers of variable-length columns.
+     * 
+     * @return the number of primitive elements per row.
+     */
+    public final int getElementCount() {
+        return count;
+    }
+
+    /**
+     * Returns the index of a primitive element in the storage array, after making sure that the array contains the row.
+     * 
+     * @param  row                       the zero-based row index
+     * @param  i                         the zero-based index of the primitive element within the table entry
+     * 
+     * @return                           the index of the element in the storage array
+     * 
+     * @throws IndexOutOfBoundsException if the row or element index is out of bounds
+     * @throws FitsException             if the row could not be read from the input in deferred mode
+     */
+    final int index(int row, int i) throws IndexOutOfBoundsException, FitsException {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Element index " + i + " out of bounds for length " + count);
+        }
+
+        if (row < first || row >= first + size) {
+            load(row);
+        }
+
+        return (row - first) * count + i;
+    }
+
+    /**
+     * Decodes the batch of rows that contains the specified row from the input.
+     * 
+     * @param  row                       the zero-based row index
+     * 
+     * @throws IndexOutOfBoundsException if the row index is out of bounds
+     * @throws FitsException             if the rows could not be read from the input
+     */
+    private void load(int row) throws IndexOutOfBoundsException, FitsException {
+        if (row < 0 || row >= rows || raw == null) {
+            throw new IndexOutOfBoundsException("Row index " + row + " out of bounds for length " + rows);
+        }
+
+        int start = row - row % batchSize;
+        int n = Math.min(batchSize, rows - start);
+
+        // Invalidate the window until the new batch is successfully loaded.
+        size = 0;
+        table.getRows(start, n, cols, data, raw);
+        first = start;
+        size = n;
+    }
+}
@@ -409,6 +409,24 @@ public abstract class Data implements FitsElement {
         clearInput();
     }
 
+    /**
+     * Associates this data with a location in a random-accessible input, as if it had been read from there. If the data
+     * has not been loaded, it will be deferred-read from the input when it is first accessed. It is used when HDUs are
+     * read in parallel, without moving the file pointer of the shared input.
+     *
+     * @param in     the random-accessible input that contains the data
+     * @param offset the file offset at which the data segment begins in the input.
+     *
+     * @see          #isDeferred()
+     *
+     * @since        1.22
+     */
+    void setInput(RandomAccess in, long offset) {
+        fileOffset = offset;
+        dataSize = getTrueSize();
+        input = in;
+    }
+
     private void clearInput() {
         input = null;
         fileOffset = -1;
@@ -31,6 +31,7 @@ package nom.tam.fits;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
@@ -41,9 +42,14 @@ import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,10 +58,13 @@ import nom.tam.fits.header.Standard;
 import nom.tam.fits.utilities.FitsCheckSum;
 import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ChecksumOutputStream;
 import nom.tam.util.FitsFile;
 import nom.tam.util.FitsIO;
 import nom.tam.util.FitsInputStream;
 import nom.tam.util.FitsOutputStream;
+import nom.tam.util.MappedFileIO;
+import nom.tam.util.ParallelTasks;
 import nom.tam.util.RandomAccess;
 import nom.tam.util.RandomAccessFileIO;
 import nom.tam.util.SafeClose;
@@ -183,6 +192,16 @@ public class Fits implements Closeable {
      */
     private long lastFileOffset = -1;
 
+    /**
+     * An optional index of the HDUs in the input, for direct access to HDUs without reading all that precede them.
+     */
+    private HDUIndex index;
+
+    /**
+     * HDUs that were read directly via the index, ahead of the sequential reading, by their index in the file.
+     */
+    private final Map<Integer, BasicHDU<?>> indexedHDUs = new HashMap<>();
+
     /**
      * Creates an empty Fits object which is not associated with an input stream.
      */
@@ -656,6 +675,7 @@ public class Fits implements Closeable {
             throw new FitsException("Attempt to delete non-existent HDU:" + n);
         }
         hduList.remove(n);
+        discardIndex();
         if (n == 0 && size > 1) {
             BasicHDU<?> newFirst = hduList.get(0);
             if (newFirst.canBePrimary()) {
@@ -692,7 +712,8 @@ public class Fits implements Closeable {
 
     /**
      * Returns the n'th HDU. If the HDU is already read simply return a pointer to the cached data. Otherwise read the
-     * associated stream until the n'th HDU is read.
+     * associated stream until the n'th HDU is read, or if this <code>Fits</code> has an index of its random-accessible
+     * input (see {@link #setIndex(HDUIndex)}), then read the requested HDU directly from its indexed location.
      *
      * @param  n                         The index of the HDU to be read. The primary HDU is index 0.
      *
@@ -706,6 +727,10 @@ public class Fits implements Closeable {
      * @see                              #getHDU(String, int)
      */
     public BasicHDU<?> getHDU(int n) throws FitsException, IOException, IndexOutOfBoundsException {
+        if (n >= getNumberOfHDUs() && isIndexed()) {
+            return n < index.size() ? readIndexedHDU(n) : null;
+        }
+
         for (int i = getNumberOfHDUs(); i <= n; i++) {
             BasicHDU<?> hdu = readHDU();
             if (hdu == null) {
@@ -934,6 +959,11 @@ public class Fits implements Closeable {
             }
         }
 
+        if (isIndexed()) {
+            int n = index.indexOf(name, getNumberOfHDUs());
+            return n < 0 ? null : getHDU(n);
+        }
+
         // Read additional HDUs as necessary...
         BasicHDU<?> hdu;
         while ((hdu = readHDU()) != null) {
@@ -972,6 +1002,11 @@ public class Fits implements Closeable {
             }
         }
 
+        if (isIndexed()) {
+            int n = index.indexOf(name, version, getNumberOfHDUs());
+            return n < 0 ? null : getHDU(n);
+        }
+
         // Read additional HDUs as necessary...
         BasicHDU<?> hdu;
         while ((hdu = readHDU()) != null) {
@@ -983,6 +1018,122 @@ public class Fits implements Closeable {
         return null;
     }
 
+    /**
+     * Sets an index of the HDUs in the random-accessible input of this <code>Fits</code>, which will then be used to
+     * access HDUs directly by their location in the file, without having to read all the HDUs that precede them, in
+     * {@link #getHDU(int)}, {@link #getHDU(String)}, and {@link #getHDU(String, int)}. The index is not used for inputs
+     * that are not random-accessible (e.g. compressed files or streams). It is discarded if HDUs are inserted or
+     * deleted from this <code>Fits</code>, as their positions may no longer match those in the file.
+     *
+     * @param newIndex the index of the HDUs in the input file, e.g. from {@link HDUIndex#forFile(File)}, or
+     *                     <code>null</code> to stop using an index.
+     *
+     * @see            #buildIndex()
+     * @see            #getIndex()
+     *
+     * @since          1.22
+     */
+    public void setIndex(HDUIndex newIndex) {
+        discardIndex();
+        index = newIndex;
+    }
+
+    /**
+     * Returns the index of the HDUs in the input, which is used for direct access to HDUs, if set.
+     *
+     * @return the index of the HDUs in the input, or <code>null</code> if this <code>Fits</code> has no index.
+     *
+     * @see    #setIndex(HDUIndex)
+     *
+     * @since  1.22
+     */
+    public HDUIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Builds an index of the HDUs in the random-accessible input of this <code>Fits</code> by a fast scan of the
+     * headers, and sets it as the index for direct access to HDUs.
+     *
+     * @return               the new index of the HDUs in the input.
+     *
+     * @throws FitsException if this <code>Fits</code> has no random-accessible input, or if the input is not a valid
+     *                           FITS file.
+     * @throws IOException   if there was an IO error reading the input
+     *
+     * @see                  #setIndex(HDUIndex)
+     * @see                  HDUIndex#scan(RandomAccess)
+     *
+     * @since                1.22
+     */
+    public HDUIndex buildIndex() throws FitsException, IOException {
+        if (!(dataStr instanceof RandomAccess)) {
+            throw new FitsException("Cannot index a FITS input without random access");
+        }
+        setIndex(HDUIndex.scan((RandomAccess) dataStr));
+        return index;
+    }
+
+    private boolean isIndexed() {
+        return index != null && dataStr instanceof RandomAccess;
+    }
+
+    private void discardIndex() {
+        index = null;
+        indexedHDUs.clear();
+    }
+
+    /**
+     * Reads the HDU by the specified index directly from its indexed location in the input, without changing the file
+     * pointer.
+     */
+    private BasicHDU<?> readIndexedHDU(int n) throws FitsException, IOException {
+        BasicHDU<?> hdu = indexedHDUs.get(n);
+        if (hdu == null) {
+            hdu = parseIndexedHDU(index.get(n), false);
+            indexedHDUs.put(n, hdu);
+        }
+        return hdu;
+    }
+
+    /**
+     * Parses an HDU from its indexed location, using positional reads only, so it may be called concurrently from
+     * multiple threads. The header (and data, if loaded) are parsed from an in-memory copy of their bytes, and are then
+     * associated with their locations in the input, the same way as if they were read sequentially.
+     */
+    private BasicHDU<?> parseIndexedHDU(HDUIndex.Entry e, boolean loadData) throws FitsException, IOException {
+        RandomAccess in = (RandomAccess) dataStr;
+
+        byte[] buf = new byte[(int) e.getHeaderSize()];
+        in.readFully(e.getHeaderOffset(), buf, 0, buf.length);
+
+        Header hdr;
+        try (FitsInputStream hin = new FitsInputStream(new ByteArrayInputStream(buf))) {
+            hdr = Header.readHeader(hin);
+        }
+        if (hdr == null) {
+            throw new FitsException("No HDU at indexed location " + e.getHeaderOffset());
+        }
+        hdr.setInput(in, e.getHeaderOffset());
+
+        Data data = FitsFactory.dataFactory(hdr);
+
+        long size = Math.min(e.getNextOffset(), in.length()) - e.getDataOffset();
+        if (loadData && size > 0 && size <= Integer.MAX_VALUE) {
+            buf = new byte[(int) size];
+            in.readFully(e.getDataOffset(), buf, 0, buf.length);
+
+            try (FitsInputStream din = new FitsInputStream(new ByteArrayInputStream(buf))) {
+                data.read(din);
+            } catch (PaddingException ex) {
+                LOG.warning(ex.getMessage());
+            }
+        }
+        data.setInput(in, e.getDataOffset());
+
+        return FitsFactory.hduFactory(hdr, data);
+    }
+
     /**
      * Get the number of HDUs currently available in memory. For FITS objects associated with an input this method
      * returns only the number of HDUs that have already been read / scanned, e.g. via {@link #readHDU()} or
@@ -1028,6 +1179,8 @@ public class Fits implements Closeable {
             throw new FitsException("Random groups HDUs must be the first (primary) HDU. Requested pos: " + position);
         }
 
+        discardIndex();
+
         try {
             if (position == 0) {
                 // Note that the previous initial HDU is no longer the first.
@@ -1055,13 +1208,15 @@ public class Fits implements Closeable {
     }
 
     /**
-     * Initialize using buffered random access. This implies that the data is uncompressed.
+     * Initialize using buffered random access, or read-only memory mapped access if enabled via
+     * {@link FitsFactory#setUseMemoryMapping(boolean)}. This implies that the data is uncompressed.
      *
      * @param  file          the file to open
      *
      * @throws FitsException if the file could not be read
      *
      * @see                  #randomInit(RandomAccessFileIO)
+     * @see                  FitsFactory#setUseMemoryMapping(boolean)
      */
     // TODO make private
     @Deprecated
@@ -1070,6 +1225,16 @@ public class Fits implements Closeable {
         if (!file.exists() || !file.canRead()) {
             throw new FitsException("Non-existent or unreadable file");
         }
+
+        if (FitsFactory.isUseMemoryMapping()) {
+            try {
+                dataStr = new FitsFile(new MappedFileIO(file), FitsIO.DEFAULT_BUFFER_SIZE);
+                return;
+            } catch (IOException e) {
+                throw new FitsException("Unable to map file " + file.getPath(), e);
+            }
+        }
+
         try {
             // Attempt to open the file for reading and writing.
             dataStr = new FitsFile(file, "rw");
@@ -1121,6 +1286,111 @@ public class Fits implements Closeable {
         return hduList.toArray(new BasicHDU<?>[size]);
     }
 
+    /**
+     * Same as {@link #readParallel(ExecutorService, boolean)}, using the thread pool returned by
+     * {@link FitsFactory#threadPool()}.
+     *
+     * @param  loadData      whether to load the data of the HDUs also, or else defer reading the data until it is
+     *                           accessed (as with {@link #read()}).
+     *
+     * @return               an array of all HDUs in the Fits object, the same as {@link #read()}.
+     *
+     * @throws FitsException if the reading failed.
+     * @throws IOException   if there was an IO error accessing the input.
+     *
+     * @see                  #readParallel(ExecutorService, boolean)
+     *
+     * @since                1.22
+     */
+    public BasicHDU<?>[] readParallel(boolean loadData) throws FitsException, IOException {
+        return readParallel(FitsFactory.threadPool(), loadData);
+    }
+
+    /**
+     * Reads all remaining HDUs from a random-accessible input, parsing the headers (and optionally loading the data) of
+     * the HDUs concurrently. The HDU boundaries are taken from the index of the input (see
+     * {@link #setIndex(HDUIndex)}), or else from an index built by a fast scan of the headers (see
+     * {@link #buildIndex()}). Each HDU is then parsed independently, using positional reads only, on the calling thread
+     * together with workers from the specified executor. Headers are parsed with the {@link FitsFactory} settings of
+     * the calling thread. For inputs that are not random accessible (such as compressed files or streams), this method
+     * is the same as {@link #read()}.
+     * <p>
+     * The result is the same list of HDUs that {@link #read()} would produce, but it can be obtained considerably
+     * faster for files with many extensions.
+     * </p>
+     *
+     * @param  pool          the executor to use for parsing HDUs in parallel
+     * @param  loadData      whether to load the data of the HDUs also, or else defer reading the data until it is
+     *                           accessed (as with {@link #read()}).
+     *
+     * @return               an array of all HDUs in the Fits object, the same as {@link #read()}.
+     *
+     * @throws FitsException if the reading failed.
+     * @throws IOException   if there was an IO error accessing the input.
+     *
+     * @see                  #read()
+     * @see                  #readParallel(boolean)
+     *
+     * @since                1.22
+     */
+    public BasicHDU<?>[] readParallel(ExecutorService pool, boolean loadData) throws FitsException, IOException {
+        if (!(dataStr instanceof RandomAccess) || atEOF) {
+            return read();
+        }
+
+        final HDUIndex idx = index == null ? buildIndex() : index;
+        final int first = getNumberOfHDUs();
+
+        final List<FutureTask<BasicHDU<?>>> tasks = new ArrayList<>();
+        for (int i = first; i < idx.size(); i++) {
+            final HDUIndex.Entry e = idx.get(i);
+            final BasicHDU<?> hdu = indexedHDUs.get(i);
+            tasks.add(new FutureTask<>(() -> hdu == null ? parseIndexedHDU(e, loadData) : hdu));
+        }
+
+        // Headers are parsed with the settings of the calling thread, on every thread.
+        final FitsFactory.FitsSettings settings = FitsFactory.current();
+        final List<Runnable> runs = new ArrayList<>(tasks.size());
+        for (FutureTask<BasicHDU<?>> task : tasks) {
+            runs.add(() -> FitsFactory.runWithSettings(settings, task));
+        }
+
+        ParallelTasks.run(pool, Runtime.getRuntime().availableProcessors(), runs);
+
+        for (int i = 0; i < tasks.size(); i++) {
+            hduList.add(getParsedHDU(tasks.get(i)));
+            indexedHDUs.remove(first + i);
+            lastFileOffset = idx.get(first + i).getNextOffset();
+        }
+
+        // Read anything beyond the indexed HDUs, the usual way.
+        return read();
+    }
+
+    /**
+     * Waits for, and returns, the result of parsing an HDU in parallel.
+     */
+    private static BasicHDU<?> getParsedHDU(FutureTask<BasicHDU<?>> task) throws FitsException, IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FitsException("Interrupted while reading HDUs", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FitsException) {
+                throw (FitsException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new FitsException("Could not read HDU: " + cause.getMessage(), cause);
+        }
+    }
+
     /**
      * Read a FITS file from an InputStream object.
      *
@@ -1165,6 +1435,14 @@ public class Fits implements Closeable {
             return null;
         }
 
+        BasicHDU<?> indexed = indexedHDUs.remove(getNumberOfHDUs());
+        if (indexed != null) {
+            // We already read this one via the index...
+            lastFileOffset = index.get(getNumberOfHDUs()).getNextOffset();
+            hduList.add(indexed);
+            return indexed;
+        }
+
         if (dataStr instanceof RandomAccess && lastFileOffset > 0) {
             FitsUtil.reposition(dataStr, lastFileOffset);
         }
@@ -1387,6 +1665,7 @@ public class Fits implements Closeable {
         dataStr = stream;
         atEOF = false;
         lastFileOffset = -1;
+        discardIndex();
     }
 
     /**
@@ -1503,7 +1782,8 @@ public class Fits implements Closeable {
     }
 
     /**
-     * Writes the contents to a new file.
+     * Writes the contents to a new file. If {@link FitsFactory#setChecksumOnWrite(boolean)} is enabled, the
+     * <code>DATASUM</code> and <code>CHECKSUM</code> keywords of all HDUs are filled in on the fly also.
      *
      * @param  file          a file to which the FITS is to be written.
      *
@@ -1511,9 +1791,12 @@ public class Fits implements Closeable {
      * @throws IOException   if the underlying output stream could not be created or closed.
      *
      * @see                  #write(FitsOutputStream)
+     * @see                  FitsFactory#setChecksumOnWrite(boolean)
      */
     public void write(File file) throws IOException, FitsException {
-        try (FileOutputStream o = new FileOutputStream(file); FitsOutputStream fo = new FitsOutputStream(o)) {
+        try (FileOutputStream o = new FileOutputStream(file);
+                FitsOutputStream fo = FitsFactory.isChecksumOnWrite() ? new ChecksumOutputStream(o) :
+                        new FitsOutputStream(o)) {
             write(fo);
             o.flush();
         }
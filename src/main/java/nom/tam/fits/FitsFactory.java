@@ -2,6 +2,7 @@ package nom.tam.fits;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadFactory;
 
 import nom.tam.fits.header.Standard;
@@ -69,6 +70,13 @@ public final class FitsFactory {
 
     private static final boolean DEFAULT_CASE_SENSITIVE_HIERARCH = false;
 
+    private static final boolean DEFAULT_USE_MEMORY_MAPPING = false;
+
+    private static final boolean DEFAULT_CHECKSUM_ON_WRITE = false;
+
+    /** No limit on the number of tiles being processed at once by default */
+    private static final int DEFAULT_MAX_TILES_IN_FLIGHT = 0;
+
     /**
      * AK: true is the legacy behavior TODO If and when it is changed to false, the corresponding Logger warnings in
      * BinaryTable should also be removed.
@@ -103,6 +111,14 @@ public final class FitsFactory {
         @Deprecated
         private boolean skipBlankAfterAssign;
 
+        private boolean useMemoryMapping;
+
+        private boolean checksumOnWrite;
+
+        private ExecutorService threadPool;
+
+        private int maxTilesInFlight;
+
         private IHierarchKeyFormatter hierarchKeyFormatter = DEFAULT_HIERARCH_FORMATTER;
 
         private FitsSettings() {
@@ -115,6 +131,9 @@ public final class FitsFactory {
             allowHeaderRepairs = DEFAULT_ALLOW_HEADER_REPAIRS;
             longStringsEnabled = DEFAULT_LONG_STRINGS_ENABLED;
             skipBlankAfterAssign = DEFAULT_SKIP_BLANK_AFTER_ASSIGN;
+            useMemoryMapping = DEFAULT_USE_MEMORY_MAPPING;
+            checksumOnWrite = DEFAULT_CHECKSUM_ON_WRITE;
+            maxTilesInFlight = DEFAULT_MAX_TILES_IN_FLIGHT;
             hierarchKeyFormatter = DEFAULT_HIERARCH_FORMATTER;
             hierarchKeyFormatter.setCaseSensitive(DEFAULT_CASE_SENSITIVE_HIERARCH);
         }
@@ -257,6 +276,45 @@ public final class FitsFactory {
             return allowHeaderRepairs;
         }
 
+        /**
+         * Checks if uncompressed FITS files should be opened for read-only access via memory mapping, rather than
+         * through a buffered {@link java.io.RandomAccessFile}.
+         * 
+         * @return <code>true</code> if files are to be memory mapped for reading, otherwise <code>false</code>.
+         */
+        protected boolean isUseMemoryMapping() {
+            return useMemoryMapping;
+        }
+
+        /**
+         * Checks if the DATASUM and CHECKSUM keywords should be filled in automatically when writing FITS files.
+         * 
+         * @return <code>true</code> if checksums are to be calculated on the fly while writing files, otherwise
+         *             <code>false</code>.
+         */
+        protected boolean isChecksumOnWrite() {
+            return checksumOnWrite;
+        }
+
+        /**
+         * Returns the executor service that was selected for the parallel processing of tiles, if any.
+         * 
+         * @return the user-selected executor service for processing tiles in parallel, or <code>null</code> if the
+         *             shared default thread pool is to be used.
+         */
+        protected ExecutorService getThreadPool() {
+            return threadPool;
+        }
+
+        /**
+         * Returns the maximum number of tiles that may be submitted for (de)compression at once.
+         * 
+         * @return the maximum number of tiles processed at once, or 0 if there is no limit.
+         */
+        protected int getMaxTilesInFlight() {
+            return maxTilesInFlight;
+        }
+
     }
 
     private static final FitsSettings GLOBAL_SETTINGS = new FitsSettings();
@@ -265,6 +323,8 @@ public final class FitsFactory {
 
     private static ExecutorService threadPool;
 
+    private static ExecutorService virtualThreadPool;
+
     /**
      * the size of a FITS block in bytes.
      */
@@ -599,6 +659,10 @@ public final class FitsFactory {
         s.useAsciiTables = DEFAULT_USE_ASCII_TABLES;
         s.useHierarch = DEFAULT_USE_HIERARCH;
         s.useUnicodeChars = DEFAULT_USE_UNICODE_CHARS;
+        s.useMemoryMapping = DEFAULT_USE_MEMORY_MAPPING;
+        s.checksumOnWrite = DEFAULT_CHECKSUM_ON_WRITE;
+        s.threadPool = null;
+        s.maxTilesInFlight = DEFAULT_MAX_TILES_IN_FLIGHT;
         s.hierarchKeyFormatter = DEFAULT_HIERARCH_FORMATTER;
         s.hierarchKeyFormatter.setCaseSensitive(DEFAULT_CASE_SENSITIVE_HIERARCH);
     }
@@ -735,17 +799,175 @@ public final class FitsFactory {
     }
 
     /**
-     * Returns the common thread pool that we use for processing FITS files.
+     * Enable/Disable memory mapped reading of uncompressed FITS files that are opened via
+     * {@link Fits#Fits(java.io.File)} or {@link Fits#Fits(String)}. When enabled, files are mapped into memory for
+     * read-only access, such that data is decoded straight from the operating system's page cache, which can
+     * significantly speed up reading large images or tables, or reading select parts of large files repeatedly.
+     * However, the files so opened cannot be modified in place (e.g. via {@link BasicHDU#rewrite()}). Disabled by
+     * default.
+     * 
+     * @param value <code>true</code> to memory map FITS files for reading, or <code>false</code> to use buffered
+     *                  random access (default).
+     * 
+     * @since       1.22
+     * 
+     * @see         #isUseMemoryMapping()
+     * @see         nom.tam.util.MappedFileIO
+     */
+    public static void setUseMemoryMapping(boolean value) {
+        current().useMemoryMapping = value;
+    }
+
+    /**
+     * Checks if uncompressed FITS files opened via {@link Fits#Fits(java.io.File)} or {@link Fits#Fits(String)} will be
+     * memory mapped for read-only access.
+     * 
+     * @return <code>true</code> if files are memory mapped for reading, or else <code>false</code> if they are
+     *             accessed via buffered random access (default).
+     * 
+     * @since  1.22
+     * 
+     * @see    #setUseMemoryMapping(boolean)
+     */
+    public static boolean isUseMemoryMapping() {
+        return current().isUseMemoryMapping();
+    }
+
+    /**
+     * Sets whether FITS files written via {@link Fits#write(java.io.File)} or {@link Fits#write(String)} should have
+     * their <code>DATASUM</code> and <code>CHECKSUM</code> keywords filled in automatically for every HDU. When
+     * enabled, the checksums are accumulated as the bytes are written to disk, and only the header blocks are rewritten
+     * with the final values afterwards. As such, it is a much cheaper alternative to calling {@link Fits#setChecksum()}
+     * before writing, which requires an extra serialization pass through all data. Disabled by default.
+     * 
+     * @param value <code>true</code> to calculate checksums while writing files, or <code>false</code> to write the
+     *                  HDUs as they are (default).
+     * 
+     * @since       1.22
+     * 
+     * @see         #isChecksumOnWrite()
+     * @see         nom.tam.util.ChecksumOutputStream
+     */
+    public static void setChecksumOnWrite(boolean value) {
+        current().checksumOnWrite = value;
+    }
+
+    /**
+     * Checks if the <code>DATASUM</code> and <code>CHECKSUM</code> keywords will be filled in automatically when
+     * writing FITS files via {@link Fits#write(java.io.File)} or {@link Fits#write(String)}.
+     * 
+     * @return <code>true</code> if checksums are calculated while writing files, or else <code>false</code> (default).
+     * 
+     * @since  1.22
+     * 
+     * @see    #setChecksumOnWrite(boolean)
+     */
+    public static boolean isChecksumOnWrite() {
+        return current().isChecksumOnWrite();
+    }
+
+    /**
+     * Returns the thread pool that we use for processing FITS files, such as for the parallel (de)compression of tiles.
+     * It is the executor service that was set via {@link #setThreadPool(ExecutorService)} for the current settings
+     * (global or thread-local), or else the shared default pool of 2&times; as many daemon threads as there are
+     * available processors.
      * 
      * @return the thread pool for processing FITS files.
+     * 
+     * @see    #setThreadPool(ExecutorService)
      */
     public static ExecutorService threadPool() {
+        ExecutorService pool = current().getThreadPool();
+        if (pool != null) {
+            return pool;
+        }
         if (threadPool == null) {
             initializeThreadPool();
         }
         return threadPool;
     }
 
+    /**
+     * Sets the executor service to use for processing FITS files, such as for the parallel (de)compression of tiles,
+     * instead of the shared default pool. It lets applications that manage their own worker pools avoid
+     * oversubscribing the CPUs. The setting applies to the global settings, or to the current thread only if it
+     * uses thread-local settings (see {@link #useThreadLocalSettings(boolean)}). The executor service is not shut
+     * down by this library. Compressed HDUs may also override the executor for their own operations, e.g. via
+     * {@link CompressedImageHDU#setThreadPool(ExecutorService)}.
+     * 
+     * @param pool the executor service to use for parallel processing, or <code>null</code> to use the shared default
+     *                 thread pool.
+     * 
+     * @since      1.22
+     * 
+     * @see        #threadPool()
+     * @see        #virtualThreadPool()
+     * @see        #setMaxTilesInFlight(int)
+     */
+    public static void setThreadPool(ExecutorService pool) {
+        current().threadPool = pool;
+    }
+
+    /**
+     * Returns the shared executor service that runs every task in a new virtual thread, if the Java runtime supports
+     * virtual threads (Java 21 or later). Either way, there are no additional platform threads created for processing
+     * FITS files. The executor is created once, on first use, and the same instance is returned on every call
+     * thereafter. You can use the returned executor as an argument to {@link #setThreadPool(ExecutorService)}. It is
+     * shared by all callers, and so it should not be shut down.
+     * <p>
+     * On Java runtimes without virtual threads (Java 20 or earlier), the returned executor is the JVM-wide
+     * {@link ForkJoinPool#commonPool()} instead, whose worker threads are also shared with parallel streams and other
+     * libraries in the same JVM. The common pool ignores attempts to shut it down.
+     * </p>
+     * 
+     * @return the shared executor service that uses virtual threads if possible, or else the common fork-join pool.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setThreadPool(ExecutorService)
+     */
+    public static ExecutorService virtualThreadPool() {
+        if (virtualThreadPool == null) {
+            initializeVirtualThreadPool();
+        }
+        return virtualThreadPool;
+    }
+
+    /**
+     * Sets the maximum number of tiles that may be submitted for parallel (de)compression at once. Each tile being
+     * processed holds its own working buffers, so limiting the number of tiles in flight caps the memory used when
+     * (de)compressing very large images or tables. The setting applies to the global settings, or to the current
+     * thread only if it uses thread-local settings (see {@link #useThreadLocalSettings(boolean)}).
+     * 
+     * @param  n                        the maximum number of tiles in flight, or 0 for no limit (default).
+     * 
+     * @throws IllegalArgumentException if the argument is negative.
+     * 
+     * @since                           1.22
+     * 
+     * @see                             #getMaxTilesInFlight()
+     * @see                             #setThreadPool(ExecutorService)
+     */
+    public static void setMaxTilesInFlight(int n) throws IllegalArgumentException {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative tile limit: " + n);
+        }
+        current().maxTilesInFlight = n;
+    }
+
+    /**
+     * Returns the maximum number of tiles that may be submitted for parallel (de)compression at once.
+     * 
+     * @return the maximum number of tiles in flight, or 0 if there is no limit.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setMaxTilesInFlight(int)
+     */
+    public static int getMaxTilesInFlight() {
+        return current().getMaxTilesInFlight();
+    }
+
     /**
      * Use thread local settings for the current thread instead of the global ones if the parameter is set to true, else
      * use the shared global settings.
@@ -760,6 +982,31 @@ public final class FitsFactory {
         }
     }
 
+    /**
+     * Runs a task in the current thread using the specified settings, e.g. the settings of the thread that submitted
+     * the task for processing in our thread pool, and restores the prior settings of the thread afterwards.
+     * 
+     * @param settings the settings to use while the task is running
+     * @param task     the task to run.
+     * 
+     * @see            #current()
+     * 
+     * @since          1.22
+     */
+    static void runWithSettings(FitsSettings settings, Runnable task) {
+        FitsSettings prior = LOCAL_SETTINGS.get();
+        LOCAL_SETTINGS.set(settings);
+        try {
+            task.run();
+        } finally {
+            if (prior == null) {
+                LOCAL_SETTINGS.remove();
+            } else {
+                LOCAL_SETTINGS.set(prior);
+            }
+        }
+    }
+
     private static void initializeThreadPool() {
         synchronized (GLOBAL_SETTINGS) {
             if (threadPool == null) {
@@ -778,6 +1025,20 @@ public final class FitsFactory {
         }
     }
 
+    private static void initializeVirtualThreadPool() {
+        synchronized (GLOBAL_SETTINGS) {
+            if (virtualThreadPool == null) {
+                try {
+                    virtualThreadPool = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                            .invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    // No virtual threads before Java 21
+                    virtualThreadPool = ForkJoinPool.commonPool();
+                }
+            }
+        }
+    }
+
     /**
      * Returns the current settings that guide how we read or produce FITS files.
      * 
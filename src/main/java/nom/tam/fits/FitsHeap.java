@@ -31,36 +31,51 @@ package nom.tam.fits;
  * #L%
  */
 
+import java.io.EOFException;
 import java.io.IOException;
 
+import nom.tam.fits.BinaryTable.ColumnDesc;
 import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.ByteArrayIO;
-import nom.tam.util.FitsDecoder;
 import nom.tam.util.FitsEncoder;
+import nom.tam.util.PositionalDecoder;
+import nom.tam.util.RandomAccess;
+import nom.tam.util.type.ElementType;
 
 /**
  * Heap for storing variable-length entries in binary tables. FITS binary tables store variable length arrays on a heap,
  * following the regular array data. The newer implementation of the heap now provides proper random access to the byte
- * buffer as of version 1.16.
+ * buffer as of version 1.16. As of 1.22, the heap of a table in a random-accessible input may also be accessed in-situ,
+ * reading only the data that is actually requested, when it is requested. Such file-backed heaps are not limited to
+ * 2 GB in size, and use little memory regardless of their size. They are loaded into memory only if they need to be
+ * modified.
  */
 public class FitsHeap implements FitsElement {
 
     /** The minimum stoprage size to allocate for the heap, from which it can grow as necessary */
     private static final int MIN_HEAP_CAPACITY = 16384;
 
-    // TODO
-    // AK: In principle we could use ReadWriteAccess interface as the storage, which can be either an in-memory
-    // array or a buffered file region. The latter could support heaps over 2G, and could reduce memory overhead
-    // for heap access in some future release...
-    /** The underlying storage space of the heap */
-    private ByteArrayIO store;
+    /** (bytes) The size of the buffer used for copying a file-backed heap to an output */
+    private static final int COPY_BUFFER_SIZE = 1 << Short.SIZE;
+
+    /** The underlying storage space of the heap, or <code>null</code> if the heap is file-backed */
+    private volatile ByteArrayIO store;
+
+    /** The input in which a file-backed heap resides, or <code>null</code> if the heap is in memory */
+    private RandomAccess input;
+
+    /** The position of a file-backed heap in its input */
+    private long inputStart;
+
+    /** (bytes) The size of a file-backed heap */
+    private long inputSize;
 
     /** conversion from Java arrays to FITS binary representation */
     private FitsEncoder encoder;
 
-    /** conversion from FITS binary representation to Java arrays */
-    private FitsDecoder decoder;
+    /** conversion from FITS binary representation to Java arrays, for concurrent reads from any heap location */
+    private final PositionalDecoder decoder = new PositionalDecoder(this::readBytes);
 
     /**
      * Construct a new uninitialized FITS heap object.
@@ -84,7 +99,75 @@ public class FitsHeap implements FitsElement {
         data.setLength(Math.max(0, size));
         setData(data);
         encoder = new FitsEncoder(store);
-        decoder = new FitsDecoder(store);
+    }
+
+    /**
+     * Creates a file-backed heap, which reads data from a region of a random-accessible input only when, and as, it is
+     * requested. The heap is loaded into memory only if it is modified, which is possible only for heaps up to 2 GB in
+     * size.
+     * 
+     * @param  in                       the random-accessible input that contains the heap
+     * @param  pos                      the position of the heap in the input
+     * @param  size                     (bytes) the size of the heap
+     * 
+     * @return                          a new file-backed heap
+     * 
+     * @throws IllegalArgumentException if the size argument is negative.
+     * 
+     * @since                           1.22
+     */
+    static FitsHeap fromInput(RandomAccess in, long pos, long size) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal size for FITS heap: " + size);
+        }
+
+        FitsHeap h = new FitsHeap();
+        h.input = in;
+        h.inputStart = pos;
+        h.inputSize = size;
+        return h;
+    }
+
+    /**
+     * Checks if this heap is file-backed, that is if it reads data from its input on demand, rather than holding data
+     * in memory.
+     * 
+     * @return <code>true</code> if the heap is file-backed, or else <code>false</code> if it is in memory.
+     * 
+     * @since  1.22
+     */
+    synchronized boolean isFileBacked() {
+        return store == null;
+    }
+
+    /**
+     * Loads a file-backed heap into memory, so that it may be modified. It does nothing if the heap is already in
+     * memory.
+     * 
+     * @throws FitsException if the heap is too large to be held in memory (&gt;2 GB), or if it could not be read from
+     *                           its input.
+     */
+    private synchronized void load() throws FitsException {
+        if (store != null) {
+            return;
+        }
+
+        if (inputSize > Integer.MAX_VALUE) {
+            throw new FitsException("Cannot modify file-backed FITS heap > 2 GB");
+        }
+
+        ByteArrayIO data = new ByteArrayIO((int) Math.max(inputSize, MIN_HEAP_CAPACITY));
+        data.setLength((int) inputSize);
+
+        try {
+            input.readFully(inputStart, data.getBuffer(), 0, (int) inputSize);
+        } catch (IOException e) {
+            throw new FitsException("Error reading heap " + e.getMessage(), e);
+        }
+
+        setData(data);
+        encoder = new FitsEncoder(store);
+        input = null;
     }
 
     /**
@@ -101,30 +184,147 @@ public class FitsHeap implements FitsElement {
      * included variable length columns.
      */
     synchronized FitsHeap copy() {
+        if (store == null) {
+            // The input region is never modified through us, so copies can share it.
+            return fromInput(input, inputStart, inputSize);
+        }
+
         FitsHeap copy = new FitsHeap();
         synchronized (copy) {
             copy.setData(store.copy());
             copy.encoder = new FitsEncoder(copy.store);
-            copy.decoder = new FitsDecoder(copy.store);
         }
         return copy;
     }
 
     /**
-     * Gets data for a Java array from the heap. The array may be a multi-dimensional array of arrays.
+     * Copies the entries of this heap that are referenced by the variable-length columns of a derived table (such as a
+     * projection or selection) into a new heap, which is held in memory, and updates the descriptors in the column
+     * data to point to their new locations. Entries are copied row by row, and entries that are not referenced are not
+     * copied at all.
+     * 
+     * @param  cols          the descriptors of the columns in the derived table
+     * @param  data          the flattened storage arrays of each of the columns, whose heap descriptors are updated
+     * @param  rows          the number of rows in the data
+     * 
+     * @return               a new heap with just the referenced entries
+     * 
+     * @throws FitsException if the heap entries could not be read from the input
+     */
+    FitsHeap copyEntries(ColumnDesc[] cols, Object[] data, int rows) throws FitsException {
+        FitsHeap copy = new FitsHeap(0);
+        int[] eSize = new int[cols.length];
+
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i].isVariableSize()) {
+                eSize[i] = ElementType.forClass(cols[i].getFitsBase()).size();
+            }
+        }
+
+        for (int k = 0; k < rows << 1; k += 2) {
+            for (int i = 0; i < cols.length; i++) {
+                if (!cols[i].isVariableSize()) {
+                    continue;
+                }
+
+                if (data[i] instanceof long[]) {
+                    long[] p = (long[]) data[i];
+                    p[k + 1] = copy.copyFrom(this, p[k + 1], cols[i].getFitsBaseCount((int) p[k]) * eSize[i]);
+                } else {
+                    int[] p = (int[]) data[i];
+                    p[k + 1] = copy.copyFrom(this, p[k + 1], cols[i].getFitsBaseCount(p[k]) * eSize[i]);
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Copies bytes from the heap storage, starting at the specified heap offset.
+     * 
+     * @param  pos  the heap offset of the first byte
+     * @param  b    the buffer to copy into
+     * @param  from the starting index in the buffer
+     * @param  len  the maximum number of bytes to copy
+     * 
+     * @return             the number of bytes copied, or -1 if the offset is at or beyond the end of the heap.
+     * 
+     * @throws IOException if a file-backed heap could not be read from its input.
+     */
+    private int readBytes(long pos, byte[] b, int from, int len) throws IOException {
+        ByteArrayIO s = store;
+
+        if (s == null) {
+            RandomAccess in;
+            long n;
+
+            synchronized (this) {
+                if (store != null) {
+                    // Loaded into memory in the meantime...
+                    return readBytes(pos, b, from, len);
+                }
+                in = input;
+                n = Math.min(len, inputSize - pos);
+            }
+
+            if (n <= 0) {
+                return len > 0 ? -1 : 0;
+            }
+
+            // Positional read, without holding our lock
+            in.readFully(inputStart + pos, b, from, (int) n);
+            return (int) n;
+        }
+
+        byte[] buf;
+        long size;
+
+        // A concurrent write may grow (and replace) the buffer, so we must get the buffer and its length together.
+        synchronized (s) {
+            buf = s.getBuffer();
+            size = s.length();
+        }
+
+        long n = Math.min(len, size - pos);
+        if (n <= 0) {
+            return len > 0 ? -1 : 0;
+        }
+        System.arraycopy(buf, (int) pos, b, from, (int) n);
+        return (int) n;
+    }
+
+    /**
+     * Gets data for a Java array from the heap. The array may be a multi-dimensional array of arrays. Multiple threads
+     * may retrieve data from the same heap concurrently, without contending for a common lock.
+     *
+     * @param  offset        the heap byte offset at which the data begins.
+     * @param  array         The array of primitives to be extracted.
+     *
+     * @throws FitsException if the operation failed
+     */
+    public void getData(int offset, Object array) throws FitsException {
+        getData((long) offset, array);
+    }
+
+    /**
+     * Gets data for a Java array from the heap, including from beyond the first 2 GB of file-backed heaps. The array
+     * may be a multi-dimensional array of arrays. Multiple threads may retrieve data from the same heap concurrently,
+     * without contending for a common lock.
      *
      * @param  offset        the heap byte offset at which the data begins.
      * @param  array         The array of primitives to be extracted.
      *
      * @throws FitsException if the operation failed
+     * 
+     * @since                1.22
      */
-    public synchronized void getData(int offset, Object array) throws FitsException {
+    public void getData(long offset, Object array) throws FitsException {
         try {
-            store.position(offset);
-            decoder.readArrayFully(array);
+            decoder.readArrayFully(offset, array);
         } catch (Exception e) {
             throw new FitsException("Error decoding heap area at offset=" + offset + ", size="
-                    + FitsEncoder.computeSize(array) + " (heap size " + size() + "): " + e.getMessage(), e);
+                    + FitsEncoder.computeSize(array) + " (heap size " + getSize() + "): " + e.getMessage(), e);
         }
     }
 
@@ -135,7 +335,7 @@ public class FitsHeap implements FitsElement {
 
     @Override
     public synchronized long getSize() {
-        return size();
+        return store == null ? inputSize : store.length();
     }
 
     /**
@@ -149,6 +349,7 @@ public class FitsHeap implements FitsElement {
      * @see         #getData(int, Object)
      */
     synchronized long putData(Object data) throws FitsException {
+        load();
         return putData(data, store.length());
     }
 
@@ -164,6 +365,8 @@ public class FitsHeap implements FitsElement {
      * @see         #getData(int, Object)
      */
     synchronized long putData(Object data, long pos) throws FitsException {
+        load();
+
         long lsize = pos + FitsEncoder.computeSize(data);
         if (lsize > Integer.MAX_VALUE) {
             throw new FitsException("FITS Heap > 2 G");
@@ -188,17 +391,58 @@ public class FitsHeap implements FitsElement {
      * 
      * @return        the position of the copied data in this heap.
      */
-    synchronized int copyFrom(FitsHeap src, int offset, int len) {
+    synchronized int copyFrom(FitsHeap src, long offset, int len) throws FitsException {
+        load();
+
         int pos = (int) store.length();
         store.setLength(pos + len);
-        synchronized (src) {
-            System.arraycopy(src.store.getBuffer(), offset, store.getBuffer(), pos, len);
+
+        try {
+            for (int n = 0; n < len;) {
+                int k = src.readBytes(offset + n, store.getBuffer(), pos + n, len - n);
+                if (k < 0) {
+                    throw new EOFException("Unexpected end of heap at offset " + (offset + n));
+                }
+                n += k;
+            }
+        } catch (IOException e) {
+            throw new FitsException("Error copying heap data: " + e.getMessage(), e);
         }
+
         return pos;
     }
 
+    /**
+     * Reads the heap from a random-accessible input, starting at the specified position, without changing the input's
+     * current position.
+     * 
+     * @param  in            the random-accessible input
+     * @param  pos           the position in the input at which the heap begins
+     * 
+     * @throws FitsException if the heap could not be read from the input
+     * 
+     * @see                  #read(ArrayDataInput)
+     * 
+     * @since                1.22
+     */
+    synchronized void read(RandomAccess in, long pos) throws FitsException {
+        load();
+
+        if (store.length() == 0) {
+            return;
+        }
+
+        try {
+            in.readFully(pos, store.getBuffer(), 0, (int) store.length());
+        } catch (IOException e) {
+            throw new FitsException("Error reading heap " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public synchronized void read(ArrayDataInput str) throws FitsException {
+        load();
+
         if (store.length() == 0) {
             return;
         }
@@ -228,16 +472,38 @@ public class FitsHeap implements FitsElement {
     /**
      * Returns the current heap size.
      *
-     * @return the size of the heap in bytes
+     * @return                       the size of the heap in bytes
+     * 
+     * @throws IllegalStateException if the heap is a file-backed heap larger than 2 GB. Use {@link #getSize()} instead
+     *                                   for such heaps.
+     * 
+     * @see                          #getSize()
      */
-    public synchronized int size() {
-        return (int) store.length();
+    public synchronized int size() throws IllegalStateException {
+        long size = getSize();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("FITS heap > 2 GB");
+        }
+        return (int) size;
     }
 
     @Override
     public synchronized void write(ArrayDataOutput str) throws FitsException {
         try {
-            str.write(store.getBuffer(), 0, (int) store.length());
+            if (store != null) {
+                str.write(store.getBuffer(), 0, (int) store.length());
+            } else if (str == input && input.position() == inputStart) {
+                // Rewriting an unmodified file-backed heap in place.
+                input.skipAllBytes(inputSize);
+            } else {
+                byte[] b = new byte[(int) Math.min(inputSize, COPY_BUFFER_SIZE)];
+                for (long pos = 0; pos < inputSize;) {
+                    int n = (int) Math.min(b.length, inputSize - pos);
+                    input.readFully(inputStart + pos, b, 0, n);
+                    str.write(b, 0, n);
+                    pos += n;
+                }
+            }
         } catch (IOException e) {
             throw new FitsException("Error writing heap:" + e.getMessage(), e);
         }
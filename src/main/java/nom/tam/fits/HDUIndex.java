@@ -0,0 +1,734 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsIO;
+import nom.tam.util.RandomAccess;
+
+import static nom.tam.fits.header.Standard.BITPIX;
+import static nom.tam.fits.header.Standard.END;
+import static nom.tam.fits.header.Standard.EXTNAME;
+import static nom.tam.fits.header.Standard.EXTVER;
+import static nom.tam.fits.header.Standard.GCOUNT;
+import static nom.tam.fits.header.Standard.GROUPS;
+import static nom.tam.fits.header.Standard.NAXIS;
+import static nom.tam.fits.header.Standard.PCOUNT;
+import static nom.tam.fits.header.Standard.SIMPLE;
+import static nom.tam.fits.header.Standard.XTENSION;
+
+/**
+ * A lightweight catalog of the HDUs in a FITS file, with their locations in the file and the few essential header
+ * values that identify them (<code>XTENSION</code>, <code>EXTNAME</code>, <code>EXTVER</code>, <code>BITPIX</code>,
+ * and <code>NAXIS</code><i>n</i>). The index is built by a fast scan, which reads just the header blocks of each HDU
+ * and picks out the few keywords it needs without fully parsing the headers, and which skips over the data segments
+ * without reading them. Once built, an index may be persisted in a sidecar file next to the FITS file, which is
+ * validated against the size and modification time of the FITS file when loaded again later.
+ * <p>
+ * A {@link Fits} object that has an index (see {@link Fits#setIndex(HDUIndex)}) will use it to seek directly to the
+ * requested HDU in {@link Fits#getHDU(int)}, {@link Fits#getHDU(String)}, or {@link Fits#getHDU(String, int)}, rather
+ * than reading all preceding headers sequentially. For files with thousands of extensions, this turns the access of
+ * any HDU into a constant-time operation, e.g.:
+ * </p>
+ *
+ * <pre>
+ *   File file = new File("mosaic.fits");
+ *   try (Fits fits = new Fits(file)) {
+ *       // Load the index from its sidecar file, or else scan the FITS (and save the sidecar for next time).
+ *       fits.setIndex(HDUIndex.forFile(file));
+ *       ImageHDU ccd = (ImageHDU) fits.getHDU("CCD42");
+ *       ...
+ *   }
+ * </pre>
+ * <p>
+ * The scan recognizes only the simple form of the <code>EXTNAME</code> values, that is it does not follow long string
+ * values continued onto <code>CONTINUE</code> cards.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ *
+ * @see    Fits#setIndex(HDUIndex)
+ */
+public final class HDUIndex {
+
+    private static final Logger LOG = Logger.getLogger(HDUIndex.class.getName());
+
+    /** The file name extension added to the name of the FITS file for the index sidecar file */
+    public static final String SIDECAR_EXTENSION = ".hduidx";
+
+    /** A unique identifier at the beginning of sidecar files, including the format version */
+    private static final String SIDECAR_MAGIC = "nom.tam.fits.HDUIndex/1";
+
+    private static final int CARD = HeaderCard.FITS_HEADER_CARD_SIZE;
+
+    private static final int BLOCK = FitsFactory.FITS_BLOCK_SIZE;
+
+    /** The number of characters in the keyword field of header records */
+    private static final int KEY_LENGTH = 8;
+
+    /** The position of the value in a header record, after the value indicator */
+    private static final int VALUE_START = 10;
+
+    /** The radix for parsing the axis number in NAXISn keywords */
+    private static final int DECIMAL = 10;
+
+    private final List<Entry> entries;
+
+    private final long fileSize;
+
+    private final long lastModified;
+
+    /**
+     * The location and identifying properties of an HDU within a FITS file.
+     *
+     * @author Attila Kovacs
+     *
+     * @since  1.22
+     */
+    public static final class Entry {
+        private final int index;
+
+        private final long headerOffset;
+
+        private long dataOffset;
+
+        private long dataSize;
+
+        private String xtension;
+
+        private String extName;
+
+        private Integer extVer;
+
+        private int bitpix;
+
+        private int[] axes;
+
+        private Entry(int index, long headerOffset) {
+            this.index = index;
+            this.headerOffset = headerOffset;
+        }
+
+        /**
+         * Returns the index of the HDU in the FITS file.
+         *
+         * @return the zero-based index of the HDU, with 0 being the primary HDU.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the byte offset in the file at which the header of this HDU begins.
+         *
+         * @return the file offset of the header
+         */
+        public long getHeaderOffset() {
+            return headerOffset;
+        }
+
+        /**
+         * Returns the size of the header, including the padding after the <code>END</code> keyword.
+         *
+         * @return the number of bytes occupied by the header in the file.
+         */
+        public long getHeaderSize() {
+            return dataOffset - headerOffset;
+        }
+
+        /**
+         * Returns the byte offset in the file at which the data of this HDU begins.
+         *
+         * @return the file offset of the data
+         */
+        public long getDataOffset() {
+            return dataOffset;
+        }
+
+        /**
+         * Returns the size of the data segment, as described by the header, without the padding after it.
+         *
+         * @return the number of data bytes in this HDU.
+         */
+        public long getDataSize() {
+            return dataSize;
+        }
+
+        /**
+         * Returns the file offset at which the next HDU (if any) begins.
+         *
+         * @return the file offset immediately after the padded data segment of this HDU.
+         */
+        public long getNextOffset() {
+            return dataOffset + FitsUtil.addPadding(dataSize);
+        }
+
+        /**
+         * Returns the extension type of this HDU.
+         *
+         * @return the value of the <code>XTENSION</code> keyword, or <code>null</code> for the primary HDU.
+         */
+        public String getXtension() {
+            return xtension;
+        }
+
+        /**
+         * Returns the extension name of this HDU.
+         *
+         * @return the value of the <code>EXTNAME</code> keyword, or <code>null</code> if the header has none.
+         */
+        public String getExtName() {
+            return extName;
+        }
+
+        /**
+         * Returns the extension version of this HDU.
+         *
+         * @return the value of the <code>EXTVER</code> keyword, or <code>null</code> if the header has none.
+         */
+        public Integer getExtVer() {
+            return extVer;
+        }
+
+        /**
+         * Returns the <code>BITPIX</code> value of this HDU.
+         *
+         * @return the number of bits per data element, negative for floating-point types.
+         */
+        public int getBitpix() {
+            return bitpix;
+        }
+
+        /**
+         * Returns the dimensions of the data in this HDU, in Java index order, the same as {@link BasicHDU#getAxes()}.
+         *
+         * @return the values of the <code>NAXIS</code><i>n</i> keywords, in reverse order, or an empty array if
+         *             <code>NAXIS</code> is 0.
+         */
+        public int[] getAxes() {
+            return axes.clone();
+        }
+
+        private boolean isNameMatch(String name) {
+            return name.equals(extName);
+        }
+
+        private boolean isNameVersionMatch(String name, int version) {
+            return isNameMatch(name) && extVer != null && extVer == version;
+        }
+    }
+
+    private HDUIndex(List<Entry> entries, long fileSize, long lastModified) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Builds an index of all HDUs in a random-accessible FITS input, by a fast scan of the headers. The file pointer
+     * of the input is not changed, since the scan uses positional reads only.
+     *
+     * @param  in            the random-accessible FITS input
+     *
+     * @return               a new index of the HDUs in the input.
+     *
+     * @throws FitsException if the input does not start with a valid FITS header.
+     * @throws IOException   if there was an IO error reading the input.
+     */
+    public static HDUIndex scan(RandomAccess in) throws FitsException, IOException {
+        return new HDUIndex(scanEntries(in), -1L, -1L);
+    }
+
+    /**
+     * Builds an index of all HDUs in a FITS file, by a fast scan of the headers. The index records the size and
+     * modification time of the file, so it can be validated when it is loaded back from a sidecar file.
+     *
+     * @param  file          the FITS file
+     *
+     * @return               a new index of the HDUs in the file.
+     *
+     * @throws FitsException if the file does not start with a valid FITS header.
+     * @throws IOException   if there was an IO error reading the file.
+     *
+     * @see                  #forFile(File)
+     */
+    public static HDUIndex scan(File file) throws FitsException, IOException {
+        long size = file.length();
+        long modified = file.lastModified();
+
+        try (FitsFile in = new FitsFile(file, "r")) {
+            return new HDUIndex(scanEntries(in), size, modified);
+        }
+    }
+
+    /**
+     * Returns the index for a FITS file, loading it from its sidecar file if the sidecar exists and is still valid for
+     * the file, or else scanning the file and (re)writing the sidecar. Failure to write the sidecar (e.g. because the
+     * directory is not writable) is logged, but is not an error.
+     *
+     * @param  file          the FITS file
+     *
+     * @return               the index of the HDUs in the file.
+     *
+     * @throws FitsException if the file does not start with a valid FITS header.
+     * @throws IOException   if there was an IO error reading the file.
+     *
+     * @see                  #getSidecarFile(File)
+     */
+    public static HDUIndex forFile(File file) throws FitsException, IOException {
+        File sidecar = getSidecarFile(file);
+
+        HDUIndex index = load(sidecar, file);
+        if (index != null) {
+            return index;
+        }
+
+        index = scan(file);
+
+        try {
+            index.save(sidecar);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not write HDU index to " + sidecar.getPath() + ": " + e.getMessage(), e);
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the default sidecar file for storing the index of a FITS file. It is in the same directory as the FITS
+     * file, with the name of the FITS file and {@link #SIDECAR_EXTENSION} appended to it.
+     *
+     * @param  file the FITS file
+     *
+     * @return      the default sidecar file for the index of the FITS file.
+     */
+    public static File getSidecarFile(File file) {
+        return new File(file.getPath() + SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Loads an index from a sidecar file, provided it was created for a file with the same size and modification time
+     * as the specified FITS file.
+     *
+     * @param  sidecar the index sidecar file
+     * @param  file    the FITS file that the index should be for
+     *
+     * @return         the index loaded from the sidecar, or <code>null</code> if the sidecar does not exist, cannot be
+     *                     read, or else if it is for a different version of the FITS file.
+     *
+     * @see            #save(File)
+     */
+    public static HDUIndex load(File sidecar, File file) {
+        if (!sidecar.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)))) {
+            if (!SIDECAR_MAGIC.equals(in.readUTF())) {
+                return null;
+            }
+
+            long size = in.readLong();
+            long modified = in.readLong();
+            if (size != file.length() || modified != file.lastModified()) {
+                return null;
+            }
+
+            int n = in.readInt();
+            List<Entry> entries = new ArrayList<>(n);
+
+            for (int i = 0; i < n; i++) {
+                Entry e = new Entry(i, in.readLong());
+                e.dataOffset = in.readLong();
+                e.dataSize = in.readLong();
+                e.xtension = in.readBoolean() ? in.readUTF() : null;
+                e.extName = in.readBoolean() ? in.readUTF() : null;
+                e.extVer = in.readBoolean() ? in.readInt() : null;
+                e.bitpix = in.readInt();
+                e.axes = new int[in.readInt()];
+                for (int k = 0; k < e.axes.length; k++) {
+                    e.axes[k] = in.readInt();
+                }
+                entries.add(e);
+            }
+
+            return new HDUIndex(entries, size, modified);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not read HDU index from " + sidecar.getPath() + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves this index into a sidecar file, from which it may be loaded later.
+     *
+     * @param  sidecar               the sidecar file to write
+     *
+     * @throws IOException           if there was an IO error writing the file
+     * @throws IllegalStateException if this index was not created for a file, and so cannot be validated when loaded.
+     *
+     * @see                          #load(File, File)
+     * @see                          #scan(File)
+     */
+    public void save(File sidecar) throws IOException, IllegalStateException {
+        if (fileSize < 0) {
+            throw new IllegalStateException("Index was not created for a file");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+            out.writeUTF(SIDECAR_MAGIC);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeInt(entries.size());
+
+            for (Entry e : entries) {
+                out.writeLong(e.headerOffset);
+                out.writeLong(e.dataOffset);
+                out.writeLong(e.dataSize);
+                writeOptional(out, e.xtension);
+                writeOptional(out, e.extName);
+                out.writeBoolean(e.extVer != null);
+                if (e.extVer != null) {
+                    out.writeInt(e.extVer);
+                }
+                out.writeInt(e.bitpix);
+                out.writeInt(e.axes.length);
+                for (int axis : e.axes) {
+                    out.writeInt(axis);
+                }
+            }
+        }
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Returns the number of HDUs in the index.
+     *
+     * @return the number of HDUs in the FITS file.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the entry for the HDU by the specified index.
+     *
+     * @param  n                         the zero-based index of the HDU
+     *
+     * @return                           the entry for the HDU
+     *
+     * @throws IndexOutOfBoundsException if there is no HDU by the specified index.
+     */
+    public Entry get(int n) throws IndexOutOfBoundsException {
+        return entries.get(n);
+    }
+
+    /**
+     * Returns the entries for all HDUs in the index.
+     *
+     * @return an unmodifiable list of the entries, in the order of the HDUs in the file.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the index of the first HDU, at or after the specified index, that has the specified extension name.
+     *
+     * @param  name the extension name, as in <code>EXTNAME</code> (case sensitive).
+     * @param  from the zero-based index of the first HDU to consider
+     *
+     * @return      the index of the first HDU at or after the specified index, whose <code>EXTNAME</code> matches the
+     *                  name, or -1 if there is no such HDU.
+     */
+    public int indexOf(String name, int from) {
+        for (int i = Math.max(0, from); i < entries.size(); i++) {
+            if (entries.get(i).isNameMatch(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first HDU, at or after the specified index, that has the specified extension name and
+     * version.
+     *
+     * @param  name    the extension name, as in <code>EXTNAME</code> (case sensitive).
+     * @param  version the extension version, as in <code>EXTVER</code>.
+     * @param  from    the zero-based index of the first HDU to consider
+     *
+     * @return         the index of the first HDU at or after the specified index, whose <code>EXTNAME</code> and
+     *                     <code>EXTVER</code> match, or -1 if there is no such HDU.
+     */
+    public int indexOf(String name, int version, int from) {
+        for (int i = Math.max(0, from); i < entries.size(); i++) {
+            if (entries.get(i).isNameVersionMatch(name, version)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Entry> scanEntries(RandomAccess in) throws FitsException, IOException {
+        List<Entry> entries = new ArrayList<>();
+        byte[] block = new byte[BLOCK];
+
+        for (long offset = 0;;) {
+            if (readBlock(in, offset, block) < BLOCK) {
+                break;
+            }
+
+            boolean isPrimary = entries.isEmpty();
+            if (!isKey(block, 0, isPrimary ? SIMPLE.key() : XTENSION.key())) {
+                if (isPrimary) {
+                    throw new FitsException("Not a FITS file (does not start with SIMPLE)");
+                }
+                // Trailing bytes after the last HDU.
+                break;
+            }
+
+            Entry e = scanHDU(in, entries.size(), offset, block);
+            if (e == null) {
+                break;
+            }
+            entries.add(e);
+            offset = e.getNextOffset();
+        }
+
+        return entries;
+    }
+
+    /**
+     * Scans the header of a single HDU, whose first header block is already in the buffer.
+     *
+     * @return the index entry for the HDU, or <code>null</code> if the header is truncated.
+     */
+    private static Entry scanHDU(RandomAccess in, int index, long offset, byte[] block) throws IOException {
+        Entry e = new Entry(index, offset);
+        int naxis = 0;
+        int[] naxisn = new int[0];
+        long pcount = 0;
+        long gcount = 1;
+        boolean groups = false;
+
+        long pos = offset;
+
+        for (;;) {
+            for (int i = 0; i < BLOCK; i += CARD) {
+                if (isKey(block, i, END.key())) {
+                    e.dataOffset = pos + BLOCK;
+                    e.dataSize = getDataSize(e.bitpix, naxisn, pcount, gcount, groups);
+                    e.axes = new int[naxisn.length];
+                    for (int k = 0; k < naxisn.length; k++) {
+                        e.axes[naxisn.length - 1 - k] = naxisn[k];
+                    }
+                    return e;
+                }
+
+                if (index > 0 && isKey(block, i, XTENSION.key())) {
+                    e.xtension = getStringValue(block, i);
+                } else if (isKey(block, i, BITPIX.key())) {
+                    e.bitpix = (int) getLongValue(block, i, 0);
+                } else if (isKey(block, i, NAXIS.key())) {
+                    naxis = (int) getLongValue(block, i, 0);
+                    naxisn = new int[Math.max(0, naxis)];
+                } else if (isAxisKey(block, i)) {
+                    int k = getAxisNumber(block, i);
+                    if (k > 0 && k <= naxisn.length) {
+                        naxisn[k - 1] = (int) getLongValue(block, i, 0);
+                    }
+                } else if (isKey(block, i, PCOUNT.key())) {
+                    pcount = getLongValue(block, i, 0);
+                } else if (isKey(block, i, GCOUNT.key())) {
+                    gcount = getLongValue(block, i, 1);
+                } else if (isKey(block, i, GROUPS.key())) {
+                    groups = getLogicalValue(block, i);
+                } else if (isKey(block, i, EXTNAME.key())) {
+                    e.extName = getStringValue(block, i);
+                } else if (isKey(block, i, EXTVER.key())) {
+                    e.extVer = (int) getLongValue(block, i, 1);
+                }
+            }
+
+            pos += BLOCK;
+            if (readBlock(in, pos, block) < BLOCK) {
+                return null;
+            }
+        }
+    }
+
+    private static long getDataSize(int bitpix, int[] naxisn, long pcount, long gcount, boolean groups) {
+        if (naxisn.length == 0) {
+            return 0L;
+        }
+
+        int start = (groups && naxisn.length > 1 && naxisn[0] == 0) ? 1 : 0;
+
+        long size = 1;
+        for (int i = start; i < naxisn.length; i++) {
+            size *= naxisn[i];
+        }
+
+        return (size + pcount) * gcount * (Math.abs(bitpix) / FitsIO.BITS_OF_1_BYTE);
+    }
+
+    private static int readBlock(RandomAccess in, long pos, byte[] block) throws IOException {
+        int n = 0;
+        while (n < block.length) {
+            int got = in.read(pos + n, block, n, block.length - n);
+            if (got <= 0) {
+                break;
+            }
+            n += got;
+        }
+        return n;
+    }
+
+    /** Checks if the 8-character keyword field of the header record at the offset matches the key. */
+    private static boolean isKey(byte[] b, int offset, String key) {
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            char c = i < key.length() ? key.charAt(i) : ' ';
+            if (b[offset + i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Checks if the header record at the offset is an NAXISn keyword. */
+    private static boolean isAxisKey(byte[] b, int offset) {
+        String prefix = NAXIS.key();
+        for (int i = 0; i < prefix.length(); i++) {
+            if (b[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return getAxisNumber(b, offset) > 0;
+    }
+
+    /** Returns the axis number in an NAXISn keyword, or -1 if the keyword does not end with a number. */
+    private static int getAxisNumber(byte[] b, int offset) {
+        int n = 0;
+        int i = offset + NAXIS.key().length();
+        for (; i < offset + KEY_LENGTH && b[i] != ' '; i++) {
+            if (b[i] < '0' || b[i] > '9') {
+                return -1;
+            }
+            n = n * DECIMAL + (b[i] - '0');
+        }
+        return i == offset + NAXIS.key().length() ? -1 : n;
+    }
+
+    /** Returns the value field of the header record at the offset, up to the comment, if the record has a value. */
+    private static String getValueField(byte[] b, int offset) {
+        if (b[offset + KEY_LENGTH] != '=') {
+            return null;
+        }
+        String value = new String(b, offset + VALUE_START, CARD - VALUE_START, StandardCharsets.US_ASCII);
+        int slash = value.indexOf('/');
+        return (slash < 0 ? value : value.substring(0, slash)).trim();
+    }
+
+    private static long getLongValue(byte[] b, int offset, long defaultValue) {
+        String value = getValueField(b, offset);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.startsWith("+") ? value.substring(1) : value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static boolean getLogicalValue(byte[] b, int offset) {
+        return "T".equals(getValueField(b, offset));
+    }
+
+    /** Returns the string value of the header record at the offset, without trailing spaces. */
+    private static String getStringValue(byte[] b, int offset) {
+        if (b[offset + KEY_LENGTH] != '=') {
+            return null;
+        }
+
+        int i = offset + VALUE_START;
+        int end = offset + CARD;
+        while (i < end && b[i] == ' ') {
+            i++;
+        }
+        if (i == end || b[i] != '\'') {
+            return null;
+        }
+
+        StringBuilder value = new StringBuilder();
+        for (i++; i < end; i++) {
+            if (b[i] == '\'') {
+                if (i + 1 < end && b[i + 1] == '\'') {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            value.append((char) b[i]);
+        }
+
+        int len = value.length();
+        while (len > 0 && value.charAt(len - 1) == ' ') {
+            len--;
+        }
+        return value.substring(0, len);
+    }
+}
@@ -2125,6 +2125,22 @@ public class Header implements FitsElement {
         return (input instanceof RandomAccess) ? (RandomAccess) input : null;
     }
 
+    /**
+     * Associates this header with a location in a random-accessible input, as if it had been read from there. It is
+     * used when the header was parsed from a copy of its bytes, such as when reading HDUs in parallel.
+     * 
+     * @param in     the random-accessible input that contains the header
+     * @param offset the file offset at which the header begins in the input.
+     * 
+     * @see          #getRandomAccessInput()
+     * 
+     * @since        1.22
+     */
+    void setInput(RandomAccess in, long offset) {
+        input = in;
+        fileOffset = offset;
+    }
+
     /**
      * Returns the checksum value calculated duting reading from a stream. It is only populated when reading from
      * {@link FitsInputStream} imputs, and never from other types of inputs. Valid values are greater or equal to zero.
@@ -2601,7 +2617,11 @@ public class Header implements FitsElement {
      */
     public void writeUnchecked(ArrayDataOutput out) throws FitsException, IOException {
         FitsSettings settings = FitsFactory.current();
-        fileOffset = FitsUtil.findOffset(out);
+
+        // Writing to a stream (e.g. for checksumming) does not move the header in its input.
+        if (out instanceof RandomAccess) {
+            fileOffset = FitsUtil.findOffset(out);
+        }
 
         Cursor<String, HeaderCard> writeIterator = cards.iterator(0);
 
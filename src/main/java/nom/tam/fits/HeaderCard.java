@@ -203,8 +203,11 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
         comment = null;
         type = null;
 
-        String card = readOneHeaderLine(dis);
-        HeaderCardParser parsed = new HeaderCardParser(card);
+        byte[] record = readOneHeaderRecord(dis);
+        HeaderCardParser parsed = HeaderCardParser.parse(record, 0);
+        if (parsed == null) {
+            parsed = new HeaderCardParser(AsciiFuncs.asciiString(record));
+        }
 
         // extract the key
         key = parsed.getKey();
@@ -791,10 +794,11 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #valueType()
      */
     public synchronized boolean isStringValue() {
-        if (type == null) {
+        Class<?> t = type();
+        if (t == null) {
             return false;
         }
-        return String.class.isAssignableFrom(type);
+        return String.class.isAssignableFrom(t);
     }
 
     /**
@@ -810,11 +814,12 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public synchronized boolean isDecimalType() {
-        if (type == null) {
+        Class<?> t = type();
+        if (t == null) {
             return false;
         }
-        return Float.class.isAssignableFrom(type) || Double.class.isAssignableFrom(type)
-                || BigDecimal.class.isAssignableFrom(type);
+        return Float.class.isAssignableFrom(t) || Double.class.isAssignableFrom(t)
+                || BigDecimal.class.isAssignableFrom(t);
     }
 
     /**
@@ -829,10 +834,11 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public synchronized boolean isIntegerType() {
-        if (type == null) {
+        Class<?> t = type();
+        if (t == null) {
             return false;
         }
-        return Number.class.isAssignableFrom(type) && !isDecimalType();
+        return Number.class.isAssignableFrom(t) && !isDecimalType();
     }
 
     /**
@@ -847,7 +853,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public final synchronized boolean isCommentStyleCard() {
-        return (type == null);
+        return (type() == null);
     }
 
     /**
@@ -1180,6 +1186,21 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #isDecimalType()
      */
     public synchronized Class<?> valueType() {
+        return type();
+    }
+
+    /**
+     * Returns the class of the associated value, inferring it from the value string first if it was deferred when the
+     * card was parsed.
+     *
+     * @return the type of the value, or <code>null</code> if it's a comment-style card.
+     *
+     * @see    HeaderCardParser#DEFERRED_TYPE
+     */
+    private Class<?> type() {
+        if (type == HeaderCardParser.DEFERRED_TYPE) {
+            type = HeaderCardParser.getInferredValueType(key, value);
+        }
         return type;
     }
 
@@ -1801,6 +1822,20 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      */
     private static String readRecord(InputReader in) throws IOException, TruncatedFileException {
         byte[] buffer = new byte[FITS_HEADER_CARD_SIZE];
+        readRecord(in, buffer);
+        return AsciiFuncs.asciiString(buffer);
+    }
+
+    /**
+     * Reads an 80-byte card record from an input into a buffer.
+     *
+     * @param  in                     The input to read from
+     * @param  buffer                 The buffer to read the 80-byte record into.
+     *
+     * @throws IOException            if already at the end of file.
+     * @throws TruncatedFileException if there was not a complete record available in the input.
+     */
+    private static void readRecord(InputReader in, byte[] buffer) throws IOException, TruncatedFileException {
 
         int got = 0;
 
@@ -1827,8 +1862,6 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
             throw new TruncatedFileException(
                     "Got only " + got + " of " + buffer.length + " bytes expected for a header card");
         }
-
-        return AsciiFuncs.asciiString(buffer);
     }
 
     /**
@@ -1851,6 +1884,26 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
         return s;
     }
 
+    /**
+     * Reads exactly one complete fits header record from the input, into the record buffer of the input.
+     *
+     * @param  dis                    the data input stream to read the record
+     *
+     * @return                        the buffer containing the 80-byte record, which is reused for reading
+     *                                    subsequent records from the same input.
+     *
+     * @throws TruncatedFileException if there was not a complete record available in the input.
+     * @throws IOException            if the input stream could not be read, or if already at the end of file.
+     */
+    @SuppressWarnings({"resource", "deprecation"})
+    private static byte[] readOneHeaderRecord(HeaderCardCountingArrayDataInput dis)
+            throws IOException, TruncatedFileException {
+        byte[] record = dis.getRecordBuffer();
+        readRecord(dis.in(), record);
+        dis.cardRead();
+        return record;
+    }
+
     /**
      * Returns the maximum number of characters that can be used for a value field in a single FITS header record (80
      * characters wide), after the specified keyword.
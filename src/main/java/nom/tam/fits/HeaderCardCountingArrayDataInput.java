@@ -60,6 +60,11 @@ public class HeaderCardCountingArrayDataInput {
 
     private int markedPhysicalCardsRead;
 
+    /**
+     * A buffer for reading header records, reused for all records read from the input.
+     */
+    private final byte[] record = new byte[HeaderCard.FITS_HEADER_CARD_SIZE];
+
     /**
      * Creates a new instance of this class for counting the number of 80-character header records.
      * 
@@ -95,6 +100,17 @@ public class HeaderCardCountingArrayDataInput {
         return input;
     }
 
+    /**
+     * Returns the buffer for reading 80-byte header records from the input, which is reused for each record.
+     * 
+     * @return the record buffer
+     * 
+     * @since  1.22
+     */
+    byte[] getRecordBuffer() {
+        return record;
+    }
+
     /**
      * report a readed card.
      * 
@@ -33,13 +33,27 @@ package nom.tam.fits;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
 import java.util.Locale;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import nom.tam.fits.header.Checksum;
+import nom.tam.fits.header.Compression;
+import nom.tam.fits.header.DataDescription;
+import nom.tam.fits.header.DateTime;
+import nom.tam.fits.header.HierarchicalGrouping;
+import nom.tam.fits.header.IFitsHeader;
+import nom.tam.fits.header.InstrumentDescription;
+import nom.tam.fits.header.NonStandard;
+import nom.tam.fits.header.ObservationDescription;
+import nom.tam.fits.header.ObservationDurationDescription;
 import nom.tam.fits.header.Standard;
+import nom.tam.fits.header.WCS;
 import nom.tam.util.ComplexValue;
 import nom.tam.util.FlexFormat;
 
@@ -82,6 +96,17 @@ class HeaderCardParser {
     /** regexp for decimal integers. */
     private static final Pattern INT_REGEX = Pattern.compile("[+-]?\\d+");
 
+    /**
+     * Placeholder type for values parsed from bytes, whose type is inferred only when it is first needed.
+     *
+     * @see #parse(byte[], int)
+     * @see #getInferredValueType(String, String)
+     */
+    static final Class<?> DEFERRED_TYPE = Void.class;
+
+    /** The maximum number of digits in integers that always fit into an int */
+    private static final int MAX_INT_DIGITS = 9;
+
     /** The header line (usually 80-character width), which to parse. */
     private String line;
 
@@ -137,6 +162,193 @@ class HeaderCardParser {
         parseComment();
     }
 
+    /**
+     * Creates a parser with the components of a header record that was already parsed, e.g. from its bytes.
+     *
+     * @param key     the standardized keyword
+     * @param value   the value, or <code>null</code>
+     * @param comment the trimmed comment, or <code>null</code>
+     * @param type    the value type, or <code>null</code>
+     */
+    private HeaderCardParser(String key, String value, String comment, Class<?> type) {
+        this.key = key;
+        this.value = value;
+        this.comment = comment;
+        this.type = type;
+    }
+
+    /**
+     * <p>
+     * Parses a header record directly from its bytes, such as from a buffer holding a 2880-byte header block, without
+     * first converting the record to a string. It handles the common case of well-formed records with a standard
+     * keyword (up to 8 upper-case letters, digits, hyphens or underscores) and, optionally, a value indicator in
+     * columns 9-10 followed by a quoted string or a simple value and a comment. The standard keywords (as defined by
+     * the {@link IFitsHeader} enums of this library) are returned as shared constants rather than as new strings, and
+     * the type inference of non-string values, which can be costly, is deferred (see {@link #DEFERRED_TYPE}) until it
+     * is actually needed.
+     * </p>
+     * <p>
+     * Records that contain anything unusual, such as <code>HIERARCH</code> or <code>CONTINUE</code> keywords, strings
+     * that may continue in the next record or have no closing quote, illegal characters, or which would be reported by
+     * the parser warnings (if enabled), are left to the regular string-based parser.
+     * </p>
+     *
+     * @param  b      the buffer containing the header record
+     * @param  offset the buffer index at which the 80-byte record starts
+     *
+     * @return        the parsed record, or <code>null</code> if the record has to be parsed with
+     *                    {@link #HeaderCardParser(String)} instead.
+     *
+     * @since         1.22
+     */
+    static HeaderCardParser parse(byte[] b, int offset) {
+        if (LOG.isLoggable(Level.WARNING)) {
+            // Let the regular parser produce the warnings.
+            return null;
+        }
+
+        final int end = offset + HeaderCard.FITS_HEADER_CARD_SIZE;
+        for (int i = offset; i < end; i++) {
+            if (b[i] < HeaderCard.MIN_VALID_CHAR || b[i] > HeaderCard.MAX_VALID_CHAR) {
+                return null;
+            }
+        }
+
+        // The keyword, packed into a long for looking up standard keywords.
+        final int stemEnd = offset + HeaderCard.MAX_KEYWORD_LENGTH;
+        long packed = 0;
+        int keyEnd = stemEnd;
+        for (int i = offset; i < stemEnd; i++) {
+            packed = (packed << Byte.SIZE) | b[i];
+            if (b[i] == ' ') {
+                keyEnd = Math.min(keyEnd, i);
+            } else if (keyEnd < stemEnd || !isKeyChar(b[i])) {
+                // Embedded space or non-standard character
+                return null;
+            }
+        }
+
+        String k = Keywords.get(packed);
+        if (k == null) {
+            k = new String(b, offset, keyEnd - offset, StandardCharsets.US_ASCII);
+        }
+
+        if (k.equals(HIERARCH.key()) || k.equals(CONTINUE.key())) {
+            return null;
+        }
+
+        if (b[stemEnd] != '=' || k.isEmpty() || k.equals(Standard.COMMENT.key())
+                || k.equals(Standard.HISTORY.key())) {
+            // Comment-style record
+            return new HeaderCardParser(k, null, trimmed(b, stemEnd, end, null), null);
+        }
+
+        int pos = skipSpaces(b, stemEnd + 1, end);
+        if (pos == end) {
+            // Value indicator without a value
+            return new HeaderCardParser(k, null, null, null);
+        }
+
+        if (b[pos] != '\'') {
+            int slash = pos;
+            while (slash < end && b[slash] != '/') {
+                slash++;
+            }
+            String v = trimmed(b, pos, slash, "");
+            Class<?> t = DEFERRED_TYPE;
+            if ("T".equals(v) || "F".equals(v)) {
+                t = Boolean.class;
+            } else if (isSmallInt(v)) {
+                t = Integer.class;
+            }
+            return new HeaderCardParser(k, v, slash < end ? trimmed(b, slash + 1, end, "") : null, t);
+        }
+
+        // Quoted string value
+        final int from = pos + 1;
+        boolean isEscaped = false;
+        for (pos = from;; pos++) {
+            if (pos == end) {
+                // Missing closing quote
+                return null;
+            }
+            if (b[pos] == '\'') {
+                if (pos + 1 < end && b[pos + 1] == '\'') {
+                    isEscaped = true;
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        String v = new String(b, from, pos - from, StandardCharsets.US_ASCII);
+        if (isEscaped) {
+            v = v.replace("''", "'");
+        }
+        v = getNoTrailingSpaceString(v);
+
+        if (v.endsWith("&")) {
+            // Possibly a long string continued in the next record.
+            return null;
+        }
+
+        pos = skipSpaces(b, pos + 1, end);
+        if (pos == end) {
+            return new HeaderCardParser(k, v, null, String.class);
+        }
+        if (b[pos] == '/') {
+            pos++;
+        }
+        return new HeaderCardParser(k, v, trimmed(b, pos, end, ""), String.class);
+    }
+
+    /**
+     * Checks if a character may be used in standard FITS keywords.
+     */
+    private static boolean isKeyChar(byte c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    /**
+     * Returns the index of the first non-space character at or after the specified position, or the end index if
+     * there is none.
+     */
+    private static int skipSpaces(byte[] b, int from, int end) {
+        while (from < end && b[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the string from the range of bytes without leading and trailing spaces, or else the specified default
+     * if the range has nothing but spaces.
+     */
+    private static String trimmed(byte[] b, int from, int to, String blank) {
+        from = skipSpaces(b, from, to);
+        while (to > from && b[to - 1] == ' ') {
+            to--;
+        }
+        return to == from ? blank : new String(b, from, to - from, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks if a value is a decimal integer that has so few digits that it surely fits into an int.
+     */
+    private static boolean isSmallInt(String v) {
+        int i = (v.startsWith("-") || v.startsWith("+")) ? 1 : 0;
+        if (v.length() == i || v.length() - i > MAX_INT_DIGITS) {
+            return false;
+        }
+        for (; i < v.length(); i++) {
+            if (v.charAt(i) < '0' || v.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the keyword component of the parsed header line. If the processing of HIERARCH keywords is enabled, it
      * may be a `HIERARCH` style long key with the components separated by dots (e.g.
@@ -460,7 +672,7 @@ class HeaderCardParser {
      *
      * @return     the string value with trailing spaces removed.
      */
-    private static String getNoTrailingSpaceString(StringBuilder buf) {
+    private static String getNoTrailingSpaceString(CharSequence buf) {
         int to = buf.length();
 
         // Remove trailing spaces only!
@@ -470,7 +682,7 @@ class HeaderCardParser {
             }
         }
 
-        return to < 0 ? "" : buf.substring(0, to + 1);
+        return to < 0 ? "" : buf.subSequence(0, to + 1).toString();
     }
 
     /**
@@ -520,7 +732,7 @@ class HeaderCardParser {
      *                   does not seem to match any of the supported value types. <code>null</code> values default to
      *                   <code>Boolean.class</code>.
      */
-    private static Class<?> getInferredValueType(String key, String value) {
+    static Class<?> getInferredValueType(String key, String value) {
         // TODO We never call this with null locally, so the following check is dead code here...
         // if (value == null) {
         // return Boolean.class;
@@ -628,4 +840,108 @@ class HeaderCardParser {
         return LOG;
     }
 
+    /**
+     * A lookup table of the standard keywords defined by this library, which are packed into long integers with one
+     * ASCII byte per character, padded with spaces to 8 characters. Indexed keywords from {@link Standard} (such as
+     * <code>NAXIS</code><i>n</i>, or <code>TFORM</code><i>n</i>) are included with indices up to
+     * {@link #MAX_INDEX}. The table is built once and is read-only thereafter, so it is safe for concurrent use.
+     */
+    private static final class Keywords {
+
+        /** The largest index for which indexed keywords are included in the table */
+        private static final int MAX_INDEX = 99;
+
+        private static final long[] PACKED;
+
+        private static final String[] KEYS;
+
+        private static final int MASK;
+
+        /** The 64-bit golden ratio, for scrambling the packed keywords into table slots */
+        private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+        static {
+            Set<String> keys = new LinkedHashSet<>();
+
+            add(keys, Standard.values(), true);
+            add(keys, NonStandard.values(), false);
+            add(keys, DataDescription.values(), false);
+            add(keys, ObservationDescription.values(), false);
+            add(keys, ObservationDurationDescription.values(), false);
+            add(keys, InstrumentDescription.values(), false);
+            add(keys, DateTime.values(), false);
+            add(keys, Checksum.values(), false);
+            add(keys, Compression.values(), false);
+            add(keys, WCS.values(), false);
+            add(keys, HierarchicalGrouping.values(), false);
+
+            int size = Integer.highestOneBit(keys.size()) << 2;
+            MASK = size - 1;
+            PACKED = new long[size];
+            KEYS = new String[size];
+
+            for (String key : keys) {
+                long packed = pack(key);
+                int i = slot(packed);
+                while (KEYS[i] != null) {
+                    i = (i + 1) & MASK;
+                }
+                PACKED[i] = packed;
+                KEYS[i] = key;
+            }
+        }
+
+        private Keywords() {
+        }
+
+        private static void add(Set<String> keys, IFitsHeader[] entries, boolean isIndexed) {
+            for (IFitsHeader e : entries) {
+                String key = e.key();
+                int n = key.indexOf('n');
+
+                if (n < 0) {
+                    keys.add(key);
+                } else if (isIndexed && n == key.length() - 1) {
+                    for (int i = 1; i <= MAX_INDEX; i++) {
+                        String indexed = key.substring(0, n) + i;
+                        if (indexed.length() <= HeaderCard.MAX_KEYWORD_LENGTH) {
+                            keys.add(indexed);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static long pack(String key) {
+            long packed = 0;
+            for (int i = 0; i < HeaderCard.MAX_KEYWORD_LENGTH; i++) {
+                packed = (packed << Byte.SIZE) | (i < key.length() ? key.charAt(i) : ' ');
+            }
+            return packed;
+        }
+
+        private static int slot(long packed) {
+            long h = packed * GOLDEN;
+            return (int) (h ^ (h >>> Integer.SIZE)) & MASK;
+        }
+
+        /**
+         * Returns the standard keyword for the packed 8-byte keyword field of a header record.
+         *
+         * @param  packed the 8 bytes of the keyword field packed into a long.
+         *
+         * @return        the shared keyword string, or <code>null</code> if it is not a standard keyword.
+         */
+        static String get(long packed) {
+            for (int i = slot(packed);; i = (i + 1) & MASK) {
+                if (KEYS[i] == null) {
+                    return null;
+                }
+                if (PACKED[i] == packed) {
+                    return KEYS[i];
+                }
+            }
+        }
+    }
+
 }
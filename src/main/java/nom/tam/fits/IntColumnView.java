@@ -0,0 +1,112 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import nom.tam.util.TableException;
+
+/**
+ * A view of a binary table column whose data is stored as <code>int</code> values, such as 32-bit integers, and the
+ * 32-bit heap pointers of variable-length columns. It provides access to the stored values without boxing or
+ * allocation. See {@link ColumnView} for more information.
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable#getColumnView(int)
+ */
+public final class IntColumnView extends ColumnView {
+
+    /**
+     * The storage array, either of the table or for the batches read in deferred mode
+     */
+    private final int[] a;
+
+    /**
+     * Creates a new view of a table column that is stored as <code>int</code> values.
+     * 
+     * @param  table          the binary table
+     * @param  col            the zero-based column index
+     * 
+     * @throws TableException if the column index is invalid
+     */
+    IntColumnView(BinaryTable table, int col) throws TableException {
+        super(table, col);
+        a = (int[]) getData();
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry.
+     * 
+     * @param  row                       the zero-based row index
+     * 
+     * @return                           the stored value
+     * 
+     * @throws IndexOutOfBoundsException if the row index is out of bounds
+     * @throws FitsException             if the row could not be read from the input in deferred mode
+     */
+    public int get(int row) throws IndexOutOfBoundsException, FitsException {
+        return a[index(row, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry.
+     * 
+     * @param  row                       the zero-based row index
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value
+     * 
+     * @throws IndexOutOfBoundsException if the row or element index is out of bounds
+     * @throws FitsException             if the row could not be read from the input in deferred mode
+     */
+    public int get(int row, int i) throws IndexOutOfBoundsException, FitsException {
+        return a[index(row, i)];
+    }
+
+    /**
+     * Copies all elements of a (flattened) table entry into an array supplied by the caller.
+     * 
+     * @param  row                       the zero-based row index
+     * @param  dst                       the array to copy the elements into
+     * @param  from                      the index in the array at which to place the first element
+     * 
+     * @throws IndexOutOfBoundsException if the row index is out of bounds, or if the array is not large enough to hold
+     *                                       the elements
+     * @throws FitsException             if the row could not be read from the input in deferred mode
+     * 
+     * @see                              #getElementCount()
+     */
+    public void get(int row, int[] dst, int from) throws IndexOutOfBoundsException, FitsException {
+        System.arraycopy(a, index(row, 0), dst, from, getElementCount());
+    }
+}
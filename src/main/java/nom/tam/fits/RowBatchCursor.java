@@ -0,0 +1,355 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.util.TableException;
+
+/**
+ * <p>
+ * A cursor that iterates over a range of rows in a binary table in batches, exposing the data of selected columns
+ * through primitive arrays, which are allocated once and reused for every batch. For tables in deferred read mode,
+ * each batch is obtained with a single bulk read of its raw rows from the input, from which only the selected columns
+ * are decoded. Thus, full scans of very large tables can proceed at near disk bandwidth, without loading the table
+ * into memory, and without having to access elements one at a time (each with its own read). For tables that are
+ * loaded in memory, the batches are simply copied from the stored data.
+ * </p>
+ * <p>
+ * The arrays contain the flattened data of table entries, in the primitive storage type of the columns (e.g.
+ * <code>byte</code> for logicals, bits, and strings, or the <code>int</code> or <code>long</code> heap pointers for
+ * variable-length columns), with {@link #getElementCount(int)} primitive elements per row. Only the first
+ * {@link #size()} rows of the arrays are valid after each call to {@link #next()}. For example:
+ * </p>
+ * 
+ * <pre>
+ *   RowBatchCursor c = table.rowBatches(0, table.getNRows(), 4096, table.indexOf("TIME"), table.indexOf("ENERGY"));
+ *
+ *   while (c.next()) {
+ *       double[] time = c.getDoubles(0);
+ *       float[] energy = c.getFloats(1);
+ *
+ *       for (int i = 0; i &lt; c.size(); i++) {
+ *           ...
+ *       }
+ *   }
+ * </pre>
+ * <p>
+ * Cursors are not thread-safe, but different threads may each use their own cursors on the same table concurrently.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable#rowBatches(int, int, int, int...)
+ */
+public final class RowBatchCursor {
+
+    /** The table we iterate over */
+    private final BinaryTable table;
+
+    /** The indices of the selected columns in the table */
+    private final int[] cols;
+
+    /** The reusable flattened storage arrays for each of the selected columns */
+    private final Object[] buffers;
+
+    /** The reusable buffer for raw rows, or <code>null</code> if not reading from the input */
+    private final byte[] raw;
+
+    /** The maximum number of rows per batch */
+    private final int batchSize;
+
+    /** The end of the row range (exclusive) */
+    private final int to;
+
+    /** The index of the first row in the current batch */
+    private int first;
+
+    /** The number of rows in the current batch */
+    private int size;
+
+    /**
+     * Creates a new cursor over a range of rows of a binary table.
+     * 
+     * @param  table                    the binary table
+     * @param  from                     the zero-based index of the first row
+     * @param  to                       the zero-based index of the row after the last one (exclusive end)
+     * @param  batchSize                the maximum number of rows per batch
+     * @param  cols                     the zero-based indices of the selected columns, or an empty array to select
+     *                                      all columns.
+     * 
+     * @throws IllegalArgumentException if the batch size is not positive or if it is too large for the table.
+     * @throws TableException           if the row range, or one of the column indices, is invalid for the table.
+     */
+    RowBatchCursor(BinaryTable table, int from, int to, int batchSize, int... cols)
+            throws IllegalArgumentException, TableException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        this.table = table;
+        this.cols = checkSelection(table, from, to, cols);
+        this.batchSize = Math.min(batchSize, Math.max(1, to - from));
+        this.to = to;
+
+        buffers = new Object[this.cols.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = table.getDescriptor(this.cols[i]).newStorage(this.batchSize);
+        }
+
+        if (table.isDeferred()) {
+            long bytes = (long) this.batchSize * table.getRowBytes();
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Batch size too large: " + batchSize + " rows of "
+                        + table.getRowBytes() + " bytes each");
+            }
+            raw = new byte[(int) bytes];
+        } else {
+            raw = null;
+        }
+
+        first = from;
+    }
+
+    /**
+     * Checks that a selection of rows and columns is valid for a table, and returns the indices of the selected
+     * columns.
+     * 
+     * @param  table          the binary table
+     * @param  from           the zero-based index of the first row
+     * @param  to             the zero-based index of the row after the last one (exclusive end)
+     * @param  cols           the zero-based indices of the selected columns, or an empty array to select all columns.
+     * 
+     * @return                a new array with the zero-based indices of the selected columns.
+     * 
+     * @throws TableException if the row range, or one of the column indices, is invalid for the table.
+     */
+    static int[] checkSelection(BinaryTable table, int from, int to, int[] cols) throws TableException {
+        if (from < 0 || to < from || to > table.getNRows()) {
+            throw new TableException("Invalid row range: " + from + ":" + to);
+        }
+
+        if (cols.length == 0) {
+            cols = new int[table.getNCols()];
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = i;
+            }
+            return cols;
+        }
+
+        for (int col : cols) {
+            if (!table.validColumn(col)) {
+                throw new TableException("No such column: " + col);
+            }
+        }
+
+        return cols.clone();
+    }
+
+    /**
+     * Advances to the next batch of rows, populating the column arrays with the data for that batch.
+     * 
+     * @return               <code>true</code> if there was another batch of rows, or else <code>false</code> if the
+     *                           cursor reached the end of its range.
+     * 
+     * @throws FitsException if the data could not be read from the input
+     */
+    public boolean next() throws FitsException {
+        first += size;
+        size = Math.min(batchSize, to - first);
+
+        if (size <= 0) {
+            size = 0;
+            return false;
+        }
+
+        table.getRows(first, size, cols, buffers, raw);
+        return true;
+    }
+
+    /**
+     * Returns the table row index of the first row in the current batch.
+     * 
+     * @return the zero-based table row index of the first row in the current batch.
+     */
+    public int getFirstRow() {
+        return first;
+    }
+
+    /**
+     * Returns the number of rows in the current batch, that is the number of valid rows in the column arrays.
+     * 
+     * @return the number of rows in the current batch, or 0 if there is no current batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of columns selected for this cursor.
+     * 
+     * @return the number of selected columns.
+     */
+    public int getColumnCount() {
+        return cols.length;
+    }
+
+    /**
+     * Returns the table column index of a selected column.
+     * 
+     * @param  i the index of the selected column in this cursor
+     * 
+     * @return   the zero-based index of the column in the table.
+     */
+    public int getTableColumn(int i) {
+        return cols[i];
+    }
+
+    /**
+     * Returns the descriptor of a selected column.
+     * 
+     * @param  i the index of the selected column in this cursor
+     * 
+     * @return   the descriptor of the column in the table.
+     */
+    public ColumnDesc getDescriptor(int i) {
+        return table.getDescriptor(cols[i]);
+    }
+
+    /**
+     * Returns the number of primitive elements each row occupies in the array of a selected column.
+     * 
+     * @param  i the index of the selected column in this cursor
+     * 
+     * @return   the number of primitive storage elements per row, e.g. 2 for the heap pointers of variable-length
+     *               columns.
+     */
+    public int getElementCount(int i) {
+        return getDescriptor(i).getTableBaseCount();
+    }
+
+    /**
+     * Returns the reusable array that holds the flattened data of a selected column for the current batch. The same
+     * array is returned (and overwritten) for all batches.
+     * 
+     * @param  i the index of the selected column in this cursor
+     * 
+     * @return   the flattened primitive storage array of the column, e.g. a <code>double[]</code>.
+     */
+    public Object getColumn(int i) {
+        return buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>byte</code> values, such as logicals, bits,
+     * strings, or bytes.
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>byte</code> values.
+     */
+    public byte[] getBytes(int i) throws ClassCastException {
+        return (byte[]) buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>short</code> values.
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>short</code> values.
+     */
+    public short[] getShorts(int i) throws ClassCastException {
+        return (short[]) buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>int</code> values, including the 32-bit heap
+     * pointers of variable-length columns.
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>int</code> values.
+     */
+    public int[] getInts(int i) throws ClassCastException {
+        return (int[]) buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>long</code> values, including the 64-bit heap
+     * pointers of variable-length columns.
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>long</code> values.
+     */
+    public long[] getLongs(int i) throws ClassCastException {
+        return (long[]) buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>float</code> values, including single-precision
+     * complex values (as pairs of real and imaginary components).
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>float</code> values.
+     */
+    public float[] getFloats(int i) throws ClassCastException {
+        return (float[]) buffers[i];
+    }
+
+    /**
+     * Returns the reusable array for a selected column stored as <code>double</code> values, including
+     * double-precision complex values (as pairs of real and imaginary components).
+     * 
+     * @param  i                  the index of the selected column in this cursor
+     * 
+     * @return                    the flattened storage array of the column.
+     * 
+     * @throws ClassCastException if the column is not stored as <code>double</code> values.
+     */
+    public double[] getDoubles(int i) throws ClassCastException {
+        return (double[]) buffers[i];
+    }
+}
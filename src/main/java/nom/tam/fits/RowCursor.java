@@ -0,0 +1,393 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import nom.tam.util.TableException;
+
+/**
+ * <p>
+ * A cursor that iterates over a range of rows in a binary table one row at a time, providing access to the primitive
+ * storage elements of selected columns in the current row, without boxing, and without allocating objects for each
+ * row. For tables in memory, the cursor accesses the column storage directly. For tables in deferred read mode, rows
+ * are decoded from the input in batches, with a single bulk read per batch, just like {@link RowBatchCursor}, but
+ * without having to deal with batches explicitly. For example:
+ * </p>
+ * 
+ * <pre>
+ *   RowCursor c = table.rowCursor(0, table.getNRows(), table.indexOf("TIME"), table.indexOf("ENERGY"));
+ *
+ *   while (c.next()) {
+ *       double t = c.getDouble(0);
+ *       float e = c.getFloat(1);
+ *       ...
+ *   }
+ * </pre>
+ * <p>
+ * Columns are accessed through the getter matching the primitive type in which the column data is stored (e.g.
+ * <code>byte</code> for logicals, bits and strings, or <code>int</code> / <code>long</code> heap pointers for
+ * variable-length columns), and table entries that are fixed-size arrays are accessed element by element, by their
+ * (flattened) index within the entry. Cursors are not thread-safe, but different threads may use their own cursors on
+ * the same table concurrently.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable#rowCursor(int, int, int...)
+ * @see    ColumnView
+ */
+public final class RowCursor {
+
+    /** The batches we read in deferred mode, or else <code>null</code> */
+    private final RowBatchCursor batches;
+
+    /** The flattened storage arrays of the selected columns, either of the table or of the batches */
+    private final Object[] data;
+
+    /** The number of primitive elements per row in each of the selected columns */
+    private final int[] counts;
+
+    /** The current row */
+    private int row;
+
+    /** The row index of the first row in the storage arrays */
+    private int base;
+
+    /** The row index of the first row that may be accessed in the storage arrays */
+    private int start;
+
+    /** The row index after the last row in the storage arrays (exclusive end) */
+    private int end;
+
+    /**
+     * Creates a new cursor over a range of rows of a binary table.
+     * 
+     * @param  table          the binary table
+     * @param  from           the zero-based index of the first row
+     * @param  to             the zero-based index of the row after the last one (exclusive end)
+     * @param  cols           the zero-based indices of the selected columns, or an empty array to select all columns.
+     * 
+     * @throws TableException if the row range, or one of the column indices, is invalid for the table.
+     */
+    RowCursor(BinaryTable table, int from, int to, int... cols) throws TableException {
+        cols = RowBatchCursor.checkSelection(table, from, to, cols);
+
+        counts = new int[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            counts[i] = table.getDescriptor(cols[i]).getTableBaseCount();
+        }
+
+        Object[] storage = table.getStorage(cols);
+
+        if (storage != null) {
+            batches = null;
+            data = storage;
+            start = from;
+            end = to;
+        } else {
+            batches = table.rowBatches(from, to, table.getDefaultBatchRows(), cols);
+            data = new Object[cols.length];
+            for (int i = 0; i < cols.length; i++) {
+                data[i] = batches.getColumn(i);
+            }
+            base = from;
+            start = from;
+            end = from;
+        }
+
+        row = from - 1;
+    }
+
+    /**
+     * Advances to the next row.
+     * 
+     * @return               <code>true</code> if there was another row, or else <code>false</code> if the cursor
+     *                           reached the end of its range.
+     * 
+     * @throws FitsException if the data could not be read from the input
+     */
+    public boolean next() throws FitsException {
+        if (row + 1 < end) {
+            row++;
+            return true;
+        }
+
+        if (batches == null || !batches.next()) {
+            row = end;
+            return false;
+        }
+
+        base = batches.getFirstRow();
+        start = base;
+        end = base + batches.size();
+        row = base;
+        return true;
+    }
+
+    /**
+     * Returns the index of the current row in the table.
+     * 
+     * @return the zero-based table row index of the current row.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the number of columns selected for this cursor.
+     * 
+     * @return the number of selected columns.
+     */
+    public int getColumnCount() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the number of primitive elements each row has in a selected column.
+     * 
+     * @param  c the index of the selected column in this cursor
+     * 
+     * @return   the number of primitive storage elements per row, e.g. 2 for the heap pointers of variable-length
+     *               columns.
+     */
+    public int getElementCount(int c) {
+        return counts[c];
+    }
+
+    /**
+     * Returns the index of a primitive element of the current row in the storage array of a selected column.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the index in the storage array
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     */
+    private int index(int c, int i) throws IllegalStateException, IndexOutOfBoundsException {
+        if (row < start || row >= end) {
+            throw new IllegalStateException("No current row");
+        }
+        if (i < 0 || i >= counts[c]) {
+            throw new IndexOutOfBoundsException("Element index " + i + " out of bounds for length " + counts[c]);
+        }
+        return (row - base) * counts[c] + i;
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>byte</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>byte</code> values
+     */
+    public byte getByte(int c) throws IllegalStateException, ClassCastException {
+        return ((byte[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>byte</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>byte</code> values
+     */
+    public byte getByte(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((byte[]) data[c])[index(c, i)];
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>short</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>short</code> values
+     */
+    public short getShort(int c) throws IllegalStateException, ClassCastException {
+        return ((short[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>short</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>short</code> values
+     */
+    public short getShort(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((short[]) data[c])[index(c, i)];
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>int</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>int</code> values
+     */
+    public int getInt(int c) throws IllegalStateException, ClassCastException {
+        return ((int[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>int</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>int</code> values
+     */
+    public int getInt(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((int[]) data[c])[index(c, i)];
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>long</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>long</code> values
+     */
+    public long getLong(int c) throws IllegalStateException, ClassCastException {
+        return ((long[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>long</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>long</code> values
+     */
+    public long getLong(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((long[]) data[c])[index(c, i)];
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>float</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>float</code> values
+     */
+    public float getFloat(int c) throws IllegalStateException, ClassCastException {
+        return ((float[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>float</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>float</code> values
+     */
+    public float getFloat(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((float[]) data[c])[index(c, i)];
+    }
+
+    /**
+     * Returns the value of a scalar entry, or else the first element of an array entry, in a column stored as
+     * <code>double</code> values.
+     * 
+     * @param  c                     the index of the selected column in this cursor
+     * 
+     * @return                       the stored value in the current row
+     * 
+     * @throws IllegalStateException if there is no current row
+     * @throws ClassCastException    if the column is not stored as <code>double</code> values
+     */
+    public double getDouble(int c) throws IllegalStateException, ClassCastException {
+        return ((double[]) data[c])[index(c, 0)];
+    }
+
+    /**
+     * Returns an element of an array entry in a column stored as <code>double</code> values.
+     * 
+     * @param  c                         the index of the selected column in this cursor
+     * @param  i                         the zero-based index of the element within the flattened table entry
+     * 
+     * @return                           the stored value in the current row
+     * 
+     * @throws IllegalStateException     if there is no current row
+     * @throws IndexOutOfBoundsException if the element index is out of bounds
+     * @throws ClassCastException        if the column is not stored as <code>double</code> values
+     */
+    public double getDouble(int c, int i) throws IllegalStateException, IndexOutOfBoundsException, ClassCastException {
+        return ((double[]) data[c])[index(c, i)];
+    }
+}
@@ -0,0 +1,131 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes columns from raw (FITS binary) table rows, which were read into a buffer in bulk, into the flattened
+ * primitive arrays in which binary tables store their column data. Only the requested columns are decoded, skipping
+ * over the rest of the row data.
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ */
+final class RowDecoder {
+
+    /** The buffer with the raw row data */
+    private final ByteBuffer b;
+
+    /** (bytes) The length of a row */
+    private final int len;
+
+    /**
+     * Creates a new decoder for raw rows in a buffer.
+     * 
+     * @param buf    the buffer into which raw rows are read
+     * @param rowLen (bytes) the length of a table row
+     */
+    RowDecoder(byte[] buf, int rowLen) {
+        b = ByteBuffer.wrap(buf);
+        len = rowLen;
+    }
+
+    /**
+     * Decodes a column from raw rows in the buffer into its flattened storage array.
+     * 
+     * @param  pos                      the position of the first row to decode in the buffer
+     * @param  n                        the number of rows to decode
+     * @param  offset                   (bytes) the offset of the column within a row
+     * @param  count                    the number of primitive elements per row in the column
+     * @param  dst                      the flattened storage array of the column, such as returned by
+     *                                      {@link BinaryTable.ColumnDesc#newInstance(int)}
+     * @param  dstRow                   the row index in the storage array at which to place the first decoded row
+     * 
+     * @throws IllegalArgumentException if the storage array is of an unsupported type.
+     */
+    void decode(int pos, int n, int offset, int count, Object dst, int dstRow) throws IllegalArgumentException {
+        int k = dstRow * count;
+        int start = pos + offset;
+        if (dst instanceof byte[]) {
+            byte[] a = (byte[]) dst;
+            for (int r = 0; r < n; r++, k += count) {
+                System.arraycopy(b.array(), start + r * len, a, k, count);
+            }
+        } else if (dst instanceof short[]) {
+            short[] a = (short[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Short.BYTES) {
+                    a[k++] = b.getShort(p);
+                }
+            }
+        } else if (dst instanceof char[]) {
+            char[] a = (char[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Character.BYTES) {
+                    a[k++] = b.getChar(p);
+                }
+            }
+        } else if (dst instanceof int[]) {
+            int[] a = (int[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Integer.BYTES) {
+                    a[k++] = b.getInt(p);
+                }
+            }
+        } else if (dst instanceof long[]) {
+            long[] a = (long[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Long.BYTES) {
+                    a[k++] = b.getLong(p);
+                }
+            }
+        } else if (dst instanceof float[]) {
+            float[] a = (float[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Float.BYTES) {
+                    a[k++] = b.getFloat(p);
+                }
+            }
+        } else if (dst instanceof double[]) {
+            double[] a = (double[]) dst;
+            for (int r = 0; r < n; r++) {
+                for (int j = 0, p = start + r * len; j < count; j++, p += Double.BYTES) {
+                    a[k++] = b.getDouble(p);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported column storage type: " + dst.getClass().getName());
+        }
+    }
+}
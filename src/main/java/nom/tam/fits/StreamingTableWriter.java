@@ -0,0 +1,551 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.fits.header.Standard;
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ArrayFuncs;
+import nom.tam.util.ComplexValue;
+import nom.tam.util.FitsEncoder;
+import nom.tam.util.FitsOutputStream;
+import nom.tam.util.RandomAccess;
+
+/**
+ * Writes a binary table HDU to an output row by row, or in batches of rows, without ever holding the table in
+ * memory. It is meant for producing tables with a very large number of rows, for which
+ * {@link BinaryTable#addRow(Object[])} would require the entire table (and its heap) to be built up in memory before
+ * it could be written.
+ * <p>
+ * The columns are defined up front by their descriptors. The header is written to the output before the first rows,
+ * with placeholder values for the number of rows (<code>NAXIS2</code>), and the heap size and location
+ * (<code>PCOUNT</code> and <code>THEAP</code>). Rows are encoded directly to the output as they are added, while the
+ * data of variable-length columns is spooled to a temporary heap file, which is appended to the output after the last
+ * row when the writer is closed. Closing the writer then patches the header with the final values in place. If the
+ * output is not random-accessible (such as a stream), the rows are spooled to a temporary file also, and the HDU is
+ * written in its entirety when the writer is closed.
+ * </p>
+ * <p>
+ * For example:
+ * </p>
+ * 
+ * <pre>
+ *   try (FitsFile out = new FitsFile("catalog.fits", "rw")) {
+ *       new NullDataHDU().write(out);
+ * 
+ *       try (StreamingTableWriter w = new StreamingTableWriter(out,
+ *               ColumnDesc.createForScalars(long.class).name("ID"),
+ *               ColumnDesc.createForFixedArrays(double.class, 2).name("POS"),
+ *               ColumnDesc.createForVariableSize(float.class).name("SPECTRUM"))) {
+ *           w.getHeader().addValue("EXTNAME", "CATALOG", "name of this HDU");
+ *
+ *           for (Source s : sources) {
+ *               w.addRow(s.getID(), new double[] {s.getRA(), s.getDEC()}, s.getSpectrum());
+ *           }
+ *       }
+ *   }
+ * </pre>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    BinaryTable
+ */
+public final class StreamingTableWriter implements AutoCloseable {
+
+    /** Buffer size for the spool files, and for copying them to the output */
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    /** The largest heap offset that can be stored in a 32-bit (P type) array descriptor */
+    private static final long MAX_P_HEAP = Integer.MAX_VALUE;
+
+    private final ArrayDataOutput out;
+
+    private final Header header;
+
+    private final ColumnDesc[] columns;
+
+    private final int rowBytes;
+
+    /** The output to which rows are written, either the output itself or a spool file */
+    private ArrayDataOutput rowOut;
+
+    /** The position of the header in a random-accessible output, or -1 */
+    private long headerPos = -1;
+
+    /** (bytes) The size of the header, as it was written ahead of the rows */
+    private long headerSize;
+
+    private File rowFile;
+
+    /** Buffer in which each row is encoded in full, before it is written to the rows */
+    private final ByteArrayOutputStream rowBuffer;
+
+    /** Encoder for the row buffer */
+    private final FitsOutputStream rowEncoder;
+
+    /** The heap data of the row being encoded, to be spooled once the row is complete */
+    private final List<Object> rowHeap = new ArrayList<>();
+
+    /** (bytes) The size of the heap data of the row being encoded */
+    private long rowHeapSize;
+
+    private File heapFile;
+
+    private FitsOutputStream heapOut;
+
+    private long nRows;
+
+    private long heapSize;
+
+    private boolean isClosed;
+
+    /**
+     * Creates a new streaming writer for a binary table with the specified columns. The header is created immediately,
+     * so keywords may be added to it via {@link #getHeader()} before the first row is added. Nothing is written to the
+     * output until then.
+     * 
+     * @param  out           the output to which to write the binary table HDU.
+     * @param  columns       the descriptors of the table columns, in order. They are copied, so later changes to them
+     *                           do not affect the table.
+     * 
+     * @throws FitsException if the table header could not be created for the columns.
+     */
+    public StreamingTableWriter(ArrayDataOutput out, ColumnDesc... columns) throws FitsException {
+        BinaryTable proto = new BinaryTable();
+        boolean hasHeap = false;
+
+        for (ColumnDesc c : columns) {
+            proto.addColumn(c.clone());
+            hasHeap |= c.isVariableSize();
+        }
+
+        this.out = out;
+        this.columns = new ColumnDesc[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = proto.getDescriptor(i);
+        }
+        rowBytes = proto.getRowBytes();
+        rowBuffer = new ByteArrayOutputStream(rowBytes);
+        rowEncoder = new FitsOutputStream(rowBuffer, Math.max(rowBytes, 1));
+
+        header = new Header();
+        proto.fillHeader(header, true);
+        if (hasHeap) {
+            header.addValue(Standard.THEAP, 0L);
+        }
+    }
+
+    /**
+     * Returns the header of the binary table HDU. You may add keywords to it before the first row is added, but not
+     * after, when the header has already been written to the output. The essential table keywords are managed by this
+     * writer, and should not be modified.
+     * 
+     * @return the header of the table HDU that is being written.
+     */
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the number of rows that were added to the table so far.
+     * 
+     * @return the number of rows written.
+     */
+    public synchronized long getNRows() {
+        return nRows;
+    }
+
+    /**
+     * Returns the current size of the heap, that is the total size of the variable-length data that was added so far.
+     * 
+     * @return (bytes) the heap size
+     */
+    public synchronized long getHeapSize() {
+        return heapSize;
+    }
+
+    /**
+     * Adds a row to the table, writing it to the output. The row entries are the same as for
+     * {@link BinaryTable#addRow(Object[])}, that is boxed scalars, arrays, {@link String}s, or {@link ComplexValue}s,
+     * matching the column descriptors. The row is encoded in full before any of it is written, so a row that cannot be
+     * encoded leaves the table unchanged.
+     * 
+     * @param  row                      the row entries, one per column.
+     * 
+     * @return                          the number of rows in the table after adding this one.
+     * 
+     * @throws IllegalStateException    if the writer has already been closed.
+     * @throws IllegalArgumentException if the entries do not match the columns.
+     * @throws FitsException            if the data could not be encoded for the columns.
+     * @throws IOException              if there was an error writing to the output or spooling the heap.
+     * 
+     * @see                             #addRows(Object...)
+     */
+    public synchronized long addRow(Object... row)
+            throws IllegalStateException, IllegalArgumentException, FitsException, IOException {
+        if (row.length != columns.length) {
+            throw new IllegalArgumentException("Mismatched row size: " + row.length + ", expected " + columns.length);
+        }
+
+        prepare();
+        startRow();
+
+        for (int col = 0; col < columns.length; col++) {
+            encodeEntry(col, row[col]);
+        }
+
+        return commitRow();
+    }
+
+    /**
+     * Adds a batch of rows to the table, writing them to the output. Each argument contains the data of one column for
+     * all rows in the batch, in the same form as for {@link BinaryTable#addColumn(Object)}, that is with the rows as
+     * the leading dimension, such as an <code>int[]</code> for a column of scalar integers, or a
+     * <code>double[][]</code> for a column of fixed or variable-length arrays of doubles. Scalar columns, supplied as
+     * primitive arrays, are written without boxing. The rows are added one at a time, so if a row cannot be encoded,
+     * the rows before it remain in the table.
+     * 
+     * @param  columnData               the column data for the batch of rows, one array per column.
+     * 
+     * @return                          the number of rows in the table after adding the batch.
+     * 
+     * @throws IllegalStateException    if the writer has already been closed.
+     * @throws IllegalArgumentException if the arguments do not match the columns, or the batches of the columns
+     *                                      differ in size.
+     * @throws FitsException            if the data could not be encoded for the columns.
+     * @throws IOException              if there was an error writing to the output or spooling the heap.
+     * 
+     * @see                             #addRow(Object...)
+     */
+    public synchronized long addRows(Object... columnData)
+            throws IllegalStateException, IllegalArgumentException, FitsException, IOException {
+        if (columnData.length != columns.length) {
+            throw new IllegalArgumentException(
+                    "Mismatched number of columns: " + columnData.length + ", expected " + columns.length);
+        }
+
+        int n = columns.length == 0 ? 0 : Array.getLength(columnData[0]);
+        boolean[] isDirect = new boolean[columns.length];
+
+        for (int col = 0; col < columns.length; col++) {
+            Object data = columnData[col];
+            if (data == null || !data.getClass().isArray()) {
+                throw new IllegalArgumentException("Not an array for column " + col);
+            }
+            if (Array.getLength(data) != n) {
+                throw new IllegalArgumentException("Mismatched batch size for column " + col + ": got "
+                        + Array.getLength(data) + ", expected " + n);
+            }
+
+            ColumnDesc c = columns[col];
+            isDirect[col] = !c.isVariableSize() && c.getElementCount() == 1
+                    && data.getClass().getComponentType() == c.getFitsBase();
+        }
+
+        prepare();
+
+        for (int i = 0; i < n; i++) {
+            startRow();
+            for (int col = 0; col < columns.length; col++) {
+                if (isDirect[col]) {
+                    encodeScalar(columnData[col], i);
+                } else {
+                    encodeEntry(col, Array.get(columnData[col], i));
+                }
+            }
+            commitRow();
+        }
+
+        return nRows;
+    }
+
+    /**
+     * Discards anything left in the row buffer from a previous row that could not be encoded, before encoding a new
+     * row.
+     * 
+     * @throws IOException if there was an error flushing the row encoder.
+     */
+    private void startRow() throws IOException {
+        rowEncoder.flush();
+        rowBuffer.reset();
+        rowHeap.clear();
+        rowHeapSize = 0;
+    }
+
+    /**
+     * Writes the fully encoded row to the rows, and spools its variable-length data to the heap.
+     * 
+     * @return             the number of rows in the table after adding this one.
+     * 
+     * @throws IOException if there was an error writing to the output or the heap spool.
+     */
+    private long commitRow() throws IOException {
+        rowEncoder.flush();
+        rowOut.write(rowBuffer.toByteArray());
+
+        for (Object fits : rowHeap) {
+            spool(fits);
+        }
+
+        startRow();
+        return ++nRows;
+    }
+
+    /**
+     * Encodes a scalar element of a primitive array to the row buffer, as is.
+     * 
+     * @param  data        the primitive array
+     * @param  i           the index of the element
+     * 
+     * @throws IOException if there was an error encoding the element.
+     */
+    private void encodeScalar(Object data, int i) throws IOException {
+        if (data instanceof double[]) {
+            rowEncoder.writeDouble(((double[]) data)[i]);
+        } else if (data instanceof float[]) {
+            rowEncoder.writeFloat(((float[]) data)[i]);
+        } else if (data instanceof long[]) {
+            rowEncoder.writeLong(((long[]) data)[i]);
+        } else if (data instanceof int[]) {
+            rowEncoder.writeInt(((int[]) data)[i]);
+        } else if (data instanceof short[]) {
+            rowEncoder.writeShort(((short[]) data)[i]);
+        } else if (data instanceof char[]) {
+            // 1-byte ASCII or 2-byte unicode, the same as ColumnTable writes it
+            rowEncoder.writeChar(((char[]) data)[i]);
+        } else {
+            rowEncoder.writeByte(((byte[]) data)[i]);
+        }
+    }
+
+    /**
+     * Encodes a row entry to the row buffer, holding on to the data of variable-length columns until the row is
+     * complete.
+     * 
+     * @param  col           the zero-based column index
+     * @param  o             the row entry in Java form
+     * 
+     * @throws FitsException if the entry could not be encoded for the column.
+     * @throws IOException   if there was an error encoding the entry.
+     */
+    private void encodeEntry(int col, Object o) throws FitsException, IOException {
+        ColumnDesc c = columns[col];
+        Object flat = ArrayFuncs.flatten(o);
+        Object fits = BinaryTable.javaToFits1D(c, flat);
+
+        if (!c.isVariableSize()) {
+            BinaryTable.checkElementCount(c, col, fits);
+            rowEncoder.writeArray(fits);
+            return;
+        }
+
+        int len = BinaryTable.getHeapCount(c, flat, fits);
+        long offset = heapSize + rowHeapSize;
+
+        if (c.hasLongPointers()) {
+            rowEncoder.writeLong(len);
+            rowEncoder.writeLong(offset);
+        } else {
+            if (offset > MAX_P_HEAP) {
+                throw new FitsException("Heap offset beyond reach of 32-bit descriptor in column " + col
+                        + ": use 64-bit (Q type) descriptors for heaps > 2 GB");
+            }
+            rowEncoder.writeInt(len);
+            rowEncoder.writeInt((int) offset);
+        }
+
+        rowHeap.add(fits);
+        rowHeapSize += FitsEncoder.computeSize(fits);
+    }
+
+    /**
+     * Appends the data of a variable-length entry to the heap spool.
+     * 
+     * @param  fits        the FITS storage array of the entry
+     * 
+     * @throws IOException if there was an error writing to the heap spool.
+     */
+    private void spool(Object fits) throws IOException {
+        long size = FitsEncoder.computeSize(fits);
+        if (size == 0) {
+            return;
+        }
+        if (heapOut == null) {
+            heapFile = File.createTempFile("nom-tam-fits-heap", ".tmp");
+            heapOut = new FitsOutputStream(new FileOutputStream(heapFile), COPY_BUFFER_SIZE);
+        }
+        heapOut.writeArray(fits);
+        heapSize += size;
+    }
+
+    /**
+     * Prepares for writing rows, writing the header to a random-accessible output, or setting up a spool file for rows
+     * otherwise, as necessary.
+     * 
+     * @throws IllegalStateException if the writer has already been closed.
+     * @throws FitsException         if the header could not be written.
+     * @throws IOException           if there was an error accessing the output or creating the spool file.
+     */
+    @SuppressWarnings("resource")
+    private void prepare() throws IllegalStateException, FitsException, IOException {
+        if (isClosed) {
+            throw new IllegalStateException("Table writer is closed");
+        }
+
+        if (rowOut != null) {
+            return;
+        }
+
+        if (out instanceof RandomAccess) {
+            headerPos = ((RandomAccess) out).position();
+            header.write(out);
+            headerSize = header.getSize();
+            rowOut = out;
+        } else {
+            rowFile = File.createTempFile("nom-tam-fits-rows", ".tmp");
+            rowOut = new FitsOutputStream(new FileOutputStream(rowFile), COPY_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Completes the binary table HDU in the output, and releases the temporary spool files. The heap is appended after
+     * the last row, followed by padding to a FITS block, and the header is updated with the final number of rows and
+     * heap size. For random-accessible outputs the header is patched in place, after which the output is positioned
+     * after the end of the HDU, ready for writing further HDUs. It does nothing if the writer is already closed.
+     * 
+     * @throws FitsException if the header could not be patched or written.
+     * @throws IOException   if there was an error writing to the output.
+     */
+    @Override
+    public synchronized void close() throws FitsException, IOException {
+        if (isClosed) {
+            return;
+        }
+
+        try {
+            prepare();
+            isClosed = true;
+
+            if (heapOut != null) {
+                heapOut.close();
+            }
+
+            updateHeader();
+
+            if (headerPos < 0) {
+                ((FitsOutputStream) rowOut).close();
+                header.write(out);
+                copy(rowFile);
+            }
+
+            copy(heapFile);
+            out.write(new byte[FitsUtil.padding(nRows * rowBytes + heapSize)]);
+
+            if (headerPos >= 0) {
+                RandomAccess f = (RandomAccess) out;
+                long end = f.position();
+                f.position(headerPos);
+                header.write(out);
+                f.position(end);
+            }
+
+            out.flush();
+        } finally {
+            isClosed = true;
+            delete(rowFile);
+            delete(heapFile);
+        }
+    }
+
+    /**
+     * Updates the header with the final table size and heap description.
+     * 
+     * @throws FitsException if the header size would change, such that it can no longer be patched in place.
+     */
+    private void updateHeader() throws FitsException {
+        header.getCard(Standard.NAXIS2).setValue(nRows);
+        header.getCard(Standard.PCOUNT).setValue(heapSize);
+
+        HeaderCard theap = header.getCard(Standard.THEAP);
+        if (theap != null) {
+            theap.setValue(nRows * rowBytes);
+        }
+
+        // Delimited strings set the string length as they are written, which may change their TFORM
+        for (int col = 0; col < columns.length; col++) {
+            header.getCard(Standard.TFORMn.n(col + 1)).setValue(columns[col].getTFORM());
+        }
+
+        if (headerPos >= 0 && header.getSize() != headerSize) {
+            throw new FitsException("Header was resized after it was written");
+        }
+    }
+
+    /**
+     * Copies the contents of a spool file to the output.
+     * 
+     * @param  file        the spool file, or <code>null</code> if there is nothing to copy.
+     * 
+     * @throws IOException if there was an error reading the file or writing to the output.
+     */
+    private void copy(File file) throws IOException {
+        if (file == null) {
+            return;
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), COPY_BUFFER_SIZE)) {
+            byte[] buf = new byte[COPY_BUFFER_SIZE];
+            for (int got = in.read(buf); got > 0; got = in.read(buf)) {
+                out.write(buf, 0, got);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package nom.tam.fits.compression.algorithm.gzip;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * (<i>for internal use</i>) A GZIP encoder / decoder that works directly between NIO buffers, without the
+ * intermediate streams and copies of {@link java.util.zip.GZIPOutputStream} and
+ * {@link java.util.zip.GZIPInputStream}. The GZIP header and trailer are written and checked by this class, and the
+ * compressed data is the same as what {@link java.util.zip.GZIPOutputStream} produces at the same compression level.
+ * <p>
+ * Codecs are cheap to create. The {@link Deflater} or {@link Inflater} (and its native zlib state) that a codec needs
+ * is taken from a small shared pool when a data stream is started, and returned to it by {@link #reset()}. The pool
+ * holds at most as many idle deflaters and inflaters as there are threads in the default
+ * {@link nom.tam.fits.FitsFactory#threadPool()}, so they are reused by pooled worker threads, but not retained for
+ * every thread that ever compressed a tile (e.g. when using virtual threads). The ones that do not fit into the pool
+ * are ended, releasing their native memory immediately.
+ * </p>
+ * <p>
+ * A codec compresses or decompresses one data stream at a time, and must not be shared with other threads.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ */
+public final class GZipCodec {
+
+    /** The maximum number of idle deflaters and inflaters we keep, each, for reuse */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final ArrayBlockingQueue<Deflater> IDLE_DEFLATERS = new ArrayBlockingQueue<>(MAX_IDLE);
+
+    private static final ArrayBlockingQueue<Inflater> IDLE_INFLATERS = new ArrayBlockingQueue<>(MAX_IDLE);
+
+    private static final int MAGIC1 = 0x1f;
+
+    private static final int MAGIC2 = 0x8b;
+
+    private static final int BYTE_MASK = 0xff;
+
+    /** The header we write: magic, deflate method, no flags, no time, no extra flags, unknown OS */
+    private static final byte[] HEADER = {(byte) MAGIC1, (byte) MAGIC2, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+            (byte) BYTE_MASK};
+
+    private static final int HEADER_SIZE = HEADER.length;
+
+    private static final int TRAILER_SIZE = 2 * Integer.BYTES;
+
+    /** Offset of the flags in the header */
+    private static final int FLAGS_OFFSET = 3;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private static final long UNSIGNED_INT_MASK = 0xffffffffL;
+
+    /** The deflater for the data stream being compressed, or <code>null</code> */
+    private Deflater deflater;
+
+    /** The inflater for the data stream being decompressed, or <code>null</code> */
+    private Inflater inflater;
+
+    private final CRC32 crc = new CRC32();
+
+    /** The number of uncompressed bytes in the current GZIP member */
+    private long size;
+
+    /** The buffer we are compressing into */
+    private ByteBuffer out;
+
+    /** The buffer we are decompressing from */
+    private ByteBuffer in;
+
+    /** Whether we decompressed all data */
+    private boolean eof;
+
+    /**
+     * Creates a new GZIP codec.
+     */
+    public GZipCodec() {
+    }
+
+    /**
+     * Returns the number of idle deflaters and inflaters currently kept for reuse.
+     *
+     * @return the number of idle deflaters and inflaters in the shared pool.
+     */
+    static int getIdleCount() {
+        return IDLE_DEFLATERS.size() + IDLE_INFLATERS.size();
+    }
+
+    /**
+     * Starts compressing data into the specified buffer, beginning by writing a GZIP header at its current position.
+     *
+     * @param  compressed              the buffer to hold the compressed data
+     * @param  level                   the compression level, from 0 (no compression) to 9 (best compression), or
+     *                                     {@link Deflater#DEFAULT_COMPRESSION}
+     *
+     * @throws BufferOverflowException if there is no room for the header in the buffer
+     *
+     * @see                            #deflate(ByteBuffer)
+     * @see                            #finishDeflate()
+     */
+    public void startDeflate(ByteBuffer compressed, int level) throws BufferOverflowException {
+        if (deflater == null) {
+            deflater = IDLE_DEFLATERS.poll();
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+        }
+        deflater.reset();
+        deflater.setLevel(level);
+        crc.reset();
+        size = 0;
+        out = compressed;
+        out.put(HEADER);
+    }
+
+    /**
+     * Compresses the remaining bytes of a buffer, after which the buffer will have no bytes remaining.
+     *
+     * @param  data                    the uncompressed data
+     *
+     * @throws BufferOverflowException if the output ran out of space
+     *
+     * @see                            #startDeflate(ByteBuffer, int)
+     */
+    public void deflate(ByteBuffer data) throws BufferOverflowException {
+        crc.update(data.duplicate());
+        size += data.remaining();
+        deflater.setInput(data);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    /**
+     * Compresses bytes from an array.
+     *
+     * @param  b                       the uncompressed data
+     * @param  off                     the array index of the first byte to compress
+     * @param  len                     the number of bytes to compress
+     *
+     * @throws BufferOverflowException if the output ran out of space
+     *
+     * @see                            #startDeflate(ByteBuffer, int)
+     */
+    public void deflate(byte[] b, int off, int len) throws BufferOverflowException {
+        deflate(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Completes the compressed data, including the GZIP trailer, leaving the output buffer positioned after it.
+     *
+     * @throws BufferOverflowException if the output ran out of space
+     *
+     * @see                            #startDeflate(ByteBuffer, int)
+     */
+    public void finishDeflate() throws BufferOverflowException {
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            putIntLE((int) crc.getValue());
+            putIntLE((int) size);
+        } finally {
+            reset();
+        }
+    }
+
+    private void drain() throws BufferOverflowException {
+        if (!out.hasRemaining()) {
+            throw new BufferOverflowException();
+        }
+        deflater.deflate(out);
+    }
+
+    private void putIntLE(int value) throws BufferOverflowException {
+        if (out.remaining() < Integer.BYTES) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < Integer.BYTES; i++) {
+            out.put((byte) (value >>> (i * Byte.SIZE)));
+        }
+    }
+
+    /**
+     * Starts decompressing GZIP data from the current position of a buffer. Concatenated GZIP members are
+     * decompressed as a single stream, while any trailing bytes that do not begin another GZIP member are ignored.
+     *
+     * @param  compressed  the buffer containing the compressed data, starting with a GZIP header
+     *
+     * @throws IOException if the data does not start with a valid GZIP header
+     *
+     * @see                #inflate(ByteBuffer)
+     */
+    public void startInflate(ByteBuffer compressed) throws IOException {
+        if (inflater == null) {
+            inflater = IDLE_INFLATERS.poll();
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+        }
+        in = compressed;
+        eof = false;
+        startMember();
+    }
+
+    /**
+     * Decompresses data into a buffer, until the buffer is filled or the end of the compressed data is reached.
+     *
+     * @param  dst         the buffer to fill with decompressed data from its current position.
+     *
+     * @return             the number of decompressed bytes added to the buffer, or -1 if there is no more data to
+     *                         decompress.
+     *
+     * @throws IOException if the compressed data is corrupted or incomplete.
+     *
+     * @see                #startInflate(ByteBuffer)
+     */
+    public int inflate(ByteBuffer dst) throws IOException {
+        if (eof) {
+            return -1;
+        }
+
+        final int start = dst.position();
+
+        try {
+            while (dst.hasRemaining()) {
+                int from = dst.position();
+                int n = inflater.inflate(dst);
+
+                if (n > 0) {
+                    crc.update(dst.duplicate().position(from).limit(from + n));
+                    size += n;
+                }
+
+                if (inflater.finished()) {
+                    checkTrailer();
+                    if (!hasNextMember()) {
+                        reset();
+                        break;
+                    }
+                    startMember();
+                } else if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Unexpected preset dictionary in GZIP data");
+                    }
+                    if (inflater.needsInput()) {
+                        throw new EOFException("Unexpected end of GZIP data");
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            reset();
+            throw new ZipException(e.getMessage());
+        } catch (IOException e) {
+            reset();
+            throw e;
+        }
+
+        int n = dst.position() - start;
+        return (n == 0 && eof) ? -1 : n;
+    }
+
+    /**
+     * Abandons any compression or decompression in progress, releases the buffers used, and returns the deflater or
+     * inflater to the shared pool (or ends it if the pool is full). It is called implicitly at the end of the
+     * compressed or decompressed data, but it should also be called, e.g. in a <code>finally</code> clause, when
+     * compressing or decompressing stops prematurely, so that the deflater or inflater is not lost to the pool.
+     */
+    public void reset() {
+        if (deflater != null) {
+            deflater.reset();
+            if (!IDLE_DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.reset();
+            if (!IDLE_INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+            inflater = null;
+        }
+        out = null;
+        in = null;
+        eof = true;
+    }
+
+    private void startMember() throws IOException {
+        if (in.remaining() < HEADER_SIZE) {
+            throw new EOFException("Incomplete GZIP header");
+        }
+        if ((in.get() & BYTE_MASK) != MAGIC1 || (in.get() & BYTE_MASK) != MAGIC2) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (in.get() != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported GZIP compression method");
+        }
+
+        int flags = in.get();
+        skip(HEADER_SIZE - FLAGS_OFFSET - 1); // time, extra flags, OS
+
+        if ((flags & FEXTRA) != 0) {
+            skip(getShortLE());
+        }
+        if ((flags & FNAME) != 0) {
+            skipString();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipString();
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(Short.BYTES);
+        }
+
+        inflater.reset();
+        inflater.setInput(in);
+        crc.reset();
+        size = 0;
+    }
+
+    private boolean hasNextMember() {
+        int pos = in.position();
+        return in.remaining() >= HEADER_SIZE && (in.get(pos) & BYTE_MASK) == MAGIC1
+                && (in.get(pos + 1) & BYTE_MASK) == MAGIC2;
+    }
+
+    private void checkTrailer() throws IOException {
+        if (in.remaining() < TRAILER_SIZE) {
+            throw new EOFException("Incomplete GZIP trailer");
+        }
+        if ((getIntLE() & UNSIGNED_INT_MASK) != crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        }
+        if ((getIntLE() & UNSIGNED_INT_MASK) != (size & UNSIGNED_INT_MASK)) {
+            throw new ZipException("Corrupt GZIP trailer: size mismatch");
+        }
+    }
+
+    private void skip(int n) throws EOFException {
+        if (in.remaining() < n) {
+            throw new EOFException("Incomplete GZIP header");
+        }
+        in.position(in.position() + n);
+    }
+
+    private void skipString() throws EOFException {
+        while (in.hasRemaining()) {
+            if (in.get() == 0) {
+                return;
+            }
+        }
+        throw new EOFException("Incomplete GZIP header");
+    }
+
+    private int getShortLE() throws EOFException {
+        if (in.remaining() < Short.BYTES) {
+            throw new EOFException("Incomplete GZIP header");
+        }
+        return (in.get() & BYTE_MASK) | (in.get() & BYTE_MASK) << Byte.SIZE;
+    }
+
+    private int getIntLE() {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value |= (in.get() & BYTE_MASK) << (i * Byte.SIZE);
+        }
+        return value;
+    }
+}
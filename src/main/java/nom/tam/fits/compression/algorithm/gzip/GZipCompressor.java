@@ -2,6 +2,7 @@ package nom.tam.fits.compression.algorithm.gzip;
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
@@ -9,6 +10,7 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -217,6 +219,22 @@ public abstract class GZipCompressor<T extends Buffer> implements ICompressor<T>
 
     private static final int MINIMAL_GZIP_BUFFER_SIZE = 65536;
 
+    /** Whether a compressor class supplies its own GZIP streams */
+    private static final ClassValue<Boolean> CUSTOM_STREAMS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type; c != null && c != GZipCompressor.class; c = c.getSuperclass()) {
+                if (declares(c, "createGZipInputStream", ByteBuffer.class)
+                        || declares(c, "createGZipOutputStream", int.class, ByteBuffer.class)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private static volatile int defaultCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+
     protected final int primitiveSize;
 
     protected byte[] buffer = new byte[DEFAULT_GZIP_BUFFER_SIZE];
@@ -225,14 +243,149 @@ public abstract class GZipCompressor<T extends Buffer> implements ICompressor<T>
 
     private final byte[] sizeArray = new byte[ElementType.INT.size()];
 
+    private int compressionLevel = defaultCompressionLevel;
+
     private final IntBuffer sizeBuffer = ByteBuffer.wrap(sizeArray).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
 
     public GZipCompressor(int primitiveSize) {
         this.primitiveSize = primitiveSize;
     }
 
+    /**
+     * Sets the compression level to use by default for new GZIP compressors, including those created internally for
+     * compressing tiles.
+     *
+     * @param  level                    the compression level, from 0 (no compression) to 9 (best compression), or -1
+     *                                      ({@link Deflater#DEFAULT_COMPRESSION}) for the zlib default.
+     *
+     * @throws IllegalArgumentException if the level is outside of the supported range
+     *
+     * @see                             #getDefaultCompressionLevel()
+     * @see                             #setCompressionLevel(int)
+     *
+     * @since                           1.22
+     */
+    public static void setDefaultCompressionLevel(int level) throws IllegalArgumentException {
+        defaultCompressionLevel = checkCompressionLevel(level);
+    }
+
+    /**
+     * Returns the compression level used by default for new GZIP compressors.
+     *
+     * @return the default compression level, from 0 (no compression) to 9 (best compression), or -1 (
+     *             {@link Deflater#DEFAULT_COMPRESSION}) for the zlib default.
+     *
+     * @see    #setDefaultCompressionLevel(int)
+     *
+     * @since  1.22
+     */
+    public static int getDefaultCompressionLevel() {
+        return defaultCompressionLevel;
+    }
+
+    /**
+     * Sets the compression level to use by this compressor.
+     *
+     * @param  level                    the compression level, from 0 (no compression) to 9 (best compression), or -1
+     *                                      ({@link Deflater#DEFAULT_COMPRESSION}) for the zlib default.
+     *
+     * @return                          itself
+     *
+     * @throws IllegalArgumentException if the level is outside of the supported range
+     *
+     * @see                             #getCompressionLevel()
+     *
+     * @since                           1.22
+     */
+    public GZipCompressor<T> setCompressionLevel(int level) throws IllegalArgumentException {
+        compressionLevel = checkCompressionLevel(level);
+        return this;
+    }
+
+    /**
+     * Returns the compression level used by this compressor.
+     *
+     * @return the compression level, from 0 (no compression) to 9 (best compression), or -1 (
+     *             {@link Deflater#DEFAULT_COMPRESSION}) for the zlib default.
+     *
+     * @see    #setCompressionLevel(int)
+     *
+     * @since  1.22
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Checks if a class declares (overrides) a method with the specified name and parameter types.
+     *
+     * @param  c      the class
+     * @param  name   the method name
+     * @param  params the parameter types of the method
+     *
+     * @return        <code>true</code> if the class itself declares the method, otherwise <code>false</code>.
+     */
+    private static boolean declares(Class<?> c, String name, Class<?>... params) {
+        try {
+            c.getDeclaredMethod(name, params);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static int checkCompressionLevel(int level) throws IllegalArgumentException {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid GZIP compression level: " + level);
+        }
+        return level;
+    }
+
+    /**
+     * Checks if this compressor uses GZIP streams supplied by a subclass, instead of the {@link GZipCodec} with its
+     * pooled deflaters and inflaters.
+     *
+     * @return <code>true</code> if this compressor overrides {@link #createGZipInputStream(ByteBuffer)} or
+     *             {@link #createGZipOutputStream(int, ByteBuffer)}, otherwise <code>false</code>.
+     *
+     * @since  1.22
+     */
+    protected final boolean isUsingCustomStreams() {
+        return CUSTOM_STREAMS.get(getClass());
+    }
+
     @Override
     public boolean compress(T pixelData, ByteBuffer compressed) {
+        if (isUsingCustomStreams()) {
+            return compressStreamed(pixelData, compressed);
+        }
+
+        GZipCodec codec = new GZipCodec();
+        try {
+            codec.startDeflate(compressed, compressionLevel);
+            if (pixelData instanceof ByteBuffer) {
+                codec.deflate((ByteBuffer) pixelData);
+            } else {
+                nioBuffer.rewind();
+                int pixelDataLimit = pixelData.limit();
+                while (pixelData.hasRemaining()) {
+                    int count = Math.min(pixelData.remaining(), nioBuffer.capacity());
+                    pixelData.limit(pixelData.position() + count);
+                    getPixel(pixelData, null);
+                    codec.deflate(buffer, 0, nioBuffer.position() * primitiveSize);
+                    nioBuffer.rewind();
+                    pixelData.limit(pixelDataLimit);
+                }
+            }
+            codec.finishDeflate();
+        } finally {
+            codec.reset();
+        }
+        compressed.limit(compressed.position());
+        return true;
+    }
+
+    private boolean compressStreamed(T pixelData, ByteBuffer compressed) {
         nioBuffer.rewind();
         int pixelDataLimit = pixelData.limit();
         try (GZIPOutputStream zip = createGZipOutputStream(pixelDataLimit, compressed)) {
@@ -253,6 +406,47 @@ public abstract class GZipCompressor<T extends Buffer> implements ICompressor<T>
 
     @Override
     public void decompress(ByteBuffer compressed, T pixelData) {
+        if (isUsingCustomStreams()) {
+            decompressStreamed(compressed, pixelData);
+            return;
+        }
+
+        nioBuffer.rewind();
+        TypeConversion<Buffer> typeConverter = getTypeConverter(compressed, pixelData.limit());
+        GZipCodec codec = new GZipCodec();
+        try {
+            codec.startInflate(compressed);
+            if (typeConverter == null && pixelData instanceof ByteBuffer) {
+                // Decompress straight into the pixels.
+                ByteBuffer pixels = (ByteBuffer) pixelData;
+                int count;
+                do {
+                    count = codec.inflate(pixels);
+                } while (count > 0);
+                if (!pixels.hasRemaining() && codec.inflate(ByteBuffer.wrap(buffer, 0, 1)) > 0) {
+                    throw new BufferOverflowException();
+                }
+            } else {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer);
+                int count;
+                while ((count = codec.inflate(chunk)) >= 0) {
+                    if (typeConverter != null) {
+                        count = typeConverter.copy(count);
+                    }
+                    nioBuffer.position(0);
+                    nioBuffer.limit(count / primitiveSize);
+                    setPixel(pixelData, null);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not gunzip data", e);
+        } finally {
+            codec.reset();
+        }
+    }
+
+    private void decompressStreamed(ByteBuffer compressed, T pixelData) {
         nioBuffer.rewind();
         TypeConversion<Buffer> typeConverter = getTypeConverter(compressed, pixelData.limit());
         try (GZIPInputStream zip = createGZipInputStream(compressed)) {
@@ -298,11 +492,34 @@ public abstract class GZipCompressor<T extends Buffer> implements ICompressor<T>
         return null;
     }
 
+    /**
+     * Creates a stream for decompressing GZIP data. Compressors that override this method (or
+     * {@link #createGZipOutputStream(int, ByteBuffer)}) decompress through the streams they return, whereas others use
+     * the more efficient {@link GZipCodec}.
+     *
+     * @param  compressed  the compressed data
+     *
+     * @return             a new input stream that decompresses the data
+     *
+     * @throws IOException if the stream could not be created
+     */
     protected GZIPInputStream createGZipInputStream(ByteBuffer compressed) throws IOException {
         return new GZIPInputStream(new ByteBufferInputStream(compressed),
                 Math.min(compressed.limit() * 2, DEFAULT_GZIP_BUFFER_SIZE));
     }
 
+    /**
+     * Creates a stream for compressing data with GZIP. Compressors that override this method (or
+     * {@link #createGZipInputStream(ByteBuffer)}) compress through the streams they return, whereas others use the
+     * more efficient {@link GZipCodec}.
+     *
+     * @param  length      the number of elements to compress
+     * @param  compressed  the buffer to hold the compressed data
+     *
+     * @return             a new output stream that compresses data into the buffer
+     *
+     * @throws IOException if the stream could not be created
+     */
     protected GZIPOutputStream createGZipOutputStream(int length, ByteBuffer compressed) throws IOException {
         return new GZIPOutputStream(new ByteBufferOutputStream(compressed),
                 Math.min(Math.max(length * 2, MINIMAL_GZIP_BUFFER_SIZE), DEFAULT_GZIP_BUFFER_SIZE));
@@ -42,6 +42,7 @@ import java.nio.ShortBuffer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import nom.tam.fits.compression.algorithm.gzip.GZipCodec;
 import nom.tam.fits.compression.algorithm.gzip.GZipCompressor;
 import nom.tam.util.type.ElementType;
 
@@ -165,6 +166,19 @@ public abstract class GZip2Compressor<T extends Buffer> extends GZipCompressor<T
         byte[] pixelBytes = new byte[pixelDataLimit * primitiveSize];
         getPixel(pixelData, pixelBytes);
         pixelBytes = shuffle(pixelBytes);
+
+        if (!isUsingCustomStreams()) {
+            GZipCodec codec = new GZipCodec();
+            try {
+                codec.startDeflate(compressed, getCompressionLevel());
+                codec.deflate(pixelBytes, 0, pixelBytes.length);
+                codec.finishDeflate();
+            } finally {
+                codec.reset();
+            }
+            return true;
+        }
+
         try (GZIPOutputStream zip = createGZipOutputStream(pixelDataLimit, compressed)) {
             // FIXME AK: FB complains the line below has a redundant null ckeck for 'zip', but where exactly?
             zip.write(pixelBytes, 0, pixelBytes.length);
@@ -178,6 +192,30 @@ public abstract class GZip2Compressor<T extends Buffer> extends GZipCompressor<T
     public void decompress(ByteBuffer compressed, T pixelData) {
         int pixelDataLimit = pixelData.limit();
         byte[] pixelBytes = new byte[pixelDataLimit * primitiveSize];
+
+        if (isUsingCustomStreams()) {
+            inflateStreamed(compressed, pixelBytes);
+        } else {
+            GZipCodec codec = new GZipCodec();
+            try {
+                codec.startInflate(compressed);
+                ByteBuffer pixels = ByteBuffer.wrap(pixelBytes);
+                int count;
+                do {
+                    count = codec.inflate(pixels);
+                } while (count > 0);
+            } catch (IOException e) {
+                throw new IllegalStateException("could not gunzip data", e);
+            } finally {
+                codec.reset();
+            }
+        }
+
+        pixelBytes = unshuffle(pixelBytes);
+        setPixel(pixelData, pixelBytes);
+    }
+
+    private void inflateStreamed(ByteBuffer compressed, byte[] pixelBytes) {
         try (GZIPInputStream zip = createGZipInputStream(compressed)) {
             int count = 0;
             int offset = 0;
@@ -190,8 +228,6 @@ public abstract class GZip2Compressor<T extends Buffer> extends GZipCompressor<T
         } catch (IOException e) {
             throw new IllegalStateException("could not gunzip data", e);
         }
-        pixelBytes = unshuffle(pixelBytes);
-        setPixel(pixelData, pixelBytes);
     }
 
     public byte[] shuffle(byte[] byteArray) {
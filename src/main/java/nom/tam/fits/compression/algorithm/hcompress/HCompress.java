@@ -101,6 +101,9 @@ public class HCompress {
     /** Bits buffered for output */
     private int buffer2;
 
+    /** Pooled scratch storage, held for the duration of a call */
+    private HCompressWorkspace workspace;
+
     private int b2i(boolean b) {
         return b ? 1 : 0;
     }
@@ -143,17 +146,22 @@ public class HCompress {
          * axis in the FITS image display
          */
 
-        /* H-transform */
-        htrans(aa, nx, ny);
-
-        LongBuffer a = LongBuffer.wrap(aa);
+        workspace = HCompressWorkspace.acquire();
+        try {
+            /* H-transform */
+            htrans(aa, nx, ny);
 
-        /* digitize */
-        digitize(a, 0, nx, ny, scale);
+            LongBuffer a = LongBuffer.wrap(aa, 0, nx * ny);
 
-        /* encode and write to output tiledImageOperation */
-        encode(output, a, nx, ny, scale);
+            /* digitize */
+            digitize(a, 0, nx, ny, scale);
 
+            /* encode and write to output tiledImageOperation */
+            encode(output, a, nx, ny, scale);
+        } finally {
+            HCompressWorkspace.release(workspace);
+            workspace = null;
+        }
     }
 
     private LongBuffer copy(LongBuffer a, int i) {
@@ -240,7 +248,7 @@ public class HCompress {
         /*
          * allocate tiledImageOperation for sign bits and save values, 8 per byte
          */
-        byte[] signbits = new byte[(nel + BITS_OF_1_BYTE - 1) / BITS_OF_1_BYTE];
+        byte[] signbits = workspace.signbits((nel + BITS_OF_1_BYTE - 1) / BITS_OF_1_BYTE);
 
         int nsign = 0;
         int bitsToGo = BITS_OF_1_BYTE;
@@ -350,7 +358,7 @@ public class HCompress {
         /*
          * get temporary storage for shuffling elements
          */
-        long[] tmp = new long[(nmax + 1) / 2];
+        long[] tmp = workspace.tmp((nmax + 1) / 2);
 
         /*
          * set up rounding and shifting masks
@@ -594,8 +602,8 @@ public class HCompress {
          * We're indexing A as a 2-D tiledImageOperation with dimensions (nqx,nqy). Scratch is 2-D with dimensions
          * (nqx/2,nqy/2) rounded up. Buffer is used to store string of codes for output.
          */
-        scratch = new byte[(int) (2 * bmax)];
-        buffer = new byte[(int) bmax];
+        scratch = workspace.scratch((int) (2 * bmax));
+        buffer = workspace.buffer((int) bmax);
 
         /*
          * now encode each bit plane, starting with the top
@@ -0,0 +1,182 @@
+package nom.tam.fits.compression.algorithm.hcompress;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * (<i>for internal use</i>) Pooled scratch storage for the HCompress algorithm, so that compressing or decompressing
+ * one tile after another does not allocate new arrays for each. The arrays grow to the size needed by the largest tile
+ * processed with the workspace. Their contents are undefined when they are handed out, and the algorithms always
+ * populate them before use (just like their <code>malloc()</code>ed counterparts in CFITSIO). Idle workspaces are
+ * shared by all threads, in a bounded pool, and workspaces that have grown too large are not pooled at all.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ */
+final class HCompressWorkspace {
+
+    /** The maximum number of idle workspaces kept for reuse */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    /** (bytes) Workspaces whose arrays are larger than this in total are not kept for reuse (16 MB) */
+    static final long MAX_POOLED_SIZE = 16L * 1024L * 1024L;
+
+    private static final ArrayBlockingQueue<HCompressWorkspace> IDLE = new ArrayBlockingQueue<>(MAX_IDLE);
+
+    private long[] pixels = new long[0];
+
+    private long[] tmp = new long[0];
+
+    private byte[] scratch = new byte[0];
+
+    private byte[] buffer = new byte[0];
+
+    private byte[] signbits = new byte[0];
+
+    private HCompressWorkspace() {
+    }
+
+    /**
+     * Returns an idle workspace from the pool, or else a new one. It should be returned to the pool via
+     * {@link #release(HCompressWorkspace)} when no longer needed.
+     *
+     * @return a workspace for the exclusive use of the caller until it is released.
+     */
+    static HCompressWorkspace acquire() {
+        HCompressWorkspace workspace = IDLE.poll();
+        return workspace == null ? new HCompressWorkspace() : workspace;
+    }
+
+    /**
+     * Returns a workspace to the pool for reuse, unless the pool is full or the workspace has grown larger than
+     * {@link #MAX_POOLED_SIZE}, in which case it is left for the garbage collector. The workspace must not be used
+     * after it is released.
+     *
+     * @param workspace the workspace that is no longer needed. It may be <code>null</code>, in which case nothing
+     *                      happens.
+     */
+    static void release(HCompressWorkspace workspace) {
+        if (workspace != null && workspace.size() <= MAX_POOLED_SIZE) {
+            IDLE.offer(workspace);
+        }
+    }
+
+    /**
+     * Returns the number of idle workspaces in the pool.
+     *
+     * @return the number of workspaces held for reuse.
+     */
+    static int getIdleCount() {
+        return IDLE.size();
+    }
+
+    /**
+     * Returns the total size of the arrays held by this workspace.
+     *
+     * @return (bytes) the memory used by the arrays of the workspace.
+     */
+    long size() {
+        return (long) Long.BYTES * (pixels.length + tmp.length) + scratch.length + buffer.length + signbits.length;
+    }
+
+    /**
+     * Returns storage for the pixels of a tile.
+     *
+     * @param  n the number of pixels
+     *
+     * @return   an array with at least the requested number of elements
+     */
+    long[] pixels(int n) {
+        if (pixels.length < n) {
+            pixels = new long[n];
+        }
+        return pixels;
+    }
+
+    /**
+     * Returns temporary storage for shuffling a row or column during the H-transform or its inverse.
+     *
+     * @param  n the number of elements needed
+     *
+     * @return   an array with at least the requested number of elements
+     */
+    long[] tmp(int n) {
+        if (tmp.length < n) {
+            tmp = new long[n];
+        }
+        return tmp;
+    }
+
+    /**
+     * Returns scratch storage for the quadtree coding of bit planes.
+     *
+     * @param  n the number of elements needed
+     *
+     * @return   an array with at least the requested number of elements
+     */
+    byte[] scratch(int n) {
+        if (scratch.length < n) {
+            scratch = new byte[n];
+        }
+        return scratch;
+    }
+
+    /**
+     * Returns storage for the quadtree codes of a bit plane during compression.
+     *
+     * @param  n the number of elements needed
+     *
+     * @return   an array with at least the requested number of elements
+     */
+    byte[] buffer(int n) {
+        if (buffer.length < n) {
+            buffer = new byte[n];
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns storage for the packed sign bits of a tile during compression.
+     *
+     * @param  n the number of bytes needed
+     *
+     * @return   an array with at least the requested number of elements
+     */
+    byte[] signbits(int n) {
+        if (signbits.length < n) {
+            signbits = new byte[n];
+        }
+        return signbits;
+    }
+}
@@ -39,7 +39,6 @@ import java.nio.ShortBuffer;
 import nom.tam.fits.compression.algorithm.api.ICompressor;
 import nom.tam.fits.compression.algorithm.quant.QuantizeProcessor.DoubleQuantCompressor;
 import nom.tam.fits.compression.algorithm.quant.QuantizeProcessor.FloatQuantCompressor;
-import nom.tam.util.ArrayFuncs;
 
 /**
  * (<i>for internal use</i>) Data compressor using the HCompress algorithm.
@@ -68,22 +67,50 @@ public abstract class HCompressor<T extends Buffer> implements ICompressor<T> {
 
         @Override
         public boolean compress(ByteBuffer buffer, ByteBuffer compressed) {
-            byte[] byteArray = new byte[buffer.limit()];
-            buffer.get(byteArray);
-            long[] longArray = new long[byteArray.length];
-            for (int index = 0; index < longArray.length; index++) {
-                longArray[index] = byteArray[index] & BYTE_MASK_FOR_LONG;
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                if (buffer.hasArray()) {
+                    byte[] byteArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = byteArray[from + index] & BYTE_MASK_FOR_LONG;
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = buffer.get() & BYTE_MASK_FOR_LONG;
+                    }
+                }
+                compress(longArray, compressed);
+                return true;
+            } finally {
+                HCompressWorkspace.release(workspace);
             }
-            compress(longArray, compressed);
-            return true;
         }
 
         @Override
         public void decompress(ByteBuffer compressed, ByteBuffer buffer) {
-            long[] longArray = new long[buffer.limit()];
-            decompress(compressed, longArray);
-            for (long element : longArray) {
-                buffer.put((byte) element);
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                decompress(compressed, longArray);
+                if (buffer.hasArray()) {
+                    byte[] byteArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        byteArray[from + index] = (byte) longArray[index];
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        buffer.put((byte) longArray[index]);
+                    }
+                }
+            } finally {
+                HCompressWorkspace.release(workspace);
             }
         }
 
@@ -123,20 +150,50 @@ public abstract class HCompressor<T extends Buffer> implements ICompressor<T> {
 
         @Override
         public boolean compress(IntBuffer buffer, ByteBuffer compressed) {
-            int[] intArray = new int[buffer.limit()];
-            buffer.get(intArray);
-            long[] longArray = new long[intArray.length];
-            ArrayFuncs.copyInto(intArray, longArray);
-            compress(longArray, compressed);
-            return true;
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                if (buffer.hasArray()) {
+                    int[] intArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = intArray[from + index];
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = buffer.get();
+                    }
+                }
+                compress(longArray, compressed);
+                return true;
+            } finally {
+                HCompressWorkspace.release(workspace);
+            }
         }
 
         @Override
         public void decompress(ByteBuffer compressed, IntBuffer buffer) {
-            long[] longArray = new long[buffer.limit()];
-            decompress(compressed, longArray);
-            for (long element : longArray) {
-                buffer.put((int) element);
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                decompress(compressed, longArray);
+                if (buffer.hasArray()) {
+                    int[] intArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        intArray[from + index] = (int) longArray[index];
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        buffer.put((int) longArray[index]);
+                    }
+                }
+            } finally {
+                HCompressWorkspace.release(workspace);
             }
         }
 
@@ -159,20 +216,50 @@ public abstract class HCompressor<T extends Buffer> implements ICompressor<T> {
 
         @Override
         public boolean compress(ShortBuffer buffer, ByteBuffer compressed) {
-            short[] shortArray = new short[buffer.limit()];
-            buffer.get(shortArray);
-            long[] longArray = new long[shortArray.length];
-            ArrayFuncs.copyInto(shortArray, longArray);
-            compress(longArray, compressed);
-            return true;
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                if (buffer.hasArray()) {
+                    short[] shortArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = shortArray[from + index];
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        longArray[index] = buffer.get();
+                    }
+                }
+                compress(longArray, compressed);
+                return true;
+            } finally {
+                HCompressWorkspace.release(workspace);
+            }
         }
 
         @Override
         public void decompress(ByteBuffer compressed, ShortBuffer buffer) {
-            long[] longArray = new long[buffer.limit()];
-            decompress(compressed, longArray);
-            for (long element : longArray) {
-                buffer.put((short) element);
+            int n = buffer.remaining();
+            HCompressWorkspace workspace = HCompressWorkspace.acquire();
+            try {
+                long[] longArray = workspace.pixels(n);
+                decompress(compressed, longArray);
+                if (buffer.hasArray()) {
+                    short[] shortArray = buffer.array();
+                    int from = buffer.arrayOffset() + buffer.position();
+                    for (int index = 0; index < n; index++) {
+                        shortArray[from + index] = (short) longArray[index];
+                    }
+                    buffer.position(buffer.position() + n);
+                } else {
+                    for (int index = 0; index < n; index++) {
+                        buffer.put((short) longArray[index]);
+                    }
+                }
+            } finally {
+                HCompressWorkspace.release(workspace);
             }
         }
     }
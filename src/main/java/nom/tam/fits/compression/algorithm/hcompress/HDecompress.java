@@ -173,6 +173,9 @@ public class HDecompress {
 
     private int scale;
 
+    /** Pooled scratch storage, held for the duration of a call */
+    private HCompressWorkspace workspace;
+
     /**
      * log2n is log2 of max(nx,ny) rounded up to next power of 2
      */
@@ -231,26 +234,30 @@ public class HDecompress {
      *
      * @param input  the input buffer to decompress
      * @param smooth should the image be smoothed
-     * @param aa     the resulting long tiledImageOperation
+     * @param aa     the resulting long tiledImageOperation, which may be larger than the tile
      */
     public void decompress(ByteBuffer input, boolean smooth, long[] aa) {
 
         LongArrayPointer a = new LongArrayPointer(aa);
+        workspace = HCompressWorkspace.acquire();
+        try {
+            /* decode the input tiledImageOperation */
 
-        /* decode the input tiledImageOperation */
-
-        decode64(input, a);
+            decode64(input, a);
 
-        /*
-         * Un-Digitize
-         */
-        undigitize64(a);
-
-        /*
-         * Inverse H-transform
-         */
-        hinv64(a, smooth);
+            /*
+             * Un-Digitize
+             */
+            undigitize64(a);
 
+            /*
+             * Inverse H-transform
+             */
+            hinv64(a, smooth);
+        } finally {
+            HCompressWorkspace.release(workspace);
+            workspace = null;
+        }
     }
 
     /**
@@ -308,7 +315,7 @@ public class HDecompress {
         int nmax = nx > ny ? nx : ny;
         int log2n = calculateLog2N(nmax);
         // get temporary storage for shuffling elements
-        long[] tmp = new long[(nmax + 1) / 2];
+        long[] tmp = workspace.tmp((nmax + 1) / 2);
         // set up masks, rounding parameters
         int shift = 1;
         long bit0 = (long) 1 << log2n - 1;
@@ -928,7 +935,7 @@ public class HDecompress {
          */
         int nqx2 = (nqx + 1) / 2;
         int nqy2 = (nqy + 1) / 2;
-        scratch = new byte[nqx2 * nqy2];
+        scratch = workspace.scratch(nqx2 * nqy2);
 
         /*
          * now decode each bit plane, starting at the top A is assumed to be initialized to zero
@@ -1046,7 +1053,8 @@ public class HDecompress {
                           * use a 64-bit int for efficiency in the big loop
                           */
 
-        for (int index = 0; index < a.a.length; index++) {
+        int nel = nx * ny;
+        for (int index = 0; index < nel; index++) {
             a.a[index] = a.a[index] * scale64;
         }
     }
@@ -159,6 +159,11 @@ public class Quantize {
         if (calculateNoiseShortRow(array, nx, ny)) {
             return;
         }
+        if (getClass() == Quantize.class) {
+            // No null checking hooks, so we can scan the array directly.
+            calculateNoiseNoNulls(arrayIn, nx, ny);
+            return;
+        }
         DoubleArrayPointer rowpix;
         int nrows = 0, nrows2 = 0;
         long ngoodpix = 0;
@@ -282,6 +287,97 @@ public class Quantize {
         setNoiseResult(ngoodpix);
     }
 
+    /**
+     * Same as {@link #calculateNoise(double[], int, int)} for data without null values, but scanning the array
+     * directly rather than through the null-checking hooks. The results are identical.
+     *
+     * @param array the image pixels
+     * @param nx    number of pixels in each row of the image (at least 9)
+     * @param ny    number of rows in the image
+     */
+    private void calculateNoiseNoNulls(double[] array, int nx, int ny) {
+        double min = xminval;
+        double max = xmaxval;
+        int nrows = 0, nrows2 = 0;
+        double[] differences2 = new double[nx];
+        double[] differences3 = new double[nx];
+        double[] differences5 = new double[nx];
+        double[] diffs2 = new double[ny];
+        double[] diffs3 = new double[ny];
+        double[] diffs5 = new double[ny];
+
+        for (int jj = 0; jj < ny; jj++) {
+            final int from = jj * nx;
+            final int to = from + nx;
+
+            for (int ii = from; ii < to; ii++) {
+                final double v = array[ii];
+                if (v < min) {
+                    min = v;
+                }
+                if (v > max) {
+                    max = v;
+                }
+            }
+
+            int ii = from;
+            double v1 = array[ii++];
+            double v2 = array[ii++];
+            double v3 = array[ii++];
+            double v4 = array[ii++];
+            double v5 = array[ii++];
+            double v6 = array[ii++];
+            double v7 = array[ii++];
+            double v8 = array[ii++];
+            int nvals = 0;
+            int nvals2 = 0;
+
+            for (; ii < to; ii++) {
+                final double v9 = array[ii];
+                if (!(v5 == v6 && v6 == v7)) {
+                    differences2[nvals2++] = Math.abs(v5 - v7);
+                }
+                if (!(v3 == v4 && v4 == v5 && v5 == v6 && v6 == v7)) {
+                    differences3[nvals] = Math.abs(2 * v5 - v3 - v7);
+                    differences5[nvals] = Math.abs(N6 * v5 - N4 * v3 - N4 * v7 + v1 + v9);
+                    nvals++;
+                }
+                v1 = v2;
+                v2 = v3;
+                v3 = v4;
+                v4 = v5;
+                v5 = v6;
+                v6 = v7;
+                v7 = v8;
+                v8 = v9;
+            }
+
+            if (nvals == 0) {
+                continue;
+            }
+            if (nvals == 1) {
+                if (nvals2 == 1) {
+                    diffs2[nrows2++] = differences2[0];
+                }
+                diffs3[nrows] = differences3[0];
+                diffs5[nrows] = differences5[0];
+            } else {
+                if (nvals2 > 1) {
+                    diffs2[nrows2++] = quickSelect(differences2, nvals);
+                }
+                diffs3[nrows] = quickSelect(differences3, nvals);
+                diffs5[nrows] = quickSelect(differences5, nvals);
+            }
+            nrows++;
+        }
+
+        xminval = min;
+        xmaxval = max;
+        computeMedianOfValuesEachRow(nrows, nrows2, diffs2, diffs3, diffs5);
+        // Every pixel is good, either as part of a constant background region, or in the differences.
+        setNoiseResult((long) nx * ny);
+    }
+
     private boolean calculateNoiseShortRow(DoubleArrayPointer array, int nx, int ny) {
         /* rows must have at least 9 pixels */
         if (nx < MINIMUM_PIXEL_WIDTH) {
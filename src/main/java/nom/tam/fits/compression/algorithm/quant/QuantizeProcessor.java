@@ -31,6 +31,7 @@ package nom.tam.fits.compression.algorithm.quant;
  * #L%
  */
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
@@ -76,7 +77,8 @@ public class QuantizeProcessor {
     }
 
     /**
-     * TODO this is done very inefficient and should be refactored!
+     * Quantizes single-precision tiles. Noise statistics are evaluated in double precision, while restored values are
+     * written straight to the float array when the tile buffer is backed by one.
      */
     public static class FloatQuantCompressor extends QuantizeProcessor implements ICompressor<FloatBuffer> {
 
@@ -89,11 +91,21 @@ public class QuantizeProcessor {
 
         @Override
         public boolean compress(FloatBuffer buffer, ByteBuffer compressed) {
-            float[] floats = new float[quantizeOption.getTileHeight() * quantizeOption.getTileWidth()];
             double[] doubles = new double[quantizeOption.getTileHeight() * quantizeOption.getTileWidth()];
-            buffer.get(floats);
-            for (int index = 0; index < doubles.length; index++) {
-                doubles[index] = floats[index];
+            if (buffer.hasArray()) {
+                float[] floats = buffer.array();
+                int from = buffer.arrayOffset() + buffer.position();
+                if (buffer.remaining() < doubles.length) {
+                    throw new BufferUnderflowException();
+                }
+                for (int index = 0; index < doubles.length; index++) {
+                    doubles[index] = floats[from + index];
+                }
+                buffer.position(buffer.position() + doubles.length);
+            } else {
+                for (int index = 0; index < doubles.length; index++) {
+                    doubles[index] = buffer.get();
+                }
             }
             IntBuffer intData = IntBuffer.wrap(new int[quantizeOption.getTileHeight() * quantizeOption.getTileWidth()]);
             if (!this.quantize(doubles, intData)) {
@@ -109,12 +121,7 @@ public class QuantizeProcessor {
             IntBuffer intData = IntBuffer.wrap(new int[quantizeOption.getTileHeight() * quantizeOption.getTileWidth()]);
             postCompressor.decompress(compressed, intData);
             intData.rewind();
-            double[] doubles = new double[quantizeOption.getTileHeight() * quantizeOption.getTileWidth()];
-            DoubleBuffer doubleBuffer = DoubleBuffer.wrap(doubles);
-            unquantize(intData, doubleBuffer);
-            for (double d : doubles) {
-                buffer.put((float) d);
-            }
+            unquantize(intData, buffer);
         }
     }
 
@@ -167,7 +174,17 @@ public class QuantizeProcessor {
 
         @Override
         protected void nextPixel() {
-            nextRandom++;
+            advance(1);
+        }
+
+        /**
+         * Skips ahead in the random sequence by a number of pixels, which must not exceed the number of values
+         * remaining before the sequence wraps around, i.e. <code>RandomSequence.length() - nextRandom</code>.
+         *
+         * @param n the number of pixels to skip
+         */
+        private void advance(int n) {
+            nextRandom += n;
             if (nextRandom >= RandomSequence.length()) {
                 iseed++;
                 if (iseed >= RandomSequence.length()) {
@@ -177,6 +194,15 @@ public class QuantizeProcessor {
             }
         }
 
+        /**
+         * Returns the number of pixels we can process before the random sequence wraps around.
+         *
+         * @return the number of random values left in the current pass of the sequence
+         */
+        private int remaining() {
+            return RandomSequence.length() - nextRandom;
+        }
+
         @Override
         protected double toDouble(int pixel) {
             return (pixel - nextRandom() + ROUNDING_HALF) * bScale + bZero;
@@ -286,6 +312,15 @@ public class QuantizeProcessor {
 
     private final PixelFilter pixelFilter;
 
+    /** The dither filter in the chain, or <code>null</code> if not dithering */
+    private final DitherFilter dither;
+
+    /** The null filter in the chain, or <code>null</code> if not checking for nulls */
+    private final NullFilter nullFilter;
+
+    /** Whether zero values are quantized to a reserved value */
+    private final boolean checkZero;
+
     private double bScale;
 
     private double bZero;
@@ -301,25 +336,30 @@ public class QuantizeProcessor {
         PixelFilter filter = null;
         boolean localCenterOnZero = quantizeOption.isCenterOnZero();
         if (quantizeOption.isDither2()) {
-            filter = new DitherFilter(quantizeOption.getSeed() + quantizeOption.getTileIndex());
+            dither = new DitherFilter(quantizeOption.getSeed() + quantizeOption.getTileIndex());
+            filter = dither;
             localCenterOnZero = true;
             quantizeOption.setCheckZero(true);
         } else if (quantizeOption.isDither()) {
-            filter = new DitherFilter(quantizeOption.getSeed() + quantizeOption.getTileIndex());
+            dither = new DitherFilter(quantizeOption.getSeed() + quantizeOption.getTileIndex());
+            filter = dither;
         } else {
+            dither = null;
             filter = new BaseFilter();
         }
-        if (quantizeOption.isCheckZero()) {
+        checkZero = quantizeOption.isCheckZero();
+        if (checkZero) {
             filter = new ZeroFilter(filter);
         }
         if (quantizeOption.isCheckNull()) {
-            final NullFilter nullFilter = new NullFilter(quantizeOption.getNullValue(), quantizeOption.getBNull(), filter);
-            filter = nullFilter;
+            final NullFilter nulls = new NullFilter(quantizeOption.getNullValue(), quantizeOption.getBNull(), filter);
+            filter = nulls;
+            nullFilter = nulls;
             quantize = new Quantize(quantizeOption) {
 
                 @Override
                 protected int findNextValidPixelWithNullCheck(int nx, DoubleArrayPointer rowpix, int ii) {
-                    while (ii < nx && nullFilter.isNull(rowpix.get(ii))) {
+                    while (ii < nx && nulls.isNull(rowpix.get(ii))) {
                         ii++;
                     }
                     return ii;
@@ -327,10 +367,11 @@ public class QuantizeProcessor {
 
                 @Override
                 protected boolean isNull(double d) {
-                    return nullFilter.isNull(d);
+                    return nulls.isNull(d);
                 }
             };
         } else {
+            nullFilter = null;
             quantize = new Quantize(quantizeOption);
         }
         pixelFilter = filter;
@@ -351,6 +392,15 @@ public class QuantizeProcessor {
     }
 
     public void quantize(final DoubleBuffer fdata, final IntBuffer intData) {
+        int n = fdata.remaining();
+        if (fdata.hasArray() && intData.hasArray() && intData.remaining() >= n) {
+            quantize(fdata.array(), fdata.arrayOffset() + fdata.position(), intData.array(),
+                    intData.arrayOffset() + intData.position(), n);
+            fdata.position(fdata.position() + n);
+            intData.position(intData.position() + n);
+            return;
+        }
+
         while (fdata.hasRemaining()) {
             intData.put(pixelFilter.toInt(fdata.get()));
             pixelFilter.nextPixel();
@@ -358,12 +408,170 @@ public class QuantizeProcessor {
     }
 
     public void unquantize(final IntBuffer intData, final DoubleBuffer fdata) {
+        int n = fdata.remaining();
+        if (fdata.hasArray() && intData.hasArray() && intData.remaining() >= n) {
+            unquantize(intData.array(), intData.arrayOffset() + intData.position(), fdata.array(),
+                    fdata.arrayOffset() + fdata.position(), n);
+            fdata.position(fdata.position() + n);
+            intData.position(intData.position() + n);
+            return;
+        }
+
         while (fdata.hasRemaining()) {
             fdata.put(pixelFilter.toDouble(intData.get()));
             pixelFilter.nextPixel();
         }
     }
 
+    /**
+     * Restores single-precision floating-point values from quantized integers.
+     *
+     * @param intData the quantized integers
+     * @param fdata   the buffer to fill with the restored floating-point values, until it has no more remaining
+     *                    elements.
+     *
+     * @since         1.22
+     */
+    public void unquantize(final IntBuffer intData, final FloatBuffer fdata) {
+        int n = fdata.remaining();
+        if (fdata.hasArray() && intData.hasArray() && intData.remaining() >= n) {
+            unquantize(intData.array(), intData.arrayOffset() + intData.position(), fdata.array(),
+                    fdata.arrayOffset() + fdata.position(), n);
+            fdata.position(fdata.position() + n);
+            intData.position(intData.position() + n);
+            return;
+        }
+
+        while (fdata.hasRemaining()) {
+            fdata.put((float) pixelFilter.toDouble(intData.get()));
+            pixelFilter.nextPixel();
+        }
+    }
+
+    /**
+     * Quantizes a contiguous run of pixels, with the same result as passing them one by one through the filter chain,
+     * but with a dedicated loop for each dithering method, and a separate pass for nulls and zeroes if needed.
+     *
+     * @param data   the floating-point values
+     * @param from   the array index of the first value to quantize
+     * @param quants the array to which quantized values are written
+     * @param to     the array index of the first quantized value
+     * @param n      the number of pixels to quantize
+     */
+    private void quantize(double[] data, int from, int[] quants, int to, int n) {
+        final int offset = to - from;
+
+        if (dither == null) {
+            for (int i = from; i < from + n; i++) {
+                quants[i + offset] = nint((data[i] - bZero) / bScale + ROUNDING_HALF);
+            }
+        } else {
+            for (int i = from; i < from + n;) {
+                final int run = Math.min(from + n - i, dither.remaining());
+                final int r = dither.nextRandom - i;
+                for (final int end = i + run; i < end; i++) {
+                    quants[i + offset] = nint((data[i] - bZero) / bScale + RandomSequence.get(i + r) - ROUNDING_HALF);
+                }
+                dither.advance(run);
+            }
+        }
+
+        if (nullFilter != null) {
+            for (int i = from; i < from + n; i++) {
+                if (nullFilter.isNull(data[i])) {
+                    quants[i + offset] = nullFilter.nullValueIndicator;
+                } else if (checkZero && data[i] == 0.0) {
+                    quants[i + offset] = ZERO_VALUE;
+                }
+            }
+        } else if (checkZero) {
+            for (int i = from; i < from + n; i++) {
+                if (data[i] == 0.0) {
+                    quants[i + offset] = ZERO_VALUE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a contiguous run of double-precision pixels from quantized integers, with the same result as passing
+     * them one by one through the filter chain.
+     *
+     * @param quants the quantized values
+     * @param from   the array index of the first quantized value
+     * @param data   the array to which the restored values are written
+     * @param to     the array index of the first restored value
+     * @param n      the number of pixels to restore
+     */
+    private void unquantize(int[] quants, int from, double[] data, int to, int n) {
+        final int offset = to - from;
+
+        if (dither == null) {
+            for (int i = from; i < from + n; i++) {
+                data[i + offset] = (quants[i] + ROUNDING_HALF) * bScale + bZero;
+            }
+        } else {
+            for (int i = from; i < from + n;) {
+                final int run = Math.min(from + n - i, dither.remaining());
+                final int r = dither.nextRandom - i;
+                for (final int end = i + run; i < end; i++) {
+                    data[i + offset] = (quants[i] - RandomSequence.get(i + r) + ROUNDING_HALF) * bScale + bZero;
+                }
+                dither.advance(run);
+            }
+        }
+
+        if (nullFilter != null || checkZero) {
+            for (int i = from; i < from + n; i++) {
+                if (nullFilter != null && quants[i] == nullFilter.nullValueIndicator) {
+                    data[i + offset] = nullFilter.nullValue;
+                } else if (checkZero && quants[i] == ZERO_VALUE) {
+                    data[i + offset] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a contiguous run of single-precision pixels from quantized integers, with the same result as passing
+     * them one by one through the filter chain.
+     *
+     * @param quants the quantized values
+     * @param from   the array index of the first quantized value
+     * @param data   the array to which the restored values are written
+     * @param to     the array index of the first restored value
+     * @param n      the number of pixels to restore
+     */
+    private void unquantize(int[] quants, int from, float[] data, int to, int n) {
+        final int offset = to - from;
+
+        if (dither == null) {
+            for (int i = from; i < from + n; i++) {
+                data[i + offset] = (float) ((quants[i] + ROUNDING_HALF) * bScale + bZero);
+            }
+        } else {
+            for (int i = from; i < from + n;) {
+                final int run = Math.min(from + n - i, dither.remaining());
+                final int r = dither.nextRandom - i;
+                for (final int end = i + run; i < end; i++) {
+                    data[i + offset] = (float) ((quants[i] - RandomSequence.get(i + r) + ROUNDING_HALF) * bScale
+                            + bZero);
+                }
+                dither.advance(run);
+            }
+        }
+
+        if (nullFilter != null || checkZero) {
+            for (int i = from; i < from + n; i++) {
+                if (nullFilter != null && quants[i] == nullFilter.nullValueIndicator) {
+                    data[i + offset] = (float) nullFilter.nullValue;
+                } else if (checkZero && quants[i] == ZERO_VALUE) {
+                    data[i + offset] = 0.0F;
+                }
+            }
+        }
+    }
+
     private void calculateBZeroAndBscale() {
         bScale = quantizeOption.getBScale();
         bZero = zeroCenter();
@@ -0,0 +1,488 @@
+package nom.tam.fits.compression.algorithm.rice;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * (<i>for internal use</i>) Bulk Rice encoder and decoder, which operates directly on the backing arrays of heap
+ * buffers. Rather than exchanging pixels and bits one at a time, it moves bits through a 64-bit accumulator, counts the
+ * leading zeros of Rice codes with {@link Long#numberOfLeadingZeros(long)}, and maps / unmaps the pixel differences a
+ * whole block at a time. The compressed bit stream is identical to that of the pixel-by-pixel implementation in
+ * {@link RiceCompressor}.
+ * <p>
+ * Instances keep a block-sized workspace, and are therefore not safe for concurrent use.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ */
+final class RiceCodec {
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final long UNSIGNED_INTEGER_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Maximum number of bits we can put into or get from the accumulator in a single call
+     */
+    private static final int MAX_BITS = Integer.SIZE;
+
+    /** The accumulator is topped up while it holds no more than this many bits */
+    private static final int REFILL_THRESHOLD = Long.SIZE - Byte.SIZE;
+
+    /**
+     * Number of zero bytes we can pad beyond the end of the input before the input is deemed truncated
+     */
+    private static final int MAX_PADDING = Long.BYTES;
+
+    private final int bitsPerPixel;
+
+    private final int fsBits;
+
+    private final int fsMax;
+
+    private final int bBits;
+
+    private final int blockSize;
+
+    /** Mapped pixel differences for the current block */
+    private final int[] diff;
+
+    /** The array we read from or write to */
+    private byte[] data;
+
+    /** The starting index in the array */
+    private int start;
+
+    /** The index of the next byte to read or write in the array */
+    private int pos;
+
+    /** The index beyond the last readable or writable byte in the array */
+    private int end;
+
+    /** The bit accumulator */
+    private long acc;
+
+    /** The number of pending bits in the (lowest bits of the) accumulator */
+    private int nBits;
+
+    /** The number of zero bytes padded beyond the end of the input */
+    private int padding;
+
+    /**
+     * Creates a new Rice codec.
+     * 
+     * @param bitsPerPixel the number of bits per pixel: 8, 16, or 32.
+     * @param fsBits       the number of bits used for storing the split level of each block
+     * @param fsMax        the split level above which pixel differences are stored directly
+     * @param blockSize    the number of pixels per block
+     */
+    RiceCodec(int bitsPerPixel, int fsBits, int fsMax, int blockSize) {
+        this.bitsPerPixel = bitsPerPixel;
+        this.fsBits = fsBits;
+        this.fsMax = fsMax;
+        this.blockSize = blockSize;
+        bBits = 1 << fsBits;
+        diff = new int[blockSize];
+    }
+
+    /**
+     * Rice compresses byte pixels into a buffer, starting at its beginning and leaving the buffer positioned after the
+     * last compressed byte.
+     * 
+     * @param  src                       the pixel values
+     * @param  from                      the array index of the first pixel to compress
+     * @param  n                         the number of pixels to compress
+     * @param  out                       the array-backed output buffer
+     * 
+     * @throws IndexOutOfBoundsException if there are no pixels to compress
+     * @throws BufferOverflowException   if the output buffer does not have room for the compressed data
+     */
+    void encode(byte[] src, int from, int n, ByteBuffer out)
+            throws IndexOutOfBoundsException, BufferOverflowException {
+        startWriting(src.length, from, n, out);
+        int last = src[from];
+        put(last, bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            long sum = 0;
+            for (int j = 0; j < len; j++) {
+                final int next = src[i + j];
+                final int d = next - last;
+                last = next;
+                diff[j] = (d << 1) ^ (d >> (Integer.SIZE - 1));
+                sum += diff[j] & UNSIGNED_INTEGER_MASK;
+            }
+            putBlock(len, sum);
+        }
+
+        finishWriting(out);
+    }
+
+    /**
+     * Rice compresses 16-bit integer pixels into a buffer, starting at its beginning and leaving the buffer positioned
+     * after the last compressed byte.
+     * 
+     * @param  src                       the pixel values
+     * @param  from                      the array index of the first pixel to compress
+     * @param  n                         the number of pixels to compress
+     * @param  out                       the array-backed output buffer
+     * 
+     * @throws IndexOutOfBoundsException if there are no pixels to compress
+     * @throws BufferOverflowException   if the output buffer does not have room for the compressed data
+     */
+    void encode(short[] src, int from, int n, ByteBuffer out)
+            throws IndexOutOfBoundsException, BufferOverflowException {
+        startWriting(src.length, from, n, out);
+        int last = src[from];
+        put(last, bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            long sum = 0;
+            for (int j = 0; j < len; j++) {
+                final int next = src[i + j];
+                final int d = next - last;
+                last = next;
+                diff[j] = (d << 1) ^ (d >> (Integer.SIZE - 1));
+                sum += diff[j] & UNSIGNED_INTEGER_MASK;
+            }
+            putBlock(len, sum);
+        }
+
+        finishWriting(out);
+    }
+
+    /**
+     * Rice compresses 32-bit integer pixels into a buffer, starting at its beginning and leaving the buffer positioned
+     * after the last compressed byte.
+     * 
+     * @param  src                       the pixel values
+     * @param  from                      the array index of the first pixel to compress
+     * @param  n                         the number of pixels to compress
+     * @param  out                       the array-backed output buffer
+     * 
+     * @throws IndexOutOfBoundsException if there are no pixels to compress
+     * @throws BufferOverflowException   if the output buffer does not have room for the compressed data
+     */
+    void encode(int[] src, int from, int n, ByteBuffer out)
+            throws IndexOutOfBoundsException, BufferOverflowException {
+        startWriting(src.length, from, n, out);
+        int last = src[from];
+        put(last, bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            long sum = 0;
+            for (int j = 0; j < len; j++) {
+                final int next = src[i + j];
+                final int d = next - last;
+                last = next;
+                diff[j] = (d << 1) ^ (d >> (Integer.SIZE - 1));
+                sum += diff[j] & UNSIGNED_INTEGER_MASK;
+            }
+            putBlock(len, sum);
+        }
+
+        finishWriting(out);
+    }
+
+    /**
+     * Decompresses Rice compressed data into byte pixels, starting from the current position of the input buffer, and
+     * leaving it positioned after the last byte that was used.
+     * 
+     * @param  in                       the array-backed input buffer
+     * @param  dst                      the array to which decompressed pixels are written
+     * @param  from                     the array index of the first pixel to decompress
+     * @param  n                        the number of pixels to decompress
+     * 
+     * @throws BufferUnderflowException if the compressed input ended before all pixels were decompressed
+     */
+    void decode(ByteBuffer in, byte[] dst, int from, int n) throws BufferUnderflowException {
+        startReading(in);
+        int last = (int) get(bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            if (getBlock(len)) {
+                for (int j = 0; j < len; j++) {
+                    final int d = diff[j];
+                    last += (d >>> 1) ^ -(d & 1);
+                    dst[i + j] = (byte) last;
+                }
+            } else {
+                Arrays.fill(dst, i, i + len, (byte) last);
+            }
+        }
+
+        finishReading(in);
+    }
+
+    /**
+     * Decompresses Rice compressed data into 16-bit integer pixels, starting from the current position of the input
+     * buffer, and leaving it positioned after the last byte that was used.
+     * 
+     * @param  in                       the array-backed input buffer
+     * @param  dst                      the array to which decompressed pixels are written
+     * @param  from                     the array index of the first pixel to decompress
+     * @param  n                        the number of pixels to decompress
+     * 
+     * @throws BufferUnderflowException if the compressed input ended before all pixels were decompressed
+     */
+    void decode(ByteBuffer in, short[] dst, int from, int n) throws BufferUnderflowException {
+        startReading(in);
+        int last = (int) get(bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            if (getBlock(len)) {
+                for (int j = 0; j < len; j++) {
+                    final int d = diff[j];
+                    last += (d >>> 1) ^ -(d & 1);
+                    dst[i + j] = (short) last;
+                }
+            } else {
+                Arrays.fill(dst, i, i + len, (short) last);
+            }
+        }
+
+        finishReading(in);
+    }
+
+    /**
+     * Decompresses Rice compressed data into 32-bit integer pixels, starting from the current position of the input
+     * buffer, and leaving it positioned after the last byte that was used.
+     * 
+     * @param  in                       the array-backed input buffer
+     * @param  dst                      the array to which decompressed pixels are written
+     * @param  from                     the array index of the first pixel to decompress
+     * @param  n                        the number of pixels to decompress
+     * 
+     * @throws BufferUnderflowException if the compressed input ended before all pixels were decompressed
+     */
+    void decode(ByteBuffer in, int[] dst, int from, int n) throws BufferUnderflowException {
+        startReading(in);
+        int last = (int) get(bitsPerPixel);
+
+        for (int i = from, to = from + n; i < to; i += blockSize) {
+            final int len = Math.min(blockSize, to - i);
+            if (getBlock(len)) {
+                for (int j = 0; j < len; j++) {
+                    final int d = diff[j];
+                    last += (d >>> 1) ^ -(d & 1);
+                    dst[i + j] = last;
+                }
+            } else {
+                Arrays.fill(dst, i, i + len, last);
+            }
+        }
+
+        finishReading(in);
+    }
+
+    private void startWriting(int length, int from, int n, ByteBuffer out) throws IndexOutOfBoundsException {
+        if (n < 1 || from < 0 || from + n > length) {
+            throw new IndexOutOfBoundsException("Invalid pixel range: " + from + " + " + n + " in " + length);
+        }
+        // Like the pixel-by-pixel implementation we always write from the beginning of the output...
+        data = out.array();
+        start = out.arrayOffset();
+        pos = start;
+        end = start + out.limit();
+        acc = 0L;
+        nBits = 0;
+    }
+
+    private void finishWriting(ByteBuffer out) throws BufferOverflowException {
+        if (nBits > 0) {
+            // Pad the last byte with zeroes
+            put(0, Byte.SIZE - nBits);
+        }
+        out.position(pos - start);
+    }
+
+    /**
+     * Writes the split level and the codes for the block of mapped differences.
+     * 
+     * @param len the number of pixels in the block
+     * @param sum the sum of the mapped differences in the block
+     */
+    private void putBlock(int len, long sum) throws BufferOverflowException {
+        double dpsum = (sum - len / 2.0 - 1.0) / len;
+        long psum = dpsum < 0.0 ? 0L : (long) dpsum >> 1;
+        int fs = Long.SIZE - Long.numberOfLeadingZeros(psum);
+
+        if (fs >= fsMax) {
+            // High entropy: store the mapped differences directly.
+            put(fsMax + 1, fsBits);
+            for (int j = 0; j < len; j++) {
+                put(diff[j], bBits);
+            }
+        } else if (sum == 0) {
+            // Low entropy: all pixels in the block are the same.
+            put(0, fsBits);
+        } else {
+            // Normal case: top bits as unary (zeroes followed by a one), then fs bottom bits.
+            put(fs + 1, fsBits);
+            final long fsmask = (1L << fs) - 1L;
+            final long one = 1L << fs;
+            for (int j = 0; j < len; j++) {
+                final long v = diff[j] & UNSIGNED_INTEGER_MASK;
+                final long top = v >>> fs;
+                final long code = one | (v & fsmask);
+                if (top + fs < MAX_BITS) {
+                    put(code, (int) top + fs + 1);
+                } else {
+                    for (long k = top; k > 0; k -= MAX_BITS) {
+                        put(0, (int) Math.min(k, MAX_BITS));
+                    }
+                    put(code, fs + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the lowest bits of a value to the bit stream.
+     * 
+     * @param value the value
+     * @param n     the number of lowest bits to write, up to 32.
+     */
+    private void put(long value, int n) throws BufferOverflowException {
+        acc = (acc << n) | (value & ((1L << n) - 1L));
+        nBits += n;
+        while (nBits >= Byte.SIZE) {
+            if (pos >= end) {
+                throw new BufferOverflowException();
+            }
+            nBits -= Byte.SIZE;
+            data[pos++] = (byte) (acc >>> nBits);
+        }
+    }
+
+    private void startReading(ByteBuffer in) {
+        data = in.array();
+        start = in.arrayOffset() + in.position();
+        pos = start;
+        end = in.arrayOffset() + in.limit();
+        acc = 0L;
+        nBits = 0;
+        padding = 0;
+    }
+
+    private void finishReading(ByteBuffer in) throws BufferUnderflowException {
+        long used = (long) (pos - start + padding) * Byte.SIZE - nBits;
+        if (used > (long) (pos - start) * Byte.SIZE) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + (int) ((used + Byte.SIZE - 1) / Byte.SIZE));
+    }
+
+    /**
+     * Reads the next block of mapped differences into the workspace.
+     * 
+     * @param  len the number of pixels in the block
+     * 
+     * @return     <code>false</code> if all differences in the block are zero (and the workspace was not populated), or
+     *                 else <code>true</code>.
+     */
+    private boolean getBlock(int len) throws BufferUnderflowException {
+        final int fs = (int) get(fsBits) - 1;
+
+        if (fs < 0) {
+            return false;
+        }
+
+        if (fs == fsMax) {
+            for (int j = 0; j < len; j++) {
+                diff[j] = (int) get(bBits);
+            }
+            return true;
+        }
+
+        for (int j = 0; j < len; j++) {
+            long zeros = 0;
+            for (;;) {
+                if (nBits < MAX_BITS) {
+                    refill();
+                }
+                final long msb = acc << (Long.SIZE - nBits);
+                if (msb != 0) {
+                    final int lz = Long.numberOfLeadingZeros(msb);
+                    zeros += lz;
+                    nBits -= lz + 1;
+                    break;
+                }
+                zeros += nBits;
+                nBits = 0;
+            }
+            diff[j] = (int) ((zeros << fs) | get(fs));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next bits from the bit stream.
+     * 
+     * @param  n the number of bits to read, up to 32.
+     * 
+     * @return   the bits as the lowest bits of the returned value.
+     */
+    private long get(int n) throws BufferUnderflowException {
+        if (nBits < n) {
+            refill();
+        }
+        nBits -= n;
+        return (acc >>> nBits) & ((1L << n) - 1L);
+    }
+
+    /**
+     * Tops up the accumulator with more bytes from the input, padding with zeroes beyond its end.
+     */
+    private void refill() throws BufferUnderflowException {
+        while (nBits <= REFILL_THRESHOLD) {
+            acc <<= Byte.SIZE;
+            if (pos < end) {
+                acc |= data[pos++] & BYTE_MASK;
+            } else if (++padding > MAX_PADDING) {
+                throw new BufferUnderflowException();
+            }
+            nBits += Byte.SIZE;
+        }
+    }
+}
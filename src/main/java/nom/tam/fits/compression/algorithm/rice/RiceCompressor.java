@@ -78,6 +78,12 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public boolean compress(ByteBuffer buffer, ByteBuffer writeBuffer) {
+            if (buffer.hasArray() && writeBuffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.encode(buffer.array(), buffer.arrayOffset() + buffer.position(), n, writeBuffer);
+                buffer.position(buffer.position() + n);
+                return true;
+            }
             pixelBuffer = buffer;
             super.compress(buffer.limit(), pixelBuffer.get(pixelBuffer.position()), new BitBuffer(writeBuffer));
             return true;
@@ -85,6 +91,13 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public void decompress(ByteBuffer readBuffer, ByteBuffer buffer) {
+            if (readBuffer.hasArray() && buffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.decode(readBuffer, buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+                buffer.position(buffer.position() + n);
+                checkLeftOver(readBuffer);
+                return;
+            }
             pixelBuffer = buffer;
             super.decompressBuffer(readBuffer, buffer.limit());
         }
@@ -133,6 +146,12 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public boolean compress(IntBuffer buffer, ByteBuffer writeBuffer) {
+            if (buffer.hasArray() && writeBuffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.encode(buffer.array(), buffer.arrayOffset() + buffer.position(), n, writeBuffer);
+                buffer.position(buffer.position() + n);
+                return true;
+            }
             pixelBuffer = buffer;
             super.compress(buffer.limit(), pixelBuffer.get(pixelBuffer.position()), new BitBuffer(writeBuffer));
             return true;
@@ -140,6 +159,13 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public void decompress(ByteBuffer readBuffer, IntBuffer buffer) {
+            if (readBuffer.hasArray() && buffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.decode(readBuffer, buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+                buffer.position(buffer.position() + n);
+                checkLeftOver(readBuffer);
+                return;
+            }
             pixelBuffer = buffer;
             super.decompressBuffer(readBuffer, buffer.limit());
         }
@@ -174,6 +200,12 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public boolean compress(ShortBuffer buffer, ByteBuffer writeBuffer) {
+            if (buffer.hasArray() && writeBuffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.encode(buffer.array(), buffer.arrayOffset() + buffer.position(), n, writeBuffer);
+                buffer.position(buffer.position() + n);
+                return true;
+            }
             pixelBuffer = buffer;
             super.compress(buffer.limit(), pixelBuffer.get(pixelBuffer.position()), new BitBuffer(writeBuffer));
             return true;
@@ -181,6 +213,13 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
         @Override
         public void decompress(ByteBuffer readBuffer, ShortBuffer buffer) {
+            if (readBuffer.hasArray() && buffer.hasArray()) {
+                int n = buffer.remaining();
+                super.codec.decode(readBuffer, buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+                buffer.position(buffer.position() + n);
+                checkLeftOver(readBuffer);
+                return;
+            }
             pixelBuffer = buffer;
             super.decompressBuffer(readBuffer, buffer.limit());
         }
@@ -260,6 +299,9 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
 
     private final int fsMax;
 
+    /** Bulk codec for array-backed buffers */
+    private final RiceCodec codec;
+
     private RiceCompressor(RiceCompressOption option) throws UnsupportedOperationException {
         blockSize = option.getBlockSize();
         if (option.getBytePix() == ElementType.BYTE.size()) {
@@ -282,6 +324,7 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
          * direct coding
          */
         bBits = 1 << fsBits;
+        codec = new RiceCodec(bitsPerPixel, fsBits, fsMax, blockSize);
     }
 
     /**
@@ -513,11 +556,19 @@ public abstract class RiceCompressor<T extends Buffer> implements ICompressor<T>
                 }
             }
         }
+        checkLeftOver(readBuffer);
+    }
+
+    /**
+     * Logs a warning if decompression did not use all compressed bytes.
+     *
+     * @param readBuffer the compressed data, positioned after the last byte used
+     */
+    private static void checkLeftOver(ByteBuffer readBuffer) {
         if (readBuffer.limit() > readBuffer.position()) {
             LOG.warning("decompressing left over some extra bytes got: " + readBuffer.limit() + " but needed only "
                     + readBuffer.position());
         }
-
     }
 
     protected abstract int nextPixel();
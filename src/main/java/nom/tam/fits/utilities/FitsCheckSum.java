@@ -31,27 +31,33 @@ package nom.tam.fits.utilities;
  * #L%
  */
 
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 
 import nom.tam.fits.BasicHDU;
 import nom.tam.fits.Data;
 import nom.tam.fits.FitsDate;
 import nom.tam.fits.FitsElement;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
+import nom.tam.util.ChecksumOutputStream;
 import nom.tam.util.FitsIO;
-import nom.tam.util.FitsOutputStream;
+import nom.tam.util.ParallelTasks;
 import nom.tam.util.RandomAccess;
 
 import static nom.tam.fits.header.Checksum.CHECKSUM;
@@ -94,7 +100,27 @@ public final class FitsCheckSum {
     private static final int MASK_4_BYTES = 0xffffffff;
     private static final int MASK_BYTE = 0xff;
     private static final int ASCII_ZERO = '0';
-    private static final int BUFFER_SIZE = 0x8000; // 32 kB
+    private static final int WORD_SIZE = 8;
+    private static final int SHIFT_4_BYTES = 32;
+    private static final int SHIFT_6_BYTES = 48;
+
+    /** Number of FITS blocks in a chunk of a file segment that is checksummed by one thread at a time */
+    private static final int CHUNK_BLOCKS = 2048; // 5.6 MB
+
+    /** Number of FITS blocks read at once when checksumming file segments */
+    private static final int READ_BLOCKS = 128; // 360 kB
+
+    /** Minimum number of chunks in a file segment to checksum it in parallel */
+    private static final int MIN_PARALLEL_CHUNKS = 4;
+
+    /** Size of a chunk of a file segment that is checksummed by one thread at a time */
+    private static final long CHUNK_SIZE = (long) CHUNK_BLOCKS * FitsFactory.FITS_BLOCK_SIZE;
+
+    /** Big-endian 64-bit view of byte arrays, for summing 2 words at a time */
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /** Big-endian 32-bit view of byte arrays, for summing a single remaining word */
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
 
     private static final int[] SELECT_BYTE = {24, 16, 8, 0};
     private static final String EXCLUDE = ":;<=>?@[\\]^_`";
@@ -140,35 +166,6 @@ public final class FitsCheckSum {
 
     }
 
-    private static class PipeWriter extends Thread {
-        private Exception exception;
-        private PipedOutputStream out;
-        private FitsElement data;
-
-        PipeWriter(FitsElement data, PipedInputStream in) throws IOException {
-            this.data = data;
-            out = new PipedOutputStream(in);
-        }
-
-        @Override
-        public void run() {
-            exception = null;
-            try (FitsOutputStream fos = new FitsOutputStream(out)) {
-                if (data instanceof Header) {
-                    ((Header) data).writeUnchecked(fos);
-                } else {
-                    data.write(fos);
-                }
-            } catch (Exception e) {
-                exception = e;
-            }
-        }
-
-        public Exception getException() {
-            return exception;
-        }
-    }
-
     /**
      * Computes the checksum for a byte array.
      *
@@ -225,6 +222,10 @@ public final class FitsCheckSum {
         }
         data.position(0);
         data.order(ByteOrder.BIG_ENDIAN);
+        if (data.hasArray()) {
+            add(sum, data.array(), data.arrayOffset(), data.limit());
+            return sum.getChecksum();
+        }
         IntBuffer iData = data.asIntBuffer();
         while (iData.hasRemaining()) {
             sum.add(iData.get());
@@ -232,38 +233,79 @@ public final class FitsCheckSum {
         return sum.getChecksum();
     }
 
-    private static long checksum(InputStream in) throws IOException {
-        Checksum sum = new Checksum(0);
-        DataInputStream din = new DataInputStream(in);
+    /**
+     * Adds the 4-byte words from a segment of a byte array to a checksum, 2 words at a time. Trailing bytes that do not
+     * make up a whole word are added as if padded with zeroes to a whole word, the same as {@link ChecksumOutputStream}
+     * does. As such, only the last segment of the data to checksum may have a length that is not a multiple of 4.
+     *
+     * @param sum    the checksum to add to
+     * @param b      the byte array
+     * @param from   the index of the first byte in the array
+     * @param length the number of bytes to add.
+     */
+    private static void add(Checksum sum, byte[] b, int from, int length) {
+        final int end = from + length;
+        final int words = end - ((end - from) % WORD_SIZE);
+
+        long h = sum.h;
+        long l = sum.l;
+        int i = from;
+
+        for (; i < words; i += WORD_SIZE) {
+            long w = (long) LONG_VIEW.get(b, i);
+            h += (w >>> SHIFT_6_BYTES) + ((w >>> SHIFT_2_BYTES) & MASK_2_BYTES);
+            l += ((w >>> SHIFT_4_BYTES) & MASK_2_BYTES) + (w & MASK_2_BYTES);
+        }
+
+        sum.h = h;
+        sum.l = l;
 
-        for (;;) {
-            try {
-                sum.add(din.readInt());
-            } catch (EOFException e) {
-                break;
+        if (end - i >= CHECKSUM_BLOCK_SIZE) {
+            sum.add((int) INT_VIEW.get(b, i));
+            i += CHECKSUM_BLOCK_SIZE;
+        }
+
+        if (i < end) {
+            int w = 0;
+            for (int k = 0; i < end; k++) {
+                w |= (b[i++] & MASK_BYTE) << SELECT_BYTE[k];
             }
+            sum.add(w);
         }
+    }
 
-        return sum.getChecksum();
+    /**
+     * Adds the bytes from a segment of a random access file to a checksum, using positional reads.
+     *
+     * @param  sum         the checksum to add to
+     * @param  f           the random access file
+     * @param  from        the file position of the first byte
+     * @param  size        the number of bytes to add
+     * @param  buf         the buffer to use for reading from the file.
+     *
+     * @throws IOException if there was an error reading from the file, including if the file ended before the end of
+     *                         the segment.
+     */
+    private static void add(Checksum sum, RandomAccess f, long from, long size, byte[] buf) throws IOException {
+        final long end = from + size;
+        for (long pos = from; pos < end;) {
+            int n = (int) Math.min(buf.length, end - pos);
+            f.readFully(pos, buf, 0, n);
+            add(sum, buf, 0, n);
+            pos += n;
+        }
     }
 
     private static long compute(final FitsElement data) throws FitsException {
-        try (PipedInputStream in = new PipedInputStream()) {
-            PipeWriter writer = new PipeWriter(data, in);
-            writer.start();
-
-            long sum = checksum(in);
-
-            writer.join();
-            if (writer.getException() != null) {
-                throw writer.getException();
-            }
-
-            return sum;
-        } catch (Exception e) {
-            if (e instanceof FitsException) {
-                throw (FitsException) e;
+        try (ChecksumOutputStream out = new ChecksumOutputStream(OutputStream.nullOutputStream())) {
+            if (data instanceof Header) {
+                ((Header) data).writeUnchecked(out);
+            } else {
+                data.write(out);
             }
+            out.flush();
+            return out.nextChecksum();
+        } catch (IOException e) {
             throw new FitsException("Exception while checksumming FITS element: " + e.getMessage(), e);
         }
     }
@@ -342,7 +384,10 @@ public final class FitsCheckSum {
 
     /**
      * Computes the checksum directly from a region of a random access file, by buffering moderately sized chunks from
-     * the file as necessary. The file may be very large, up to the full range of 64-bit addresses.
+     * the file as necessary. The file may be very large, up to the full range of 64-bit addresses. Large regions are
+     * summed in parallel, using the {@link FitsFactory#threadPool()}. The file position is not changed by this call.
+     * If the size is not a multiple of 4, the trailing bytes are summed as if padded with zeroes to a whole 4-byte
+     * word, the same as {@link ChecksumOutputStream} does.
      *
      * @param  f           the random access file, from which to compute a checksum
      * @param  from        the starting position in the file, where to start computing the checksum from.
@@ -356,28 +401,99 @@ public final class FitsCheckSum {
      *
      * @see                #checksum(ByteBuffer)
      * @see                #checksum(Data)
+     * @see                #checksum(RandomAccess, long, long, ExecutorService)
      */
     public static long checksum(RandomAccess f, long from, long size) throws IOException {
         if (f == null) {
             return 0L;
         }
 
-        int len = (int) Math.min(BUFFER_SIZE, size);
-        byte[] buf = new byte[len];
-        long oldpos = f.position();
-        f.position(from);
-        long sum = 0;
-
-        while (size > 0) {
-            len = (int) Math.min(BUFFER_SIZE, size);
-            len = f.read(buf, 0, len);
-            sum = sumOf(sum, checksum(buf, 0, len));
-            from += len;
-            size -= len;
+        if (size >= MIN_PARALLEL_CHUNKS * CHUNK_SIZE) {
+            return checksum(f, from, size, FitsFactory.threadPool());
         }
 
-        f.position(oldpos);
-        return sum;
+        Checksum sum = new Checksum(0);
+        add(sum, f, from, size, new byte[(int) Math.min(READ_BLOCKS * FitsFactory.FITS_BLOCK_SIZE, size)]);
+        return sum.getChecksum();
+    }
+
+    /**
+     * Computes the checksum directly from a region of a random access file, using multiple threads. The region is split
+     * into chunks of whole FITS blocks, which are summed concurrently via positional reads, and the partial sums are
+     * combined at the end. Provided that the file supports concurrent positional reads (as
+     * {@link nom.tam.util.FitsFile} does), checksumming very large files is thus limited by I/O rather than by the CPU.
+     * The calling thread takes part in the computation also, so it is safe to call from within tasks running on the
+     * same executor. Trailing bytes that do not make up a whole 4-byte word are summed as if padded with zeroes.
+     *
+     * @param  f           the random access file, from which to compute a checksum
+     * @param  from        the starting position in the file, where to start computing the checksum from.
+     * @param  size        the number of bytes in the file to include in the checksum calculation.
+     * @param  pool        the executor service to use for summing chunks in parallel to the calling thread.
+     *
+     * @return             the checksum for the given segment of the file
+     *
+     * @throws IOException if there was a problem accessing the file during the computation.
+     *
+     * @since              1.22
+     *
+     * @see                #checksum(RandomAccess, long, long)
+     * @see                FitsFactory#threadPool()
+     */
+    public static long checksum(RandomAccess f, long from, long size, ExecutorService pool) throws IOException {
+        if (f == null) {
+            return 0L;
+        }
+
+        final int nChunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        final List<FutureTask<Checksum>> tasks = new ArrayList<>(nChunks);
+
+        for (int k = 0; k < nChunks; k++) {
+            final long start = from + k * CHUNK_SIZE;
+            final long len = Math.min(CHUNK_SIZE, from + size - start);
+            tasks.add(new FutureTask<>(() -> {
+                Checksum sum = new Checksum(0);
+                add(sum, f, start, len, new byte[(int) Math.min(READ_BLOCKS * FitsFactory.FITS_BLOCK_SIZE, len)]);
+                return sum;
+            }));
+        }
+
+        ParallelTasks.run(pool, Runtime.getRuntime().availableProcessors(), tasks);
+
+        // Partial sums are combined exactly, before folding the carries.
+        Checksum total = new Checksum(0);
+        for (FutureTask<Checksum> task : tasks) {
+            Checksum sum = getResult(task);
+            total.h += sum.h;
+            total.l += sum.l;
+        }
+        return total.getChecksum();
+    }
+
+    /**
+     * Waits for, and returns, the partial sum for a chunk of a file segment.
+     *
+     * @param  task        the task that sums the chunk
+     *
+     * @return             the partial sum for the chunk
+     *
+     * @throws IOException if the chunk could not be read, or if the thread was interrupted while waiting.
+     */
+    private static Checksum getResult(FutureTask<Checksum> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checksumming file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Could not checksum file: " + cause.getMessage(), cause);
+        }
     }
 
     /**
@@ -562,6 +678,47 @@ public final class FitsCheckSum {
         return sum.getChecksum();
     }
 
+    /**
+     * Updates a checksum for replacing a segment of the checksummed data, from only the checksums of the old and new
+     * contents of the segment. It can be used to maintain the datasum of very large data incrementally, when modifying
+     * just a small part of it (e.g. a row in a table), in time proportional to the size of the modified segment only.
+     * Unlike {@link #differenceOf(long, long)}, it handles the two representations of zero in 1's complement
+     * arithmetic properly: it returns -1 in the rare case when the result cannot be determined from the partial sums
+     * alone, and must be recalculated from all data instead. The old and new segments must start at the same 4-byte
+     * boundary.
+     *
+     * @param  total   the checksum of all data, including the old contents of the segment.
+     * @param  oldPart the checksum of the segment before the change.
+     * @param  newPart the checksum of the segment after the change.
+     *
+     * @return         the checksum for all data, including the new contents of the segment, or -1 if it cannot be
+     *                     determined without recalculating the checksum for all data.
+     *
+     * @see            #sumOf(long...)
+     * @see            BasicHDU#rewriteData(long, byte[])
+     *
+     * @since          1.22
+     */
+    public static long updateSum(long total, long oldPart, long newPart) {
+        if (oldPart == newPart) {
+            return total;
+        }
+
+        // 1's complement sums are sums modulo 2^32 - 1...
+        long sum = ((total % HDU_CHECKSUM) - (oldPart % HDU_CHECKSUM) + (newPart % HDU_CHECKSUM)) % HDU_CHECKSUM;
+        if (sum < 0) {
+            sum += HDU_CHECKSUM;
+        }
+
+        if (sum != 0) {
+            return sum;
+        }
+
+        // ... in which both 0 and 0xffffffff represent zero. The sum is 0 only if all data are zeroes, which cannot
+        // be the case when the new segment has non-zero data. Otherwise, we cannot tell from the partial sums alone.
+        return newPart == 0 ? -1L : HDU_CHECKSUM;
+    }
+
     /**
      * Sets the <code>DATASUM</code> and <code>CHECKSUM</code> keywords in a FITS header, based on the provided checksum
      * of the data (calculated elsewhere) and the checksum calculated afresh for the header.
@@ -35,6 +35,8 @@ import java.io.EOFException;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import nom.tam.util.ArrayDataOutput;
@@ -168,29 +170,46 @@ public abstract class StandardImageTiler implements ImageTiler {
         if (output instanceof ArrayDataOutput) {
             this.fillFileData((ArrayDataOutput) output, delta, segment, step);
         } else {
-            randomAccessFile.seek(fileOffset + delta);
-            int got = 0;
-
-            if (base == float.class) {
-                got = randomAccessFile.read((float[]) output, outputOffset, segment);
-            } else if (base == int.class) {
-                got = randomAccessFile.read((int[]) output, outputOffset, segment);
-            } else if (base == short.class) {
-                got = randomAccessFile.read((short[]) output, outputOffset, segment);
-            } else if (base == double.class) {
-                got = randomAccessFile.read((double[]) output, outputOffset, segment);
-            } else if (base == byte.class) {
-                got = randomAccessFile.read((byte[]) output, outputOffset, segment);
-            } else if (base == long.class) {
-                got = randomAccessFile.read((long[]) output, outputOffset, segment);
-            } else {
+            if (base != float.class && base != int.class && base != short.class && base != double.class
+                    && base != byte.class && base != long.class) {
                 throw new IOException("Invalid type for tile array");
             }
 
+            ElementType<Buffer> type = ElementType.forClass(base);
+
+            // Positional read, so concurrent readers need not contend for the shared file pointer.
+            byte[] b = new byte[segment * type.size()];
+            int got = readFully(fileOffset + delta, b);
+
             if (got < 0) {
                 throw new EOFException();
             }
+
+            type.getArray(type.asTypedBuffer(ByteBuffer.wrap(b, 0, got)), output, outputOffset, got / type.size());
+        }
+    }
+
+    /**
+     * Reads bytes from the specified file position, until the buffer is filled or the end of file is reached,
+     * whichever comes first, without moving the file pointer.
+     *
+     * @param  pos         the file position of the first byte to read
+     * @param  b           the buffer to fill
+     *
+     * @return             the number of bytes read, or -1 if already at the end of file.
+     *
+     * @throws IOException if the underlying file failed
+     */
+    private int readFully(long pos, byte[] b) throws IOException {
+        int got = 0;
+        while (got < b.length) {
+            int n = randomAccessFile.read(pos + got, b, got, b.length - got);
+            if (n < 0) {
+                return got > 0 ? got : -1;
+            }
+            got += n;
         }
+        return got;
     }
 
     /**
@@ -392,7 +411,7 @@ public abstract class StandardImageTiler implements ImageTiler {
 
         System.arraycopy(corners, 0, posits, 0, n);
         long currentOffset = 0;
-        if (data == null) {
+        if (data == null && isStreaming) {
             currentOffset = randomAccessFile.getFilePointer();
         }
 
@@ -452,7 +471,7 @@ public abstract class StandardImageTiler implements ImageTiler {
             }
 
         } while (incrementPosition(corners, posits, lengths, steps));
-        if (data == null) {
+        if (data == null && isStreaming) {
             randomAccessFile.seek(currentOffset);
         }
 
@@ -467,11 +486,8 @@ public abstract class StandardImageTiler implements ImageTiler {
         if (randomAccessFile == null) {
             throw new IOException("Attempt to read from null file");
         }
-        long currentOffset = randomAccessFile.getFilePointer();
         Object o = ArrayFuncs.newInstance(base, dims);
-        randomAccessFile.seek(fileOffset);
-        randomAccessFile.readImage(o);
-        randomAccessFile.seek(currentOffset);
+        randomAccessFile.readImage(fileOffset, o);
         return o;
     }
 
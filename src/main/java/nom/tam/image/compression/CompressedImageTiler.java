@@ -5,7 +5,12 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 
 /*
@@ -40,6 +45,7 @@ import java.util.logging.Logger;
  */
 
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.compression.algorithm.api.ICompressOption;
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
@@ -53,6 +59,8 @@ import nom.tam.image.StandardImageTiler;
 import nom.tam.image.compression.hdu.CompressedImageHDU;
 import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.ArrayFuncs;
+import nom.tam.util.FitsEncoder;
+import nom.tam.util.ParallelTasks;
 import nom.tam.util.type.ElementType;
 
 /**
@@ -162,6 +170,10 @@ public class CompressedImageTiler implements ImageTiler {
         System.arraycopy(corners, 0, posits, 0, n);
         final int[] tileDimensions = ArrayFuncs.reverseIndices(getTileDimensions());
 
+        // Decompress all the tiles we need up front, in parallel.
+        final Map<Long, Object> tiles = decompressOverlappingTiles(imageDimensions, tileDimensions, corners, lengths,
+                steps);
+
         do {
             // This implies there is some overlap
             // in the last index (in conjunction
@@ -177,8 +189,12 @@ public class CompressedImageTiler implements ImageTiler {
                 while (pixelsRead < segment) {
                     final int[] tileOffsets = getTileOffsets(tileRowPositions, tileDimensions);
                     // Multidimensional array
-                    final Object tileData = getDecompressedTileData(tileRowPositions, tileDimensions);
-                    final StandardImageTiler standardImageTiler = new StandardImageTiler(null, -1, tileDimensions, base) {
+                    final Object tileData = getTileData(tiles, imageDimensions, tileRowPositions, tileDimensions);
+                    // Tiles at the image edges may be smaller than the nominal tile size
+                    final int[] actualDimensions = getActualTileDimensions(imageDimensions, tileRowPositions,
+                            tileDimensions);
+                    final StandardImageTiler standardImageTiler = new StandardImageTiler(null, -1, actualDimensions,
+                            base) {
                         @Override
                         protected Object getMemoryImage() {
                             return tileData;
@@ -188,7 +204,7 @@ public class CompressedImageTiler implements ImageTiler {
 
                     // Apply any remaining steps that didn't get read from the last tile.
                     tileOffsets[mx] += stepOffset;
-                    final int segmentLength = Math.min(segment, tileDimensions[mx] - tileOffsets[mx]);
+                    final int segmentLength = Math.min(segment, actualDimensions[mx] - tileOffsets[mx]);
                     final int tileReadLength = Math.max(1, Math.min(remaining, segmentLength));
 
                     final int[] tileReadLengths = new int[tileDimensions.length];
@@ -213,34 +229,315 @@ public class CompressedImageTiler implements ImageTiler {
     }
 
     /**
-     * Obtain the multidimensional decompressed array of values for the tile at the given position.
+     * Returns the tile indices along an axis that contain any of the pixels sampled along that axis. Sampled pixels
+     * outside of the image are ignored.
+     *
+     * @param  corner    The index of the first pixel sampled along the axis.
+     * @param  length    The number of pixels spanned along the axis.
+     * @param  step      The pixel amount between sampled values along the axis.
+     * @param  tileSize  The size of tiles along the axis.
+     * @param  dimension The size of the image along the axis.
+     *
+     * @return           The indices of the tiles, in ascending order, that contain sampled pixels.
+     */
+    static int[] getOverlappingTileIndices(final int corner, final int length, final int step, final int tileSize,
+            final int dimension) {
+        final int[] indices = new int[(length + tileSize - 1) / tileSize + 1];
+        final int end = Math.min(corner + length, dimension);
+        int n = 0;
+
+        for (int i = corner; i < end; i += step) {
+            if (i < 0) {
+                continue;
+            }
+            final int tile = i / tileSize;
+            if (n == 0 || indices[n - 1] != tile) {
+                indices[n++] = tile;
+            }
+            if (step < tileSize) {
+                // Skip ahead to the last sampled pixel in this tile.
+                final int last = (tile + 1) * tileSize - 1;
+                i += ((last - i) / step) * step;
+            }
+        }
+
+        return Arrays.copyOf(indices, n);
+    }
+
+    /**
+     * Returns the actual dimensions of the tile that contains the specified pixel. Tiles at the far edges of the image
+     * may be smaller than the nominal tile size, if the image dimensions are not exact multiples of the tile size.
+     *
+     * @param  imageDimensions The pixel dimensions of the full image.
+     * @param  positions       The pixel position in the image.
+     * @param  tileDimensions  The nominal dimensions of a (de)compressed tile.
+     *
+     * @return                 The dimensions of the tile containing the pixel.
+     */
+    static int[] getActualTileDimensions(final int[] imageDimensions, final int[] positions,
+            final int[] tileDimensions) {
+        final int[] dims = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            final int start = (positions[i] / tileDimensions[i]) * tileDimensions[i];
+            dims[i] = Math.min(tileDimensions[i], imageDimensions[i] - start);
+        }
+        return dims;
+    }
+
+    /**
+     * Returns a unique key for the tile that contains the specified pixel.
+     *
+     * @param  imageDimensions The pixel dimensions of the full image.
+     * @param  positions       The pixel position in the image.
+     * @param  tileDimensions  The dimensions of a (de)compressed tile.
+     *
+     * @return                 a unique key for the tile containing the pixel.
+     */
+    static long getTileKey(final int[] imageDimensions, final int[] positions, final int[] tileDimensions) {
+        long key = 0;
+        for (int i = 0; i < positions.length; i++) {
+            final int nTiles = (imageDimensions[i] + tileDimensions[i] - 1) / tileDimensions[i];
+            key = key * nTiles + positions[i] / tileDimensions[i];
+        }
+        return key;
+    }
+
+    /**
+     * Decompresses all tiles that contain pixels of the requested image area, in parallel, using the thread pool of
+     * the HDU. Tiles that do not overlap with the requested area are not decompressed. The calling thread takes part in
+     * the decompression also, so the call does not depend on threads of the pool being available. No more than
+     * {@link FitsFactory#getMaxTilesInFlight()} tiles are decompressed at once (if set).
+     *
+     * @param  imageDimensions The pixel dimensions of the full image (uncompressed and before slicing).
+     * @param  tileDimensions  The dimensions of a (de)compressed tile.
+     * @param  corners         The pixel indices of the corner of the image.
+     * @param  lengths         The pixel dimensions of the subset.
+     * @param  steps           The pixel amount between values.
+     *
+     * @return                 The decompressed tiles, by tile key.
+     *
+     * @throws FitsException   if any of the tiles could not be decompressed.
+     * 
+     * @see                    #getTileKey(int[], int[], int[])
+     */
+    Map<Long, Object> decompressOverlappingTiles(final int[] imageDimensions, final int[] tileDimensions,
+            final int[] corners, final int[] lengths, final int[] steps) throws FitsException {
+        final int n = imageDimensions.length;
+        final int[][] indices = new int[n][];
+
+        for (int i = 0; i < n; i++) {
+            // Rows are read contiguously, and stepped through inside the tiles.
+            final int step = i == n - 1 ? 1 : Math.max(1, steps[i]);
+            indices[i] = getOverlappingTileIndices(corners[i], lengths[i], step, tileDimensions[i], imageDimensions[i]);
+            if (indices[i].length == 0) {
+                return new HashMap<>();
+            }
+        }
+
+        // The pixel positions of the overlapping tiles' corners.
+        final List<int[]> positions = new ArrayList<>();
+        final int[] k = new int[n];
+        for (;;) {
+            final int[] pos = new int[n];
+            for (int i = 0; i < n; i++) {
+                pos[i] = indices[i][k[i]] * tileDimensions[i];
+            }
+            positions.add(pos);
+
+            int i = n - 1;
+            for (; i >= 0 && ++k[i] == indices[i].length; i--) {
+                k[i] = 0;
+            }
+            if (i < 0) {
+                break;
+            }
+        }
+
+        final List<FutureTask<Object>> tasks = new ArrayList<>(positions.size());
+        for (final int[] pos : positions) {
+            tasks.add(new FutureTask<>(() -> getDecompressedTileData(pos, tileDimensions)));
+        }
+
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        if (FitsFactory.getMaxTilesInFlight() > 0) {
+            nThreads = Math.min(nThreads, FitsFactory.getMaxTilesInFlight());
+        }
+
+        ParallelTasks.run(Math.min(tasks.size(), nThreads) > 1 ? getThreadPool() : null, nThreads, tasks);
+
+        final Map<Long, Object> tiles = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            tiles.put(getTileKey(imageDimensions, positions.get(i), tileDimensions), getResult(tasks.get(i)));
+        }
+        return tiles;
+    }
+
+    /**
+     * Waits for, and returns, the result of a tile decompression.
+     *
+     * @param  task          The tile decompression task
+     *
+     * @return               The decompressed tile data
+     *
+     * @throws FitsException if the tile could not be decompressed, or if the thread was interrupted while waiting.
+     */
+    private static Object getResult(final FutureTask<Object> task) throws FitsException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FitsException("Interrupted while decompressing tiles", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof FitsException) {
+                throw (FitsException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new FitsException("Could not decompress tile: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns the decompressed data for the tile containing the given position, from the tiles that were already
+     * decompressed, or else by decompressing it now.
+     *
+     * @param  tiles           The tiles already decompressed, by tile key.
+     * @param  imageDimensions The pixel dimensions of the full image.
+     * @param  positions       The pixel position in the image.
+     * @param  tileDimensions  The dimensions of a (de)compressed tile.
+     *
+     * @return                 N-dimensional array of values.
+     *
+     * @throws FitsException   For any header read errors.
+     */
+    private Object getTileData(final Map<Long, Object> tiles, final int[] imageDimensions, final int[] positions,
+            final int[] tileDimensions) throws FitsException {
+        final Object data = tiles.get(getTileKey(imageDimensions, positions, tileDimensions));
+        return data == null ? getDecompressedTileData(positions, tileDimensions) : data;
+    }
+
+    /**
+     * Returns the executor service to use for decompressing tiles in parallel. Tests can override.
+     *
+     * @return the thread pool of the HDU, or else {@link FitsFactory#threadPool()}.
+     */
+    ExecutorService getThreadPool() {
+        return compressedImageHDU == null ? FitsFactory.threadPool() : compressedImageHDU.getThreadPool();
+    }
+
+    /**
+     * Returns the cache of decompressed tiles to use. Tests can override.
+     *
+     * @return the cache of decompressed tiles of the HDU, or <code>null</code> if tiles are not to be cached.
+     */
+    DecompressedTileCache getTileCache() {
+        return compressedImageHDU == null ? null : compressedImageHDU.getTileCache();
+    }
+
+    /**
+     * Obtain the multidimensional decompressed array of values for the tile at the given position. Tiles are served
+     * from the HDU's cache of decompressed tiles whenever possible, and newly decompressed tiles are added to it.
      *
      * @param  positions      The location to obtain the tile.
      * @param  tileDimensions The N-dimensional array of a full tile.
      *
-     * @return                N-dimensional array of values.
+     * @return                N-dimensional array of values. It may be shared with other callers, and must not be
+     *                            modified.
      *
      * @throws FitsException  For any header read errors.
+     * 
+     * @see                   #getTileCache()
      */
     Object getDecompressedTileData(final int[] positions, final int[] tileDimensions) throws FitsException {
+        final DecompressedTileCache cache = getTileCache();
+        if (cache == null) {
+            return decompressTileData(positions, tileDimensions);
+        }
+
+        final int rowNumber = getRowNumber(positions, tileDimensions);
+        Object tileData = cache.get(rowNumber);
+        if (tileData == null) {
+            tileData = decompressTileData(positions, tileDimensions);
+            // Edge tiles may be smaller than a full tile
+            cache.put(rowNumber, tileData, FitsEncoder.computeSize(tileData));
+        }
+        return tileData;
+    }
+
+    /**
+     * Decompresses the tile at the given position into a multidimensional array of values.
+     *
+     * @param  positions      The location to obtain the tile.
+     * @param  tileDimensions The N-dimensional array of a full tile.
+     *
+     * @return                N-dimensional array of values.
+     *
+     * @throws FitsException  For any header read errors.
+     */
+    Object decompressTileData(final int[] positions, final int[] tileDimensions) throws FitsException {
         final int compressedDataColumnIndex = columnNames.indexOf(Compression.COMPRESSED_DATA_COLUMN);
         final int uncompressedDataColumnIndex = columnNames.indexOf(Compression.UNCOMPRESSED_DATA_COLUMN);
         final int gZipCompressedDataColumnIndex = columnNames.indexOf(Compression.GZIP_COMPRESSED_DATA_COLUMN);
         final Object[] row = getRow(positions, tileDimensions);
         final Object decompressedArray;
 
-        final byte[] compressedRowData = (byte[]) row[compressedDataColumnIndex];
-        if (compressedRowData.length > 0) {
-            decompressedArray = decompressRow(compressedDataColumnIndex, row);
+        // Partial tiles at the image edges are compressed with their actual size.
+        final int[] actualDimensions = getActualTileDimensions(positions, tileDimensions);
+        final int[] edgeDimensions = Arrays.equals(actualDimensions, tileDimensions) ? null : actualDimensions;
+
+        // The compressed data column is absent if none of the tiles could be compressed
+        if (compressedDataColumnIndex >= 0 && ((byte[]) row[compressedDataColumnIndex]).length > 0) {
+            decompressedArray = edgeDimensions == null ? decompressRow(compressedDataColumnIndex, row) :
+                    decompressRow(compressedDataColumnIndex, row, edgeDimensions);
         } else if (gZipCompressedDataColumnIndex >= 0) {
-            decompressedArray = decompressRow(gZipCompressedDataColumnIndex, row);
+            decompressedArray = edgeDimensions == null ? decompressRow(gZipCompressedDataColumnIndex, row) :
+                    decompressRow(gZipCompressedDataColumnIndex, row, edgeDimensions);
         } else if (uncompressedDataColumnIndex >= 0) {
-            decompressedArray = row[uncompressedDataColumnIndex];
+            decompressedArray = toTypedArray(row[uncompressedDataColumnIndex]);
         } else {
             throw new FitsException("Nothing in row to read: (" + Arrays.deepToString(row) + ").");
         }
 
-        return ArrayFuncs.curl(decompressedArray, tileDimensions);
+        return ArrayFuncs.curl(decompressedArray, actualDimensions);
+    }
+
+    /**
+     * Converts the raw bytes of an uncompressed tile to an array of the image's element type.
+     *
+     * @param  data the uncompressed tile data, as stored in the table
+     *
+     * @return      the data as an array of the image element type.
+     */
+    private Object toTypedArray(final Object data) {
+        if (!(data instanceof byte[])) {
+            return data;
+        }
+        final ElementType<Buffer> type = getBaseType();
+        if (type.primitiveClass() == byte.class) {
+            return data;
+        }
+        final byte[] bytes = (byte[]) data;
+        final Buffer typed = type.newBuffer(bytes.length / type.size());
+        type.appendBuffer(typed, type.asTypedBuffer(ByteBuffer.wrap(bytes)));
+        return typed.array();
+    }
+
+    /**
+     * Returns the actual dimensions of the tile at the given position, which may be smaller than the nominal tile size
+     * for tiles at the image edges. Tests can override.
+     *
+     * @param  positions      The location of the tile.
+     * @param  tileDimensions The N-dimensional array of a full tile.
+     *
+     * @return                The dimensions of the tile at the position.
+     */
+    int[] getActualTileDimensions(final int[] positions, final int[] tileDimensions) {
+        if (compressedImageHDU == null) {
+            return tileDimensions;
+        }
+        return getActualTileDimensions(getImageDimensions(), positions, tileDimensions);
     }
 
     int[] getTileIndexes(final int[] pixelPositions, final int[] tileDimensions) {
@@ -264,6 +561,23 @@ public class CompressedImageTiler implements ImageTiler {
      * @throws FitsException If there is no array, or it cannot be decompressed.
      */
     Object decompressRow(final int columnIndex, final Object[] row) throws FitsException {
+        return decompressRow(columnIndex, row, null);
+    }
+
+    /**
+     * Decompress the data at row <code>rowNumber</code> and column <code>columnIndex</code>, for a tile that may be
+     * smaller than the nominal tile size.
+     *
+     * @param  columnIndex    The column containing the expected compressed data.
+     * @param  row            The desired row data.
+     * @param  edgeDimensions The actual dimensions of a partial tile at the image edge, or <code>null</code> for a
+     *                            full tile.
+     *
+     * @return                Object array.
+     *
+     * @throws FitsException  If there is no array, or it cannot be decompressed.
+     */
+    Object decompressRow(final int columnIndex, final Object[] row, final int[] edgeDimensions) throws FitsException {
         final byte[] compressedRowData = (byte[]) row[columnIndex];
 
         // Decompress the row into pixel values.
@@ -271,7 +585,19 @@ public class CompressedImageTiler implements ImageTiler {
         compressed.rewind();
 
         try {
-            final Buffer tileBuffer = decompressIntoBuffer(row, compressed);
+            final Buffer tileBuffer;
+            if (columnNames.indexOf(Compression.GZIP_COMPRESSED_DATA_COLUMN) == columnIndex) {
+                // Tiles that could not be compressed otherwise are GZIP compressed, without options.
+                final int[] dims = edgeDimensions == null ? ArrayFuncs.reverseIndices(getTileDimensions()) :
+                        edgeDimensions;
+                tileBuffer = getBaseType().newBuffer(getSize(dims));
+                getGzipCompressorControl(getBaseType()).decompress(compressed, tileBuffer, null);
+                tileBuffer.rewind();
+            } else if (edgeDimensions == null) {
+                tileBuffer = decompressIntoBuffer(row, compressed);
+            } else {
+                tileBuffer = decompressIntoBuffer(row, compressed, edgeDimensions);
+            }
             if (hasData(tileBuffer)) {
                 return tileBuffer.array();
             }
@@ -294,11 +620,32 @@ public class CompressedImageTiler implements ImageTiler {
      * @return            Buffer instance. Never null.
      */
     Buffer decompressIntoBuffer(final Object[] row, final ByteBuffer compressed) {
+        return decompressIntoBuffer(row, compressed, getTileSize(), getTileWidth(), getTileHeight());
+    }
+
+    /**
+     * Decompress the given ByteBuffer into a primitive class based Buffer, for a partial tile at the image edge.
+     *
+     * @param  row            The row array data.
+     * @param  compressed     The compressed data.
+     * @param  edgeDimensions The actual dimensions of the tile.
+     *
+     * @return                Buffer instance. Never null.
+     */
+    Buffer decompressIntoBuffer(final Object[] row, final ByteBuffer compressed, final int[] edgeDimensions) {
+        final int size = getSize(edgeDimensions);
+        final int width = edgeDimensions[edgeDimensions.length - 1];
+        return decompressIntoBuffer(row, compressed, size, width, size / width);
+    }
+
+    private Buffer decompressIntoBuffer(final Object[] row, final ByteBuffer compressed, final int size,
+            final int width, final int height) {
         final ElementType<Buffer> bufferElementType = getBaseType();
-        final Buffer tileBuffer = bufferElementType.newBuffer(getTileSize());
+        final Buffer tileBuffer = bufferElementType.newBuffer(size);
         tileBuffer.rewind();
         final ICompressorControl compressorControl = getCompressorControl(getBaseType());
         final ICompressOption option = initCompressionOption(compressorControl.option(), bufferElementType.size());
+        option.setTileWidth(width).setTileHeight(height);
         initRowOption(option, row);
         compressorControl.decompress(compressed, tileBuffer, option);
 
@@ -306,6 +653,19 @@ public class CompressedImageTiler implements ImageTiler {
         return tileBuffer;
     }
 
+    private static int getSize(final int[] dims) {
+        int size = 1;
+        for (int d : dims) {
+            size *= d;
+        }
+        return size;
+    }
+
+    ICompressorControl getGzipCompressorControl(final ElementType<? extends Buffer> elementType) {
+        return CompressorProvider.findCompressorControl(null, Compression.ZCMPTYPE_GZIP_1,
+                elementType.primitiveClass());
+    }
+
     ICompressorControl getCompressorControl(final ElementType<? extends Buffer> elementType) {
         return CompressorProvider.findCompressorControl(getQuantizAlgorithmName(), getCompressionAlgorithmName(),
                 elementType.primitiveClass());
@@ -314,7 +674,7 @@ public class CompressedImageTiler implements ImageTiler {
     ICompressOption initCompressionOption(final ICompressOption option, final int bytePix) {
         if (option instanceof RiceCompressOption) {
             ((RiceCompressOption) option).setBlockSize(getBlockSize());
-            ((RiceCompressOption) option).setBytePix(bytePix);
+            ((RiceCompressOption) option).setBytePix(getBytePix(bytePix));
         } else if (option instanceof QuantizeOption) {
             initCompressionOption(((QuantizeOption) option).getCompressOption(), bytePix);
         }
@@ -355,21 +715,32 @@ public class CompressedImageTiler implements ImageTiler {
      * @throws FitsException  If the row doesn't exist, or cannot be read.
      */
     Object[] getRow(final int[] positions, final int[] tileDimensions) throws FitsException {
+        return compressedImageHDU.getRow(getRowNumber(positions, tileDimensions));
+    }
+
+    /**
+     * Obtain the row number (i.e. tile index) for the tile containing the given pixel position.
+     *
+     * @param  positions      The pixel position in the image.
+     * @param  tileDimensions The dimensions of a (de)compressed tile.
+     *
+     * @return                The row number in the compressed table that contains the tile.
+     *
+     * @throws FitsException  If the header values needed cannot be retrieved.
+     */
+    int getRowNumber(final int[] positions, final int[] tileDimensions) throws FitsException {
         final int[] tileIndexes = getTileIndexes(ArrayFuncs.reverseIndices(positions),
                 ArrayFuncs.reverseIndices(tileDimensions));
-        final int rowNumber = getRowNumber(tileIndexes);
-        return compressedImageHDU.getRow(rowNumber);
+        return getRowNumber(tileIndexes);
     }
 
     int getRowNumber(final int[] tileIndexes) throws FitsException {
         int offset = 0;
+        int stride = 1;
         final int[] tableDimensions = getTableDimensions();
         for (int i = 0; i < tableDimensions.length; i++) {
-            if (i > 0) {
-                offset += tileIndexes[i] * tableDimensions[i - 1];
-            } else {
-                offset += tileIndexes[i];
-            }
+            offset += tileIndexes[i] * stride;
+            stride *= tableDimensions[i];
         }
         return offset;
     }
@@ -497,6 +868,24 @@ public class CompressedImageTiler implements ImageTiler {
         return DEFAULT_BLOCK_SIZE;
     }
 
+    /**
+     * Returns the number of bytes per pixel with which the tiles were Rice compressed, as recorded in the header
+     * (which may differ from the size of the image elements).
+     *
+     * @param  defaultValue the value to return if the header does not specify the bytes per pixel.
+     *
+     * @return              the bytes per pixel of Rice compression.
+     */
+    int getBytePix(final int defaultValue) {
+        final Header header = getHeader();
+        for (int n = 1; header.containsKey(Compression.ZNAMEn.n(n)); n++) {
+            if (Compression.BYTEPIX.equals(header.getStringValue(Compression.ZNAMEn.n(n)))) {
+                return header.getIntValue(Compression.ZVALn.n(n), defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Obtain the dimension count of this image (ZNAXIS). Tests can override.
      *
@@ -0,0 +1,254 @@
+package nom.tam.image.compression;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used (LRU) cache of decompressed image tiles, keyed by the tile index (i.e. the row number
+ * in the compressed table). The cache is bounded by the total number of bytes held by the decompressed tiles, rather
+ * than by the number of tiles. When adding a new tile would exceed the capacity, the least recently used tiles are
+ * evicted to make room for it. Tiles that are larger than the capacity by themselves are never cached.
+ * <p>
+ * Every {@link nom.tam.image.compression.hdu.CompressedImageHDU} has its own cache, which is used by
+ * {@link CompressedImageTiler} to serve repeated or overlapping cutouts without decompressing the same tiles again.
+ * Cached tiles are shared among the callers, and must therefore be treated as read-only. The cache is safe to use from
+ * multiple threads concurrently.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    nom.tam.image.compression.hdu.CompressedImageHDU#getTileCache()
+ */
+public class DecompressedTileCache {
+
+    /** The default capacity of tile caches, in bytes (32 MB) */
+    public static final long DEFAULT_CAPACITY = 32L * 1024L * 1024L;
+
+    /** Tiles in least-recently-used order */
+    private final LinkedHashMap<Integer, Entry> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The maximum number of bytes that may be held by cached tiles */
+    private long capacity;
+
+    /** The number of bytes held by the cached tiles currently */
+    private long bytes;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Creates a new tile cache with the {@link #DEFAULT_CAPACITY}.
+     */
+    public DecompressedTileCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new tile cache with the specified capacity.
+     * 
+     * @param  capacity                 the maximum number of bytes that may be held by the cached tiles. Zero disables
+     *                                      caching.
+     * 
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public DecompressedTileCache(long capacity) throws IllegalArgumentException {
+        setCapacity(capacity);
+    }
+
+    /**
+     * Sets a new capacity for this cache. If the new capacity is less than what is held by the cache currently, the
+     * least recently used tiles are evicted until the cache fits within the new capacity.
+     * 
+     * @param  capacity                 the maximum number of bytes that may be held by the cached tiles. Zero disables
+     *                                      caching.
+     * 
+     * @throws IllegalArgumentException if the capacity is negative.
+     * 
+     * @see                             #getCapacity()
+     */
+    public synchronized void setCapacity(long capacity) throws IllegalArgumentException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative cache capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        evict(0L);
+    }
+
+    /**
+     * Returns the current capacity of this cache.
+     * 
+     * @return the maximum number of bytes that may be held by the cached tiles.
+     * 
+     * @see    #setCapacity(long)
+     */
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of bytes held by the tiles that are currently cached.
+     * 
+     * @return the number of bytes held in the cache.
+     */
+    public synchronized long getSize() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of tiles that are currently cached.
+     * 
+     * @return the number of cached tiles.
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the number of lookups that were served from the cache since the cache was created or since the
+     * statistics were last reset.
+     * 
+     * @return the number of cache hits.
+     * 
+     * @see    #getMissCount()
+     * @see    #resetStatistics()
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find the requested tile in the cache since the cache was created or
+     * since the statistics were last reset.
+     * 
+     * @return the number of cache misses.
+     * 
+     * @see    #getHitCount()
+     * @see    #resetStatistics()
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Resets the hit and miss counters to zero.
+     * 
+     * @see #getHitCount()
+     * @see #getMissCount()
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Discards all cached tiles, e.g. after the compressed data has changed.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the decompressed data of a tile, if it is in the cache, and updates the hit / miss counters accordingly.
+     * 
+     * @param  tile the tile index (the row number in the compressed table)
+     * 
+     * @return      the decompressed tile data, or <code>null</code> if the tile is not in the cache.
+     * 
+     * @see         #put(int, Object, long)
+     */
+    public synchronized Object get(int tile) {
+        Entry e = tiles.get(tile);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.data;
+    }
+
+    /**
+     * Adds the decompressed data of a tile to the cache, evicting the least recently used tiles as necessary to stay
+     * within the capacity. Tiles that are larger than the capacity are not cached.
+     * 
+     * @param tile the tile index (the row number in the compressed table)
+     * @param data the decompressed tile data, which must not be modified after it is added to the cache.
+     * @param size the number of bytes held by the decompressed tile data.
+     * 
+     * @see        #get(int)
+     */
+    public synchronized void put(int tile, Object data, long size) {
+        if (size > capacity) {
+            return;
+        }
+
+        Entry old = tiles.remove(tile);
+        if (old != null) {
+            bytes -= old.size;
+        }
+
+        evict(size);
+        tiles.put(tile, new Entry(data, size));
+        bytes += size;
+    }
+
+    /**
+     * Evicts the least recently used tiles until the specified number of bytes may be added without exceeding the
+     * capacity.
+     * 
+     * @param size the number of bytes to make room for.
+     */
+    private void evict(long size) {
+        Iterator<Map.Entry<Integer, Entry>> i = tiles.entrySet().iterator();
+        while (bytes + size > capacity && i.hasNext()) {
+            bytes -= i.next().getValue().size;
+            i.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final Object data;
+
+        private final long size;
+
+        private Entry(Object data, long size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+}
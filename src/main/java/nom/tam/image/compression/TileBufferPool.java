@@ -0,0 +1,291 @@
+package nom.tam.image.compression;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * (<i>for internal use</i>) A pool of scratch byte buffers for compressing and decompressing tiles, so that we do not
+ * have to allocate new (especially direct) buffers for every tile. Buffers are pooled in power-of-two size classes,
+ * between {@link #MIN_POOLED_SIZE} and {@link #MAX_POOLED_SIZE} bytes, in bounded queues that are shared by all
+ * threads, so buffers are not stranded with threads that are done with them. The total memory held by the pool is
+ * bounded by {@link #getCapacity()}. Buffers that are larger than the largest size class, or that do not fit in the
+ * pool when released, are simply left for the garbage collector.
+ * <p>
+ * Every buffer obtained via {@link #acquire(int, boolean)} should be returned via {@link #release(ByteBuffer)} once
+ * the tile is complete, and must not be used (or referenced by data that is kept) after it is released.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ */
+public final class TileBufferPool {
+
+    /** The smallest size class, in bytes */
+    public static final int MIN_POOLED_SIZE = 1 << 10;
+
+    /** The largest size class, in bytes. Larger buffers are never pooled */
+    public static final int MAX_POOLED_SIZE = 1 << 26;
+
+    /** The default limit on the total number of bytes held in the pool (64 MB) */
+    public static final long DEFAULT_CAPACITY = 64L * 1024L * 1024L;
+
+    /** The maximum number of buffers pooled in each size class (and of each kind) */
+    private static final int MAX_BUFFERS_PER_CLASS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final int MIN_CLASS_BITS = Integer.numberOfTrailingZeros(MIN_POOLED_SIZE);
+
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_CLASS_BITS + 1;
+
+    /** The idle heap buffers in each size class, followed by the idle direct buffers in each size class */
+    private static final List<ArrayBlockingQueue<ByteBuffer>> IDLE = new ArrayList<>(2 * CLASSES);
+
+    /** The number of bytes in the idle buffers of the pool */
+    private static final AtomicLong POOLED_BYTES = new AtomicLong();
+
+    private static final AtomicLong ALLOCATIONS = new AtomicLong();
+
+    private static final AtomicLong REUSES = new AtomicLong();
+
+    private static final AtomicLong DISCARDS = new AtomicLong();
+
+    private static volatile long capacity = DEFAULT_CAPACITY;
+
+    static {
+        for (int i = 0; i < 2 * CLASSES; i++) {
+            IDLE.add(new ArrayBlockingQueue<>(MAX_BUFFERS_PER_CLASS));
+        }
+    }
+
+    private TileBufferPool() {
+    }
+
+    /**
+     * Returns a buffer with at least the requested number of bytes, either from the pool, or else newly allocated. The
+     * returned buffer is positioned at 0, with its limit set to the requested size, and in big-endian byte order. Its
+     * contents are undefined.
+     * 
+     * @param  size                     the number of bytes needed
+     * @param  direct                   whether we need a direct buffer (rather than a heap buffer)
+     * 
+     * @return                          a buffer with the requested size remaining.
+     * 
+     * @throws IllegalArgumentException if the size is negative.
+     * 
+     * @see                             #release(ByteBuffer)
+     */
+    public static ByteBuffer acquire(int size, boolean direct) throws IllegalArgumentException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + size);
+        }
+
+        int cls = sizeClass(size);
+        ByteBuffer buffer = cls < CLASSES ? getIdle(direct, cls).poll() : null;
+
+        if (buffer != null) {
+            POOLED_BYTES.addAndGet(-buffer.capacity());
+            REUSES.incrementAndGet();
+        } else {
+            int bytes = cls < CLASSES ? MIN_POOLED_SIZE << cls : size;
+            buffer = direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+            ALLOCATIONS.incrementAndGet();
+        }
+
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer, which was obtained via {@link #acquire(int, boolean)}, to the pool for reuse. Buffers that are
+     * not in one of the pooled size classes, or which would exceed the capacity of the pool, are discarded instead.
+     * The buffer must not be used after it is released.
+     * 
+     * @param buffer the buffer that is no longer needed. It may be <code>null</code>, in which case nothing happens.
+     * 
+     * @see          #acquire(int, boolean)
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        int bytes = buffer.capacity();
+        int cls = sizeClass(bytes);
+
+        if (cls >= CLASSES || bytes != MIN_POOLED_SIZE << cls || buffer.isReadOnly() || !reserve(bytes)) {
+            DISCARDS.incrementAndGet();
+        } else if (!getIdle(buffer.isDirect(), cls).offer(buffer)) {
+            POOLED_BYTES.addAndGet(-bytes);
+            DISCARDS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reserves room in the pool for a buffer that is about to be pooled, if it fits within the capacity.
+     * 
+     * @param  bytes the size of the buffer
+     * 
+     * @return       <code>true</code> if the room was reserved, or else <code>false</code> if the buffer would exceed
+     *                   the capacity of the pool.
+     */
+    private static boolean reserve(int bytes) {
+        for (;;) {
+            long pooled = POOLED_BYTES.get();
+            if (pooled + bytes > capacity) {
+                return false;
+            }
+            if (POOLED_BYTES.compareAndSet(pooled, pooled + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private static ArrayBlockingQueue<ByteBuffer> getIdle(boolean direct, int cls) {
+        return IDLE.get(direct ? CLASSES + cls : cls);
+    }
+
+    /**
+     * Returns the size class for buffers of a given size.
+     * 
+     * @param  size the number of bytes needed
+     * 
+     * @return      the size class index, which is {@link #CLASSES} or more if the buffer is too large to be pooled.
+     */
+    private static int sizeClass(int size) {
+        if (size <= MIN_POOLED_SIZE) {
+            return 0;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_BITS;
+    }
+
+    /**
+     * Sets the maximum total number of bytes that may be held in the pool. Lowering the capacity does not evict
+     * buffers that are already pooled, but no more buffers will be pooled until it is below the new capacity.
+     * 
+     * @param  bytes                    the new capacity in bytes. Zero disables the reuse of buffers.
+     * 
+     * @throws IllegalArgumentException if the capacity is negative.
+     * 
+     * @see                             #getCapacity()
+     */
+    public static void setCapacity(long bytes) throws IllegalArgumentException {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Negative pool capacity: " + bytes);
+        }
+        capacity = bytes;
+    }
+
+    /**
+     * Returns the maximum total number of bytes that may be held in the pool.
+     * 
+     * @return the capacity in bytes.
+     * 
+     * @see    #setCapacity(long)
+     */
+    public static long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of bytes that are held in the pool currently.
+     * 
+     * @return the number of bytes in the buffers that are pooled for reuse.
+     */
+    public static long getCachedBytes() {
+        return POOLED_BYTES.get();
+    }
+
+    /**
+     * Discards all buffers held in the pool.
+     */
+    public static void clear() {
+        for (ArrayBlockingQueue<ByteBuffer> idle : IDLE) {
+            for (ByteBuffer buffer = idle.poll(); buffer != null; buffer = idle.poll()) {
+                POOLED_BYTES.addAndGet(-buffer.capacity());
+            }
+        }
+    }
+    /**
+     * Returns the number of new buffers allocated by {@link #acquire(int, boolean)}, by all threads, since the class
+     * was loaded or since the statistics were last reset.
+     * 
+     * @return the number of buffers allocated.
+     * 
+     * @see    #getReuseCount()
+     * @see    #resetStatistics()
+     */
+    public static long getAllocationCount() {
+        return ALLOCATIONS.get();
+    }
+
+    /**
+     * Returns the number of times {@link #acquire(int, boolean)} returned a cached buffer, in all threads, since the
+     * class was loaded or since the statistics were last reset.
+     * 
+     * @return the number of buffers reused.
+     * 
+     * @see    #getAllocationCount()
+     * @see    #resetStatistics()
+     */
+    public static long getReuseCount() {
+        return REUSES.get();
+    }
+
+    /**
+     * Returns the number of buffers passed to {@link #release(ByteBuffer)} that were not cached, in all threads,
+     * since the class was loaded or since the statistics were last reset.
+     * 
+     * @return the number of buffers discarded on release.
+     * 
+     * @see    #resetStatistics()
+     */
+    public static long getDiscardCount() {
+        return DISCARDS.get();
+    }
+
+    /**
+     * Resets the allocation, reuse, and discard counters to zero.
+     */
+    public static void resetStatistics() {
+        ALLOCATIONS.set(0);
+        REUSES.set(0);
+        DISCARDS.set(0);
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Arrays;
 
 import nom.tam.fits.BinaryTable;
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
+import nom.tam.image.compression.TileBufferPool;
 import nom.tam.image.compression.hdu.CompressedTableData;
 import nom.tam.util.ArrayOutputStream;
 import nom.tam.util.ByteBufferOutputStream;
@@ -100,32 +101,40 @@ public class BinaryTableTileCompressor extends BinaryTableTile {
 
         // give the compression 10% more space and a minimum of 1024 bytes
         int need = getCushion(getUncompressedSizeInBytes(), NORMAL_OVERHEAD);
-        ByteBuffer cbuf = ByteBuffer.allocateDirect(need);
+        ByteBuffer cbuf = TileBufferPool.acquire(need, true);
 
-        Buffer tb = t.asTypedBuffer(buffer);
+        try {
+            Buffer tb = t.asTypedBuffer(buffer);
 
-        if (!compressor.compress(tb, cbuf, null)) {
-            throw new IllegalStateException("Compression error");
-        }
+            if (!compressor.compress(tb, cbuf, null)) {
+                throw new IllegalStateException("Compression error");
+            }
 
-        cbuf.flip();
-        byte[] cdata = new byte[cbuf.limit()];
-        cbuf.get(cdata);
+            cbuf.flip();
+            byte[] cdata = new byte[cbuf.limit()];
+            cbuf.get(cdata);
 
-        buffer.clear();
+            buffer.clear();
 
-        return cdata;
+            return cdata;
+        } finally {
+            TileBufferPool.release(cbuf);
+        }
     }
 
     private void compressRegular() throws IOException {
         compressedBytes = new byte[1][];
 
-        ByteBuffer buffer = ByteBuffer.allocateDirect(getUncompressedSizeInBytes());
-        try (FitsOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
-            data.write(os, rowStart, rowEnd, column);
-        }
+        ByteBuffer buffer = TileBufferPool.acquire(getUncompressedSizeInBytes(), true);
+        try {
+            try (FitsOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
+                data.write(os, rowStart, rowEnd, column);
+            }
 
-        compressedBytes[0] = getCompressedBytes(buffer, type, getCompressorControl());
+            compressedBytes[0] = getCompressedBytes(buffer, type, getCompressorControl());
+        } finally {
+            TileBufferPool.release(buffer);
+        }
     }
 
     private void compressVariable() throws IOException {
@@ -161,20 +170,24 @@ public class BinaryTableTileCompressor extends BinaryTableTile {
         }
 
         // Buffer for the original data chunks to compress
-        ByteBuffer buffer = ByteBuffer.allocateDirect((int) max);
+        ByteBuffer buffer = TileBufferPool.acquire((int) max, true);
         ElementType<?> dataType = ElementType.forClass(orig.getDescriptor(column).getElementClass());
 
         ICompressorControl compressor = getCompressorControl(dataType.primitiveClass());
         compressedBytes = new byte[nRows][];
 
-        for (int r = 0; r < nRows; r++) {
-            try (FitsOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
-                // Get the VLA data from the heap
-                Object entry = orig.get(rowStart + r, column);
-                os.writeArray(entry);
+        try {
+            for (int r = 0; r < nRows; r++) {
+                try (FitsOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
+                    // Get the VLA data from the heap
+                    Object entry = orig.get(rowStart + r, column);
+                    os.writeArray(entry);
+                }
+
+                compressedBytes[r] = getCompressedBytes(buffer, dataType, compressor);
             }
-
-            compressedBytes[r] = getCompressedBytes(buffer, dataType, compressor);
+        } finally {
+            TileBufferPool.release(buffer);
         }
 
     }
@@ -228,8 +241,8 @@ public class BinaryTableTileCompressor extends BinaryTableTile {
 
         cdesc = new long[nRows][2]; // Compressed Q-type heap pointers
 
-        ByteBuffer buffer = ByteBuffer
-                .allocateDirect((nRows * 2) * (Long.SIZE + (longPointers ? Long.BYTES : Integer.BYTES)));
+        ByteBuffer buffer = TileBufferPool
+                .acquire((nRows * 2) * (Long.SIZE + (longPointers ? Long.BYTES : Integer.BYTES)), true);
 
         for (int r = 0; r < nRows; r++) {
             // Now set the variable size data, which we'll place on a new heap location.
@@ -244,17 +257,21 @@ public class BinaryTableTileCompressor extends BinaryTableTile {
             }
         }
 
-        try (ArrayOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
-            // --- The fpack / funpack way ---
-            // Serialize the original heap descritors
-            os.writeArray(udesc);
-            // Append the compressed heap descriptors
-            os.writeArray(cdesc);
-        }
+        try {
+            try (ArrayOutputStream os = new FitsOutputStream(new ByteBufferOutputStream(buffer))) {
+                // --- The fpack / funpack way ---
+                // Serialize the original heap descritors
+                os.writeArray(udesc);
+                // Append the compressed heap descriptors
+                os.writeArray(cdesc);
+            }
 
-        // Compress the combined descriptors with GZIP_1 -- and we'll store the pointers to that in the
-        // compressed table
-        setCompressedData(getCompressedBytes(buffer, ElementType.BYTE, getGZipCompressorControl()));
+            // Compress the combined descriptors with GZIP_1 -- and we'll store the pointers to that in the
+            // compressed table
+            setCompressedData(getCompressedBytes(buffer, ElementType.BYTE, getGZipCompressorControl()));
+        } finally {
+            TileBufferPool.release(buffer);
+        }
 
         // Discard temporary resources.
         compressedBytes = null;
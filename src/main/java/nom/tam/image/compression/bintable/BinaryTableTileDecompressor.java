@@ -38,6 +38,7 @@ import java.nio.ByteBuffer;
 import nom.tam.fits.BinaryTable;
 import nom.tam.fits.FitsException;
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
+import nom.tam.image.compression.TileBufferPool;
 import nom.tam.image.compression.hdu.CompressedTableData;
 import nom.tam.image.compression.hdu.CompressedTableHDU;
 import nom.tam.util.ByteBufferInputStream;
@@ -81,29 +82,33 @@ public class BinaryTableTileDecompressor extends BinaryTableTile {
 
         // Uncompress the adjoint heap pointer data stored in the compressed table using GZIP_1
         ByteBuffer pdata = ByteBuffer.wrap((byte[]) compressed.getElement(getTileIndex(), column));
-        ByteBuffer pointers = ByteBuffer
-                .allocateDirect((2 * nRows) * (Long.BYTES + (longPointers ? Long.BYTES : Integer.BYTES)));
-
-        getGZipCompressorControl().decompress(pdata, pointers, null);
-        pointers.flip();
+        ByteBuffer pointers = TileBufferPool
+                .acquire((2 * nRows) * (Long.BYTES + (longPointers ? Long.BYTES : Integer.BYTES)), true);
 
         long[][] cdesc = new long[nRows][2];
         Object p = longPointers ? new long[nRows][2] : new int[nRows][2];
 
-        try (FitsInputStream ips = new FitsInputStream(new ByteBufferInputStream(pointers))) {
-            if (CompressedTableHDU.hasOldStandardVLAIndexing()) {
-                // --- The FITS standard way ---
-                // Restore the heap pointers to the compressed data in the compressed heap
-                ips.readLArray(cdesc);
-                // Restore the heap pointers for the original uncompressed data locations
-                ips.readLArray(p);
-            } else {
-                // --- The fpack / funpack way ---
-                // Restore the heap pointers for the original uncompressed data locations
-                ips.readLArray(p);
-                // Restore the heap pointers to the compressed data in the compressed heap
-                ips.readLArray(cdesc);
+        try {
+            getGZipCompressorControl().decompress(pdata, pointers, null);
+            pointers.flip();
+
+            try (FitsInputStream ips = new FitsInputStream(new ByteBufferInputStream(pointers))) {
+                if (CompressedTableHDU.hasOldStandardVLAIndexing()) {
+                    // --- The FITS standard way ---
+                    // Restore the heap pointers to the compressed data in the compressed heap
+                    ips.readLArray(cdesc);
+                    // Restore the heap pointers for the original uncompressed data locations
+                    ips.readLArray(p);
+                } else {
+                    // --- The fpack / funpack way ---
+                    // Restore the heap pointers for the original uncompressed data locations
+                    ips.readLArray(p);
+                    // Restore the heap pointers to the compressed data in the compressed heap
+                    ips.readLArray(cdesc);
+                }
             }
+        } finally {
+            TileBufferPool.release(pointers);
         }
 
         ElementType<?> dataType = ElementType.forClass(orig.getDescriptor(column).getElementClass());
@@ -156,13 +161,17 @@ public class BinaryTableTileDecompressor extends BinaryTableTile {
 
     private synchronized void decompressTableTile() throws IOException {
         ByteBuffer zip = ByteBuffer.wrap((byte[]) compressed.getElement(getTileIndex(), column));
-        ByteBuffer buf = ByteBuffer.allocateDirect(getUncompressedSizeInBytes());
+        ByteBuffer buf = TileBufferPool.acquire(getUncompressedSizeInBytes(), true);
 
-        getCompressorControl().decompress(zip, type.asTypedBuffer(buf), null);
-        buf.rewind();
+        try {
+            getCompressorControl().decompress(zip, type.asTypedBuffer(buf), null);
+            buf.rewind();
 
-        try (FitsInputStream is = new FitsInputStream(new ByteBufferInputStream(buf))) {
-            data.read(is, rowStart, rowEnd, targetColumn);
+            try (FitsInputStream is = new FitsInputStream(new ByteBufferInputStream(buf))) {
+                data.read(is, rowStart, rowEnd, targetColumn);
+            }
+        } finally {
+            TileBufferPool.release(buf);
         }
     }
 
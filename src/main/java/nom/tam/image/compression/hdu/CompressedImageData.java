@@ -1,9 +1,11 @@
 package nom.tam.image.compression.hdu;
 
 import java.nio.Buffer;
+import java.util.concurrent.ExecutorService;
 
 import nom.tam.fits.BinaryTable;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.fits.compression.algorithm.api.ICompressOption;
@@ -58,6 +60,11 @@ public class CompressedImageData extends BinaryTable {
      */
     private TiledImageCompressionOperation tiledImageOperation;
 
+    /**
+     * The executor service to use for processing tiles, or <code>null</code> to use the {@link FitsFactory} default.
+     */
+    private ExecutorService threadPool;
+
     /**
      * Creates a new empty compressed image data to be initialized at a later point
      */
@@ -101,7 +108,7 @@ public class CompressedImageData extends BinaryTable {
     @SuppressWarnings("javadoc")
     protected void compress(CompressedImageHDU hdu) throws FitsException {
         discardVLAs();
-        tiledImageOperation().compress(hdu);
+        tiledImageOperation().setThreadPool(getThreadPool()).compress(hdu);
     }
 
     /**
@@ -133,13 +140,39 @@ public class CompressedImageData extends BinaryTable {
         return tiledImageOperation().compressOptions().unwrap(clazz);
     }
 
+    /**
+     * Sets the executor service to use for processing the tiles of this image in parallel.
+     * 
+     * @param pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     * 
+     * @since      1.22
+     * 
+     * @see        #getThreadPool()
+     */
+    protected void setThreadPool(ExecutorService pool) {
+        threadPool = pool;
+    }
+
+    /**
+     * Returns the executor service to use for processing the tiles of this image in parallel.
+     * 
+     * @return the executor service that was set for this image, or else {@link FitsFactory#threadPool()}.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setThreadPool(ExecutorService)
+     */
+    protected ExecutorService getThreadPool() {
+        return threadPool == null ? FitsFactory.threadPool() : threadPool;
+    }
+
     /**
      * This should only be called by {@link CompressedImageHDU}.
      */
     @SuppressWarnings("javadoc")
     protected Buffer getUncompressedData(Header hdr) throws FitsException {
         try {
-            tiledImageOperation = new TiledImageCompressionOperation(this).read(hdr);
+            tiledImageOperation = new TiledImageCompressionOperation(this).setThreadPool(getThreadPool()).read(hdr);
             return tiledImageOperation.decompress();
         } finally {
             tiledImageOperation = null;
@@ -7,9 +7,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import nom.tam.fits.BinaryTableHDU;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.FitsUtil;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
@@ -22,6 +24,7 @@ import nom.tam.fits.header.GenericKey;
 import nom.tam.fits.header.IFitsHeader;
 import nom.tam.fits.header.Standard;
 import nom.tam.image.compression.CompressedImageTiler;
+import nom.tam.image.compression.DecompressedTileCache;
 import nom.tam.util.ByteBufferInputStream;
 import nom.tam.util.ByteBufferOutputStream;
 import nom.tam.util.Cursor;
@@ -137,6 +140,9 @@ public class CompressedImageHDU extends BinaryTableHDU {
 
     static final Map<IFitsHeader, CompressedCard> UNCOMPRESSED_HEADER_MAPPING = new HashMap<>();
 
+    /** Recently decompressed tiles, for serving repeated or overlapping cutouts */
+    private final DecompressedTileCache tileCache = new DecompressedTileCache();
+
     /**
      * Prepare a compressed image hdu for the specified image. the tile axis that are specified with -1 default to
      * tiling by rows. To actually perform the compression, you will next have to select the compression algorithm (and
@@ -256,6 +262,53 @@ public class CompressedImageHDU extends BinaryTableHDU {
         return imageHDU;
     }
 
+    /**
+     * Returns an image HDU whose data is decompressed from this compressed HDU only as it is being written, such as
+     * when added to a {@link nom.tam.fits.Fits} that is written to a file or stream. Unlike {@link #asImageHDU()}, the
+     * decompressed image is never materialized in memory. Instead, the tiles are decompressed in parallel, one row of
+     * tiles at a time, and written in row order directly to the output. As such, it is suitable for decompressing
+     * images that are larger than the available memory. The data of the returned HDU cannot be accessed otherwise.
+     *
+     * @return               a new image HDU with data that is decompressed from this HDU when written.
+     *
+     * @throws FitsException if the header of the decompressed image could not be created.
+     *
+     * @see                  #asStreamingImageHDU(int)
+     * @see                  #asImageHDU()
+     *
+     * @since                1.22
+     */
+    public ImageHDU asStreamingImageHDU() throws FitsException {
+        return asStreamingImageHDU(1);
+    }
+
+    /**
+     * Returns an image HDU whose data is decompressed from this compressed HDU only as it is being written, such as
+     * when added to a {@link nom.tam.fits.Fits} that is written to a file or stream. The tiles are decompressed in
+     * parallel, using the {@link #getThreadPool() thread pool} of this HDU, a window of tile rows at a time, and
+     * written in row order directly to the output. Only the tiles in the window (and in the {@link #getTileCache() tile
+     * cache}) are resident in memory at any time.
+     *
+     * @param  windowTileRows           the number of tile rows to decompress in parallel at a time. Larger windows
+     *                                      provide more parallelism for narrow images, at the expense of memory.
+     *
+     * @return                          a new image HDU with data that is decompressed from this HDU when written.
+     *
+     * @throws FitsException            if the header of the decompressed image could not be created.
+     * @throws IllegalArgumentException if the window size is not positive.
+     *
+     * @see                             #asStreamingImageHDU()
+     *
+     * @since                           1.22
+     */
+    public ImageHDU asStreamingImageHDU(int windowTileRows) throws FitsException, IllegalArgumentException {
+        if (windowTileRows < 1) {
+            throw new IllegalArgumentException("Window must contain at least one tile row: " + windowTileRows);
+        }
+        Header header = getImageHeader();
+        return new ImageHDU(header, new StreamingDecompressedImageData(header, this, windowTileRows));
+    }
+
     /**
      * Returns an <code>ImageHDU</code>, with the specified decompressed image area. The HDU's header will be adjusted
      * as necessary to reflect the correct size and coordinate system of the image cutout.
@@ -406,9 +459,26 @@ public class CompressedImageHDU extends BinaryTableHDU {
      * @see                  #getCompressOption(Class)
      */
     public void compress() throws FitsException {
+        tileCache.clear();
         getData().compress(this);
     }
 
+    /**
+     * Returns the cache of decompressed tiles for this HDU, which is used when decompressing cutouts via
+     * {@link #getTileHDU(int[], int[])} or {@link CompressedImageTiler}. You may use the returned cache to change its
+     * capacity (in bytes), to disable caching altogether (by setting zero capacity), or to obtain hit / miss
+     * statistics.
+     * 
+     * @return the LRU cache of decompressed tiles for this HDU.
+     * 
+     * @see    DecompressedTileCache#setCapacity(long)
+     * 
+     * @since  1.22
+     */
+    public DecompressedTileCache getTileCache() {
+        return tileCache;
+    }
+
     /**
      * Specify an area within the image that will not undergo a lossy compression. This will only have affect it the
      * selected compression (including the options) is a lossy compression. All tiles touched by this region will be
@@ -447,6 +517,40 @@ public class CompressedImageHDU extends BinaryTableHDU {
         return getData().getCompressOption(clazz);
     }
 
+    /**
+     * Sets the executor service to use for (de)compressing the tiles of this image in parallel, e.g. in
+     * {@link #compress()}, {@link #asImageHDU()}, and {@link #getTileHDU(int[], int[])}. It overrides the global or
+     * thread-local setting of {@link FitsFactory#setThreadPool(ExecutorService)} for this HDU only. The executor
+     * service is not shut down by this library.
+     * 
+     * @param  pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     * 
+     * @return      itself
+     * 
+     * @since       1.22
+     * 
+     * @see         #getThreadPool()
+     * @see         FitsFactory#virtualThreadPool()
+     * @see         FitsFactory#setMaxTilesInFlight(int)
+     */
+    public CompressedImageHDU setThreadPool(ExecutorService pool) {
+        getData().setThreadPool(pool);
+        return this;
+    }
+
+    /**
+     * Returns the executor service that is used for (de)compressing the tiles of this image in parallel.
+     * 
+     * @return the executor service that was set for this HDU, or else {@link FitsFactory#threadPool()}.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setThreadPool(ExecutorService)
+     */
+    public ExecutorService getThreadPool() {
+        return getData().getThreadPool();
+    }
+
     @Override
     public CompressedImageData getData() {
         return (CompressedImageData) super.getData();
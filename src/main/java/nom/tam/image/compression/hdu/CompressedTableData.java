@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
 
 import nom.tam.fits.BinaryTable;
 import nom.tam.fits.FitsException;
@@ -74,6 +75,11 @@ public class CompressedTableData extends BinaryTable {
 
     private String[] colAlgorithm;
 
+    /**
+     * The executor service to use for processing tiles, or <code>null</code> to use the {@link FitsFactory} default.
+     */
+    private ExecutorService threadPool;
+
     /**
      * Creates a new empty compressed table data to be initialized at a later point
      */
@@ -105,12 +111,54 @@ public class CompressedTableData extends BinaryTable {
         discardVLAs();
 
         // If table has only fixed-length data, we can compress in parallel, and defragment after.
-        for (BinaryTableTile tile : tiles) {
-            tile.execute(FitsFactory.threadPool());
-        }
+        processAll(tiles);
+    }
+
+    /**
+     * Sets the executor service to use for processing the tiles of this table in parallel.
+     * 
+     * @param pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     * 
+     * @since      1.22
+     * 
+     * @see        #getThreadPool()
+     */
+    protected void setThreadPool(ExecutorService pool) {
+        threadPool = pool;
+    }
+
+    /**
+     * Returns the executor service to use for processing the tiles of this table in parallel.
+     * 
+     * @return the executor service that was set for this table, or else {@link FitsFactory#threadPool()}.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setThreadPool(ExecutorService)
+     */
+    protected ExecutorService getThreadPool() {
+        return threadPool == null ? FitsFactory.threadPool() : threadPool;
+    }
 
-        for (BinaryTableTile tile : tiles) {
-            tile.waitForResult();
+    /**
+     * Processes the tiles in parallel, and waits for all of them to complete. No more than
+     * {@link FitsFactory#getMaxTilesInFlight()} tiles are submitted for processing at any time (if set).
+     * 
+     * @param tileList the tiles to process
+     */
+    private void processAll(List<BinaryTableTile> tileList) {
+        ExecutorService pool = getThreadPool();
+        int maxInFlight = FitsFactory.getMaxTilesInFlight();
+        int nextToWait = 0;
+
+        for (int i = 0; i < tileList.size(); i++) {
+            if (maxInFlight > 0 && i - nextToWait >= maxInFlight) {
+                tileList.get(nextToWait++).waitForResult();
+            }
+            tileList.get(i).execute(pool);
+        }
+        for (int i = nextToWait; i < tileList.size(); i++) {
+            tileList.get(i).waitForResult();
         }
     }
 
@@ -226,14 +274,10 @@ public class CompressedTableData extends BinaryTable {
                         .tileIndex(tileIndex + 1)//
                         .compressionAlgorithm(getAlgorithm(column)));
                 tileList.add(tile);
-
-                tile.execute(FitsFactory.threadPool());
             }
         }
 
-        for (BinaryTableTile tile : tileList) {
-            tile.waitForResult();
-        }
+        processAll(tileList);
 
         return toTable;
     }
@@ -289,13 +333,9 @@ public class CompressedTableData extends BinaryTable {
                     .compressionAlgorithm(algorithm));
             tile.decompressToColumn(0);
             tileList.add(tile);
-
-            tile.execute(FitsFactory.threadPool());
         }
 
-        for (BinaryTableTile tile : tileList) {
-            tile.waitForResult();
-        }
+        processAll(tileList);
 
         return data.getColumn(0);
     }
@@ -1,8 +1,11 @@
 package nom.tam.image.compression.hdu;
 
+import java.util.concurrent.ExecutorService;
+
 import nom.tam.fits.BinaryTable;
 import nom.tam.fits.BinaryTableHDU;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.fits.HeaderCardException;
@@ -450,6 +453,40 @@ public class CompressedTableHDU extends BinaryTableHDU {
         return header;
     }
 
+    /**
+     * Sets the executor service to use for (de)compressing the tiles of this table in parallel, e.g. in
+     * {@link #compress()}, {@link #asBinaryTableHDU()}, and {@link #getColumnData(int)}. It overrides the global or
+     * thread-local setting of {@link FitsFactory#setThreadPool(ExecutorService)} for this HDU only. The executor
+     * service is not shut down by this library.
+     * 
+     * @param  pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     * 
+     * @return      itself
+     * 
+     * @since       1.22
+     * 
+     * @see         #getThreadPool()
+     * @see         FitsFactory#virtualThreadPool()
+     * @see         FitsFactory#setMaxTilesInFlight(int)
+     */
+    public CompressedTableHDU setThreadPool(ExecutorService pool) {
+        getData().setThreadPool(pool);
+        return this;
+    }
+
+    /**
+     * Returns the executor service that is used for (de)compressing the tiles of this table in parallel.
+     * 
+     * @return the executor service that was set for this HDU, or else {@link FitsFactory#threadPool()}.
+     * 
+     * @since  1.22
+     * 
+     * @see    #setThreadPool(ExecutorService)
+     */
+    public ExecutorService getThreadPool() {
+        return getData().getThreadPool();
+    }
+
     @Override
     public CompressedTableData getData() {
         return (CompressedTableData) super.getData();
@@ -0,0 +1,148 @@
+package nom.tam.image.compression.hdu;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+
+import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsUtil;
+import nom.tam.fits.Header;
+import nom.tam.fits.ImageData;
+import nom.tam.fits.header.Compression;
+import nom.tam.image.compression.CompressedImageTiler;
+import nom.tam.util.ArrayDataOutput;
+
+/**
+ * Image data that is decompressed from a tile-compressed image HDU on the fly, as it is being written. The tiles are
+ * decompressed in parallel, a window of tile rows at a time, and the pixels are written in row order, so only the
+ * tiles within the window (and those retained by the HDU's {@link CompressedImageHDU#getTileCache() tile cache}) are
+ * resident in memory at any time, regardless of the size of the image.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ *
+ * @see    CompressedImageHDU#asStreamingImageHDU(int)
+ */
+final class StreamingDecompressedImageData extends ImageData {
+
+    private final CompressedImageHDU hdu;
+
+    private final int windowTileRows;
+
+    /**
+     * Creates new image data that will be decompressed on the fly from a compressed image HDU when written.
+     *
+     * @param  header         the header of the decompressed image
+     * @param  hdu            the compressed image HDU
+     * @param  windowTileRows the number of tile rows to decompress in parallel at a time
+     *
+     * @throws FitsException  if the header does not describe a valid image.
+     */
+    StreamingDecompressedImageData(Header header, CompressedImageHDU hdu, int windowTileRows) throws FitsException {
+        super(header);
+        this.hdu = hdu;
+        this.windowTileRows = windowTileRows;
+    }
+
+    @Override
+    public void write(ArrayDataOutput o) throws FitsException {
+        if (getTrueSize() == 0) {
+            return;
+        }
+
+        try {
+            final int[] dims = hdu.getImageAxes();
+            final int n = dims.length;
+            final int[] tiles = getTileDimensions(dims);
+
+            // The window spans all faster axes fully, so it is contiguous in the output, and is aligned to tiles along
+            // the slowest axis it does not span fully.
+            int a = 0;
+            while (a < n - 2 && tiles[a] == 1) {
+                a++;
+            }
+
+            final int step = windowTileRows * tiles[a];
+            final int[] corners = new int[n];
+            final int[] lengths = new int[n];
+            for (int i = 0; i < n; i++) {
+                lengths[i] = i > a ? dims[i] : 1;
+            }
+
+            int planes = 1;
+            for (int i = 0; i < a; i++) {
+                planes *= dims[i];
+            }
+
+            final CompressedImageTiler tiler = new CompressedImageTiler(hdu);
+
+            for (int p = 0; p < planes; p++) {
+                for (int i = a, k = p; --i >= 0;) {
+                    corners[i] = k % dims[i];
+                    k /= dims[i];
+                }
+
+                for (int y = 0; y < dims[a]; y += step) {
+                    corners[a] = y;
+                    lengths[a] = Math.min(step, dims[a] - y);
+                    tiler.getTile(o, corners, lengths);
+                }
+            }
+
+            o.write(new byte[FitsUtil.padding(getTrueSize())]);
+            o.flush();
+        } catch (IOException e) {
+            throw new FitsException("IO Error on streaming decompressed image write: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the tile dimensions of the compressed image, in Java index order.
+     *
+     * @param  dims the image dimensions, in Java index order.
+     *
+     * @return      the tile dimensions along each image axis.
+     */
+    private int[] getTileDimensions(int[] dims) {
+        final Header h = hdu.getHeader();
+        final int n = dims.length;
+        final int[] tiles = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int size = h.getIntValue(Compression.ZTILEn.n(i + 1), i == 0 ? dims[n - 1] : 1);
+            tiles[n - 1 - i] = Math.min(dims[n - 1 - i], size);
+        }
+
+        return tiles;
+    }
+}
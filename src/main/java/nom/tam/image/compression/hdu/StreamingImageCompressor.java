@@ -0,0 +1,658 @@
+package nom.tam.image.compression.hdu;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+import nom.tam.fits.BinaryTable;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.FitsUtil;
+import nom.tam.fits.Header;
+import nom.tam.fits.HeaderCard;
+import nom.tam.fits.ImageData;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.compression.algorithm.quant.QuantizeOption;
+import nom.tam.fits.header.Checksum;
+import nom.tam.fits.header.Compression;
+import nom.tam.fits.header.Standard;
+import nom.tam.image.ImageTiler;
+import nom.tam.util.ArrayDataInput;
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ArrayFuncs;
+import nom.tam.util.Cursor;
+import nom.tam.util.type.ElementType;
+
+/**
+ * Tile compresses images that may be much larger than the available memory, writing the compressed HDU directly to an
+ * output. Unlike {@link CompressedImageHDU#fromImageHDU(ImageHDU, int...)}, which requires the entire uncompressed
+ * image in memory, this class pulls the image in blocks of whole tile rows, either from an {@link ImageTiler} (such as
+ * that of a deferred {@link ImageHDU} in a file) or sequentially from an {@link ArrayDataInput}. The tiles of each
+ * block are compressed in parallel, and the compressed tiles are spooled to a temporary file, until the complete
+ * compressed binary table (header, main table, and heap) can be written to the output. As such, the memory required
+ * is bounded by the block size (see {@link #setBlockSize(long)}), and the overhead for the tile descriptors, regardless
+ * of the size of the image.
+ * <p>
+ * For example, to Rice compress a large image from one file into another:
+ * </p>
+ *
+ * <pre>
+ *   try (Fits in = new Fits("huge.fits");
+ *           FitsOutputStream out = new FitsOutputStream(new FileOutputStream("huge.fits.fz"))) {
+ *       ImageHDU im = (ImageHDU) in.getHDU(0);
+ *       new NullDataHDU().write(out);
+ *       new StreamingImageCompressor(im.getHeader())
+ *               .setTileSize(100, 100)
+ *               .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1)
+ *               .compress(im.getTiler(), out);
+ *   }
+ * </pre>
+ * <p>
+ * The tiles are compressed identically to how {@link CompressedImageHDU#compress()} would compress them (including
+ * the dithering of quantized tiles), and so the resulting HDU is the same as what one would get from compressing the
+ * image in memory, except that variable-length columns use 64-bit descriptors when the heap exceeds 2 GB.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ *
+ * @see    CompressedImageHDU
+ */
+public class StreamingImageCompressor {
+
+    /** The default size of the blocks in which the image is processed, in bytes (32 MB) */
+    public static final long DEFAULT_BLOCK_SIZE = 32L * 1024L * 1024L;
+
+    /** The largest heap offset that can be stored in a 32-bit (P type) array descriptor */
+    private static final long MAX_P_HEAP = Integer.MAX_VALUE;
+
+    /** Column-specific table keywords that we (re)create for the compressed table */
+    private static final Pattern COLUMN_KEY = Pattern.compile("T(TYPE|FORM|DIM|NULL|SCAL|ZERO|DISP|UNIT)[0-9]+");
+
+    /** Buffer size for copying the spooled heap to the output */
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    /**
+     * Configures the compression options of the compressed image HDU for each block. It is called once for every
+     * block, after the compression and quantization algorithms have been set, and before the block is compressed, so
+     * it should apply the same configuration every time.
+     *
+     * @author Attila Kovacs
+     *
+     * @since  1.22
+     */
+    @FunctionalInterface
+    public interface Configurator {
+        /**
+         * Configures the compression options for a block of the image.
+         *
+         * @param  hdu           the compressed HDU of an image block, whose options may be configured, e.g. via
+         *                           {@link CompressedImageHDU#getCompressOption(Class)}, or
+         *                           {@link CompressedImageHDU#preserveNulls(String)}.
+         *
+         * @throws FitsException if the options could not be configured.
+         */
+        void configure(CompressedImageHDU hdu) throws FitsException;
+    }
+
+    private final Header imageHeader;
+
+    /** Image dimensions in Java index order */
+    private final int[] dims;
+
+    private final ElementType<?> type;
+
+    /** Requested tile size in x, y order */
+    private int[] tileAxis = new int[0];
+
+    private String compressAlgorithm;
+
+    private String quantAlgorithm;
+
+    private Configurator configurator;
+
+    private ExecutorService threadPool;
+
+    private long blockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Creates a new streaming compressor for the image described by the specified header.
+     *
+     * @param  imageHeader   the header of the image to compress. Its keywords (other than the essential ones) are
+     *                           carried over to the compressed HDU.
+     *
+     * @throws FitsException if the header does not describe a non-empty image.
+     */
+    public StreamingImageCompressor(Header imageHeader) throws FitsException {
+        this.imageHeader = imageHeader;
+
+        int naxis = imageHeader.getIntValue(Standard.NAXIS, 0);
+        if (naxis < 1) {
+            throw new FitsException("Not an image: NAXIS = " + naxis);
+        }
+
+        dims = new int[naxis];
+        for (int i = 0; i < naxis; i++) {
+            dims[naxis - 1 - i] = imageHeader.getIntValue(Standard.NAXISn.n(i + 1), 0);
+            if (dims[naxis - 1 - i] <= 0) {
+                throw new FitsException("Invalid or missing NAXIS" + (i + 1));
+            }
+        }
+
+        type = ElementType.forBitpix(imageHeader.getIntValue(Standard.BITPIX, 0));
+        if (type == null) {
+            throw new FitsException("Invalid BITPIX: " + imageHeader.getIntValue(Standard.BITPIX, 0));
+        }
+    }
+
+    /**
+     * Sets the tile size to use. Tile sizes that are not specified, or are not positive, default to tiling by rows. See
+     * {@link CompressedImageHDU#fromImageHDU(ImageHDU, int...)} for details.
+     *
+     * @param  axes the requested tile sizes in pixels in x, y order (i.e. opposite of the Java array indexing
+     *                  order!). Only the first two may differ from 1.
+     *
+     * @return      itself
+     */
+    public StreamingImageCompressor setTileSize(int... axes) {
+        tileAxis = Arrays.copyOf(axes, axes.length);
+        return this;
+    }
+
+    /**
+     * Sets the compression algorithm to use.
+     *
+     * @param  algo the compression algorithm, such as {@link Compression#ZCMPTYPE_RICE_1}.
+     *
+     * @return      itself
+     *
+     * @see         CompressedImageHDU#setCompressAlgorithm(String)
+     */
+    public StreamingImageCompressor setCompressAlgorithm(String algo) {
+        compressAlgorithm = algo;
+        return this;
+    }
+
+    /**
+     * Sets the quantization algorithm to use for floating-point images.
+     *
+     * @param  algo the quantization algorithm, such as {@link Compression#ZQUANTIZ_SUBTRACTIVE_DITHER_1}, or
+     *                  <code>null</code> to not quantize.
+     *
+     * @return      itself
+     *
+     * @see         CompressedImageHDU#setQuantAlgorithm(String)
+     */
+    public StreamingImageCompressor setQuantAlgorithm(String algo) {
+        quantAlgorithm = algo;
+        return this;
+    }
+
+    /**
+     * Sets a configurator for specific compression options, such as the quantization level, or for preserving nulls.
+     *
+     * @param  c the configurator for compression options, or <code>null</code> to use default options.
+     *
+     * @return   itself
+     */
+    public StreamingImageCompressor setConfigurator(Configurator c) {
+        configurator = c;
+        return this;
+    }
+
+    /**
+     * Sets the executor service to use for compressing the tiles of each block in parallel.
+     *
+     * @param  pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     *
+     * @return      itself
+     *
+     * @see         CompressedImageHDU#setThreadPool(ExecutorService)
+     */
+    public StreamingImageCompressor setThreadPool(ExecutorService pool) {
+        threadPool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the approximate size of the image blocks that are read and compressed at once. Blocks always contain at
+     * least one full row of tiles. Larger blocks may provide more parallelism, while smaller blocks use less memory.
+     * The memory used for compression is typically 3 to 4 times the block size.
+     *
+     * @param  bytes                    the uncompressed size of image blocks in bytes.
+     *
+     * @return                          itself
+     *
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public StreamingImageCompressor setBlockSize(long bytes) throws IllegalArgumentException {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + bytes);
+        }
+        blockSize = bytes;
+        return this;
+    }
+
+    /**
+     * Compresses the image, read from an image tiler, and writes the compressed HDU to the output.
+     *
+     * @param  tiler         the tiler providing the image data, such as from {@link ImageHDU#getTiler()}.
+     * @param  out           the output, positioned where the compressed HDU is to be written (after the primary
+     *                           HDU).
+     *
+     * @throws FitsException if the image could not be compressed.
+     * @throws IOException   if there was an IO error reading the image or writing the compressed HDU.
+     */
+    public void compress(ImageTiler tiler, ArrayDataOutput out) throws FitsException, IOException {
+        compress(tiler, null, out);
+    }
+
+    /**
+     * Compresses the image, read sequentially from an input, and writes the compressed HDU to the output.
+     *
+     * @param  in            the input, positioned at the start of the image data (after the image header).
+     * @param  out           the output, positioned where the compressed HDU is to be written (after the primary
+     *                           HDU).
+     *
+     * @throws FitsException if the image could not be compressed.
+     * @throws IOException   if there was an IO error reading the image or writing the compressed HDU.
+     */
+    public void compress(ArrayDataInput in, ArrayDataOutput out) throws FitsException, IOException {
+        compress(null, in, out);
+    }
+
+    private void compress(ImageTiler tiler, ArrayDataInput in, ArrayDataOutput out) throws FitsException, IOException {
+        final int n = dims.length;
+        final int[] tiles = getTileSize();
+
+        final int width = dims[n - 1];
+        final int height = n > 1 ? dims[n - 2] : 1;
+        final int tileWidth = tiles[n - 1];
+        final int tileHeight = n > 1 ? tiles[n - 2] : 1;
+        final int nx = (width + tileWidth - 1) / tileWidth;
+        final int ny = (height + tileHeight - 1) / tileHeight;
+
+        int planes = 1;
+        for (int i = 0; i < n - 2; i++) {
+            planes *= dims[i];
+        }
+
+        long tileRowBytes = (long) tileHeight * width * type.size();
+        int tileRowsPerBlock = (int) Math.max(1, Math.min(ny, blockSize / tileRowBytes));
+
+        TileSpool spool = new TileSpool((long) planes * ny * nx);
+
+        try {
+            for (int p = 0; p < planes; p++) {
+                for (int r = 0; r < ny; r += tileRowsPerBlock) {
+                    int y = r * tileHeight;
+                    int rows = Math.min(tileRowsPerBlock * tileHeight, height - y);
+                    Object data = readBlock(tiler, in, p, y, rows, width);
+                    spool.add(prepareBlock(data, rows), ((long) p * ny + r) * nx);
+                }
+            }
+
+            spool.write(out);
+        } finally {
+            spool.delete();
+        }
+    }
+
+    /**
+     * Returns the actual tile size to use, in Java index order.
+     *
+     * @return the tile size along each image dimension.
+     */
+    private int[] getTileSize() {
+        int n = dims.length;
+        int[] tiles = new int[n];
+        Arrays.fill(tiles, 1);
+        tiles[n - 1] = dims[n - 1];
+
+        for (int i = Math.min(n, tileAxis.length); --i >= 0;) {
+            if (tileAxis[i] > 0) {
+                tiles[n - 1 - i] = Math.min(tileAxis[i], dims[n - 1 - i]);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Reads a block of full image rows.
+     *
+     * @param  tiler     the tiler to read from, or <code>null</code> to read from the input instead.
+     * @param  in        the input to read from sequentially, if the tiler is <code>null</code>.
+     * @param  plane     the serial index of the image plane (for images with more than 2 dimensions).
+     * @param  y         the index of the first row in the plane
+     * @param  rows      the number of rows to read
+     * @param  width     the number of pixels in a row
+     *
+     * @return           the image block, as an array with the same dimensionality as the image.
+     *
+     * @throws IOException if there was an IO error, or if the input ended before the block could be read.
+     */
+    private Object readBlock(ImageTiler tiler, ArrayDataInput in, int plane, int y, int rows, int width)
+            throws IOException {
+        final int n = dims.length;
+        Object flat;
+
+        if (tiler != null) {
+            int[] corners = new int[n];
+            int[] lengths = new int[n];
+            Arrays.fill(lengths, 1);
+
+            for (int i = n - 2, p = plane; --i >= 0;) {
+                corners[i] = p % dims[i];
+                p /= dims[i];
+            }
+            if (n > 1) {
+                corners[n - 2] = y;
+                lengths[n - 2] = rows;
+            }
+            lengths[n - 1] = width;
+
+            flat = tiler.getTile(corners, lengths);
+        } else {
+            flat = Array.newInstance(type.primitiveClass(), rows * width);
+            in.readImage(flat);
+        }
+
+        int[] shape = new int[n];
+        Arrays.fill(shape, 1);
+        if (n > 1) {
+            shape[n - 2] = rows;
+        }
+        shape[n - 1] = width;
+
+        return ArrayFuncs.curl(flat, shape);
+    }
+
+    /**
+     * Prepares the compressed HDU for a block of image rows, configured for compression.
+     *
+     * @param  data          the image block
+     * @param  rows          the number of rows in the block
+     *
+     * @return               the configured (but not yet compressed) HDU for the image block
+     *
+     * @throws FitsException if the block could not be prepared for compression.
+     */
+    private CompressedImageHDU prepareBlock(Object data, int rows) throws FitsException {
+        ImageHDU image = new ImageData(data).toHDU();
+
+        // Replace the generated header with a copy of the image header, adjusted for the block
+        Header h = image.getHeader();
+        for (Cursor<String, HeaderCard> generated = h.iterator(); generated.hasNext();) {
+            generated.next();
+            generated.remove();
+        }
+        Cursor<String, HeaderCard> c = imageHeader.iterator();
+        while (c.hasNext()) {
+            h.addLine(c.next().copy());
+        }
+        h.deleteKey(Checksum.CHECKSUM);
+        h.deleteKey(Checksum.DATASUM);
+        for (int i = 2; i < dims.length; i++) {
+            h.addValue(Standard.NAXISn.n(i + 1), 1);
+        }
+        if (dims.length > 1) {
+            h.addValue(Standard.NAXISn.n(2), rows);
+        }
+
+        CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU(image, tileAxis)
+                .setCompressAlgorithm(compressAlgorithm).setQuantAlgorithm(quantAlgorithm);
+
+        if (threadPool != null) {
+            hdu.setThreadPool(threadPool);
+        }
+        if (configurator != null) {
+            configurator.configure(hdu);
+        }
+
+        return hdu;
+    }
+
+    /**
+     * Collects the compressed tiles of all blocks, spooling variable-length data (i.e. the compressed bytes) to a
+     * temporary file, until the complete compressed table can be written.
+     */
+    private final class TileSpool {
+        private final long nTiles;
+
+        private final List<String> names = new ArrayList<>();
+
+        /** Per-tile values of fixed-size columns, or the heap descriptors (length, offset) of variable-sized ones */
+        private final List<Object> columns = new ArrayList<>();
+
+        private final List<Boolean> isHeapColumn = new ArrayList<>();
+
+        /** The TFORM values of fixed-size columns */
+        private final List<String> forms = new ArrayList<>();
+
+        private Header template;
+
+        private File heapFile;
+
+        private OutputStream heap;
+
+        private long heapSize;
+
+        private TileSpool(long nTiles) throws FitsException {
+            if (nTiles > Integer.MAX_VALUE) {
+                throw new FitsException("Too many tiles: " + nTiles);
+            }
+            this.nTiles = nTiles;
+        }
+
+        private int getColumn(String name, String form, Object values, boolean isHeap) {
+            int col = names.indexOf(name);
+            if (col < 0) {
+                col = names.size();
+                names.add(name);
+                forms.add(form);
+                isHeapColumn.add(isHeap);
+                columns.add(isHeap ? new long[2 * (int) nTiles] :
+                        Array.newInstance(values.getClass().getComponentType(), (int) nTiles));
+            }
+            return col;
+        }
+
+        private void add(CompressedImageHDU block, long firstTile) throws FitsException, IOException {
+            QuantizeOption q = block.getCompressOption(QuantizeOption.class);
+            if (q != null) {
+                // Dither each tile with the same random sequence as if it was compressed with the full image.
+                q.setSeed(q.getSeed() + firstTile);
+            }
+
+            block.compress();
+
+            if (template == null) {
+                template = block.getHeader();
+            }
+
+            BinaryTable table = block.getData();
+            Header h = block.getHeader();
+            int first = (int) firstTile;
+
+            for (int c = 0; c < table.getNCols(); c++) {
+                String name = h.getStringValue(Standard.TTYPEn.n(c + 1)).trim();
+                Object values = table.getColumn(c);
+                boolean isHeap = table.getDescriptor(c).isVariableSize();
+                int col = getColumn(name, h.getStringValue(Standard.TFORMn.n(c + 1)).trim(), values, isHeap);
+
+                if (isHeap) {
+                    long[] desc = (long[]) columns.get(col);
+                    Object[] tiles = (Object[]) values;
+                    for (int i = 0; i < tiles.length; i++) {
+                        byte[] b = (byte[]) tiles[i];
+                        desc[2 * (first + i)] = b.length;
+                        desc[2 * (first + i) + 1] = heapSize;
+                        spool(b);
+                    }
+                } else {
+                    System.arraycopy(values, 0, columns.get(col), first, Array.getLength(values));
+                }
+            }
+        }
+
+        private void spool(byte[] b) throws IOException {
+            if (b.length == 0) {
+                return;
+            }
+            if (heap == null) {
+                heapFile = File.createTempFile("nom-tam-fits-heap", ".tmp");
+                heap = new BufferedOutputStream(new FileOutputStream(heapFile), COPY_BUFFER_SIZE);
+            }
+            heap.write(b);
+            heapSize += b.length;
+        }
+
+        private void write(ArrayDataOutput out) throws FitsException, IOException {
+            if (heap != null) {
+                heap.close();
+            }
+
+            boolean useLongDescriptors = heapSize > MAX_P_HEAP;
+            int rowSize = 0;
+            for (int c = 0; c < names.size(); c++) {
+                rowSize += isHeapColumn.get(c) ? (useLongDescriptors ? 2 * Long.BYTES : 2 * Integer.BYTES) :
+                        ElementType.forClass(columns.get(c).getClass().getComponentType()).size();
+            }
+
+            getHeader(rowSize, useLongDescriptors).write(out);
+
+            for (int i = 0; i < nTiles; i++) {
+                for (int c = 0; c < names.size(); c++) {
+                    Object values = columns.get(c);
+                    if (!isHeapColumn.get(c)) {
+                        writeElement(out, values, i);
+                    } else if (useLongDescriptors) {
+                        out.writeLong(((long[]) values)[2 * i]);
+                        out.writeLong(((long[]) values)[2 * i + 1]);
+                    } else {
+                        out.writeInt((int) ((long[]) values)[2 * i]);
+                        out.writeInt((int) ((long[]) values)[2 * i + 1]);
+                    }
+                }
+            }
+
+            if (heapFile != null) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(heapFile), COPY_BUFFER_SIZE)) {
+                    byte[] buf = new byte[COPY_BUFFER_SIZE];
+                    for (int got = in.read(buf); got > 0; got = in.read(buf)) {
+                        out.write(buf, 0, got);
+                    }
+                }
+            }
+
+            out.write(new byte[FitsUtil.padding(nTiles * rowSize + heapSize)]);
+            out.flush();
+        }
+
+        private void writeElement(ArrayDataOutput out, Object values, int i) throws IOException {
+            if (values instanceof double[]) {
+                out.writeDouble(((double[]) values)[i]);
+            } else if (values instanceof float[]) {
+                out.writeFloat(((float[]) values)[i]);
+            } else if (values instanceof long[]) {
+                out.writeLong(((long[]) values)[i]);
+            } else if (values instanceof int[]) {
+                out.writeInt(((int[]) values)[i]);
+            } else if (values instanceof short[]) {
+                out.writeShort(((short[]) values)[i]);
+            } else {
+                out.writeByte(((byte[]) values)[i]);
+            }
+        }
+
+        private Header getHeader(int rowSize, boolean useLongDescriptors) throws FitsException {
+            Header h = new Header();
+            h.addValue(Standard.XTENSION, Standard.XTENSION_BINTABLE);
+            h.addValue(Standard.BITPIX, Byte.SIZE);
+            h.addValue(Standard.NAXIS, 2);
+            h.addValue(Standard.NAXISn.n(1), rowSize);
+            h.addValue(Standard.NAXISn.n(2), (int) nTiles);
+            h.addValue(Standard.PCOUNT, heapSize);
+            h.addValue(Standard.GCOUNT, 1);
+            h.addValue(Standard.TFIELDS, names.size());
+
+            for (int c = 0; c < names.size(); c++) {
+                h.addValue(Standard.TTYPEn.n(c + 1), names.get(c));
+                String form = forms.get(c);
+                if (isHeapColumn.get(c)) {
+                    form = useLongDescriptors ? "1QB" : "1PB";
+                }
+                h.addValue(Standard.TFORMn.n(c + 1), form);
+            }
+
+            Cursor<String, HeaderCard> c = template.iterator();
+            while (c.hasNext()) {
+                HeaderCard card = c.next();
+                String key = card.getKey();
+                if (!h.containsKey(key) && !COLUMN_KEY.matcher(key).matches()
+                        && !key.equals(Standard.THEAP.key())) {
+                    h.addLine(card.copy());
+                }
+            }
+
+            // The full image, rather than the last block
+            for (int i = 0; i < dims.length; i++) {
+                h.addValue(Compression.ZNAXISn.n(i + 1), dims[dims.length - 1 - i]);
+            }
+
+            return h;
+        }
+
+        private void delete() throws IOException {
+            if (heap != null) {
+                heap.close();
+            }
+            if (heapFile != null && !heapFile.delete()) {
+                heapFile.deleteOnExit();
+            }
+        }
+    }
+}
@@ -108,6 +108,8 @@ public class TiledImageCompressionOperation extends AbstractTiledImageOperation<
 
     private ImageNullPixelMask imageNullPixelMask;
 
+    private ExecutorService threadPool;
+
     private static void addColumnToTable(BinaryTableHDU hdu, Object column, String columnName) throws FitsException {
         if (column != null) {
             hdu.setColumnName(hdu.addColumn(column) - 1, columnName, null);
@@ -395,14 +397,35 @@ public class TiledImageCompressionOperation extends AbstractTiledImageOperation<
         return null;
     }
 
+    /**
+     * Sets the executor service to use for processing the tiles in parallel.
+     * 
+     * @param  pool the executor service to use, or <code>null</code> to use {@link FitsFactory#threadPool()}.
+     * 
+     * @return      itself
+     * 
+     * @since       1.22
+     */
+    public TiledImageCompressionOperation setThreadPool(ExecutorService pool) {
+        threadPool = pool;
+        return this;
+    }
+
     private void processAllTiles() {
         compressOptions();
-        ExecutorService threadPool = FitsFactory.threadPool();
-        for (TileCompressionOperation tileOperation : getTileOperations()) {
-            tileOperation.execute(threadPool);
+        ExecutorService pool = threadPool == null ? FitsFactory.threadPool() : threadPool;
+        TileCompressionOperation[] operations = getTileOperations();
+        int maxInFlight = FitsFactory.getMaxTilesInFlight();
+        int nextToWait = 0;
+
+        for (int i = 0; i < operations.length; i++) {
+            if (maxInFlight > 0 && i - nextToWait >= maxInFlight) {
+                operations[nextToWait++].waitForResult();
+            }
+            operations[i].execute(pool);
         }
-        for (TileCompressionOperation tileOperation : getTileOperations()) {
-            tileOperation.waitForResult();
+        for (int i = nextToWait; i < operations.length; i++) {
+            operations[i].waitForResult();
         }
     }
 
@@ -32,8 +32,10 @@ package nom.tam.image.compression.tile.mask;
  */
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
+import nom.tam.image.compression.TileBufferPool;
 import nom.tam.image.tile.operation.buffer.TileBuffer;
 
 /**
@@ -155,7 +157,8 @@ public class AbstractNullPixelMask {
     }
 
     /**
-     * Creates an internal buffer for holding the mask data, for the specified number of points.
+     * Creates an internal buffer for holding the mask data, for the specified number of points. The buffer is
+     * obtained from the {@link TileBufferPool}, and is cleared to all zeroes (i.e. no nulls) before it is returned.
      * 
      * @param  remaining the number of points the mask should accomodate.
      * 
@@ -163,7 +166,8 @@ public class AbstractNullPixelMask {
      */
     protected ByteBuffer initializedMask(int remaining) {
         if (mask == null) {
-            mask = ByteBuffer.allocate(remaining);
+            mask = TileBufferPool.acquire(remaining, false);
+            Arrays.fill(mask.array(), mask.arrayOffset(), mask.arrayOffset() + remaining, (byte) 0);
         }
         return mask;
     }
@@ -39,6 +39,7 @@ import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
+import nom.tam.image.compression.TileBufferPool;
 import nom.tam.image.tile.operation.buffer.TileBuffer;
 import nom.tam.util.type.ElementType;
 
@@ -90,11 +91,17 @@ public class NullPixelMaskPreserver extends AbstractNullPixelMask {
             preserveNullBytes();
         }
         if (getMask() != null) {
+            ByteBuffer mask = getMask();
             ByteBuffer compressed = ByteBuffer.allocate(getTileBuffer().getPixelSize());
-            if (!getCompressorControl().compress(getMask(), compressed, getCompressorControl().option())) {
-                throw new IllegalStateException("could not compress the null pixel mask");
+            try {
+                if (!getCompressorControl().compress(mask, compressed, getCompressorControl().option())) {
+                    throw new IllegalStateException("could not compress the null pixel mask");
+                }
+                setMask(compressed);
+            } finally {
+                // The uncompressed mask came from the pool (see initializedMask()).
+                TileBufferPool.release(mask);
             }
-            setMask(compressed);
         }
     }
 
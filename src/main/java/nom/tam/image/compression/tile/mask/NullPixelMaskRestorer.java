@@ -39,6 +39,7 @@ import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
 
 import nom.tam.fits.compression.algorithm.api.ICompressorControl;
+import nom.tam.image.compression.TileBufferPool;
 import nom.tam.image.tile.operation.buffer.TileBuffer;
 import nom.tam.util.type.ElementType;
 
@@ -77,21 +78,29 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
     public void restoreNulls() {
         // if the mask is not present the tile contains no null pixels.
         if (getMask() != null) {
-            ByteBuffer decompressed = ByteBuffer.allocate(getTileBuffer().getPixelSize());
-            getCompressorControl().decompress(getMask(), decompressed, getCompressorControl().option());
-            setMask(decompressed);
-            if (getTileBuffer().getBaseType().is(ElementType.DOUBLE)) {
-                restoreNullDoubles();
-            } else if (getTileBuffer().getBaseType().is(ElementType.FLOAT)) {
-                restoreNullFloats();
-            } else if (getTileBuffer().getBaseType().is(ElementType.LONG)) {
-                restoreNullLongs();
-            } else if (getTileBuffer().getBaseType().is(ElementType.INT)) {
-                restoreNullInts();
-            } else if (getTileBuffer().getBaseType().is(ElementType.SHORT)) {
-                restoreNullShorts();
-            } else if (getTileBuffer().getBaseType().is(ElementType.BYTE)) {
-                restoreNullBytes();
+            ByteBuffer compressed = getMask();
+            ByteBuffer decompressed = TileBufferPool.acquire(getTileBuffer().getPixelSize(), false);
+            try {
+                getCompressorControl().decompress(compressed, decompressed, getCompressorControl().option());
+                setMask(decompressed);
+                if (getTileBuffer().getBaseType().is(ElementType.DOUBLE)) {
+                    restoreNullDoubles();
+                } else if (getTileBuffer().getBaseType().is(ElementType.FLOAT)) {
+                    restoreNullFloats();
+                } else if (getTileBuffer().getBaseType().is(ElementType.LONG)) {
+                    restoreNullLongs();
+                } else if (getTileBuffer().getBaseType().is(ElementType.INT)) {
+                    restoreNullInts();
+                } else if (getTileBuffer().getBaseType().is(ElementType.SHORT)) {
+                    restoreNullShorts();
+                } else if (getTileBuffer().getBaseType().is(ElementType.BYTE)) {
+                    restoreNullBytes();
+                }
+            } finally {
+                // The tile is complete: keep the compressed mask, and return the scratch buffer to the pool.
+                compressed.rewind();
+                setMask(compressed);
+                TileBufferPool.release(decompressed);
             }
         }
     }
@@ -100,7 +109,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
         ByteBuffer buffer = (ByteBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
         byte nullValue = (byte) getNullValue();
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, nullValue);
             }
@@ -110,7 +119,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
     private void restoreNullDoubles() {
         DoubleBuffer buffer = (DoubleBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, Double.NaN);
             }
@@ -120,7 +129,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
     private void restoreNullFloats() {
         FloatBuffer buffer = (FloatBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, Float.NaN);
             }
@@ -131,7 +140,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
         IntBuffer buffer = (IntBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
         int nullValue = (int) getNullValue();
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, nullValue);
             }
@@ -142,7 +151,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
         LongBuffer buffer = (LongBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
         long nullValue = getNullValue();
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, nullValue);
             }
@@ -153,7 +162,7 @@ public class NullPixelMaskRestorer extends AbstractNullPixelMask {
         ShortBuffer buffer = (ShortBuffer) getTileBuffer().getBuffer();
         ByteBuffer nullMask = initializedMask(buffer.remaining());
         short nullValue = (short) getNullValue();
-        for (int index = 0; index < nullMask.capacity(); index++) {
+        for (int index = 0; index < nullMask.limit(); index++) {
             if (nullMask.get(index) == NULL_INDICATOR) {
                 buffer.put(index, nullValue);
             }
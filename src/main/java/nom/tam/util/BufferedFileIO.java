@@ -68,8 +68,11 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
     /** The last legal element in the buffer */
     private int end;
 
-    /** Whether the buffer has been modified locally, so it needs to be written back to stream before discarding. */
-    private boolean isModified;
+    /**
+     * Whether the buffer has been modified locally, so it needs to be written back to stream before discarding. It is
+     * volatile, so positional reads can check it without locking.
+     */
+    private volatile boolean isModified;
 
     /** Whether the current position is beyond the current ennd-of-file */
     private boolean writeAhead;
@@ -426,6 +429,75 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
         return got;
     }
 
+    /**
+     * Reads up to the specified number of bytes from an absolute file position, without changing (or relying on) the
+     * current file pointer. As long as there are no pending buffered writes, and the underlying file provides a
+     * {@link FileChannel}, the read bypasses the buffer (and its lock) entirely, so multiple threads may read
+     * concurrently from the same file. Otherwise, it falls back to a synchronized read through the buffer, restoring
+     * the file pointer afterwards.
+     *
+     * @param  pos         the absolute file position of the first byte to read
+     * @param  b           the buffer
+     * @param  from        the buffer index at which to start reading data
+     * @param  len         the maximum number of bytes to read.
+     *
+     * @return             the number of bytes actually read, or -1 if the position is at or beyond the end of file.
+     *
+     * @throws IOException if there was an IO error while reading.
+     *
+     * @see                #readFully(long, byte[], int, int)
+     * @see                RandomAccessFileIO#read(long, byte[], int, int)
+     *
+     * @since              1.22
+     */
+    public final int read(long pos, byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+
+        if (!isModified && file.getChannel() != null) {
+            return file.read(pos, b, from, len);
+        }
+
+        synchronized (this) {
+            long p = getFilePointer();
+            try {
+                seek(pos);
+                return read(b, from, len);
+            } finally {
+                seek(p);
+            }
+        }
+    }
+
+    /**
+     * Reads the requested number of bytes from an absolute file position, without changing (or relying on) the
+     * current file pointer. If not enough bytes are available in the file, an {@link EOFException} will be thrown.
+     *
+     * @param  pos          the absolute file position of the first byte to read
+     * @param  b            the buffer
+     * @param  off          the buffer index at which to start reading data
+     * @param  len          the total number of bytes to read.
+     *
+     * @throws EOFException if the end of file was reached before the requested number of bytes could be read.
+     * @throws IOException  if there was an IO error before the requested number of bytes could all be read.
+     *
+     * @see                 #read(long, byte[], int, int)
+     *
+     * @since               1.22
+     */
+    public final void readFully(long pos, byte[] b, int off, int len) throws EOFException, IOException {
+        while (len > 0) {
+            int n = read(pos, b, off, len);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
     /**
      * Reads bytes to completely fill the supplied buffer. If not enough bytes are avaialable in the file to fully fill
      * the buffer, an {@link EOFException} will be thrown.
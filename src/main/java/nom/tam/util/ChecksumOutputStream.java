@@ -0,0 +1,270 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A FITS output stream that accumulates the FITS 1's complement checksum of all bytes as they are written. The sums
+ * are kept exactly as the bytes pass through the stream, so checksums can be obtained for any segment of the output
+ * (e.g. for the header or data of an HDU) without re-reading or re-serializing the data, and without extra threads.
+ * It is the output counterpart to {@link FitsInputStream#nextChecksum()}.
+ * <p>
+ * When the stream writes to a {@link FileOutputStream}, it also supports rewriting an already written segment of the
+ * file in place via {@link #rewrite(long, byte[])}. HDUs written to such a stream will have their <code>DATASUM</code>
+ * and <code>CHECKSUM</code> keywords filled in automatically, by rewriting only the header block once the data has been
+ * written (see {@link nom.tam.fits.BasicHDU#write(ArrayDataOutput)}).
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.22
+ *
+ * @see    FitsInputStream#nextChecksum()
+ * @see    nom.tam.fits.utilities.FitsCheckSum
+ */
+public class ChecksumOutputStream extends FitsOutputStream {
+
+    private static final int SHIFT_2_BYTES = 16;
+
+    private static final int MASK_2_BYTES = 0xffff;
+
+    private static final int MASK_BYTE = 0xff;
+
+    private static final int BITS_PER_BYTE = 8;
+
+    private static final int WORD_SIZE = 4;
+
+    private static final int PHASE_MASK = WORD_SIZE - 1;
+
+    /** The channel for rewriting segments, or <code>null</code> if not writing to a file */
+    private final FileChannel channel;
+
+    /** The file position at which this stream started writing */
+    private final long start;
+
+    /** The number of bytes that passed through this stream */
+    private long count;
+
+    /** Accumulated sums of the high and low-order 16-bit halves of the 32-bit words since the last reset */
+    private long hi, lo;
+
+    /**
+     * Instantiates a new checksumming output stream.
+     *
+     * @param  o           An open output stream. If it is a {@link FileOutputStream} then the stream will support
+     *                         rewriting previously written segments via {@link #rewrite(long, byte[])}.
+     *
+     * @throws IOException if the current position of the file output could not be determined.
+     */
+    public ChecksumOutputStream(OutputStream o) throws IOException {
+        this(o, FitsIO.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Instantiates a new checksumming output stream.
+     *
+     * @param  o           An open output stream. If it is a {@link FileOutputStream} then the stream will support
+     *                         rewriting previously written segments via {@link #rewrite(long, byte[])}.
+     * @param  bufLength   The buffer size.
+     *
+     * @throws IOException if the current position of the file output could not be determined.
+     */
+    public ChecksumOutputStream(OutputStream o, int bufLength) throws IOException {
+        super(o, bufLength);
+        if (o instanceof FileOutputStream) {
+            channel = ((FileOutputStream) o).getChannel();
+            start = channel.position();
+        } else {
+            channel = null;
+            start = 0;
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        super.write(b);
+        add(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int from, int length) throws IOException {
+        super.write(b, from, length);
+
+        int i = from;
+        final int end = from + length;
+
+        // Leading bytes up to the next 4-byte word boundary
+        while (i < end && (count & PHASE_MASK) != 0) {
+            add(b[i++]);
+        }
+
+        // Whole words, at once
+        final int words = end - ((end - i) & PHASE_MASK);
+        final int wordStart = i;
+        long h = hi;
+        long l = lo;
+        for (; i < words; i += WORD_SIZE) {
+            h += ((b[i] & MASK_BYTE) << BITS_PER_BYTE) | (b[i + 1] & MASK_BYTE);
+            l += ((b[i + 2] & MASK_BYTE) << BITS_PER_BYTE) | (b[i + PHASE_MASK] & MASK_BYTE);
+        }
+        hi = h;
+        lo = l;
+        count += i - wordStart;
+
+        // Trailing bytes of an incomplete word
+        while (i < end) {
+            add(b[i++]);
+        }
+    }
+
+    /**
+     * Adds a byte to the sums, according to its position within the 4-byte word it belongs to.
+     *
+     * @param b the byte value
+     */
+    private void add(int b) {
+        int phase = (int) (count++ & PHASE_MASK);
+        int v = b & MASK_BYTE;
+
+        if ((phase & 1) == 0) {
+            v <<= BITS_PER_BYTE;
+        }
+
+        if (phase < 2) {
+            hi += v;
+        } else {
+            lo += v;
+        }
+    }
+
+    /**
+     * Returns the total number of bytes that passed through this stream so far (including bytes that may still be in
+     * the buffer and not yet written to the underlying output).
+     *
+     * @return the number of bytes written to this stream.
+     *
+     * @see    #getPosition()
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the position, in the underlying file, at which the next byte written to this stream will end up. For
+     * non-file outputs, it is the same as {@link #getCount()}.
+     *
+     * @return the current file position of this stream.
+     *
+     * @see    #rewrite(long, byte[])
+     */
+    public synchronized long getPosition() {
+        return start + count;
+    }
+
+    /**
+     * Returns the checksum of all bytes written since the prior call to this method, or since the stream was created,
+     * and resets the checksum accumulation for the next segment. For a proper FITS checksum, the segment should start
+     * and end at 4-byte boundaries, which is always the case for FITS headers and (padded) data.
+     *
+     * @return the 32-bit unsigned checksum of the segment written since the last call.
+     *
+     * @see    FitsInputStream#nextChecksum()
+     * @see    nom.tam.fits.utilities.FitsCheckSum#sumOf(long...)
+     */
+    public synchronized long nextChecksum() {
+        long h = hi;
+        long l = lo;
+        hi = 0;
+        lo = 0;
+
+        for (;;) {
+            long hicarry = h >>> SHIFT_2_BYTES;
+            long locarry = l >>> SHIFT_2_BYTES;
+            if ((hicarry | locarry) == 0) {
+                break;
+            }
+            h = (h & MASK_2_BYTES) + locarry;
+            l = (l & MASK_2_BYTES) + hicarry;
+        }
+
+        return (h << SHIFT_2_BYTES) | l;
+    }
+
+    /**
+     * Checks if this stream can rewrite previously written segments of its output in place.
+     *
+     * @return <code>true</code> if the stream writes to a file, and can therefore update previously written segments,
+     *             otherwise <code>false</code>.
+     *
+     * @see    #rewrite(long, byte[])
+     */
+    public boolean isRewritable() {
+        return channel != null;
+    }
+
+    /**
+     * Overwrites a previously written segment of the output file in place, without changing the current position of
+     * the stream. Any buffered output is flushed first. The rewritten bytes are not included in the accumulated
+     * checksums.
+     *
+     * @param  pos         the file position at which to start overwriting
+     * @param  b           the new bytes for the segment.
+     *
+     * @throws IOException if the stream is not writing to a file, or if the segment is not one that has been already
+     *                         written, or if there was an IO error.
+     *
+     * @see    #isRewritable()
+     * @see    #getPosition()
+     */
+    public synchronized void rewrite(long pos, byte[] b) throws IOException {
+        if (channel == null) {
+            throw new IOException("Cannot rewrite: output is not a file");
+        }
+
+        if (pos < start || pos + b.length > getPosition()) {
+            throw new IOException("Cannot rewrite segment [" + pos + ":" + (pos + b.length)
+                    + "]: not in written range");
+        }
+
+        flush();
+
+        ByteBuffer buf = ByteBuffer.wrap(b);
+        for (long p = pos; buf.hasRemaining();) {
+            p += channel.write(buf, p);
+        }
+    }
+}
@@ -33,9 +33,16 @@ package nom.tam.util;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import nom.tam.util.type.ElementType;
 
@@ -66,6 +73,12 @@ public class ColumnTable<T> implements DataTable, Cloneable {
     /** The number of rows */
     private int nrow = 0;
 
+    /** (bytes) Tables smaller than this are always read serially, even if an executor is provided. */
+    private static final long MIN_PARALLEL_READ_SIZE = 1L << 22;
+
+    /** (bytes) The approximate size of the chunks of whole rows in which tables are read for parallel decoding */
+    private static final int PARALLEL_READ_CHUNK_SIZE = 1 << 23;
+
     /** The smallest dynamic allocation when addig / deleting rows */
     private static final int MIN_CAPACITY = 16;
 
@@ -798,6 +811,155 @@ public class ColumnTable<T> implements DataTable, Cloneable {
         }
     }
 
+    /**
+     * Reads the table's data from the input, in row-major format, decoding large tables in parallel. The raw rows are
+     * read in large chunks, on the calling thread, while the previous chunk is decoded into the columns concurrently
+     * by workers of the executor, each taking a disjoint range of rows. Big-endian conversion of wide tables is thus
+     * spread over the available processors, and overlaps with the reading of the input. Tables smaller than a few
+     * megabytes, tables containing <code>char</code> columns, or if there is just one processor available, are read
+     * serially, the same way as by {@link #read(ArrayDataInput)}.
+     *
+     * @param  in           The input to read from.
+     * @param  pool         The executor to use for decoding rows in parallel
+     *
+     * @throws EOFException is already at the end of file.
+     * @throws IOException  if the reading failed
+     * 
+     * @see                 #read(ArrayDataInput)
+     * 
+     * @since               1.22
+     */
+    public void read(ArrayDataInput in, ExecutorService pool) throws EOFException, IOException {
+        read(in, pool, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads the table's data from the input, in row-major format, decoding large tables in parallel with up to the
+     * specified number of concurrent tasks.
+     *
+     * @param  in           The input to read from.
+     * @param  pool         The executor to use for decoding rows in parallel
+     * @param  nThreads     The number of concurrent tasks to decode chunks of rows with. If less than 2, the table is
+     *                          read serially.
+     *
+     * @throws EOFException is already at the end of file.
+     * @throws IOException  if the reading failed
+     * 
+     * @see                 #read(ArrayDataInput, ExecutorService)
+     */
+    void read(ArrayDataInput in, ExecutorService pool, int nThreads) throws EOFException, IOException {
+        // Entry sizes depend on the settings of the reading thread (e.g. for char), so we determine them here.
+        int[] entryBytes = new int[columns.size()];
+        int rowBytes = 0;
+
+        for (int i = 0; i < entryBytes.length; i++) {
+            Column<?> c = columns.get(i);
+            entryBytes[i] = c.elementCount() * c.getElementType().size();
+            rowBytes += entryBytes[i];
+        }
+
+        if (pool == null || nThreads < 2 || rowBytes == 0 || (long) nrow * rowBytes < MIN_PARALLEL_READ_SIZE) {
+            read(in);
+            return;
+        }
+
+        for (Column<?> c : columns) {
+            c.prepareDecode();
+        }
+
+        int chunkRows = Math.max(1, PARALLEL_READ_CHUNK_SIZE / rowBytes);
+        byte[][] buf = new byte[2][chunkRows * rowBytes];
+        List<FutureTask<?>> pending = new ArrayList<>();
+
+        for (int from = 0, k = 0; from < nrow; k ^= 1) {
+            int n = Math.min(chunkRows, nrow - from);
+            in.readFully(buf[k], 0, n * rowBytes);
+
+            // The previous chunk must be decoded before its buffer is reused in the next round
+            complete(pending);
+            pending = decode(pool, nThreads, ByteBuffer.wrap(buf[k]), entryBytes, rowBytes, from, n);
+
+            from += n;
+        }
+
+        complete(pending);
+    }
+
+    /**
+     * Submits the decoding of a chunk of raw rows, in disjoint row ranges, to an executor. Tasks that no worker has
+     * picked up by the time we need their results are run by the waiting thread itself (see
+     * {@link #complete(List)}), so decoding always progresses, even if the executor is busy or rejects the tasks.
+     * 
+     * @param  pool       The executor to submit to
+     * @param  nThreads   The number of concurrent tasks to split the chunk into
+     * @param  b          The buffer containing the raw rows
+     * @param  entryBytes (bytes) the sizes of the raw column entries in a row
+     * @param  rowBytes   (bytes) the size of a raw row
+     * @param  from       the zero-based table row index of the first row in the buffer
+     * @param  n          the number of rows in the buffer
+     * 
+     * @return            the submitted tasks
+     */
+    private List<FutureTask<?>> decode(ExecutorService pool, int nThreads, ByteBuffer b, int[] entryBytes, int rowBytes,
+            int from, int n) {
+        int step = (n + nThreads - 1) / nThreads;
+        List<FutureTask<?>> tasks = new ArrayList<>(nThreads);
+
+        for (int start = 0; start < n; start += step) {
+            final int first = start;
+            final int rows = Math.min(step, n - start);
+
+            FutureTask<?> task = new FutureTask<>(() -> {
+                int pos = first * rowBytes;
+                for (int i = 0; i < entryBytes.length; i++) {
+                    columns.get(i).decode(b, pos, rowBytes, from + first, rows);
+                    pos += entryBytes[i];
+                }
+            }, null);
+
+            tasks.add(task);
+
+            try {
+                pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                // We'll run it ourselves when completing.
+            }
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Completes submitted decoding tasks, running the ones that have not been started yet on the calling thread, and
+     * waiting for the others to finish.
+     * 
+     * @param  tasks       the submitted tasks
+     * 
+     * @throws IOException if the waiting was interrupted, or one of the tasks failed.
+     */
+    private static void complete(List<FutureTask<?>> tasks) throws IOException {
+        for (FutureTask<?> task : tasks) {
+            // Does nothing if the task was already started by a worker
+            task.run();
+
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding table rows");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Could not decode table rows: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void setColumn(int col, Object newColumn) throws TableException {
@@ -1152,6 +1314,40 @@ public class ColumnTable<T> implements DataTable, Cloneable {
          */
         abstract int read(int from, int n, ArrayDataInput in) throws EOFException, IOException;
 
+        /**
+         * Prepares for decoding entries from raw rows by other threads. It is called by the reading thread, so columns
+         * can capture the settings of that thread, which determine how their entries are represented in the raw rows.
+         * 
+         * @see #decode(ByteBuffer, int, int, int, int)
+         */
+        void prepareDecode() {
+        }
+
+        /**
+         * Decodes a character from raw rows in a buffer, the same way as {@link FitsDecoder} reads it.
+         * 
+         * @param  b         the buffer containing the raw rows
+         * @param  pos       the position of the character in the buffer
+         * @param  charBytes (bytes) the size of characters in the raw rows: 1 for ASCII, or 2 for unicode.
+         * 
+         * @return           the decoded character
+         */
+        static char decodeChar(ByteBuffer b, int pos, int charBytes) {
+            return charBytes == Byte.BYTES ? (char) Byte.toUnsignedInt(b.get(pos)) : b.getChar(pos);
+        }
+
+        /**
+         * Decodes a sequence of consecutive table entries from raw (big-endian) rows in a buffer, which may be called
+         * by any thread after {@link #prepareDecode()}.
+         * 
+         * @param b      the buffer containing the raw rows
+         * @param pos    the position in the buffer of the entry for the first row
+         * @param stride (bytes) the size of a raw row in the buffer
+         * @param from   the zero-based row index of the first column entry to populate
+         * @param n      the number of consecutive rows to decode
+         */
+        abstract void decode(ByteBuffer b, int pos, int stride, int from, int n);
+
         /**
          * Writes a sequence of consecutive table entries to an output
          * 
@@ -1310,6 +1506,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return -1;
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.get(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1360,6 +1563,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = FitsDecoder.booleanFor(b.get(pos));
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1383,6 +1593,9 @@ public class ColumnTable<T> implements DataTable, Cloneable {
      */
     private static class Chars extends Column<char[]> {
 
+        /** (bytes) The size of characters in raw rows, as determined by the reading thread */
+        private int charBytes;
+
         /** Construct as new container for a unicode-based data column */
         Chars() {
             super(ElementType.CHAR);
@@ -1409,6 +1622,19 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void prepareDecode() {
+            // The FITS representation depends on the settings of the reading thread.
+            charBytes = getElementType().size();
+        }
+
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = decodeChar(b, pos, charBytes);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1462,6 +1688,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.getShort(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1511,6 +1744,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.getInt(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1560,6 +1800,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.getLong(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1609,6 +1856,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.getFloat(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1658,6 +1912,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                data[from + i] = b.getDouble(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1683,6 +1944,9 @@ public class ColumnTable<T> implements DataTable, Cloneable {
         private Class<?> type;
         private int size;
 
+        /** (bytes) The size of characters in raw rows, as determined by the reading thread */
+        private int charBytes;
+
         /**
          * Construct as new container for an object (primitive array) based data column
          * 
@@ -1730,6 +1994,59 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return n * size * getElementType().size();
         }
 
+        @Override
+        void prepareDecode() {
+            // The FITS representation of chars depends on the settings of the reading thread.
+            charBytes = getElementType().size();
+        }
+
+        @Override
+        void decode(ByteBuffer b, int pos, int stride, int from, int n) {
+            for (int i = 0; i < n; i++, pos += stride) {
+                Object e = data[from + i];
+                if (e instanceof byte[]) {
+                    System.arraycopy(b.array(), b.arrayOffset() + pos, e, 0, size);
+                } else if (e instanceof boolean[]) {
+                    boolean[] a = (boolean[]) e;
+                    for (int j = 0; j < size; j++) {
+                        a[j] = FitsDecoder.booleanFor(b.get(pos + j));
+                    }
+                } else if (e instanceof char[]) {
+                    char[] a = (char[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += charBytes) {
+                        a[j] = decodeChar(b, p, charBytes);
+                    }
+                } else if (e instanceof short[]) {
+                    short[] a = (short[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += Short.BYTES) {
+                        a[j] = b.getShort(p);
+                    }
+                } else if (e instanceof int[]) {
+                    int[] a = (int[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += Integer.BYTES) {
+                        a[j] = b.getInt(p);
+                    }
+                } else if (e instanceof long[]) {
+                    long[] a = (long[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += Long.BYTES) {
+                        a[j] = b.getLong(p);
+                    }
+                } else if (e instanceof float[]) {
+                    float[] a = (float[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += Float.BYTES) {
+                        a[j] = b.getFloat(p);
+                    }
+                } else if (e instanceof double[]) {
+                    double[] a = (double[]) e;
+                    for (int j = 0, p = pos; j < size; j++, p += Double.BYTES) {
+                        a[j] = b.getDouble(p);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Cannot decode column type " + type.getName());
+                }
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             int to = from + n;
@@ -80,6 +80,11 @@ public class FitsFile extends ArrayDataFile implements FitsOutput, RandomAccess
      */
     private long marker;
 
+    /**
+     * Decoder for contention-free concurrent positional reads
+     */
+    private final PositionalDecoder positionalDecoder = new PositionalDecoder(this::read);
+
     /**
      * Create a buffered file from a File descriptor
      *
@@ -279,6 +284,30 @@ public class FitsFile extends ArrayDataFile implements FitsOutput, RandomAccess
         return getDecoder().read(d, start, length);
     }
 
+    /**
+     * Like {@link #readArrayFully(Object)}, but reading from an absolute file position, without changing (or relying
+     * on) the current file pointer. Multiple threads may call this concurrently on the same file without contending
+     * for a common lock, as long as there are no pending buffered writes.
+     * 
+     * @see #read(long, byte[], int, int)
+     */
+    @Override
+    public void readArrayFully(long pos, Object o) throws IOException, IllegalArgumentException {
+        positionalDecoder.readArrayFully(pos, o);
+    }
+
+    /**
+     * Like {@link #readImage(Object)}, but reading from an absolute file position, without changing (or relying on)
+     * the current file pointer. Multiple threads may call this concurrently on the same file without contending for a
+     * common lock, as long as there are no pending buffered writes.
+     * 
+     * @see #read(long, byte[], int, int)
+     */
+    @Override
+    public void readImage(long pos, Object o) throws IOException, IllegalArgumentException {
+        positionalDecoder.readImage(pos, o);
+    }
+
     @Deprecated
     @Override
     public final int readArray(Object o) throws IOException {
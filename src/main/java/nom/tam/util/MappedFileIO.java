@@ -0,0 +1,289 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Read-only random access to a file via memory mapping. The file is mapped into one or more
+ * {@link MappedByteBuffer} segments (each up to 1 GB), so that reads are served directly from the operating system's
+ * page cache, without a system call for every buffer refill. Files of any size are supported, since segments are
+ * addressed with 64-bit file offsets.
+ * </p>
+ * <p>
+ * It is best suited for reading large images and tables, or for reading select parts of large files repeatedly. Any
+ * attempt to write to it will throw an {@link IOException}, the same as for a {@link RandomAccessFile} opened in read
+ * only mode. You can use it with {@link FitsFile} or with {@link nom.tam.fits.Fits} directly, e.g.:
+ * </p>
+ * 
+ * <pre>
+ *   Fits fits = new Fits(new MappedFileIO(new File("mosaic.fits")));
+ * </pre>
+ * <p>
+ * or else you can enable memory mapping for all files opened via {@link nom.tam.fits.Fits#Fits(File)} with
+ * {@link nom.tam.fits.FitsFactory#setUseMemoryMapping(boolean)}.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    FitsFile#FitsFile(RandomAccessFileIO, int)
+ * @see    nom.tam.fits.Fits#Fits(RandomAccessFileIO)
+ * @see    nom.tam.fits.FitsFactory#setUseMemoryMapping(boolean)
+ */
+public class MappedFileIO implements RandomAccessFileIO {
+
+    /** The default number of bits in the (power-of-2) segment size, i.e. 1 GB segments. */
+    static final int DEFAULT_SEGMENT_BITS = 30;
+
+    /** Bit mask for a single byte */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The underlying file, which we use for the file descriptor and UTF reads */
+    private final RandomAccessFile file;
+
+    /** The mapped file segments */
+    private final MappedByteBuffer[] segments;
+
+    /** The number of bits in the segment size */
+    private final int segmentBits;
+
+    /** Bit mask for offsets within a segment */
+    private final long segmentMask;
+
+    /** The size of the file (and of the mapped region), in bytes */
+    private final long length;
+
+    /** The current read position */
+    private long pos;
+
+    /**
+     * Maps a file for read-only random access.
+     * 
+     * @param  file        the file to map
+     * 
+     * @throws IOException if the file could not be opened or mapped.
+     */
+    public MappedFileIO(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_BITS);
+    }
+
+    /**
+     * Maps a file for read-only random access, using segments of the specified size. For testing, so we can exercise
+     * segment boundaries with small files.
+     * 
+     * @param  file        the file to map
+     * @param  segmentBits the number of bits in the (power of 2) segment size, in the range of 12 to 30.
+     * 
+     * @throws IOException if the file could not be opened or mapped.
+     */
+    MappedFileIO(File file, int segmentBits) throws IOException {
+        this.segmentBits = segmentBits;
+        segmentMask = (1L << segmentBits) - 1;
+
+        this.file = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = this.file.getChannel();
+            length = channel.size();
+            segments = new MappedByteBuffer[(int) ((length + segmentMask) >>> segmentBits)];
+
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << segmentBits;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(length - start, 1L << segmentBits));
+            }
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of mapped segments used for accessing the file.
+     * 
+     * @return the number of mapped segments.
+     */
+    int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Copies bytes from the mapped segments, starting at the specified file position.
+     * 
+     * @param  from the file position of the first byte to copy
+     * @param  b    the destination buffer
+     * @param  off  the starting index in the destination buffer
+     * @param  len  the maximum number of bytes to copy
+     * 
+     * @return      the number of bytes actually copied, or -1 if the position is at or beyond the end of file.
+     */
+    final int copy(long from, byte[] b, int off, int len) {
+        if (from >= length) {
+            return -1;
+        }
+
+        len = (int) Math.min(len, length - from);
+
+        for (int got = 0; got < len;) {
+            // Duplicate to keep the shared segment's position intact.
+            ByteBuffer seg = segments[(int) (from >>> segmentBits)].duplicate();
+            seg.position((int) (from & segmentMask));
+
+            int n = Math.min(len - got, seg.remaining());
+            seg.get(b, off + got, n);
+
+            got += n;
+            from += n;
+        }
+
+        return len;
+    }
+
+    @Override
+    public long position() {
+        return pos;
+    }
+
+    @Override
+    public void position(long n) throws IOException {
+        if (n < 0) {
+            throw new EOFException("Negative position: " + n);
+        }
+        pos = n;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Checks that the file is still open for reading.
+     * 
+     * @throws IOException if the file has been closed already.
+     */
+    private void checkOpen() throws IOException {
+        if (!file.getChannel().isOpen()) {
+            throw new IOException("Memory-mapped file is closed");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        if (pos >= length) {
+            return -1;
+        }
+        long i = pos++;
+        return segments[(int) (i >>> segmentBits)].get((int) (i & segmentMask)) & BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] b, int from, int len) throws IOException {
+        checkOpen();
+        if (len <= 0) {
+            return 0;
+        }
+
+        int n = copy(pos, b, from, len);
+        if (n > 0) {
+            pos += n;
+        }
+        return n;
+    }
+
+    /**
+     * Reads up to the specified number of bytes from an absolute position, without changing the current position of
+     * this instance. It is safe for use by multiple threads concurrently, and without locking.
+     */
+    @Override
+    public int read(long from, byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len <= 0) {
+            return 0;
+        }
+        return copy(from, b, off, len);
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        file.seek(pos);
+        String s = file.readUTF();
+        pos = file.getFilePointer();
+        return s;
+    }
+
+    @Override
+    public FileChannel getChannel() {
+        return file.getChannel();
+    }
+
+    @Override
+    public FileDescriptor getFD() throws IOException {
+        return file.getFD();
+    }
+
+    @Override
+    public void setLength(long newLength) throws IOException {
+        throw new IOException("Cannot resize read-only memory-mapped file");
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        throw new IOException("Cannot write to read-only memory-mapped file");
+    }
+
+    @Override
+    public void write(byte[] b, int from, int len) throws IOException {
+        throw new IOException("Cannot write to read-only memory-mapped file");
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        throw new IOException("Cannot write to read-only memory-mapped file");
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,98 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * (<i>for internal use</i>) Runs a list of independent tasks concurrently, on the calling thread together with helper
+ * threads from an executor. The tasks are claimed one at a time, in order, by whichever thread is free next, so the
+ * work is balanced even if tasks differ in cost. Since the calling thread takes part, all tasks are run even if the
+ * executor is busy, shut down, or rejects the helpers, and it is safe to call from within tasks that are themselves
+ * running on the same executor.
+ * <p>
+ * The tasks are typically {@link java.util.concurrent.FutureTask}s, from which the caller collects the results (or
+ * exceptions) afterwards.
+ * </p>
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ */
+public final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the tasks on the calling thread and on up to <code>maxThreads - 1</code> helpers from the executor. It
+     * returns when the calling thread finds no more tasks to claim. At that point tasks that were claimed by helpers
+     * may still be running, so the caller should wait for their completion, such as via
+     * {@link java.util.concurrent.FutureTask#get()}. Helpers that have not started by then are cancelled.
+     * 
+     * @param pool       the executor that provides the helper threads. It may be <code>null</code> if there is at most
+     *                       one task.
+     * @param maxThreads the maximum number of threads to use, including the calling thread
+     * @param tasks      the tasks to run
+     */
+    public static void run(ExecutorService pool, int maxThreads, List<? extends Runnable> tasks) {
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < tasks.size(); i = next.getAndIncrement()) {
+                tasks.get(i).run();
+            }
+        };
+
+        final int nHelpers = Math.min(tasks.size(), maxThreads) - 1;
+        final List<Future<?>> helpers = new ArrayList<>(Math.max(0, nHelpers));
+
+        try {
+            for (int i = 0; i < nHelpers; i++) {
+                helpers.add(pool.submit(worker));
+            }
+        } catch (RejectedExecutionException e) {
+            // We'll just do with the helpers we have (if any)
+        }
+
+        worker.run();
+
+        // Helpers still waiting in the queue have nothing left to do.
+        for (Future<?> helper : helpers) {
+            helper.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Decodes FITS binary data from explicit positions of a random-accessible source, without changing (or relying on) a
+ * shared read position. Each thread decodes through its own conversion buffer, so the same instance may be used by
+ * multiple threads concurrently, without them having to contend for a common lock, provided that the source itself
+ * supports concurrent positional reads.
+ * 
+ * @author Attila Kovacs
+ * 
+ * @since  1.22
+ * 
+ * @see    RandomAccess#readArrayFully(long, Object)
+ * @see    RandomAccess#readImage(long, Object)
+ */
+public final class PositionalDecoder {
+
+    /**
+     * A source of bytes at arbitrary positions.
+     * 
+     * @author Attila Kovacs
+     * 
+     * @since  1.22
+     */
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * Reads up to the specified number of bytes from an absolute position.
+         * 
+         * @param  pos         the position of the first byte to read
+         * @param  b           the buffer to read into
+         * @param  from        the starting index in the buffer
+         * @param  length      the maximum number of bytes to read
+         * 
+         * @return             the number of bytes read, or -1 if there is nothing to read at the specified position.
+         * 
+         * @throws IOException if there was an IO error.
+         */
+        int read(long pos, byte[] b, int from, int length) throws IOException;
+    }
+
+    /** The source of bytes */
+    private final Source source;
+
+    /** Per-thread cursors with their own conversion buffers */
+    private final ThreadLocal<Cursor> cursors = ThreadLocal.withInitial(Cursor::new);
+
+    /**
+     * Creates a new positional decoder for the specified source of bytes.
+     * 
+     * @param src the source of bytes at arbitrary positions.
+     */
+    public PositionalDecoder(Source src) {
+        source = src;
+    }
+
+    /**
+     * Fully populates an array (including arrays of arrays), with data decoded from the specified position. See
+     * {@link ArrayDataInput#readArrayFully(Object)} for the general contract.
+     * 
+     * @param  pos                      the position of the first byte of data
+     * @param  o                        the array to populate
+     * 
+     * @throws EOFException             if the source ended before the array could be populated.
+     * @throws IOException              if there was an IO error.
+     * @throws IllegalArgumentException if the argument is not an array or contains an unsupported element type.
+     */
+    public void readArrayFully(long pos, Object o) throws EOFException, IOException, IllegalArgumentException {
+        cursors.get().at(pos).readArrayFully(o);
+    }
+
+    /**
+     * Fully populates a numerical array (including arrays of arrays), with data decoded from the specified position.
+     * See {@link ArrayDataInput#readImage(Object)} for the general contract.
+     * 
+     * @param  pos                      the position of the first byte of data
+     * @param  o                        the numerical array to populate
+     * 
+     * @throws EOFException             if the source ended before the array could be populated.
+     * @throws IOException              if there was an IO error.
+     * @throws IllegalArgumentException if the argument is not an array or contains an unsupported element type.
+     */
+    public void readImage(long pos, Object o) throws EOFException, IOException, IllegalArgumentException {
+        cursors.get().at(pos).readImage(o);
+    }
+
+    /**
+     * A thread-specific read position with a decoder attached.
+     */
+    private final class Cursor implements InputReader {
+        private final FitsDecoder decoder = new FitsDecoder(this);
+
+        private long pos;
+
+        private FitsDecoder at(long position) {
+            pos = position;
+            return decoder;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & FitsIO.BYTE_MASK;
+        }
+
+        @Override
+        public int read(byte[] b, int from, int length) throws IOException {
+            int n = source.read(pos, b, from, length);
+            if (n > 0) {
+                pos += n;
+            }
+            return n;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package nom.tam.util;
 
+import java.io.EOFException;
 import java.io.IOException;
 
 /*
@@ -54,6 +55,122 @@ public interface RandomAccess extends ReadWriteAccess, ArrayDataInput {
      */
     void seek(long offsetFromStart) throws IOException;
 
+    /**
+     * Reads up to the specified number of bytes from an absolute position, without changing the current position. The
+     * default implementation temporarily repositions this instance while holding its monitor, and restores the
+     * original position after the read. Implementations that support true positional reads (such as
+     * {@link FitsFile}) should override it, so multiple threads can read concurrently without contention.
+     * 
+     * @param  pos         the absolute position of the first byte to read
+     * @param  b           the buffer to read into
+     * @param  from        the starting index in the buffer
+     * @param  length      the maximum number of bytes to read
+     * 
+     * @return             the number of bytes actually read, or -1 if the position is at or beyond the end of input.
+     * 
+     * @throws IOException if there was an IO error.
+     * 
+     * @see                #readFully(long, byte[], int, int)
+     * 
+     * @since              1.22
+     */
+    default int read(long pos, byte[] b, int from, int length) throws IOException {
+        synchronized (this) {
+            long p = getFilePointer();
+            try {
+                seek(pos);
+                return read(b, from, length);
+            } finally {
+                seek(p);
+            }
+        }
+    }
+
+    /**
+     * Reads the requested number of bytes from an absolute position, without changing the current position.
+     * 
+     * @param  pos          the absolute position of the first byte to read
+     * @param  b            the buffer to read into
+     * @param  from         the starting index in the buffer
+     * @param  length       the number of bytes to read
+     * 
+     * @throws EOFException if the end of input was reached before the requested number of bytes could be read.
+     * @throws IOException  if there was an IO error.
+     * 
+     * @see                 #read(long, byte[], int, int)
+     * 
+     * @since               1.22
+     */
+    default void readFully(long pos, byte[] b, int from, int length) throws EOFException, IOException {
+        while (length > 0) {
+            int n = read(pos, b, from, length);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+            from += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Like {@link #readArrayFully(Object)}, but reading from an absolute position, without changing the current
+     * position. The default implementation temporarily repositions this instance while holding its monitor.
+     * Implementations supporting true positional reads (such as {@link FitsFile}) override it to allow contention-free
+     * concurrent reads.
+     * 
+     * @param  pos                      the absolute position of the first byte of data
+     * @param  o                        the array to populate
+     * 
+     * @throws IOException              if there was an IO error, including if the end of input was reached before
+     *                                      the array could be populated.
+     * @throws IllegalArgumentException if the argument is not an array or contains an unsupported element type.
+     * 
+     * @see                             #readImage(long, Object)
+     * 
+     * @since                           1.22
+     */
+    default void readArrayFully(long pos, Object o) throws IOException, IllegalArgumentException {
+        synchronized (this) {
+            long p = getFilePointer();
+            try {
+                seek(pos);
+                readArrayFully(o);
+            } finally {
+                seek(p);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #readImage(Object)}, but reading from an absolute position, without changing the current position.
+     * The default implementation temporarily repositions this instance while holding its monitor. Implementations
+     * supporting true positional reads (such as {@link FitsFile}) override it to allow contention-free concurrent
+     * reads.
+     * 
+     * @param  pos                      the absolute position of the first byte of data
+     * @param  o                        the numerical array to populate
+     * 
+     * @throws IOException              if there was an IO error, including if the end of input was reached before
+     *                                      the array could be populated.
+     * @throws IllegalArgumentException if the argument is not an array or contains an unsupported element type.
+     * 
+     * @see                             #readArrayFully(long, Object)
+     * 
+     * @since                           1.22
+     */
+    default void readImage(long pos, Object o) throws IOException, IllegalArgumentException {
+        synchronized (this) {
+            long p = getFilePointer();
+            try {
+                seek(pos);
+                readImage(o);
+            } finally {
+                seek(p);
+            }
+        }
+    }
+
     @Override
     default long position() throws IOException {
         return getFilePointer();
@@ -35,6 +35,7 @@ import java.io.Closeable;
 import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
@@ -62,6 +63,44 @@ public interface RandomAccessFileIO extends ReadWriteAccess, Closeable {
         return read(bytes, 0, bytes.length);
     }
 
+    /**
+     * Reads up to the specified number of bytes from an absolute position, without changing the current position of
+     * this instance. When the implementation provides a {@link FileChannel}, the default implementation uses
+     * {@link FileChannel#read(ByteBuffer, long)} (i.e. a <code>pread</code>-like call), which is safe for use by
+     * multiple concurrent threads. Otherwise, it falls back to repositioning this instance while holding its monitor,
+     * and then restoring the original position after the read.
+     * 
+     * @param  pos         the absolute file position of the first byte to read
+     * @param  bytes       the buffer to read into
+     * @param  from        the starting index in the buffer
+     * @param  length      the maximum number of bytes to read
+     * 
+     * @return             The number of bytes read, which may be fewer than requested, or -1 if the position is at or
+     *                         beyond the end of file.
+     * 
+     * @throws IOException if there was an error reading from the input
+     * 
+     * @see                #read(byte[], int, int)
+     * 
+     * @since              1.22
+     */
+    default int read(long pos, byte[] bytes, int from, int length) throws IOException {
+        FileChannel c = getChannel();
+        if (c != null) {
+            return c.read(ByteBuffer.wrap(bytes, from, length), pos);
+        }
+
+        synchronized (this) {
+            long p = position();
+            try {
+                position(pos);
+                return read(bytes, from, length);
+            } finally {
+                position(p);
+            }
+        }
+    }
+
     /**
      * See {@link RandomAccessFile#readUTF()} for a contract of this method.
      * 
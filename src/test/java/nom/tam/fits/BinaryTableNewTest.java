@@ -1739,11 +1739,12 @@ public class BinaryTableNewTest {
     }
 
     @Test
-    public void testHeaderHeapTooLarge() throws Exception {
+    public void testHeaderHeapOver2GB() throws Exception {
         Header h = new Header();
         new BinaryTable().fillHeader(h);
         h.addValue(Standard.PCOUNT, Integer.MAX_VALUE + 1L);
-        Assertions.assertThrows(FitsException.class, () -> new BinaryTable(h));
+        BinaryTable tab = new BinaryTable(h);
+        Assertions.assertEquals(Integer.MAX_VALUE + 1L, tab.getParameterSize());
     }
 
     @Test
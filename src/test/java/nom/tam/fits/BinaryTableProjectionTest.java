@@ -0,0 +1,226 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.util.TableException;
+
+@SuppressWarnings("javadoc")
+public class BinaryTableProjectionTest {
+
+    private static final File FILE = new File("target/bt-projection.fits");
+
+    // Enough rows to span several bulk reads
+    private static final int N_ROWS = 20000;
+
+    private static BinaryTable createTable() throws Exception {
+        int[] id = new int[N_ROWS];
+        double[] energy = new double[N_ROWS];
+        short[][] flags = new short[N_ROWS][3];
+        String[] label = new String[N_ROWS];
+        boolean[] good = new boolean[N_ROWS];
+        long[] time = new long[N_ROWS];
+        float[][] vla = new float[N_ROWS][];
+        byte[] b = new byte[N_ROWS];
+
+        for (int i = 0; i < N_ROWS; i++) {
+            id[i] = i;
+            energy[i] = 0.5 * i;
+            flags[i][0] = (short) i;
+            flags[i][1] = (short) -i;
+            flags[i][2] = (short) (2 * i);
+            label[i] = "row" + i;
+            good[i] = (i % 3) == 0;
+            time[i] = 1000000000000L + i;
+            vla[i] = new float[i % 5];
+            for (int j = 0; j < vla[i].length; j++) {
+                vla[i][j] = i + j;
+            }
+            b[i] = (byte) i;
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(id);
+        tab.addColumn(energy);
+        tab.addColumn(flags);
+        tab.addColumn(label);
+        tab.addColumn(good);
+        tab.addColumn(time);
+        tab.addColumn(vla);
+        tab.addColumn(b);
+
+        String[] names = {"ID", "ENERGY", "FLAGS", "LABEL", "GOOD", "TIME", "VLA", "B"};
+        for (int i = 0; i < names.length; i++) {
+            tab.getDescriptor(i).name(names[i]);
+        }
+
+        return tab;
+    }
+
+    @BeforeAll
+    public static void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(createTable().toHDU());
+            fits.write(FILE);
+        }
+    }
+
+    private static void assertProjection(BinaryTable tab, BinaryTable p, int... cols) throws Exception {
+        Assertions.assertFalse(p.isDeferred());
+        Assertions.assertEquals(cols.length, p.getNCols());
+        Assertions.assertEquals(tab.getNRows(), p.getNRows());
+
+        for (int i = 0; i < cols.length; i++) {
+            Assertions.assertEquals(tab.getDescriptor(cols[i]).name(), p.getDescriptor(i).name());
+            for (int row = 0; row < tab.getNRows(); row += 7) {
+                Object e = tab.get(row, cols[i]);
+                Object a = p.get(row, i);
+                if (e.getClass().isArray()) {
+                    Assertions.assertTrue(Objects.deepEquals(e, a), "row " + row + ", col " + cols[i]);
+                } else {
+                    Assertions.assertEquals(e, a, "row " + row + ", col " + cols[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProjectDeferred() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertTrue(tab.isDeferred());
+
+            int[] cols = {5, 0, 2, 3, 4, 7, 1};
+            BinaryTable p = tab.project(cols);
+
+            // Projection must not load the original
+            Assertions.assertTrue(tab.isDeferred());
+
+            assertProjection(tab, p, cols);
+        }
+    }
+
+    @Test
+    public void testProjectDeferredVLA() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            BinaryTable p = tab.project("VLA", "ID");
+            Assertions.assertTrue(tab.isDeferred());
+            Assertions.assertTrue(p.getDescriptor(0).isVariableSize());
+            assertProjection(tab, p, 6, 0);
+        }
+    }
+
+    @Test
+    public void testProjectDeferredVLAAfterClose() throws Exception {
+        BinaryTable p;
+
+        try (Fits fits = new Fits(FILE)) {
+            p = ((BinaryTableHDU) fits.getHDU(1)).getData().project("VLA", "ID", "VLA");
+        }
+
+        // The projected heap must not depend on the (now closed) input, and the entries are relocated in it
+        assertProjection(createTable(), p, 6, 0, 6);
+    }
+
+    @Test
+    public void testProjectInMemory() throws Exception {
+        BinaryTable tab = createTable();
+        int[] cols = {6, 3, 1};
+        BinaryTable p = tab.project(cols);
+        assertProjection(tab, p, cols);
+
+        // The projection is independent of the original
+        p.set(0, 2, -1.0);
+        Assertions.assertEquals(0.0, tab.getDouble(0, 1));
+    }
+
+    @Test
+    public void testProjectWriteReadBack() throws Exception {
+        File out = new File("target/bt-projected.fits");
+
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+
+            try (Fits f = new Fits()) {
+                f.addHDU(tab.project("TIME", "VLA", "LABEL").toHDU());
+                f.write(out);
+            }
+
+            try (Fits f = new Fits(out)) {
+                BinaryTable p = ((BinaryTableHDU) f.getHDU(1)).getData();
+                Assertions.assertEquals("TIME", p.getDescriptor(0).name());
+                assertProjection(tab, p.project(0, 1, 2), 5, 6, 3);
+            }
+        }
+    }
+
+    @Test
+    public void testProjectNoColumns() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable p = ((BinaryTableHDU) fits.getHDU(1)).getData().project(new int[0]);
+            Assertions.assertEquals(0, p.getNCols());
+        }
+    }
+
+    @Test
+    public void testProjectInvalidColumn() throws Exception {
+        BinaryTable tab = createTable();
+        Assertions.assertThrows(TableException.class, () -> tab.project(8));
+        Assertions.assertThrows(TableException.class, () -> tab.project(-1));
+        Assertions.assertThrows(TableException.class, () -> tab.project("NOSUCH"));
+    }
+
+    @Test
+    public void testProjectEmptyDeferredTable() throws Exception {
+        File out = new File("target/bt-projected-empty.fits");
+
+        try (Fits f = new Fits()) {
+            BinaryTable tab = new BinaryTable();
+            tab.addColumn(BinaryTable.ColumnDesc.createForScalars(int.class));
+            f.addHDU(tab.toHDU());
+            f.write(out);
+        }
+
+        try (Fits f = new Fits(out)) {
+            BinaryTable p = ((BinaryTableHDU) f.getHDU(1)).getData().project(0);
+            Assertions.assertEquals(1, p.getNCols());
+            Assertions.assertEquals(0, p.getNRows());
+        }
+    }
+}
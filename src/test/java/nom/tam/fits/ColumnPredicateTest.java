@@ -0,0 +1,211 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.header.Standard;
+import nom.tam.util.Quantizer;
+import nom.tam.util.TableException;
+
+@SuppressWarnings("javadoc")
+public class ColumnPredicateTest {
+
+    private static final File FILE = new File("target/bt-filter.fits");
+
+    private static final int N_ROWS = 25000;
+
+    private static BinaryTable createTable() throws Exception {
+        long[] time = new long[N_ROWS];
+        float[] energy = new float[N_ROWS];
+        short[] q = new short[N_ROWS];
+        String[] label = new String[N_ROWS];
+        double[][] vla = new double[N_ROWS][];
+
+        for (int i = 0; i < N_ROWS; i++) {
+            time[i] = 1000L * i;
+            energy[i] = (i * 37) % 1000 * 0.01F;
+            q[i] = (short) (i % 2000 - 1000);
+            label[i] = "ev" + i;
+            vla[i] = new double[i % 4];
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(time);
+        tab.addColumn(energy);
+        tab.addColumn(q);
+        tab.addColumn(label);
+        tab.addColumn(vla);
+
+        String[] names = {"TIME", "ENERGY", "Q", "LABEL", "VLA"};
+        for (int i = 0; i < names.length; i++) {
+            tab.getDescriptor(i).name(names[i]);
+        }
+
+        // Physical Q = 0.5 * stored + 10.0, with -1000 as the blanking value
+        tab.getDescriptor(2).setQuantizer(new Quantizer(0.5, 10.0, -1000));
+
+        return tab;
+    }
+
+    @BeforeAll
+    public static void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(createTable().toHDU());
+            fits.write(FILE);
+        }
+    }
+
+    private static BitSet expected(BinaryTable tab, double emin, long tmin, long tmax, double qmax) throws Exception {
+        BitSet rows = new BitSet();
+        for (int i = 0; i < tab.getNRows(); i++) {
+            double q = tab.getDouble(i, 2);
+            long t = tab.getLong(i, 0);
+            if (tab.getDouble(i, 1) > emin && t >= tmin && t <= tmax && q < qmax) {
+                rows.set(i);
+            }
+        }
+        return rows;
+    }
+
+    private static void checkFilter(BinaryTable tab) throws Exception {
+        ColumnPredicate[] p = {ColumnPredicate.of("ENERGY", e -> e > 5.0),
+                ColumnPredicate.ofLong(0, t -> t >= 1000000L && t <= 20000000L), ColumnPredicate.of(2, q -> q < 100.0)};
+
+        BitSet rows = tab.findRows(p);
+        Assertions.assertEquals(expected(tab, 5.0, 1000000L, 20000000L, 100.0), rows);
+        Assertions.assertTrue(rows.cardinality() > 0);
+
+        BinaryTable f = tab.filter(p);
+        Assertions.assertEquals(rows.cardinality(), f.getNRows());
+        Assertions.assertEquals(tab.getNCols(), f.getNCols());
+
+        for (int i = 0, row = rows.nextSetBit(0); row >= 0; i++, row = rows.nextSetBit(row + 1)) {
+            Assertions.assertEquals(tab.getLong(row, 0), f.getLong(i, 0));
+            Assertions.assertEquals(tab.getDouble(row, 1), f.getDouble(i, 1));
+            Assertions.assertEquals(tab.getNumber(row, 2), f.getNumber(i, 2));
+            Assertions.assertEquals(tab.getString(row, 3), f.getString(i, 3));
+            Assertions.assertArrayEquals((double[]) tab.get(row, 4), (double[]) f.get(i, 4));
+        }
+    }
+
+    @Test
+    public void testFilterDeferred() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertTrue(tab.isDeferred());
+            checkFilter(tab);
+            Assertions.assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testFilterInMemory() throws Exception {
+        checkFilter(createTable());
+    }
+
+    @Test
+    public void testBlankedValues() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            BitSet rows = tab.findRows(ColumnPredicate.of("Q", Double::isNaN));
+            Assertions.assertEquals(N_ROWS / 2000 + 1, rows.cardinality());
+            Assertions.assertEquals(0, rows.nextSetBit(0));
+            Assertions.assertEquals(2000, rows.nextSetBit(1));
+
+            // Integer tests see the stored values
+            Assertions.assertEquals(rows, tab.findRows(ColumnPredicate.ofLong("Q", q -> q == -1000)));
+        }
+    }
+
+    @Test
+    public void testSelectColumns() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            BitSet rows = tab.findRows(ColumnPredicate.between("TIME", 5000000.0, 5010000.0));
+            Assertions.assertEquals(11, rows.cardinality());
+
+            rows.set(N_ROWS + 10); // Beyond the table, ignored.
+            BinaryTable s = tab.select(rows, 3, 0);
+
+            Assertions.assertEquals(2, s.getNCols());
+            Assertions.assertEquals(11, s.getNRows());
+            Assertions.assertEquals("LABEL", s.getDescriptor(0).name());
+            for (int i = 0; i < s.getNRows(); i++) {
+                Assertions.assertEquals("ev" + (5000 + i), s.getString(i, 0));
+                Assertions.assertEquals(1000L * (5000 + i), s.getLong(i, 1));
+            }
+        }
+    }
+
+    @Test
+    public void testSelectCopiesOnlySelectedHeapEntries() throws Exception {
+        BitSet rows = new BitSet();
+        rows.set(100, 110);
+
+        BinaryTable s;
+        try (Fits fits = new Fits(FILE)) {
+            s = ((BinaryTableHDU) fits.getHDU(1)).getData().select(rows);
+        }
+
+        // Independent of the closed input, and with just the heap entries of the selected rows
+        long heapSize = 0;
+        for (int i = 0; i < s.getNRows(); i++) {
+            double[] v = (double[]) s.get(i, 4);
+            Assertions.assertEquals((100 + i) % 4, v.length);
+            heapSize += v.length * Double.BYTES;
+        }
+        Assertions.assertEquals(heapSize, s.toHDU().getHeader().getLongValue(Standard.PCOUNT));
+    }
+
+    @Test
+    public void testNoPredicates() throws Exception {
+        BinaryTable tab = createTable();
+        Assertions.assertEquals(N_ROWS, tab.findRows().cardinality());
+        Assertions.assertEquals(0, tab.select(new BitSet()).getNRows());
+    }
+
+    @Test
+    public void testInvalidPredicates() throws Exception {
+        BinaryTable tab = createTable();
+        Assertions.assertThrows(TableException.class, () -> tab.findRows(ColumnPredicate.of(5, x -> true)));
+        Assertions.assertThrows(TableException.class, () -> tab.findRows(ColumnPredicate.of("NOSUCH", x -> true)));
+        Assertions.assertThrows(TableException.class, () -> tab.findRows(ColumnPredicate.of("LABEL", x -> true)));
+        Assertions.assertThrows(TableException.class, () -> tab.findRows(ColumnPredicate.of("VLA", x -> true)));
+        Assertions.assertThrows(TableException.class, () -> tab.findRows(ColumnPredicate.ofLong("ENERGY", x -> true)));
+    }
+}
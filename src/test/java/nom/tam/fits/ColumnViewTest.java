@@ -0,0 +1,212 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.util.TableException;
+
+@SuppressWarnings("javadoc")
+public class ColumnViewTest {
+
+    private static final File FILE = new File("target/bt-views.fits");
+
+    private static final int N_ROWS = 30011;
+
+    private static BinaryTable createTable() throws Exception {
+        byte[] b = new byte[N_ROWS];
+        short[] s = new short[N_ROWS];
+        int[][] i3 = new int[N_ROWS][3];
+        long[] l = new long[N_ROWS];
+        float[] f = new float[N_ROWS];
+        double[] d = new double[N_ROWS];
+        String[] str = new String[N_ROWS];
+        boolean[] z = new boolean[N_ROWS];
+
+        for (int i = 0; i < N_ROWS; i++) {
+            b[i] = (byte) i;
+            s[i] = (short) (i * 3);
+            i3[i][0] = i;
+            i3[i][1] = -i;
+            i3[i][2] = 2 * i;
+            l[i] = 1L << 40 | i;
+            f[i] = 0.25F * i;
+            d[i] = -0.5 * i;
+            str[i] = "s" + i;
+            z[i] = (i & 1) == 0;
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(b);
+        tab.addColumn(s);
+        tab.addColumn(i3);
+        tab.addColumn(l);
+        tab.addColumn(f);
+        tab.addColumn(d);
+        tab.addColumn(str);
+        tab.addColumn(z);
+        return tab;
+    }
+
+    @BeforeAll
+    public static void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(createTable().toHDU());
+            fits.write(FILE);
+        }
+    }
+
+    private static void checkViews(BinaryTable tab) throws Exception {
+        ByteColumnView b = (ByteColumnView) tab.getColumnView(0);
+        ShortColumnView s = (ShortColumnView) tab.getColumnView(1);
+        IntColumnView i3 = (IntColumnView) tab.getColumnView(2);
+        LongColumnView l = (LongColumnView) tab.getColumnView(3);
+        FloatColumnView f = (FloatColumnView) tab.getColumnView(4);
+        DoubleColumnView d = (DoubleColumnView) tab.getColumnView(5);
+        ByteColumnView str = (ByteColumnView) tab.getColumnView(6);
+        ByteColumnView z = (ByteColumnView) tab.getColumnView(7);
+
+        Assertions.assertEquals(N_ROWS, d.getNRows());
+        Assertions.assertEquals(3, i3.getElementCount());
+        Assertions.assertEquals(2, i3.getColumn());
+
+        int[] e = new int[3];
+
+        // Sequential access
+        for (int i = 0; i < N_ROWS; i++) {
+            Assertions.assertEquals((byte) i, b.get(i));
+            Assertions.assertEquals((short) (i * 3), s.get(i));
+            Assertions.assertEquals(-i, i3.get(i, 1));
+            Assertions.assertEquals(1L << 40 | i, l.get(i));
+            Assertions.assertEquals(0.25F * i, f.get(i));
+            Assertions.assertEquals(-0.5 * i, d.get(i));
+            Assertions.assertEquals((i & 1) == 0 ? (byte) 'T' : (byte) 'F', z.get(i));
+
+            i3.get(i, e, 0);
+            Assertions.assertArrayEquals(new int[] {i, -i, 2 * i}, e);
+        }
+
+        // Random access
+        for (int i = N_ROWS - 1; i >= 0; i -= 997) {
+            Assertions.assertEquals(2 * i, i3.get(i, 2));
+            Assertions.assertEquals(tab.getString(i, 6).charAt(0), (char) str.get(i, 0));
+        }
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> d.get(-1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> d.get(N_ROWS));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> i3.get(0, 3));
+    }
+
+    @Test
+    public void testViewsInMemory() throws Exception {
+        checkViews(createTable());
+    }
+
+    @Test
+    public void testViewsDeferred() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertTrue(tab.isDeferred());
+            checkViews(tab);
+            Assertions.assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testViewSharesStorage() throws Exception {
+        BinaryTable tab = createTable();
+        DoubleColumnView d = (DoubleColumnView) tab.getColumnView(5);
+        tab.set(10, 5, 123.0);
+        Assertions.assertEquals(123.0, d.get(10));
+    }
+
+    @Test
+    public void testNoSuchColumnView() throws Exception {
+        Assertions.assertThrows(TableException.class, () -> createTable().getColumnView(8));
+    }
+
+    private static void checkCursor(BinaryTable tab, int from, int to) throws Exception {
+        RowCursor c = tab.rowCursor(from, to, 5, 2, 3);
+
+        Assertions.assertEquals(3, c.getColumnCount());
+        Assertions.assertEquals(3, c.getElementCount(1));
+        Assertions.assertThrows(IllegalStateException.class, () -> c.getDouble(0));
+
+        int row = from;
+        while (c.next()) {
+            Assertions.assertEquals(row, c.getRow());
+            Assertions.assertEquals(-0.5 * row, c.getDouble(0));
+            Assertions.assertEquals(row, c.getInt(1));
+            Assertions.assertEquals(2 * row, c.getInt(1, 2));
+            Assertions.assertEquals(1L << 40 | row, c.getLong(2));
+            row++;
+        }
+
+        Assertions.assertEquals(to, row);
+        Assertions.assertFalse(c.next());
+        Assertions.assertThrows(IllegalStateException.class, () -> c.getDouble(0));
+    }
+
+    @Test
+    public void testRowCursorInMemory() throws Exception {
+        BinaryTable tab = createTable();
+        checkCursor(tab, 0, N_ROWS);
+        checkCursor(tab, 1000, 1010);
+        checkCursor(tab, 5, 5);
+    }
+
+    @Test
+    public void testRowCursorDeferred() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            checkCursor(tab, 0, N_ROWS);
+            checkCursor(tab, 17, 25000);
+            checkCursor(tab, 5, 5);
+            Assertions.assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testRowCursorAccessErrors() throws Exception {
+        BinaryTable tab = createTable();
+        RowCursor c = tab.rowCursor(0, 10);
+        Assertions.assertEquals(tab.getNCols(), c.getColumnCount());
+        Assertions.assertTrue(c.next());
+        Assertions.assertThrows(ClassCastException.class, () -> c.getInt(0));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> c.getInt(2, 3));
+        Assertions.assertThrows(TableException.class, () -> tab.rowCursor(0, N_ROWS + 1));
+    }
+}
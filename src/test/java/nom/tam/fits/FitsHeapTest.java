@@ -34,11 +34,13 @@ package nom.tam.fits;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import nom.tam.util.FitsFile;
 import nom.tam.util.FitsInputStream;
 import nom.tam.util.FitsOutputStream;
 
@@ -141,4 +143,113 @@ public class FitsHeapTest {
         Assertions.assertEquals(size, heap.getSize());
     }
 
+    private static File writeInts(String name, int n) throws Exception {
+        File f = new File("target/" + name);
+        try (FitsFile out = new FitsFile(f, "rw")) {
+            out.setLength(0);
+            for (int i = 0; i < n; i++) {
+                out.writeInt(i);
+            }
+        }
+        return f;
+    }
+
+    @Test
+    public void testFileBackedHeap() throws Exception {
+        File f = writeInts("heap-file-backed.bin", 100);
+
+        try (FitsFile in = new FitsFile(f, "r")) {
+            FitsHeap heap = FitsHeap.fromInput(in, 8, 360);
+            Assertions.assertTrue(heap.isFileBacked());
+            Assertions.assertEquals(360, heap.getSize());
+            Assertions.assertEquals(360, heap.size());
+
+            int[] got = new int[3];
+            heap.getData(4, got);
+            Assertions.assertArrayEquals(new int[] {3, 4, 5}, got);
+            Assertions.assertThrows(FitsException.class, () -> heap.getData(356, new int[2]));
+
+            FitsHeap copy = heap.copy();
+            Assertions.assertTrue(copy.isFileBacked());
+
+            // Modifying loads the heap into memory, leaving the original intact.
+            Assertions.assertEquals(8, copy.putData(new int[] {-1, -2}));
+            Assertions.assertFalse(copy.isFileBacked());
+            Assertions.assertEquals(368, copy.getSize());
+            copy.getData(4, got);
+            Assertions.assertArrayEquals(new int[] {3, 4, 5}, got);
+            Assertions.assertTrue(heap.isFileBacked());
+            Assertions.assertEquals(360, heap.getSize());
+
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            try (FitsOutputStream out = new FitsOutputStream(bout)) {
+                heap.write(out);
+            }
+            int[] all = new int[90];
+            try (FitsInputStream bin = new FitsInputStream(new ByteArrayInputStream(bout.toByteArray()))) {
+                bin.readArrayFully(all);
+            }
+            for (int i = 0; i < all.length; i++) {
+                Assertions.assertEquals(i + 2, all[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testFileBackedHeapOver2GB() throws Exception {
+        File f = writeInts("heap-file-backed-2g.bin", 10);
+        long offset = 3L << 30;
+
+        try (FitsFile in = new FitsFile(f, "r")) {
+            // Map the small file to the end of a heap > 2 GB, to exercise long heap offsets without a huge file.
+            FitsHeap heap = FitsHeap.fromInput(in, -offset, offset + 40);
+            Assertions.assertEquals(offset + 40, heap.getSize());
+            Assertions.assertThrows(IllegalStateException.class, () -> heap.size());
+
+            int[] got = new int[3];
+            heap.getData(offset + 8, got);
+            Assertions.assertArrayEquals(new int[] {2, 3, 4}, got);
+
+            Assertions.assertThrows(FitsException.class, () -> heap.putData(new int[1]));
+            Assertions.assertTrue(heap.isFileBacked());
+
+            FitsHeap compact = new FitsHeap(0);
+            Assertions.assertEquals(0, compact.copyFrom(heap, offset + 28, 12));
+            compact.getData(0, got);
+            Assertions.assertArrayEquals(new int[] {7, 8, 9}, got);
+        }
+    }
+
+    @Test
+    public void testDeferredTableHeap() throws Exception {
+        File f = new File("target/heap-deferred.fits");
+        File copy = new File("target/heap-deferred-copy.fits");
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(new int[][] {{1}, {2, 3}, {4, 5, 6}});
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(tab.toHDU());
+            fits.write(f);
+        }
+
+        try (Fits fits = new Fits(f)) {
+            BinaryTable t = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertTrue(t.isDeferred());
+            Assertions.assertArrayEquals(new int[] {2, 3}, (int[]) t.getElement(1, 0));
+
+            // Streams the file-backed heap to the new output
+            fits.write(copy);
+
+            t.setElement(1, 0, new int[] {-2, -3});
+            Assertions.assertArrayEquals(new int[] {-2, -3}, (int[]) t.getElement(1, 0));
+            Assertions.assertArrayEquals(new int[] {4, 5, 6}, (int[]) t.getElement(2, 0));
+        }
+
+        try (Fits fits = new Fits(copy)) {
+            BinaryTable t = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertArrayEquals(new int[] {1}, (int[]) t.getElement(0, 0));
+            Assertions.assertArrayEquals(new int[] {2, 3}, (int[]) t.getElement(1, 0));
+            Assertions.assertArrayEquals(new int[] {4, 5, 6}, (int[]) t.getElement(2, 0));
+        }
+    }
 }
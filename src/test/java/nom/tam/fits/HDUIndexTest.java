@@ -0,0 +1,235 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.util.FitsFile;
+
+import static nom.tam.fits.header.Standard.BITPIX;
+import static nom.tam.fits.header.Standard.EXTNAME;
+import static nom.tam.fits.header.Standard.EXTVER;
+
+@SuppressWarnings("javadoc")
+public class HDUIndexTest {
+
+    private final File file = new File("target/hduIndexTest.fits");
+
+    @BeforeEach
+    public void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new float[3][5]));
+            fits.addHDU(makeExtension("IMG", 1, new int[7][11]));
+            fits.addHDU(makeExtension("IMG", 2, new short[2][3][4]));
+            fits.addHDU(makeExtension("O'HARE", -1, new double[] {1.0, 2.0}));
+
+            BinaryTable tab = new BinaryTable();
+            tab.addColumn(new int[] {1, 2, 3});
+            tab.addColumn(new String[] {"a", "bb", "ccc"});
+            BinaryTableHDU tabHDU = tab.toHDU();
+            tabHDU.getHeader().addValue(EXTNAME, "TAB");
+            fits.addHDU(tabHDU);
+
+            fits.write(file);
+        }
+        HDUIndex.getSidecarFile(file).delete();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        file.delete();
+        HDUIndex.getSidecarFile(file).delete();
+    }
+
+    private BasicHDU<?> makeExtension(String name, int version, Object data) throws Exception {
+        BasicHDU<?> hdu = Fits.makeHDU(data);
+        hdu.getHeader().addValue(EXTNAME, name);
+        if (version > 0) {
+            hdu.getHeader().addValue(EXTVER, version);
+        }
+        return hdu;
+    }
+
+    @Test
+    public void testScanMatchesSequentialRead() throws Exception {
+        HDUIndex index = HDUIndex.scan(file);
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            Assertions.assertEquals(fits.getNumberOfHDUs(), index.size());
+
+            for (int i = 0; i < index.size(); i++) {
+                HDUIndex.Entry e = index.get(i);
+                BasicHDU<?> hdu = fits.getHDU(i);
+                Header h = hdu.getHeader();
+
+                Assertions.assertEquals(i, e.getIndex());
+                Assertions.assertEquals(h.getFileOffset(), e.getHeaderOffset(), "HDU " + i);
+                Assertions.assertEquals(hdu.getData().getFileOffset(), e.getDataOffset(), "HDU " + i);
+                Assertions.assertEquals(h.getDataSize(), FitsUtil.addPadding(e.getDataSize()), "HDU " + i);
+                Assertions.assertEquals(h.getIntValue(BITPIX), e.getBitpix());
+                Assertions.assertArrayEquals(hdu.getAxes(), e.getAxes(), "HDU " + i);
+                Assertions.assertEquals(h.getStringValue(EXTNAME), e.getExtName());
+            }
+        }
+
+        Assertions.assertNull(index.get(0).getXtension());
+        Assertions.assertEquals("IMAGE", index.get(1).getXtension());
+        Assertions.assertEquals("BINTABLE", index.get(4).getXtension());
+        Assertions.assertEquals(2, index.get(2).getExtVer());
+        Assertions.assertNull(index.get(3).getExtVer());
+        Assertions.assertEquals("O'HARE", index.get(3).getExtName());
+        Assertions.assertEquals(file.length(), index.get(4).getNextOffset());
+
+        Assertions.assertEquals(1, index.indexOf("IMG", 0));
+        Assertions.assertEquals(2, index.indexOf("IMG", 2));
+        Assertions.assertEquals(2, index.indexOf("IMG", 2, 0));
+        Assertions.assertEquals(-1, index.indexOf("IMG", 3));
+        Assertions.assertEquals(-1, index.indexOf("NONE", 0));
+    }
+
+    @Test
+    public void testScanRandomAccess() throws Exception {
+        try (FitsFile in = new FitsFile(file, "r")) {
+            in.seek(100);
+            HDUIndex index = HDUIndex.scan(in);
+            Assertions.assertEquals(5, index.size());
+            Assertions.assertEquals(100, in.getFilePointer());
+            Assertions.assertThrows(IllegalStateException.class, () -> index.save(HDUIndex.getSidecarFile(file)));
+        }
+    }
+
+    @Test
+    public void testNotFits() throws Exception {
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.write('X');
+        }
+
+        Assertions.assertThrows(FitsException.class, () -> HDUIndex.scan(file));
+    }
+
+    @Test
+    public void testDirectAccess() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            fits.buildIndex();
+
+            BasicHDU<?> tab = fits.getHDU("TAB");
+            Assertions.assertTrue(tab instanceof BinaryTableHDU);
+            Assertions.assertEquals(0, fits.getNumberOfHDUs());
+            Assertions.assertArrayEquals(new int[] {1, 2, 3}, (int[]) ((BinaryTableHDU) tab).getColumn(0));
+
+            ImageHDU img = (ImageHDU) fits.getHDU("IMG", 2);
+            Assertions.assertArrayEquals(new int[] {2, 3, 4}, img.getAxes());
+            Assertions.assertEquals(0, fits.getNumberOfHDUs());
+
+            Assertions.assertNull(fits.getHDU(5));
+            Assertions.assertNull(fits.getHDU("NONE"));
+            Assertions.assertNull(fits.getHDU("IMG", 3));
+
+            // Sequential reading picks up the same HDU objects
+            fits.read();
+            Assertions.assertEquals(5, fits.getNumberOfHDUs());
+            Assertions.assertSame(img, fits.getHDU(2));
+            Assertions.assertSame(tab, fits.getHDU(4));
+            Assertions.assertEquals(2, ((short[][][]) img.getKernel()).length);
+        }
+    }
+
+    @Test
+    public void testIndexDiscardedOnModification() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            fits.buildIndex();
+            Assertions.assertNotNull(fits.getIndex());
+            fits.readHDU();
+            fits.deleteHDU(0);
+            Assertions.assertNull(fits.getIndex());
+        }
+    }
+
+    @Test
+    public void testNoIndexForStream() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(file))) {
+            Assertions.assertThrows(FitsException.class, () -> fits.buildIndex());
+        }
+    }
+
+    @Test
+    public void testSidecar() throws Exception {
+        File sidecar = HDUIndex.getSidecarFile(file);
+        Assertions.assertFalse(sidecar.exists());
+
+        HDUIndex index = HDUIndex.forFile(file);
+        Assertions.assertTrue(sidecar.exists());
+
+        HDUIndex loaded = HDUIndex.load(sidecar, file);
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(index.size(), loaded.size());
+        for (int i = 0; i < index.size(); i++) {
+            HDUIndex.Entry a = index.get(i);
+            HDUIndex.Entry b = loaded.get(i);
+            Assertions.assertEquals(a.getHeaderOffset(), b.getHeaderOffset());
+            Assertions.assertEquals(a.getDataOffset(), b.getDataOffset());
+            Assertions.assertEquals(a.getDataSize(), b.getDataSize());
+            Assertions.assertEquals(a.getXtension(), b.getXtension());
+            Assertions.assertEquals(a.getExtName(), b.getExtName());
+            Assertions.assertEquals(a.getExtVer(), b.getExtVer());
+            Assertions.assertEquals(a.getBitpix(), b.getBitpix());
+            Assertions.assertArrayEquals(a.getAxes(), b.getAxes());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.setIndex(HDUIndex.forFile(file));
+            Assertions.assertEquals("O'HARE", fits.getHDU(3).getHeader().getStringValue(EXTNAME));
+        }
+
+        // Changing the file invalidates the sidecar
+        Assertions.assertTrue(file.setLastModified(file.lastModified() - 10000L));
+        Assertions.assertNull(HDUIndex.load(sidecar, file));
+
+        // Corrupt sidecars are ignored also
+        try (RandomAccessFile f = new RandomAccessFile(sidecar, "rw")) {
+            f.setLength(0);
+            f.write(new byte[] {0, 3, 'a', 'b', 'c'});
+        }
+        Assertions.assertNull(HDUIndex.load(sidecar, file));
+
+        sidecar.delete();
+        Assertions.assertNull(HDUIndex.load(sidecar, file));
+    }
+}
@@ -0,0 +1,182 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.header.Standard;
+import nom.tam.util.AsciiFuncs;
+import nom.tam.util.ComplexValue;
+
+@SuppressWarnings("javadoc")
+public class HeaderCardParserTest {
+
+    private static final String[] RECORDS = { //
+            "SIMPLE  =                    T / conforms to FITS standard", //
+            "BITPIX  =                  -32", //
+            "NAXIS1  =                 2048 / length of data axis 1", //
+            "BIGINT  =          12345678901", //
+            "HUGEINT = 123456789012345678901234567890", //
+            "EXPTIME =                 30.5 / [s]", //
+            "DBL     =   1.2345678901234D+05", //
+            "PRECISE = 3.14159265358979323846264338327950288", //
+            "CPLX    = (1.0, -2.5)", //
+            "OBJECT  = 'M31     '           / name", //
+            "QUOTED  = 'O''Hara  and ''Co'''", //
+            "LEADING = '   spaces'", //
+            "EMPTY   = ''", //
+            "BLANKSTR= '        '", //
+            "NOCMT   = 'abc'                /", //
+            "JUNK    = 'abc' junk after", //
+            "NOVALUE =", //
+            "NULLVAL =                      / no value here", //
+            "UNKNOWN = what is this", //
+            "LOGICAL =                    F", //
+            "COMMENT   This is a comment = with an equal sign", //
+            "HISTORY written by me", //
+            "          blank keyword", //
+            "END", //
+            "NOEQUAL   = misplaced", //
+            "DATE-OBS= '2024-01-01T00:00:00'", //
+            "lower   = 1", //
+            " LEADSP = 1", //
+            "CONTINUE  'more'", //
+            "LONGSTR = 'to be continued&'", //
+            "UNCLOSED= 'missing end quote", //
+            "HIERARCH ESO DET CHIP = 1", //
+            "AB CD   = 1", //
+    };
+
+    @AfterEach
+    public void restore() {
+        Header.setParserWarningsEnabled(false);
+    }
+
+    private static byte[] record(String line) {
+        StringBuilder buf = new StringBuilder(line);
+        while (buf.length() < HeaderCard.FITS_HEADER_CARD_SIZE) {
+            buf.append(' ');
+        }
+        return AsciiFuncs.getBytes(buf.toString());
+    }
+
+    @Test
+    public void testSameAsStringParser() throws Exception {
+        int fast = 0;
+
+        for (String line : RECORDS) {
+            HeaderCardParser parsed = HeaderCardParser.parse(record(line), 0);
+            if (parsed == null) {
+                continue;
+            }
+            fast++;
+
+            HeaderCardParser expected = new HeaderCardParser(AsciiFuncs.asciiString(record(line)));
+
+            Assertions.assertEquals(expected.getKey(), parsed.getKey(), line);
+            Assertions.assertEquals(expected.getValue(), parsed.getValue(), line);
+            Assertions.assertEquals(expected.getTrimmedComment(), parsed.getTrimmedComment(), line);
+
+            Class<?> type = parsed.getInferredType();
+            if (type == HeaderCardParser.DEFERRED_TYPE) {
+                type = HeaderCardParser.getInferredValueType(parsed.getKey(), parsed.getValue());
+            }
+            Assertions.assertEquals(expected.getInferredType(), type, line);
+        }
+
+        Assertions.assertEquals(RECORDS.length - 7, fast);
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        Assertions.assertNull(HeaderCardParser.parse(record("lower   = 1"), 0));
+        Assertions.assertNull(HeaderCardParser.parse(record("CONTINUE  'more'"), 0));
+        Assertions.assertNull(HeaderCardParser.parse(record("LONGSTR = 'to be continued&'"), 0));
+        Assertions.assertNull(HeaderCardParser.parse(record("UNCLOSED= 'missing end quote"), 0));
+        Assertions.assertNull(HeaderCardParser.parse(record("HIERARCH ESO DET CHIP = 1"), 0));
+        Assertions.assertNull(HeaderCardParser.parse(record("TAB     = 'a\tb'"), 0));
+
+        Header.setParserWarningsEnabled(true);
+        Assertions.assertNull(HeaderCardParser.parse(record("NAXIS   = 2"), 0));
+    }
+
+    @Test
+    public void testParseFromBlock() throws Exception {
+        byte[] block = new byte[FitsFactory.FITS_BLOCK_SIZE];
+        System.arraycopy(record("SIMPLE  = T"), 0, block, 0, HeaderCard.FITS_HEADER_CARD_SIZE);
+        System.arraycopy(record("NAXIS2  = 3"), 0, block, HeaderCard.FITS_HEADER_CARD_SIZE,
+                HeaderCard.FITS_HEADER_CARD_SIZE);
+
+        HeaderCardParser parsed = HeaderCardParser.parse(block, HeaderCard.FITS_HEADER_CARD_SIZE);
+        Assertions.assertEquals("NAXIS2", parsed.getKey());
+        Assertions.assertEquals("3", parsed.getValue());
+        Assertions.assertEquals(Integer.class, parsed.getInferredType());
+    }
+
+    @Test
+    public void testStandardKeysInterned() throws Exception {
+        Assertions.assertSame(Standard.BITPIX.key(), HeaderCardParser.parse(record("BITPIX  = 8"), 0).getKey());
+        Assertions.assertSame(HeaderCardParser.parse(record("TFORM12 = '1J'"), 0).getKey(),
+                HeaderCardParser.parse(record("TFORM12 = '2E'"), 0).getKey());
+    }
+
+    @Test
+    public void testDeferredTypes() throws Exception {
+        Assertions.assertEquals(Long.class, HeaderCard.create("BIGINT  = 12345678901").valueType());
+        Assertions.assertEquals(BigInteger.class,
+                HeaderCard.create("HUGEINT = 123456789012345678901234567890").valueType());
+        Assertions.assertEquals(Float.class, HeaderCard.create("EXPTIME = 30.5").valueType());
+        Assertions.assertEquals(Double.class, HeaderCard.create("DBL     = 1.5D0").valueType());
+        Assertions.assertEquals(BigDecimal.class,
+                HeaderCard.create("PRECISE = 3.14159265358979323846264338327950288").valueType());
+        Assertions.assertEquals(ComplexValue.class, HeaderCard.create("CPLX    = (1.0, -2.5)").valueType());
+
+        HeaderCard card = HeaderCard.create("UNKNOWN = what is this");
+        Assertions.assertTrue(card.isCommentStyleCard());
+        Assertions.assertNull(card.valueType());
+
+        card = HeaderCard.create("EXPTIME = 30.5");
+        Assertions.assertTrue(card.isDecimalType());
+        Assertions.assertFalse(card.isIntegerType());
+        Assertions.assertEquals(30.5, card.getValue(Double.class, 0.0), 1e-12);
+
+        // Setting a new value replaces the deferred type
+        card = HeaderCard.create("BIGINT  = 12345678901");
+        card.setValue(5L);
+        Assertions.assertEquals(Long.class, card.valueType());
+    }
+}
@@ -0,0 +1,187 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.header.Standard;
+
+import static nom.tam.fits.header.Standard.EXTNAME;
+
+@SuppressWarnings("javadoc")
+public class ParallelReadTest {
+
+    private static final File FILE = new File("target/parallelReadTest.fits");
+
+    private static final int N_EXT = 200;
+
+    @BeforeAll
+    public static void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new int[0]));
+
+            for (int i = 1; i <= N_EXT; i++) {
+                BasicHDU<?> hdu;
+                if (i % 3 == 0) {
+                    BinaryTable tab = new BinaryTable();
+                    tab.addColumn(new int[] {i, i + 1});
+                    tab.addColumn(new String[] {"x" + i, "yy"});
+                    hdu = tab.toHDU();
+                } else {
+                    float[][] im = new float[i % 7 + 1][i % 5 + 1];
+                    im[0][0] = i;
+                    hdu = Fits.makeHDU(im);
+                }
+                hdu.getHeader().addValue(EXTNAME, "EXT" + i);
+                fits.addHDU(hdu);
+            }
+
+            fits.write(FILE);
+        }
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        FILE.delete();
+    }
+
+    private static void assertSameHDUs(BasicHDU<?>[] expected, BasicHDU<?>[] actual) throws Exception {
+        Assertions.assertEquals(expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            Header he = expected[i].getHeader();
+            Header ha = actual[i].getHeader();
+            Assertions.assertEquals(expected[i].getClass(), actual[i].getClass(), "HDU " + i);
+            Assertions.assertEquals(he.getNumberOfCards(), ha.getNumberOfCards(), "HDU " + i);
+            Assertions.assertEquals(he.getStringValue(EXTNAME), ha.getStringValue(EXTNAME), "HDU " + i);
+            Assertions.assertEquals(he.getFileOffset(), ha.getFileOffset(), "HDU " + i);
+            Assertions.assertEquals(expected[i].getData().getFileOffset(), actual[i].getData().getFileOffset());
+            Assertions.assertEquals(he.getOriginalSize(), ha.getOriginalSize(), "HDU " + i);
+
+            if (expected[i] instanceof ImageHDU) {
+                Assertions.assertArrayEquals((Object[]) expected[i].getKernel(), (Object[]) actual[i].getKernel());
+            } else if (expected[i] instanceof BinaryTableHDU) {
+                BinaryTableHDU te = (BinaryTableHDU) expected[i];
+                BinaryTableHDU ta = (BinaryTableHDU) actual[i];
+                Assertions.assertArrayEquals((int[]) te.getColumn(0), (int[]) ta.getColumn(0), "HDU " + i);
+                Assertions.assertArrayEquals((String[]) te.getColumn(1), (String[]) ta.getColumn(1), "HDU " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testReadParallelDeferred() throws Exception {
+        try (Fits seq = new Fits(FILE); Fits par = new Fits(FILE)) {
+            BasicHDU<?>[] hdus = par.readParallel(false);
+            Assertions.assertEquals(N_EXT + 1, hdus.length);
+            Assertions.assertEquals(N_EXT + 1, par.getNumberOfHDUs());
+            Assertions.assertTrue(hdus[1].getData().isDeferred());
+            Assertions.assertNotNull(par.getIndex());
+
+            assertSameHDUs(seq.read(), hdus);
+
+            // Nothing more to read
+            Assertions.assertNull(par.readHDU());
+        }
+    }
+
+    @Test
+    public void testReadParallelLoaded() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+
+        try (Fits seq = new Fits(FILE); Fits par = new Fits(FILE)) {
+            BasicHDU<?>[] hdus = par.readParallel(pool, true);
+            Assertions.assertFalse(hdus[1].getData().isDeferred());
+            assertSameHDUs(seq.read(), hdus);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadParallelAfterSequential() throws Exception {
+        try (Fits seq = new Fits(FILE); Fits par = new Fits(FILE)) {
+            par.buildIndex();
+            BasicHDU<?> first = par.readHDU();
+            BasicHDU<?> ext = par.getHDU("EXT100");
+
+            BasicHDU<?>[] hdus = par.readParallel(false);
+            Assertions.assertSame(first, hdus[0]);
+            Assertions.assertSame(ext, hdus[100]);
+
+            assertSameHDUs(seq.read(), hdus);
+        }
+    }
+
+    @Test
+    public void testRewriteAfterReadParallel() throws Exception {
+        File copy = new File("target/parallelReadRewrite.fits");
+
+        try (Fits fits = new Fits(FILE)) {
+            fits.read();
+            fits.write(copy);
+        }
+
+        try (Fits fits = new Fits(copy)) {
+            BasicHDU<?>[] hdus = fits.readParallel(true);
+            Header h = hdus[5].getHeader();
+            Assertions.assertTrue(h.rewriteable());
+            h.addValue(Standard.OBJECT, "rewritten");
+            h.rewrite();
+        }
+
+        try (Fits fits = new Fits(copy)) {
+            Assertions.assertEquals("rewritten", fits.getHDU(5).getHeader().getStringValue(Standard.OBJECT));
+            Assertions.assertEquals(N_EXT + 1, fits.read().length);
+        } finally {
+            copy.delete();
+        }
+    }
+
+    @Test
+    public void testReadParallelStream() throws Exception {
+        try (Fits seq = new Fits(FILE); Fits par = new Fits(new FileInputStream(FILE))) {
+            BasicHDU<?>[] hdus = par.readParallel(true);
+            Assertions.assertNull(par.getIndex());
+            Assertions.assertEquals(N_EXT + 1, hdus.length);
+            Assertions.assertEquals("EXT42", hdus[42].getHeader().getStringValue(EXTNAME));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.util.TableException;
+
+@SuppressWarnings("javadoc")
+public class RowBatchCursorTest {
+
+    private static final File FILE = new File("target/bt-batches.fits");
+
+    private static final int N_ROWS = 10007;
+
+    private static BinaryTable createTable() throws Exception {
+        int[] id = new int[N_ROWS];
+        double[][] pos = new double[N_ROWS][2];
+        String[] label = new String[N_ROWS];
+        int[][] vla = new int[N_ROWS][];
+
+        for (int i = 0; i < N_ROWS; i++) {
+            id[i] = i;
+            pos[i][0] = i;
+            pos[i][1] = -0.5 * i;
+            label[i] = "r" + (i % 100);
+            vla[i] = new int[i % 3];
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(id);
+        tab.addColumn(pos);
+        tab.addColumn(label);
+        tab.addColumn(vla);
+        return tab;
+    }
+
+    @BeforeAll
+    public static void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(createTable().toHDU());
+            fits.write(FILE);
+        }
+    }
+
+    private static void checkScan(BinaryTable tab, int from, int to, int batchSize) throws Exception {
+        RowBatchCursor c = tab.rowBatches(from, to, batchSize, 1, 0);
+
+        Assertions.assertEquals(2, c.getColumnCount());
+        Assertions.assertEquals(1, c.getTableColumn(0));
+        Assertions.assertEquals(2, c.getElementCount(0));
+        Assertions.assertEquals(1, c.getElementCount(1));
+
+        int expected = from;
+        int batches = 0;
+
+        while (c.next()) {
+            Assertions.assertEquals(expected, c.getFirstRow());
+            Assertions.assertTrue(c.size() <= batchSize);
+
+            double[] pos = c.getDoubles(0);
+            int[] id = c.getInts(1);
+
+            for (int i = 0; i < c.size(); i++, expected++) {
+                Assertions.assertEquals(expected, id[i]);
+                Assertions.assertEquals(expected, pos[2 * i]);
+                Assertions.assertEquals(-0.5 * expected, pos[2 * i + 1]);
+            }
+            batches++;
+        }
+
+        Assertions.assertEquals(to, expected);
+        Assertions.assertEquals((to - from + batchSize - 1) / batchSize, batches);
+        Assertions.assertEquals(0, c.size());
+        Assertions.assertFalse(c.next());
+    }
+
+    @Test
+    public void testDeferredScan() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            Assertions.assertTrue(tab.isDeferred());
+
+            checkScan(tab, 0, N_ROWS, 1000);
+            checkScan(tab, 17, 5011, 256);
+            checkScan(tab, 100, 101, 10);
+            checkScan(tab, 42, 42, 10);
+
+            // Scanning must not load the table
+            Assertions.assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testInMemoryScan() throws Exception {
+        BinaryTable tab = createTable();
+        checkScan(tab, 0, N_ROWS, 1000);
+        checkScan(tab, 9000, N_ROWS, 333);
+    }
+
+    @Test
+    public void testAllColumns() throws Exception {
+        try (Fits fits = new Fits(FILE)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            RowBatchCursor c = tab.rowBatches(0, N_ROWS, 4096);
+
+            Assertions.assertEquals(tab.getNCols(), c.getColumnCount());
+
+            while (c.next()) {
+                byte[] label = c.getBytes(2);
+                int[] vla = c.getInts(3);
+                int n = c.getElementCount(2);
+
+                for (int i = 0; i < c.size(); i += 101) {
+                    int row = c.getFirstRow() + i;
+                    Assertions.assertEquals(tab.getString(row, 2), new String(label, i * n, n).trim());
+                    Assertions.assertArrayEquals((int[]) tab.getRawElement(row, 3),
+                            new int[] {vla[2 * i], vla[2 * i + 1]});
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() throws Exception {
+        BinaryTable tab = createTable();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tab.rowBatches(0, 10, 0));
+        Assertions.assertThrows(TableException.class, () -> tab.rowBatches(-1, 10, 10));
+        Assertions.assertThrows(TableException.class, () -> tab.rowBatches(10, 9, 10));
+        Assertions.assertThrows(TableException.class, () -> tab.rowBatches(0, N_ROWS + 1, 10));
+        Assertions.assertThrows(TableException.class, () -> tab.rowBatches(0, 10, 10, 4));
+    }
+}
@@ -0,0 +1,262 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.fits.header.Standard;
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+@SuppressWarnings("javadoc")
+public class StreamingTableWriterTest {
+
+    private static final int N_ROWS = 1000;
+
+    private static ColumnDesc[] getColumns(boolean useLongPointers) throws Exception {
+        return new ColumnDesc[] {ColumnDesc.createForScalars(long.class).name("ID"),
+                ColumnDesc.createForFixedArrays(double.class, 2).name("POS"),
+                ColumnDesc.createForVariableSize(float.class, useLongPointers).name("SPECTRUM"),
+                ColumnDesc.createForStrings(8).name("LABEL"), ColumnDesc.createForScalars(Boolean.class).name("FLAG")};
+    }
+
+    private static float[] getSpectrum(int row) {
+        float[] f = new float[row % 7];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = row + 0.5F * i;
+        }
+        return f;
+    }
+
+    private static void check(BinaryTable tab) throws Exception {
+        Assertions.assertEquals(N_ROWS, tab.getNRows());
+        for (int i = 0; i < N_ROWS; i++) {
+            Assertions.assertEquals((long) i, tab.get(i, 0));
+            Assertions.assertArrayEquals(new double[] {i, -i}, (double[]) tab.get(i, 1));
+            Assertions.assertArrayEquals(getSpectrum(i), (float[]) tab.get(i, 2));
+            Assertions.assertEquals("row" + i, tab.get(i, 3));
+            Assertions.assertEquals(i % 2 == 0, tab.get(i, 4));
+        }
+    }
+
+    @Test
+    public void testRowsToFile() throws Exception {
+        File file = new File("target/streaming-table-rows.fits");
+
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            out.setLength(0);
+            new NullDataHDU().write(out);
+
+            try (StreamingTableWriter w = new StreamingTableWriter(out, getColumns(false))) {
+                w.getHeader().addValue(Standard.EXTNAME, "STREAMED");
+                for (int i = 0; i < N_ROWS; i++) {
+                    Assertions.assertEquals(i + 1, w.addRow((long) i, new double[] {i, -i}, getSpectrum(i), "row" + i,
+                            i % 2 == 0));
+                }
+                Assertions.assertEquals(N_ROWS, w.getNRows());
+                Assertions.assertTrue(w.getHeapSize() > 0);
+            }
+
+            // Another HDU after the streamed table
+            Fits.makeHDU(new int[] {1, 2, 3}).write(out);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            Assertions.assertEquals(3, fits.read().length);
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            Assertions.assertEquals("STREAMED", hdu.getHeader().getStringValue(Standard.EXTNAME));
+            Assertions.assertEquals((long) N_ROWS * hdu.getData().getRowBytes(),
+                    hdu.getHeader().getLongValue(Standard.THEAP));
+            check(hdu.getData());
+        }
+    }
+
+    @Test
+    public void testColumnBatchesToStream() throws Exception {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        int batch = 300;
+
+        try (FitsOutputStream out = new FitsOutputStream(bo)) {
+            new NullDataHDU().write(out);
+
+            try (StreamingTableWriter w = new StreamingTableWriter(out, getColumns(true))) {
+                for (int from = 0; from < N_ROWS; from += batch) {
+                    int n = Math.min(batch, N_ROWS - from);
+                    long[] id = new long[n];
+                    double[][] pos = new double[n][];
+                    float[][] spec = new float[n][];
+                    String[] label = new String[n];
+                    Boolean[] flag = new Boolean[n];
+
+                    for (int i = 0; i < n; i++) {
+                        int row = from + i;
+                        id[i] = row;
+                        pos[i] = new double[] {row, -row};
+                        spec[i] = getSpectrum(row);
+                        label[i] = "row" + row;
+                        flag[i] = row % 2 == 0;
+                    }
+
+                    Assertions.assertEquals(from + n, w.addRows(id, pos, spec, label, flag));
+                }
+            }
+        }
+
+        Assertions.assertEquals(0, bo.size() % FitsFactory.FITS_BLOCK_SIZE);
+
+        try (Fits fits = new Fits(new FitsInputStream(new ByteArrayInputStream(bo.toByteArray())))) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            Assertions.assertTrue(hdu.getData().getDescriptor(2).hasLongPointers());
+            check(hdu.getData());
+        }
+    }
+
+    @Test
+    public void testCharColumn() throws Exception {
+        boolean unicode = FitsFactory.isUseUnicodeChars();
+
+        try {
+            for (boolean u : new boolean[] {false, true}) {
+                FitsFactory.setUseUnicodeChars(u);
+
+                char[] c = new char[N_ROWS];
+                for (int i = 0; i < N_ROWS; i++) {
+                    c[i] = (char) ('A' + i % 26);
+                }
+
+                ByteArrayOutputStream bo = new ByteArrayOutputStream();
+                try (FitsOutputStream out = new FitsOutputStream(bo)) {
+                    new NullDataHDU().write(out);
+                    try (StreamingTableWriter w = new StreamingTableWriter(out,
+                            ColumnDesc.createForScalars(char.class).name("C"))) {
+                        w.addRows((Object) c);
+                        w.addRow('z');
+                    }
+                }
+
+                // The same column written by BinaryTable
+                char[] all = Arrays.copyOf(c, N_ROWS + 1);
+                all[N_ROWS] = 'z';
+                ByteArrayOutputStream ref = new ByteArrayOutputStream();
+                try (FitsOutputStream out = new FitsOutputStream(ref)) {
+                    new NullDataHDU().write(out);
+                    BinaryTable.fromColumnMajor(new Object[] {all}).toHDU().write(out);
+                }
+
+                try (Fits fits = new Fits(new FitsInputStream(new ByteArrayInputStream(bo.toByteArray())));
+                        Fits expected = new Fits(new FitsInputStream(new ByteArrayInputStream(ref.toByteArray())))) {
+                    BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+                    BinaryTableHDU expHDU = (BinaryTableHDU) expected.getHDU(1);
+                    Assertions.assertEquals(expHDU.getHeader().getStringValue(Standard.TFORMn.n(1)),
+                            hdu.getHeader().getStringValue(Standard.TFORMn.n(1)), "unicode=" + u);
+
+                    BinaryTable tab = hdu.getData();
+                    BinaryTable exp = expHDU.getData();
+                    Assertions.assertEquals(N_ROWS + 1, tab.getNRows());
+                    for (int i = 0; i <= N_ROWS; i++) {
+                        Assertions.assertEquals(exp.get(i, 0), tab.get(i, 0), "unicode=" + u);
+                    }
+                }
+            }
+        } finally {
+            FitsFactory.setUseUnicodeChars(unicode);
+        }
+    }
+
+    @Test
+    public void testInvalidLastColumn() throws Exception {
+        File file = new File("target/streaming-table-invalid.fits");
+
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            out.setLength(0);
+            new NullDataHDU().write(out);
+
+            try (StreamingTableWriter w = new StreamingTableWriter(out, getColumns(false))) {
+                for (int i = 0; i < N_ROWS; i++) {
+                    int row = i;
+
+                    // The same row with a bad flag, after the entries of all other columns were encoded
+                    Assertions.assertThrows(IllegalArgumentException.class, () -> w.addRow((long) row,
+                            new double[] {row, -row}, getSpectrum(row), "row" + row, new boolean[2]));
+                    Assertions.assertEquals(i, w.getNRows());
+
+                    w.addRow((long) i, new double[] {i, -i}, getSpectrum(i), "row" + i, i % 2 == 0);
+                }
+            }
+        }
+
+        try (Fits fits = new Fits(file)) {
+            check(((BinaryTableHDU) fits.getHDU(1)).getData());
+        }
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+
+        try (FitsOutputStream out = new FitsOutputStream(bo)) {
+            new NullDataHDU().write(out);
+            new StreamingTableWriter(out, getColumns(false)).close();
+        }
+
+        try (Fits fits = new Fits(new FitsInputStream(new ByteArrayInputStream(bo.toByteArray())))) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            Assertions.assertEquals(0, hdu.getData().getNRows());
+            Assertions.assertEquals(5, hdu.getData().getNCols());
+        }
+    }
+
+    @Test
+    public void testInvalidRows() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new ByteArrayOutputStream());
+                StreamingTableWriter w = new StreamingTableWriter(out, getColumns(false))) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> w.addRow(1L));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> w.addRow(1L, new double[3], new float[0], "a", true));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> w.addRows(new long[2], new double[2][2], new float[1][], new String[2], new Boolean[2]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> w.addRows(new long[1]));
+
+            w.close();
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> w.addRow(1L, new double[2], new float[0], "a", true));
+        }
+    }
+}
@@ -31,6 +31,7 @@ package nom.tam.fits.compression.algorithm.gzip;
  * #L%
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -42,6 +43,11 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.Assertions;
@@ -438,4 +444,188 @@ public class GZipCompressTest {
             SafeClose.close(file);
         }
     }
+
+    private static byte[] noisyBytes(int n) {
+        Random random = new Random(n);
+        byte[] data = new byte[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = (byte) (i / 100 + random.nextInt(4));
+        }
+        return data;
+    }
+
+    @Test
+    public void testCodecMatchesGZIPOutputStream() throws Exception {
+        byte[] data = noisyBytes(200000);
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (GZIPOutputStream zip = new GZIPOutputStream(bo)) {
+            zip.write(data);
+        }
+        byte[] expected = bo.toByteArray();
+
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[data.length]);
+        Assertions.assertTrue(new ByteGZipCompressor().compress(ByteBuffer.wrap(data), compressed));
+        Assertions.assertEquals(expected.length, compressed.position());
+
+        // Same deflated data and trailer (the header may differ in the OS field only)
+        byte[] actual = Arrays.copyOf(compressed.array(), compressed.position());
+        Assertions.assertArrayEquals(Arrays.copyOfRange(expected, 10, expected.length),
+                Arrays.copyOfRange(actual, 10, actual.length));
+
+        byte[] back = new byte[data.length];
+        new ByteGZipCompressor().decompress(ByteBuffer.wrap(expected), ByteBuffer.wrap(back));
+        Assertions.assertArrayEquals(data, back);
+
+        Assertions.assertThrows(BufferOverflowException.class, () -> new ByteGZipCompressor()
+                .decompress(ByteBuffer.wrap(expected), ByteBuffer.wrap(new byte[data.length - 1])));
+    }
+
+    @Test
+    public void testCodecDirectBuffers() throws Exception {
+        byte[] data = noisyBytes(100000);
+        ShortBuffer pixels = ByteBuffer.allocateDirect(data.length).put(data).flip().asShortBuffer();
+        ByteBuffer compressed = ByteBuffer.allocateDirect(data.length);
+
+        ShortGZipCompressor c = new ShortGZipCompressor();
+        Assertions.assertTrue(c.compress(pixels, compressed));
+        compressed.flip();
+
+        ShortBuffer back = ByteBuffer.allocateDirect(data.length).asShortBuffer();
+        c.decompress(compressed, back);
+        back.flip();
+        pixels.rewind();
+        Assertions.assertEquals(pixels, back);
+    }
+
+    @Test
+    public void testCompressionLevel() throws Exception {
+        byte[] data = noisyBytes(100000);
+
+        ByteBuffer fast = ByteBuffer.wrap(new byte[2 * data.length]);
+        ByteGZipCompressor c = new ByteGZipCompressor();
+        Assertions.assertEquals(Deflater.DEFAULT_COMPRESSION, c.getCompressionLevel());
+        Assertions.assertEquals(c, c.setCompressionLevel(Deflater.NO_COMPRESSION));
+        Assertions.assertEquals(Deflater.NO_COMPRESSION, c.getCompressionLevel());
+        c.compress(ByteBuffer.wrap(data), fast);
+
+        ByteBuffer best = ByteBuffer.wrap(new byte[2 * data.length]);
+        c.setCompressionLevel(Deflater.BEST_COMPRESSION).compress(ByteBuffer.wrap(data), best);
+        Assertions.assertTrue(best.position() < fast.position());
+
+        for (ByteBuffer compressed : new ByteBuffer[] {fast, best}) {
+            byte[] back = new byte[data.length];
+            compressed.flip();
+            c.decompress(compressed, ByteBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> c.setCompressionLevel(10));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> c.setCompressionLevel(-2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GZipCompressor.setDefaultCompressionLevel(10));
+
+        try {
+            GZipCompressor.setDefaultCompressionLevel(Deflater.BEST_SPEED);
+            Assertions.assertEquals(Deflater.BEST_SPEED, GZipCompressor.getDefaultCompressionLevel());
+            Assertions.assertEquals(Deflater.BEST_SPEED, new IntGZipCompressor().getCompressionLevel());
+        } finally {
+            GZipCompressor.setDefaultCompressionLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    @Test
+    public void testCodecMultipleMembers() throws Exception {
+        byte[] data = noisyBytes(1000);
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[4 * data.length]);
+
+        GZipCodec codec = new GZipCodec();
+        codec.startDeflate(compressed, Deflater.DEFAULT_COMPRESSION);
+        codec.deflate(data, 0, 500);
+        codec.finishDeflate();
+        codec.startDeflate(compressed, Deflater.BEST_SPEED);
+        codec.deflate(ByteBuffer.wrap(data, 500, 500));
+        codec.finishDeflate();
+        compressed.put(new byte[] {1, 2, 3}); // Trailing garbage is ignored
+        compressed.flip();
+
+        byte[] back = new byte[data.length];
+        new ByteGZipCompressor().decompress(compressed, ByteBuffer.wrap(back));
+        Assertions.assertArrayEquals(data, back);
+    }
+
+    @Test
+    public void testCodecCorruptTrailer() throws Exception {
+        byte[] data = noisyBytes(1000);
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[2 * data.length]);
+        new ByteGZipCompressor().compress(ByteBuffer.wrap(data), compressed);
+
+        // Flip a bit in the CRC
+        compressed.put(compressed.limit() - 8, (byte) (compressed.get(compressed.limit() - 8) ^ 1));
+        compressed.rewind();
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ByteGZipCompressor().decompress(compressed, ByteBuffer.wrap(new byte[data.length])));
+
+        // Truncated data
+        compressed.limit(compressed.limit() / 2);
+        compressed.rewind();
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new ByteGZipCompressor().decompress(compressed, ByteBuffer.wrap(new byte[data.length])));
+    }
+
+    @Test
+    public void testCodecPoolBounded() throws Exception {
+        int max = 2 * Runtime.getRuntime().availableProcessors();
+        List<GZipCodec> codecs = new ArrayList<>();
+
+        // More streams at once than the pool keeps deflaters for
+        for (int i = 0; i < 3 * max; i++) {
+            GZipCodec codec = new GZipCodec();
+            codec.startDeflate(ByteBuffer.allocate(100), Deflater.DEFAULT_COMPRESSION);
+            codecs.add(codec);
+        }
+        for (GZipCodec codec : codecs) {
+            codec.reset();
+        }
+
+        // The extra deflaters were ended rather than kept
+        Assertions.assertTrue(GZipCodec.getIdleCount() <= 2 * max);
+
+        // Resetting again is harmless
+        codecs.get(0).reset();
+    }
+
+    private static class StreamedByteCompressor extends ByteGZipCompressor {
+        @Override
+        protected GZIPOutputStream createGZipOutputStream(int length, ByteBuffer compressed) throws IOException {
+            return super.createGZipOutputStream(length, compressed);
+        }
+    }
+
+    @Test
+    public void testCustomStreamsDetection() throws Exception {
+        Assertions.assertFalse(new ByteGZipCompressor().isUsingCustomStreams());
+        Assertions.assertTrue(new StreamedByteCompressor().isUsingCustomStreams());
+
+        // Overrides inherited from an intermediate class count too
+        Assertions.assertTrue(new StreamedByteCompressor() {
+        }.isUsingCustomStreams());
+
+        // But methods that only share the name do not
+        Assertions.assertFalse(new ByteGZipCompressor() {
+            @SuppressWarnings("unused")
+            protected GZIPOutputStream createGZipOutputStream(ByteBuffer compressed) throws IOException {
+                return null;
+            }
+        }.isUsingCustomStreams());
+
+        byte[] data = noisyBytes(1000);
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[2 * data.length]);
+        new StreamedByteCompressor().compress(ByteBuffer.wrap(data), compressed);
+        compressed.rewind();
+
+        byte[] back = new byte[data.length];
+        new ByteGZipCompressor().decompress(compressed, ByteBuffer.wrap(back));
+        Assertions.assertArrayEquals(data, back);
+    }
 }
@@ -37,6 +37,8 @@ import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -631,4 +633,82 @@ public class HCompressTest {
         Assertions.assertThrows(IllegalStateException.class, () -> c.decompress(zip, buf, new RiceCompressOption()));
     }
 
+    @Test
+    public void testHcompressReusedWorkspace() throws Exception {
+        // A larger tile first, to leave the pooled workspaces populated with unrelated data
+        int[] large = new int[256 * 300];
+        Random random = new Random(1);
+        for (int i = 0; i < large.length; i++) {
+            large[i] = random.nextInt(1 << 20) - (1 << 19);
+        }
+        IntHCompressor largeCompressor = new IntHCompressor(
+                new HCompressorOption().setTileWidth(300).setTileHeight(256).setScale(0));
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[8 * large.length]);
+        largeCompressor.compress(IntBuffer.wrap(large), compressed);
+        compressed.flip();
+        int[] back = new int[large.length];
+        largeCompressor.decompress(compressed, IntBuffer.wrap(back));
+        Assertions.assertArrayEquals(large, back);
+
+        byte[] bytes;
+        byte[] expectedBytes;
+        try (RandomAccessFile file = new RandomAccessFile(
+                "src/test/resources/nom/tam/image/comp/bare/test100Data32.bin", "r");
+                RandomAccessFile expected = new RandomAccessFile(
+                        "src/test/resources/nom/tam/image/comp/hcompress/scale0/test100Data32.huf", "r")) {
+            bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            expectedBytes = new byte[(int) expected.length()];
+            expected.readFully(expectedBytes);
+        }
+
+        // The smaller tile in the middle of a larger array, at a non-zero array offset
+        int[] intArray = new int[bytes.length / 4 + 20];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(intArray, 10, bytes.length / 4);
+        IntBuffer tile = IntBuffer.wrap(intArray, 10, bytes.length / 4).slice();
+
+        IntHCompressor intHCompress = new IntHCompressor(
+                new HCompressorOption().setTileWidth(100).setTileHeight(100).setScale(0));
+        compressed = ByteBuffer.wrap(new byte[bytes.length]);
+        intHCompress.compress(tile, compressed);
+        Assertions.assertFalse(tile.hasRemaining());
+        Assertions.assertArrayEquals(expectedBytes, Arrays.copyOf(compressed.array(), compressed.position()));
+
+        int[] decompressed = new int[intArray.length];
+        tile = IntBuffer.wrap(decompressed, 10, bytes.length / 4).slice();
+        intHCompress.decompress(ByteBuffer.wrap(expectedBytes), tile);
+        Assertions.assertFalse(tile.hasRemaining());
+        Assertions.assertArrayEquals(Arrays.copyOfRange(intArray, 10, intArray.length - 10),
+                Arrays.copyOfRange(decompressed, 10, decompressed.length - 10));
+        Assertions.assertEquals(0, decompressed[9]);
+        Assertions.assertEquals(0, decompressed[decompressed.length - 10]);
+    }
+
+    @Test
+    public void testHCompressWorkspacePool() throws Exception {
+        Thread[] threads = new Thread[50];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                HCompressWorkspace w = HCompressWorkspace.acquire();
+                w.pixels(1000);
+                HCompressWorkspace.release(w);
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        // Shared by all threads, and bounded
+        int idle = HCompressWorkspace.getIdleCount();
+        Assertions.assertTrue(idle > 0);
+        Assertions.assertTrue(idle <= 2 * Runtime.getRuntime().availableProcessors());
+
+        // Oversized workspaces are not pooled
+        HCompressWorkspace w = HCompressWorkspace.acquire();
+        w.pixels((int) (HCompressWorkspace.MAX_POOLED_SIZE / Long.BYTES) + 1);
+        Assertions.assertTrue(w.size() > HCompressWorkspace.MAX_POOLED_SIZE);
+        HCompressWorkspace.release(w);
+        Assertions.assertEquals(idle - 1, HCompressWorkspace.getIdleCount());
+    }
 }
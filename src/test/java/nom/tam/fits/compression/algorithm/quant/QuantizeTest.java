@@ -794,4 +794,122 @@ public class QuantizeTest {
 
         Assertions.assertEquals(RandomSequence.get(RandomSequence.length() - 1), LAST_RANDOM_VALUE, 0.1);
     }
+
+    private static QuantizeOption bulkTestOption(int method, boolean checkNull, double nullValue) {
+        return new QuantizeOption()//
+                .setDither(method > 0)//
+                .setDither2(method > 1)//
+                .setSeed(1234L)//
+                .setTileIndex(7)//
+                .setBScale(0.37)//
+                .setBZero(-12.5)//
+                .setCheckNull(checkNull)//
+                .setNullValue(nullValue)//
+                .setTileWidth(150)//
+                .setTileHeight(100);
+    }
+
+    private static double[] bulkTestData(int n, double nullValue) {
+        double[] data = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = Math.sin(i / 37.0) * 1000.0 + (i % 13) * 0.1;
+        }
+        for (int i = 0; i < n; i += 101) {
+            data[i] = 0.0;
+        }
+        for (int i = 5; i < n; i += 97) {
+            data[i] = nullValue;
+        }
+        return data;
+    }
+
+    @Test
+    public void testBulkQuantizeMatchesFilterChain() {
+        final int n = 150 * 100; // Longer than the random sequence
+        for (double nullValue : new double[] {Double.NaN, NULL_VALUE}) {
+            for (int method = 0; method < 3; method++) {
+                for (boolean checkNull : new boolean[] {false, true}) {
+                    double[] data = bulkTestData(n, nullValue);
+
+                    QuantizeProcessor bulk = new QuantizeProcessor(bulkTestOption(method, checkNull, nullValue));
+                    QuantizeProcessor chain = new QuantizeProcessor(bulkTestOption(method, checkNull, nullValue));
+
+                    int[] q = new int[n + 3];
+                    IntBuffer bq = IntBuffer.wrap(q, 3, n).slice();
+                    bulk.quantize(DoubleBuffer.wrap(data), bq);
+                    Assertions.assertEquals(n, bq.position());
+
+                    IntBuffer cq = ByteBuffer.allocateDirect(n * Integer.BYTES).asIntBuffer();
+                    chain.quantize(DoubleBuffer.wrap(data).asReadOnlyBuffer(), cq);
+
+                    int[] expected = new int[n];
+                    cq.rewind();
+                    cq.get(expected);
+                    Assertions.assertArrayEquals(expected, Arrays.copyOfRange(q, 3, n + 3));
+
+                    // Continue from the current dither state to restore.
+                    double[] d = new double[n];
+                    bulk.unquantize(IntBuffer.wrap(expected), DoubleBuffer.wrap(d));
+
+                    cq.rewind();
+                    DoubleBuffer cd = ByteBuffer.allocateDirect(n * Double.BYTES).asDoubleBuffer();
+                    chain.unquantize(cq, cd);
+                    double[] restored = new double[n];
+                    cd.rewind();
+                    cd.get(restored);
+                    Assertions.assertArrayEquals(restored, d);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBulkUnquantizeFloatMatchesFilterChain() {
+        final int n = 150 * 100;
+        for (int method = 0; method < 3; method++) {
+            int[] q = new int[n];
+            for (int i = 0; i < n; i++) {
+                q[i] = (i % 1000) - 500;
+            }
+            q[10] = Integer.MIN_VALUE + 2;
+            q[20] = Integer.MIN_VALUE + 1;
+
+            QuantizeProcessor bulk = new QuantizeProcessor(bulkTestOption(method, true, Double.NaN));
+            QuantizeProcessor chain = new QuantizeProcessor(bulkTestOption(method, true, Double.NaN));
+
+            float[] f = new float[n];
+            bulk.unquantize(IntBuffer.wrap(q), FloatBuffer.wrap(f));
+
+            FloatBuffer cf = ByteBuffer.allocateDirect(n * Float.BYTES).asFloatBuffer();
+            chain.unquantize(IntBuffer.wrap(q).asReadOnlyBuffer(), cf);
+            float[] expected = new float[n];
+            cf.rewind();
+            cf.get(expected);
+
+            Assertions.assertArrayEquals(expected, f);
+        }
+    }
+
+    @Test
+    public void testNoiseEstimateMatchesNullChecking() {
+        double[] data = bulkTestData(150 * 100, 1.0);
+        for (int nx : new int[] {150, 9, 4}) {
+            int ny = data.length / nx;
+
+            QuantizeOption fastOption = new QuantizeOption().setQlevel(4.0);
+            Quantize fast = new Quantize(fastOption);
+            QuantizeOption slowOption = new QuantizeOption().setQlevel(4.0);
+            Quantize slow = new Quantize(slowOption) {
+                // A subclass always goes through the null checking hooks
+            };
+
+            Assertions.assertEquals(slow.quantize(data, nx, ny), fast.quantize(data, nx, ny));
+            Assertions.assertEquals(slow.getNoise2(), fast.getNoise2(), 0.0);
+            Assertions.assertEquals(slow.getNoise3(), fast.getNoise3(), 0.0);
+            Assertions.assertEquals(slow.getNoise5(), fast.getNoise5(), 0.0);
+            Assertions.assertEquals(slowOption.getBScale(), fastOption.getBScale(), 0.0);
+            Assertions.assertEquals(slowOption.getMinValue(), fastOption.getMinValue(), 0.0);
+            Assertions.assertEquals(slowOption.getMaxValue(), fastOption.getMaxValue(), 0.0);
+        }
+    }
 }
@@ -32,12 +32,14 @@ package nom.tam.fits.compression.algorithm.rice;
  */
 
 import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.Random;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -417,6 +419,131 @@ public class RiceCompressTest {
         }
     }
 
+    private static int[] mixedPixels(int n, int range) {
+        Random random = new Random(n);
+        int[] data = new int[n];
+        for (int i = 0; i < n; i++) {
+            switch ((i / 100) % 4) {
+            case 0:
+                data[i] = 0; // low entropy
+                break;
+            case 1:
+                data[i] = (int) (100 * random.nextGaussian()); // normal
+                break;
+            case 2:
+                data[i] = random.nextInt() % range; // high entropy
+                break;
+            default:
+                data[i] = (i & 1) == 0 ? range - 1 : -range; // extremes
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void testBulkIntMatchesLegacy() throws Exception {
+        for (int blockSize : new int[] {16, 32}) {
+            IntRiceCompressor compressor = new IntRiceCompressor(new RiceCompressOption().setBlockSize(blockSize));
+            int[] data = mixedPixels(1021, Integer.MAX_VALUE);
+
+            ByteBuffer bulk = ByteBuffer.wrap(new byte[8 * data.length]);
+            ByteBuffer legacy = ByteBuffer.wrap(new byte[8 * data.length]);
+            IntBuffer in = IntBuffer.wrap(data);
+            Assertions.assertTrue(compressor.compress(in, bulk));
+            Assertions.assertEquals(data.length, in.position());
+            Assertions.assertTrue(compressor.compress(IntBuffer.wrap(data).asReadOnlyBuffer(), legacy));
+            Assertions.assertEquals(legacy.position(), bulk.position());
+            Assertions.assertArrayEquals(legacy.array(), bulk.array());
+
+            bulk.flip();
+            int[] back = new int[data.length];
+            compressor.decompress(bulk, IntBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+            Assertions.assertFalse(bulk.hasRemaining());
+
+            legacy.flip();
+            back = new int[data.length];
+            compressor.decompress(legacy.asReadOnlyBuffer(), IntBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+        }
+    }
+
+    @Test
+    public void testBulkShortMatchesLegacy() throws Exception {
+        for (int blockSize : new int[] {16, 32}) {
+            ShortRiceCompressor compressor = new ShortRiceCompressor(
+                    new RiceCompressOption().setBlockSize(blockSize));
+            int[] pixels = mixedPixels(1021, Short.MAX_VALUE + 1);
+            short[] data = new short[pixels.length];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (short) pixels[i];
+            }
+
+            ByteBuffer bulk = ByteBuffer.wrap(new byte[4 * data.length]);
+            ByteBuffer legacy = ByteBuffer.wrap(new byte[4 * data.length]);
+            Assertions.assertTrue(compressor.compress(ShortBuffer.wrap(data), bulk));
+            Assertions.assertTrue(compressor.compress(ShortBuffer.wrap(data).asReadOnlyBuffer(), legacy));
+            Assertions.assertEquals(legacy.position(), bulk.position());
+            Assertions.assertArrayEquals(legacy.array(), bulk.array());
+
+            bulk.flip();
+            short[] back = new short[data.length];
+            compressor.decompress(bulk, ShortBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+
+            legacy.flip();
+            back = new short[data.length];
+            compressor.decompress(legacy.asReadOnlyBuffer(), ShortBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+        }
+    }
+
+    @Test
+    public void testBulkByteMatchesLegacy() throws Exception {
+        for (int blockSize : new int[] {16, 32}) {
+            ByteRiceCompressor compressor = new ByteRiceCompressor(new RiceCompressOption().setBlockSize(blockSize));
+            int[] pixels = mixedPixels(1021, Byte.MAX_VALUE + 1);
+            byte[] data = new byte[pixels.length];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) pixels[i];
+            }
+
+            ByteBuffer bulk = ByteBuffer.wrap(new byte[4 * data.length]);
+            ByteBuffer legacy = ByteBuffer.wrap(new byte[4 * data.length]);
+            Assertions.assertTrue(compressor.compress(ByteBuffer.wrap(data), bulk));
+            Assertions.assertTrue(compressor.compress(ByteBuffer.wrap(data).asReadOnlyBuffer(), legacy));
+            Assertions.assertEquals(legacy.position(), bulk.position());
+            Assertions.assertArrayEquals(legacy.array(), bulk.array());
+
+            bulk.flip();
+            byte[] back = new byte[data.length];
+            compressor.decompress(bulk, ByteBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+
+            legacy.flip();
+            back = new byte[data.length];
+            compressor.decompress(legacy.asReadOnlyBuffer(), ByteBuffer.wrap(back));
+            Assertions.assertArrayEquals(data, back);
+        }
+    }
+
+    @Test
+    public void testBulkOverflowAndUnderflow() throws Exception {
+        IntRiceCompressor compressor = new IntRiceCompressor(option);
+        int[] data = mixedPixels(1000, Integer.MAX_VALUE);
+
+        Assertions.assertThrows(BufferOverflowException.class,
+                () -> compressor.compress(IntBuffer.wrap(data), ByteBuffer.wrap(new byte[100])));
+
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[8 * data.length]);
+        compressor.compress(IntBuffer.wrap(data), compressed);
+        compressed.limit(compressed.position() / 2);
+        compressed.rewind();
+
+        Assertions.assertThrows(BufferUnderflowException.class,
+                () -> compressor.decompress(compressed, IntBuffer.wrap(new int[data.length])));
+    }
+
     @Test
     public void testRiceQuantizeCompressIption() {
         RiceCompressOption c = new RiceCompressOption();
@@ -1,12 +1,16 @@
 package nom.tam.fits.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
@@ -18,12 +22,14 @@ import nom.tam.fits.FitsException;
 import nom.tam.fits.FitsFactory;
 import nom.tam.fits.FitsIntegrityException;
 import nom.tam.fits.Header;
+import nom.tam.fits.HeaderCard;
 import nom.tam.fits.ImageData;
 import nom.tam.fits.ImageHDU;
 import nom.tam.fits.header.Bitpix;
 import nom.tam.fits.header.Standard;
 import nom.tam.fits.utilities.FitsCheckSum;
 import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ChecksumOutputStream;
 import nom.tam.util.FitsFile;
 import nom.tam.util.FitsIO;
 import nom.tam.util.FitsInputStream;
@@ -521,4 +527,273 @@ public class ChecksumTest {
     public void testChecksumDecode() throws Exception {
         Assertions.assertEquals(868229149L, FitsCheckSum.decode("hcHjjc9ghcEghc9g"));
     }
+
+    @Test
+    public void testChecksumDirectBuffer() throws Exception {
+        byte[] b = new byte[2880 + 12];
+        new Random(1).nextBytes(b);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+        direct.put(b);
+        direct.flip();
+
+        Assertions.assertEquals(FitsCheckSum.checksum(b), FitsCheckSum.checksum(direct));
+    }
+
+    @Test
+    public void testParallelFileChecksum() throws Exception {
+        File f = new File("target/checksum-parallel.bin");
+        byte[] b = new byte[25 * 1024 * 1024];
+        new Random(2).nextBytes(b);
+        Files.write(f.toPath(), b);
+
+        try (FitsFile file = new FitsFile(f, "r")) {
+            long expected = FitsCheckSum.checksum(b);
+            file.seek(100);
+
+            Assertions.assertEquals(expected, FitsCheckSum.checksum(file, 0, b.length));
+            Assertions.assertEquals(expected, FitsCheckSum.checksum(file, 0, b.length, FitsFactory.threadPool()));
+            Assertions.assertEquals(100, file.getFilePointer());
+
+            // Segments, not aligned to chunk boundaries, and partial sums combined
+            int split = 3 * 2880 + 4;
+            long head = FitsCheckSum.checksum(file, 0, split, FitsFactory.threadPool());
+            long tail = FitsCheckSum.checksum(file, split, b.length - split, FitsFactory.threadPool());
+            Assertions.assertEquals(expected, FitsCheckSum.sumOf(head, tail));
+        }
+    }
+
+    @Test
+    public void testParallelFileChecksumEOF() throws Exception {
+        File f = new File("target/checksum-parallel-short.bin");
+        Files.write(f.toPath(), new byte[2880]);
+
+        try (FitsFile file = new FitsFile(f, "r")) {
+            Assertions.assertThrows(EOFException.class,
+                    () -> FitsCheckSum.checksum(file, 0, 20 * 2880, FitsFactory.threadPool()));
+        }
+    }
+
+    @Test
+    public void testFileChecksumTrailingBytes() throws Exception {
+        File f = new File("target/checksum-trailing.bin");
+        byte[] b = new byte[3 * 2880];
+        new Random(5).nextBytes(b);
+        Files.write(f.toPath(), b);
+
+        try (FitsFile file = new FitsFile(f, "r")) {
+            for (int size = 2877; size <= 2883; size++) {
+                // Trailing bytes are summed as if padded with zeroes, the same as when streaming
+                ChecksumOutputStream out = new ChecksumOutputStream(OutputStream.nullOutputStream());
+                out.write(b, 0, size);
+                long expected = out.nextChecksum();
+
+                Assertions.assertEquals(expected, FitsCheckSum.checksum(file, 0, size), "size " + size);
+                Assertions.assertEquals(expected, FitsCheckSum.checksum(file, 0, size, FitsFactory.threadPool()),
+                        "size " + size);
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateSum() throws Exception {
+        Random random = new Random(3);
+        byte[] b = new byte[2880 * 4];
+        random.nextBytes(b);
+
+        long total = FitsCheckSum.checksum(b);
+
+        for (int i = 0; i < 100; i++) {
+            int from = 4 * random.nextInt(b.length / 4 - 10);
+            int to = from + 4 * (1 + random.nextInt(10));
+
+            long oldPart = FitsCheckSum.checksum(Arrays.copyOfRange(b, from, to));
+            for (int k = from; k < to; k++) {
+                b[k] = (byte) random.nextInt();
+            }
+            long newPart = FitsCheckSum.checksum(Arrays.copyOfRange(b, from, to));
+
+            total = FitsCheckSum.updateSum(total, oldPart, newPart);
+            Assertions.assertEquals(FitsCheckSum.checksum(b), total);
+        }
+    }
+
+    @Test
+    public void testUpdateSumZeroes() throws Exception {
+        // All zero data
+        Assertions.assertEquals(0L, FitsCheckSum.updateSum(0L, 0L, 0L));
+        Assertions.assertEquals(0x12345678L, FitsCheckSum.updateSum(0x12345678L, 0L, 0L));
+
+        // Non-zero new segment cannot sum to 0
+        Assertions.assertEquals(0xffffffffL, FitsCheckSum.updateSum(0x10L, 0x20L, 0x10L));
+
+        // Zero new segment, with a zero-equivalent total, is ambiguous
+        Assertions.assertEquals(-1L, FitsCheckSum.updateSum(0x10L, 0x10L, 0L));
+    }
+
+    private static File createChecksummedFile(String name) throws Exception {
+        int[][] im = new int[100][100];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * 1000 + j;
+            }
+        }
+
+        File f = new File("target/" + name);
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(im));
+            fits.setChecksum();
+            fits.write(f);
+        }
+        return f;
+    }
+
+    @Test
+    public void testRewriteHeaderKeepsChecksums() throws Exception {
+        File f = createChecksummedFile("checksum-rewrite-header.fits");
+        long datasum;
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> hdu = fits.getHDU(0);
+            Assertions.assertTrue(hdu.getData().isDeferred());
+            datasum = hdu.getStoredDatasum();
+
+            hdu.addValue("TESTKEY", "edited", "header edit");
+            hdu.rewrite();
+
+            Assertions.assertTrue(hdu.getData().isDeferred());
+            Assertions.assertEquals(datasum, hdu.getStoredDatasum());
+        }
+
+        try (Fits fits = new Fits(f)) {
+            fits.verifyIntegrity();
+            Assertions.assertEquals("edited", fits.getHDU(0).getHeader().getStringValue("TESTKEY"));
+        }
+    }
+
+    @Test
+    public void testRewriteChecksumOnlyFullHeader() throws Exception {
+        File f = createChecksumOnlyFile("checksum-rewrite-full.fits", 0);
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> hdu = fits.getHDU(0);
+            long size = hdu.getHeader().getSize();
+
+            // No room for a DATASUM, so the stale CHECKSUM is dropped instead
+            hdu.rewrite();
+            hdu.rewriteData(8, new byte[] {0, 0, 0, 7});
+
+            Assertions.assertFalse(hdu.getHeader().containsKey(DATASUM));
+            Assertions.assertFalse(hdu.getHeader().containsKey(CHECKSUM));
+            Assertions.assertEquals(size, hdu.getHeader().getSize());
+        }
+
+        try (Fits fits = new Fits(f)) {
+            Assertions.assertEquals(7, ((int[]) fits.getHDU(0).getKernel())[2]);
+        }
+    }
+
+    @Test
+    public void testRewriteChecksumOnlyAddsDatasum() throws Exception {
+        File f = createChecksumOnlyFile("checksum-rewrite-room.fits", 1);
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> hdu = fits.getHDU(0);
+            long size = hdu.getHeader().getSize();
+
+            hdu.rewriteData(8, new byte[] {0, 0, 0, 7});
+
+            Assertions.assertTrue(hdu.getHeader().containsKey(DATASUM));
+            Assertions.assertEquals(size, hdu.getHeader().getSize());
+        }
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> hdu = fits.getHDU(0);
+            Assertions.assertTrue(hdu.verifyIntegrity());
+            Assertions.assertEquals(7, ((int[]) hdu.getKernel())[2]);
+        }
+    }
+
+    /**
+     * Writes an image HDU whose header has a <code>CHECKSUM</code> but no <code>DATASUM</code>, with the specified
+     * number of free records left in the header block.
+     */
+    private File createChecksumOnlyFile(String name, int free) throws Exception {
+        File f = new File("target/" + name);
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new int[100]));
+            fits.write(f);
+        }
+
+        // Writing drops a CHECKSUM without DATASUM, so append one, and fillers, in the file directly
+        try (FitsFile file = new FitsFile(f, "rw")) {
+            Header h = new Header(file);
+            int records = FitsFactory.FITS_BLOCK_SIZE / HeaderCard.FITS_HEADER_CARD_SIZE;
+
+            h.findCard("END");
+            h.addValue(CHECKSUM, FitsCheckSum.encode(0L));
+            while (h.getNumberOfPhysicalCards() < records - free) {
+                h.insertComment("filler");
+            }
+
+            file.seek(0);
+            h.writeUnchecked(file);
+        }
+
+        try (Fits fits = new Fits(f)) {
+            Header h = fits.getHDU(0).getHeader();
+            Assertions.assertTrue(h.containsKey(CHECKSUM));
+            Assertions.assertFalse(h.containsKey(DATASUM));
+            Assertions.assertEquals(FitsFactory.FITS_BLOCK_SIZE, h.getSize());
+        }
+
+        return f;
+    }
+
+    @Test
+    public void testRewriteData() throws Exception {
+        File f = createChecksummedFile("checksum-rewrite-data.fits");
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> hdu = fits.getHDU(0);
+
+            // Patch part of the 2nd and 3rd pixels in the 6th row, not aligned to 4-byte words
+            hdu.rewriteData(4 * (5 * 100 + 1) + 1, new byte[] {1, 2, 3, 4, 5});
+            Assertions.assertTrue(hdu.getData().isDeferred());
+
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> hdu.rewriteData(4 * 100 * 100 - 2, new byte[4]));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> hdu.rewriteData(-1, new byte[4]));
+        }
+
+        try (Fits fits = new Fits(f)) {
+            fits.verifyIntegrity();
+            int[][] im = (int[][]) fits.getHDU(0).getKernel();
+            Assertions.assertEquals((5001 & ~0xffffff) | 0x010203, im[5][1]);
+            Assertions.assertEquals(0x0405 << 16 | (5002 & 0xffff), im[5][2]);
+            Assertions.assertEquals(5003, im[5][3]);
+
+            // Loaded data cannot be patched
+            Assertions.assertThrows(FitsException.class, () -> fits.getHDU(0).rewriteData(0, new byte[4]));
+        }
+    }
+
+    @Test
+    public void testRewriteDataNoChecksums() throws Exception {
+        File f = new File("target/checksum-rewrite-nosum.fits");
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new int[100]));
+            fits.write(f);
+        }
+
+        try (Fits fits = new Fits(f)) {
+            fits.getHDU(0).rewriteData(8, new byte[] {0, 0, 0, 7});
+            Assertions.assertFalse(fits.getHDU(0).getHeader().containsKey("CHECKSUM"));
+        }
+
+        try (Fits fits = new Fits(f)) {
+            Assertions.assertEquals(7, ((int[]) fits.getHDU(0).getKernel())[2]);
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package nom.tam.fits.test;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -95,4 +97,56 @@ public class FitsFactoryTest {
         Assertions.assertNotNull(s);
         Assertions.assertEquals(s, FitsFactory.threadPool());
     }
+
+    @SuppressWarnings("resource")
+    @Test
+    public void testCustomThreadPool() throws Exception {
+        ExecutorService def = FitsFactory.threadPool();
+        ExecutorService custom = Executors.newSingleThreadExecutor();
+
+        try {
+            FitsFactory.setThreadPool(custom);
+            Assertions.assertEquals(custom, FitsFactory.threadPool());
+
+            // Thread-local settings start as a copy of the global ones, but may be changed independently
+            Future<Boolean> f = custom.submit(() -> {
+                FitsFactory.useThreadLocalSettings(true);
+                try {
+                    FitsFactory.setThreadPool(null);
+                    return FitsFactory.threadPool() == def;
+                } finally {
+                    FitsFactory.useThreadLocalSettings(false);
+                }
+            });
+            Assertions.assertTrue(f.get());
+            Assertions.assertEquals(custom, FitsFactory.threadPool());
+
+            FitsFactory.setDefaults();
+            Assertions.assertEquals(def, FitsFactory.threadPool());
+        } finally {
+            FitsFactory.setDefaults();
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadPool() throws Exception {
+        ExecutorService pool = FitsFactory.virtualThreadPool();
+        Assertions.assertNotNull(pool);
+        Assertions.assertEquals(3, pool.submit(() -> 3).get());
+        Assertions.assertSame(pool, FitsFactory.virtualThreadPool());
+    }
+
+    @Test
+    public void testMaxTilesInFlight() throws Exception {
+        try {
+            Assertions.assertEquals(0, FitsFactory.getMaxTilesInFlight());
+            FitsFactory.setMaxTilesInFlight(4);
+            Assertions.assertEquals(4, FitsFactory.getMaxTilesInFlight());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> FitsFactory.setMaxTilesInFlight(-1));
+        } finally {
+            FitsFactory.setDefaults();
+        }
+        Assertions.assertEquals(0, FitsFactory.getMaxTilesInFlight());
+    }
 }
@@ -928,4 +928,118 @@ public class CompressedImageTilerTest {
             Assertions.assertThrows(FitsException.class, () -> compressedImageHDU.getImageAxes());
         }
     }
+
+    @Test
+    public void testOverlappingTileIndices() {
+        Assertions.assertArrayEquals(new int[] {1, 2, 3},
+                CompressedImageTiler.getOverlappingTileIndices(15, 20, 1, 10, 100));
+        Assertions.assertArrayEquals(new int[] {1, 3},
+                CompressedImageTiler.getOverlappingTileIndices(15, 20, 18, 10, 100));
+        Assertions.assertArrayEquals(new int[] {9}, CompressedImageTiler.getOverlappingTileIndices(95, 20, 1, 10, 100));
+        Assertions.assertArrayEquals(new int[] {0}, CompressedImageTiler.getOverlappingTileIndices(-3, 5, 1, 10, 100));
+        Assertions.assertArrayEquals(new int[0], CompressedImageTiler.getOverlappingTileIndices(5, 0, 1, 10, 100));
+    }
+
+    @Test
+    public void testParallelCutoutDecompressesOverlappingTilesOnly() throws Exception {
+        final int[][] im = new int[100][120];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * 1000 + j;
+            }
+        }
+
+        final CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) Fits.makeHDU(im), 16, 16)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1);
+        hdu.compress();
+
+        final ImageHDU cutout = hdu.getTileHDU(new int[] {10, 20}, new int[] {50, 40});
+        final int[][] data = (int[][]) cutout.getKernel();
+
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 40; j++) {
+                Assertions.assertEquals(im[10 + i][20 + j], data[i][j]);
+            }
+        }
+
+        // Rows 10-59 overlap 4 tiles (0-3), columns 20-59 overlap 3 tiles (1-3)
+        Assertions.assertEquals(12, hdu.getTileCache().getMissCount());
+        Assertions.assertEquals(0, hdu.getTileCache().getHitCount());
+    }
+
+    @Test
+    public void testCutoutFromGzipFallbackTiles() throws Exception {
+        final int[] pattern = new Random(1).ints(20).toArray();
+        final int[][] im = new int[20][];
+        for (int i = 0; i < im.length; i++) {
+            im[i] = pattern.clone();
+        }
+
+        // Rice cannot compress the random values, but GZIP can the repeated rows, so the tiles are GZIP compressed.
+        final CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) Fits.makeHDU(im), 8, 8)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1);
+        hdu.compress();
+        Assertions.assertTrue(hdu.findColumn(Compression.GZIP_COMPRESSED_DATA_COLUMN) >= 0);
+
+        final int[][] data = (int[][]) hdu.getTileHDU(new int[] {3, 2}, new int[] {15, 17}).getKernel();
+
+        for (int i = 0; i < 15; i++) {
+            for (int j = 0; j < 17; j++) {
+                Assertions.assertEquals(im[3 + i][2 + j], data[i][j]);
+            }
+        }
+    }
+
+    @Test
+    public void testCutoutFromUncompressedTiles() throws Exception {
+        final int[][] im = new int[20][20];
+        final Random random = new Random(1);
+        for (int[] row : im) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt();
+            }
+        }
+
+        // Random data does not compress at all, so the tiles are stored uncompressed instead.
+        final CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) Fits.makeHDU(im), 8, 8)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1);
+        hdu.compress();
+        Assertions.assertTrue(hdu.findColumn(Compression.UNCOMPRESSED_DATA_COLUMN) >= 0);
+
+        final int[][] data = (int[][]) hdu.getTileHDU(new int[] {3, 2}, new int[] {15, 17}).getKernel();
+
+        for (int i = 0; i < 15; i++) {
+            for (int j = 0; j < 17; j++) {
+                Assertions.assertEquals(im[3 + i][2 + j], data[i][j]);
+            }
+        }
+    }
+
+    @Test
+    public void testCutoutWithPartialTilesFromCube() throws Exception {
+        final short[][][] im = new short[3][30][21];
+        final Random random = new Random(1);
+        for (short[][] plane : im) {
+            for (short[] row : plane) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = (short) random.nextInt(1000);
+                }
+            }
+        }
+
+        // Short pixels are Rice compressed with BYTEPIX = 4, and the image does not divide into whole tiles.
+        final CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) Fits.makeHDU(im), 8, 8)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1);
+        hdu.compress();
+
+        final short[][][] data = (short[][][]) hdu.getTileHDU(new int[] {1, 5, 3}, new int[] {2, 25, 18}).getKernel();
+
+        for (int k = 0; k < 2; k++) {
+            for (int i = 0; i < 25; i++) {
+                for (int j = 0; j < 18; j++) {
+                    Assertions.assertEquals(im[1 + k][5 + i][3 + j], data[k][i][j]);
+                }
+            }
+        }
+    }
 }
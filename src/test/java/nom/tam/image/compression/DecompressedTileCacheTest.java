@@ -0,0 +1,157 @@
+package nom.tam.image.compression;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.header.Compression;
+import nom.tam.image.compression.hdu.CompressedImageHDU;
+
+@SuppressWarnings("javadoc")
+public class DecompressedTileCacheTest {
+
+    @Test
+    public void testLRUEviction() {
+        DecompressedTileCache cache = new DecompressedTileCache(100);
+
+        cache.put(1, "a", 40);
+        cache.put(2, "b", 40);
+        Assertions.assertEquals("a", cache.get(1));
+
+        // Evicts tile 2, which was used least recently
+        cache.put(3, "c", 40);
+        Assertions.assertEquals(2, cache.getTileCount());
+        Assertions.assertEquals(80, cache.getSize());
+        Assertions.assertNull(cache.get(2));
+        Assertions.assertEquals("a", cache.get(1));
+        Assertions.assertEquals("c", cache.get(3));
+
+        Assertions.assertEquals(3, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+
+        cache.resetStatistics();
+        Assertions.assertEquals(0, cache.getHitCount());
+        Assertions.assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testReplaceTile() {
+        DecompressedTileCache cache = new DecompressedTileCache(100);
+        cache.put(1, "a", 40);
+        cache.put(1, "b", 60);
+        Assertions.assertEquals(1, cache.getTileCount());
+        Assertions.assertEquals(60, cache.getSize());
+        Assertions.assertEquals("b", cache.get(1));
+    }
+
+    @Test
+    public void testOversizedTile() {
+        DecompressedTileCache cache = new DecompressedTileCache(100);
+        cache.put(1, "a", 101);
+        Assertions.assertEquals(0, cache.getTileCount());
+        Assertions.assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        DecompressedTileCache cache = new DecompressedTileCache(100);
+        cache.put(1, "a", 40);
+        cache.put(2, "b", 40);
+        cache.setCapacity(50);
+        Assertions.assertEquals(50, cache.getCapacity());
+        Assertions.assertEquals(1, cache.getTileCount());
+        Assertions.assertEquals("b", cache.get(2));
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.getTileCount());
+        Assertions.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testNegativeCapacity() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DecompressedTileCache(-1));
+    }
+
+    @Test
+    public void testCachedCutouts() throws Exception {
+        try (Fits fits = new Fits(new File("src/test/resources/nom/tam/image/provided/m13real_rice.fits"))) {
+            CompressedImageHDU hdu = (CompressedImageHDU) fits.getHDU(1);
+            DecompressedTileCache cache = hdu.getTileCache();
+
+            ImageHDU first = hdu.getTileHDU(new int[] {10, 20}, new int[] {30, 40});
+            long misses = cache.getMissCount();
+            Assertions.assertTrue(misses > 0);
+            Assertions.assertTrue(cache.getTileCount() > 0);
+
+            // The same cutout again should be served entirely from the cache
+            ImageHDU second = hdu.getTileHDU(new int[] {10, 20}, new int[] {30, 40});
+            Assertions.assertEquals(misses, cache.getMissCount());
+            Assertions.assertTrue(cache.getHitCount() > 0);
+            Assertions.assertTrue(Arrays.deepEquals((Object[]) first.getKernel(), (Object[]) second.getKernel()));
+
+            // Compare against the uncached cutout
+            cache.setCapacity(0);
+            ImageHDU third = hdu.getTileHDU(new int[] {10, 20}, new int[] {30, 40});
+            Assertions.assertEquals(0, cache.getTileCount());
+            Assertions.assertTrue(Arrays.deepEquals((Object[]) first.getKernel(), (Object[]) third.getKernel()));
+        }
+    }
+
+    @Test
+    public void testEdgeTileSizes() throws Exception {
+        int[][] im = new int[10][15];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * j;
+            }
+        }
+
+        CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) FitsFactory.hduFactory(im), 4, 4);
+        hdu.setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1).setQuantAlgorithm(null);
+        hdu.compress();
+
+        DecompressedTileCache cache = hdu.getTileCache();
+        ImageHDU cutout = hdu.getTileHDU(new int[] {0, 0}, new int[] {10, 15});
+        Assertions.assertArrayEquals(im, (int[][]) cutout.getKernel());
+
+        // 3 x 4 tiles, including the partial tiles at the image edges, which hold fewer pixels than a full tile
+        Assertions.assertEquals(12, cache.getTileCount());
+        Assertions.assertEquals(im.length * im[0].length * Integer.BYTES, cache.getSize());
+    }
+}
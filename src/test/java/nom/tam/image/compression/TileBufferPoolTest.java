@@ -0,0 +1,177 @@
+package nom.tam.image.compression;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("javadoc")
+public class TileBufferPoolTest {
+
+    @BeforeEach
+    @AfterEach
+    public void reset() {
+        TileBufferPool.clear();
+        TileBufferPool.resetStatistics();
+        TileBufferPool.setCapacity(TileBufferPool.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void testAcquire() {
+        ByteBuffer b = TileBufferPool.acquire(3000, true);
+        Assertions.assertTrue(b.isDirect());
+        Assertions.assertEquals(0, b.position());
+        Assertions.assertEquals(3000, b.limit());
+        Assertions.assertEquals(4096, b.capacity());
+        Assertions.assertEquals(ByteOrder.BIG_ENDIAN, b.order());
+
+        ByteBuffer h = TileBufferPool.acquire(0, false);
+        Assertions.assertFalse(h.isDirect());
+        Assertions.assertEquals(0, h.remaining());
+        Assertions.assertEquals(TileBufferPool.MIN_POOLED_SIZE, h.capacity());
+
+        Assertions.assertEquals(2, TileBufferPool.getAllocationCount());
+        Assertions.assertEquals(0, TileBufferPool.getReuseCount());
+    }
+
+    @Test
+    public void testReuse() {
+        ByteBuffer b = TileBufferPool.acquire(3000, true);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(100);
+        TileBufferPool.release(b);
+        Assertions.assertEquals(4096, TileBufferPool.getCachedBytes());
+
+        // Same size class, but not the heap buffer
+        ByteBuffer h = TileBufferPool.acquire(2100, false);
+        Assertions.assertNotSame(b, h);
+
+        ByteBuffer b2 = TileBufferPool.acquire(2100, true);
+        Assertions.assertSame(b, b2);
+        Assertions.assertEquals(0, b2.position());
+        Assertions.assertEquals(2100, b2.limit());
+        Assertions.assertEquals(ByteOrder.BIG_ENDIAN, b2.order());
+        Assertions.assertEquals(0, TileBufferPool.getCachedBytes());
+
+        Assertions.assertEquals(2, TileBufferPool.getAllocationCount());
+        Assertions.assertEquals(1, TileBufferPool.getReuseCount());
+    }
+
+    @Test
+    public void testDiscard() {
+        // Too large to pool
+        ByteBuffer b = TileBufferPool.acquire(TileBufferPool.MAX_POOLED_SIZE + 1, false);
+        Assertions.assertEquals(TileBufferPool.MAX_POOLED_SIZE + 1, b.capacity());
+        TileBufferPool.release(b);
+
+        // Not one of ours
+        TileBufferPool.release(ByteBuffer.allocate(1000));
+        TileBufferPool.release(ByteBuffer.allocate(1024).asReadOnlyBuffer());
+        TileBufferPool.release(null);
+
+        Assertions.assertEquals(3, TileBufferPool.getDiscardCount());
+        Assertions.assertEquals(0, TileBufferPool.getCachedBytes());
+    }
+
+    @Test
+    public void testCapacity() {
+        TileBufferPool.setCapacity(5120);
+        Assertions.assertEquals(5120, TileBufferPool.getCapacity());
+
+        ByteBuffer a = TileBufferPool.acquire(4096, false);
+        ByteBuffer b = TileBufferPool.acquire(1024, false);
+        ByteBuffer c = TileBufferPool.acquire(1024, false);
+        TileBufferPool.release(a);
+        TileBufferPool.release(b);
+        TileBufferPool.release(c);
+
+        Assertions.assertEquals(5120, TileBufferPool.getCachedBytes());
+        Assertions.assertEquals(1, TileBufferPool.getDiscardCount());
+
+        TileBufferPool.clear();
+        Assertions.assertEquals(0, TileBufferPool.getCachedBytes());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TileBufferPool.setCapacity(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TileBufferPool.acquire(-1, true));
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+        ByteBuffer b = TileBufferPool.acquire(1024, true);
+
+        Thread t = new Thread(() -> TileBufferPool.release(b));
+        t.start();
+        t.join();
+
+        // Released by another thread, but reusable by this one
+        Assertions.assertEquals(1024, TileBufferPool.getCachedBytes());
+        Assertions.assertSame(b, TileBufferPool.acquire(1024, true));
+    }
+
+    @Test
+    public void testBoundedWithShortLivedThreads() throws Exception {
+        TileBufferPool.setCapacity(1L << 20);
+
+        Thread[] threads = new Thread[100];
+        for (int i = 0; i < threads.length; i++) {
+            int size = TileBufferPool.MIN_POOLED_SIZE << (i % 8);
+            threads[i] = new Thread(() -> {
+                ByteBuffer[] buffers = new ByteBuffer[8];
+                for (int k = 0; k < buffers.length; k++) {
+                    buffers[k] = TileBufferPool.acquire(size, k % 2 == 0);
+                }
+                for (ByteBuffer buffer : buffers) {
+                    TileBufferPool.release(buffer);
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        // The threads are gone, but what they left behind is shared and bounded
+        Assertions.assertTrue(TileBufferPool.getCachedBytes() > 0);
+        Assertions.assertTrue(TileBufferPool.getCachedBytes() <= TileBufferPool.getCapacity());
+        Assertions.assertTrue(TileBufferPool.getReuseCount() > 0);
+        Assertions.assertTrue(TileBufferPool.getDiscardCount() > 0);
+
+        TileBufferPool.clear();
+        Assertions.assertEquals(0, TileBufferPool.getCachedBytes());
+    }
+}
@@ -6,7 +6,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Assertions;
@@ -16,6 +22,7 @@ import nom.tam.fits.BinaryTable;
 import nom.tam.fits.BinaryTableHDU;
 import nom.tam.fits.Fits;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.fits.compression.algorithm.api.ICompressOption;
@@ -645,4 +652,63 @@ public class CompressedTableTest {
         Assertions.assertThrows(IllegalStateException.class, () -> tile.run());
     }
 
+    @Test
+    public void testCompressWithCustomThreadPool() throws Exception {
+        BinaryTable table = new BinaryTable();
+        table.addColumn(new int[100]);
+        table.addColumn(new double[100][3]);
+
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        ExecutorService counting = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.incrementAndGet();
+                pool.execute(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return null;
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return false;
+            }
+        };
+
+        try {
+            FitsFactory.setMaxTilesInFlight(1);
+
+            CompressedTableHDU hdu = CompressedTableHDU.fromBinaryTableHDU(BinaryTableHDU.wrap(table), 10);
+            hdu.setThreadPool(counting);
+            Assertions.assertEquals(counting, hdu.getThreadPool());
+            hdu.compress();
+
+            // 10 tiles in 2 columns
+            Assertions.assertEquals(20, tasks.get());
+
+            BinaryTableHDU restored = hdu.asBinaryTableHDU();
+            Assertions.assertEquals(40, tasks.get());
+            Assertions.assertEquals(100, restored.getNRows());
+        } finally {
+            FitsFactory.setDefaults();
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package nom.tam.image.compression.hdu;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.header.Compression;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+@SuppressWarnings("javadoc")
+public class StreamingDecompressedImageDataTest {
+
+    private static Object streamDecompress(CompressedImageHDU hdu, int windowTileRows) throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (Fits f = new Fits(); FitsOutputStream out = new FitsOutputStream(bout)) {
+            f.addHDU(hdu.asStreamingImageHDU(windowTileRows));
+            f.write(out);
+        }
+
+        try (Fits f = new Fits(new FitsInputStream(new ByteArrayInputStream(bout.toByteArray())))) {
+            return ((ImageHDU) f.getHDU(0)).getKernel();
+        }
+    }
+
+    @Test
+    public void testStreamingDecompressImage() throws Exception {
+        short[][] data = new short[101][67];
+        Random random = new Random(1);
+        for (int i = 0; i < data.length; i++) {
+            for (int j = 0; j < data[i].length; j++) {
+                data[i][j] = (short) random.nextInt(5000);
+            }
+        }
+
+        CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) FitsFactory.hduFactory(data), 20, 10)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1);
+        hdu.compress();
+
+        for (int rows : new int[] {1, 3, 100}) {
+            hdu.getTileCache().clear();
+            hdu.getTileCache().resetStatistics();
+            Assertions.assertArrayEquals(data, (Object[]) streamDecompress(hdu, rows));
+            // Every tile is decompressed exactly once
+            Assertions.assertEquals(4 * 11, hdu.getTileCache().getMissCount());
+        }
+    }
+
+    @Test
+    public void testStreamingDecompressCube() throws Exception {
+        float[][][] data = new float[3][30][20];
+        Random random = new Random(2);
+        for (int k = 0; k < data.length; k++) {
+            for (int i = 0; i < data[k].length; i++) {
+                for (int j = 0; j < data[k][i].length; j++) {
+                    data[k][i][j] = random.nextFloat();
+                }
+            }
+        }
+
+        CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) FitsFactory.hduFactory(data), 8, 8)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_GZIP_2);
+        hdu.compress();
+
+        Assertions.assertArrayEquals(data, (Object[]) streamDecompress(hdu, 2));
+    }
+
+    @Test
+    public void testInvalidWindow() throws Exception {
+        CompressedImageHDU hdu = CompressedImageHDU.fromImageHDU((ImageHDU) FitsFactory.hduFactory(new int[4][4]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hdu.asStreamingImageHDU(0));
+    }
+}
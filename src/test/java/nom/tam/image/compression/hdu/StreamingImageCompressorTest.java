@@ -0,0 +1,151 @@
+package nom.tam.image.compression.hdu;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.Header;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.NullDataHDU;
+import nom.tam.fits.compression.algorithm.quant.QuantizeOption;
+import nom.tam.fits.header.Compression;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+@SuppressWarnings("javadoc")
+public class StreamingImageCompressorTest {
+
+    private static byte[] compress(StreamingImageCompressor c, ImageHDU im, boolean fromStream) throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bout)) {
+            new NullDataHDU().write(out);
+            if (fromStream) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                try (FitsOutputStream o = new FitsOutputStream(data)) {
+                    im.getData().write(o);
+                }
+                c.compress(new FitsInputStream(new ByteArrayInputStream(data.toByteArray())), out);
+            } else {
+                c.compress(im.getTiler(), out);
+            }
+        }
+        return bout.toByteArray();
+    }
+
+    private static Object decompress(byte[] fits) throws Exception {
+        try (Fits f = new Fits(new FitsInputStream(new ByteArrayInputStream(fits)))) {
+            return ((CompressedImageHDU) f.getHDU(1)).asImageHDU().getKernel();
+        }
+    }
+
+    @Test
+    public void testStreamingQuantizedFloatImage() throws Exception {
+        float[][] data = new float[250][170];
+        Random random = new Random(1);
+        for (int i = 0; i < data.length; i++) {
+            for (int j = 0; j < data[i].length; j++) {
+                data[i][j] = (float) (1000.0 * Math.sin(0.01 * i * j) + random.nextGaussian());
+            }
+        }
+
+        ImageHDU im = (ImageHDU) FitsFactory.hduFactory(data);
+        im.addValue("OBJECT", "test", "a kept keyword");
+
+        CompressedImageHDU reference = CompressedImageHDU.fromImageHDU(im, 32, 16)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1)
+                .setQuantAlgorithm(Compression.ZQUANTIZ_SUBTRACTIVE_DITHER_1);
+        reference.getCompressOption(QuantizeOption.class).setQlevel(4.0);
+        reference.compress();
+        Object expected = reference.asImageHDU().getKernel();
+
+        StreamingImageCompressor c = new StreamingImageCompressor(im.getHeader()).setTileSize(32, 16)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_RICE_1)
+                .setQuantAlgorithm(Compression.ZQUANTIZ_SUBTRACTIVE_DITHER_1)
+                .setConfigurator(h -> h.getCompressOption(QuantizeOption.class).setQlevel(4.0)) //
+                .setBlockSize(3 * 16 * 170 * 4);
+
+        for (boolean fromStream : new boolean[] {false, true}) {
+            byte[] fits = compress(c, im, fromStream);
+            Assertions.assertEquals(0, fits.length % 2880);
+
+            try (Fits f = new Fits(new FitsInputStream(new ByteArrayInputStream(fits)))) {
+                Header h = f.getHDU(1).getHeader();
+                Assertions.assertEquals(170, h.getIntValue(Compression.ZNAXISn.n(1)));
+                Assertions.assertEquals(250, h.getIntValue(Compression.ZNAXISn.n(2)));
+                Assertions.assertEquals(32, h.getIntValue(Compression.ZTILEn.n(1)));
+                Assertions.assertEquals(16, h.getIntValue(Compression.ZTILEn.n(2)));
+                Assertions.assertEquals(6 * 16, h.getIntValue("NAXIS2"));
+                Assertions.assertEquals("test", h.getStringValue("OBJECT"));
+            }
+
+            Assertions.assertArrayEquals((Object[]) expected, (Object[]) decompress(fits));
+        }
+    }
+
+    @Test
+    public void testStreamingIntCube() throws Exception {
+        int[][][] data = new int[3][41][29];
+        Random random = new Random(2);
+        for (int k = 0; k < data.length; k++) {
+            for (int i = 0; i < data[k].length; i++) {
+                for (int j = 0; j < data[k][i].length; j++) {
+                    data[k][i][j] = random.nextInt(1000) - 500;
+                }
+            }
+        }
+
+        ImageHDU im = (ImageHDU) FitsFactory.hduFactory(data);
+
+        StreamingImageCompressor c = new StreamingImageCompressor(im.getHeader()).setTileSize(10, 10)
+                .setCompressAlgorithm(Compression.ZCMPTYPE_GZIP_1).setBlockSize(1);
+
+        for (boolean fromStream : new boolean[] {false, true}) {
+            Assertions.assertArrayEquals(data, (Object[]) decompress(compress(c, im, fromStream)));
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() throws Exception {
+        Assertions.assertThrows(nom.tam.fits.FitsException.class, () -> new StreamingImageCompressor(new Header()));
+
+        ImageHDU im = (ImageHDU) FitsFactory.hduFactory(new int[2][2]);
+        StreamingImageCompressor c = new StreamingImageCompressor(im.getHeader());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> c.setBlockSize(0));
+    }
+}
@@ -0,0 +1,115 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.fits.compression.algorithm.rice.RiceCompressOption;
+import nom.tam.fits.compression.algorithm.rice.RiceCompressor.IntRiceCompressor;
+
+/**
+ * Compares the bulk Rice codec, which is used for array-backed buffers, against the pixel-by-pixel implementation,
+ * which is still used for other (here read-only) buffers. Run e.g. with <code>RiceBenchmark</code> as the argument
+ * to select these benchmarks only.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("javadoc")
+public class RiceBenchmark {
+
+    private static final int PIXELS = 1024 * 1024;
+
+    private final IntRiceCompressor compressor = new IntRiceCompressor(new RiceCompressOption());
+
+    private int[] pixels;
+
+    private int[] decompressed;
+
+    private ByteBuffer compressed;
+
+    private ByteBuffer encoded;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        pixels = new int[PIXELS];
+        for (int i = 0; i < PIXELS; i++) {
+            // A sky background with some noise
+            pixels[i] = 1000 + (int) (30.0 * random.nextGaussian());
+        }
+        decompressed = new int[PIXELS];
+        compressed = ByteBuffer.wrap(new byte[2 * Integer.BYTES * PIXELS]);
+
+        encoded = ByteBuffer.wrap(new byte[2 * Integer.BYTES * PIXELS]);
+        compressor.compress(IntBuffer.wrap(pixels), encoded);
+        encoded.flip();
+    }
+
+    @Benchmark
+    public int compressBulk() {
+        compressed.clear();
+        compressor.compress(IntBuffer.wrap(pixels), compressed);
+        return compressed.position();
+    }
+
+    @Benchmark
+    public int compressLegacy() {
+        compressed.clear();
+        compressor.compress(IntBuffer.wrap(pixels).asReadOnlyBuffer(), compressed);
+        return compressed.position();
+    }
+
+    @Benchmark
+    public int[] decompressBulk() {
+        compressor.decompress(encoded.duplicate(), IntBuffer.wrap(decompressed));
+        return decompressed;
+    }
+
+    @Benchmark
+    public int[] decompressLegacy() {
+        compressor.decompress(encoded.asReadOnlyBuffer(), IntBuffer.wrap(decompressed));
+        return decompressed;
+    }
+}
@@ -0,0 +1,204 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.BinaryTable;
+import nom.tam.fits.BinaryTableHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.utilities.FitsCheckSum;
+
+@SuppressWarnings("javadoc")
+public class ChecksumOutputStreamTest {
+
+    @AfterEach
+    public void restoreDefaults() {
+        FitsFactory.setDefaults();
+    }
+
+    @Test
+    public void testSegmentChecksums() throws Exception {
+        byte[] b = new byte[3 * 2880];
+        new Random(1234).nextBytes(b);
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (ChecksumOutputStream out = new ChecksumOutputStream(bo)) {
+            // Write in odd-sized chunks, mixing single bytes and arrays
+            out.write(b, 0, 3);
+            out.write(b[3]);
+            out.write(b, 4, 2876);
+            Assertions.assertEquals(FitsCheckSum.checksum(Arrays.copyOf(b, 2880)), out.nextChecksum());
+
+            for (int i = 2880; i < b.length;) {
+                int n = Math.min(7, b.length - i);
+                out.write(b, i, n);
+                i += n;
+            }
+            Assertions.assertEquals(FitsCheckSum.checksum(Arrays.copyOfRange(b, 2880, b.length)), out.nextChecksum());
+            Assertions.assertEquals(b.length, out.getCount());
+            Assertions.assertEquals(b.length, out.getPosition());
+            Assertions.assertFalse(out.isRewritable());
+            Assertions.assertEquals(0, out.nextChecksum());
+        }
+
+        Assertions.assertArrayEquals(b, bo.toByteArray());
+    }
+
+    @Test
+    public void testEncodedChecksum() throws Exception {
+        int[] data = new int[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i * 0x01020304;
+        }
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (ChecksumOutputStream out = new ChecksumOutputStream(bo)) {
+            out.write(data);
+            out.flush();
+            Assertions.assertEquals(FitsCheckSum.checksum(bo.toByteArray()), out.nextChecksum());
+        }
+    }
+
+    @Test
+    public void testRewriteNonFile() throws Exception {
+        try (ChecksumOutputStream out = new ChecksumOutputStream(new ByteArrayOutputStream())) {
+            out.write(new byte[4]);
+            Assertions.assertThrows(IOException.class, () -> out.rewrite(0, new byte[4]));
+        }
+    }
+
+    @Test
+    public void testRewriteOutOfRange() throws Exception {
+        File f = new File("target/checksum-rewrite.bin");
+        try (ChecksumOutputStream out = new ChecksumOutputStream(new FileOutputStream(f))) {
+            out.write(new byte[8]);
+            Assertions.assertTrue(out.isRewritable());
+            Assertions.assertThrows(IOException.class, () -> out.rewrite(4, new byte[8]));
+            out.rewrite(2, new byte[] {1, 2, 3, 4});
+        }
+        Assertions.assertArrayEquals(new byte[] {0, 0, 1, 2, 3, 4, 0, 0}, Files.readAllBytes(f.toPath()));
+    }
+
+    @Test
+    public void testChecksumOnWrite() throws Exception {
+        float[][] im = new float[100][77];
+        Random random = new Random(42);
+        for (float[] row : im) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = random.nextFloat();
+            }
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(new int[] {1, 2, 3});
+        tab.addColumn(new String[] {"a", "bb", "ccc"});
+
+        File f = new File("target/checksum-on-write.fits");
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(im));
+            fits.addHDU(tab.toHDU());
+
+            FitsFactory.setChecksumOnWrite(true);
+            fits.write(f);
+        }
+
+        try (Fits fits = new Fits(f)) {
+            fits.read();
+            Assertions.assertEquals(2, fits.getNumberOfHDUs());
+            fits.verifyIntegrity();
+
+            ImageHDU image = (ImageHDU) fits.getHDU(0);
+            Assertions.assertEquals(image.getData().calcChecksum(), FitsCheckSum.getStoredDatasum(image.getHeader()));
+            Assertions.assertArrayEquals(im, (float[][]) image.getKernel());
+
+            BinaryTableHDU table = (BinaryTableHDU) fits.getHDU(1);
+            Assertions.assertEquals(table.getData().calcChecksum(), FitsCheckSum.getStoredDatasum(table.getHeader()));
+            Assertions.assertEquals(3, table.getNRows());
+        }
+    }
+
+    @Test
+    public void testChecksumOnWriteMatchesSetChecksum() throws Exception {
+        short[] data = new short[1001];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) (i * 31);
+        }
+
+        BasicHDU<?> hdu = Fits.makeHDU(data);
+
+        FitsFactory.setChecksumOnWrite(true);
+        File f = new File("target/checksum-on-write-1d.fits");
+        try (Fits fits = new Fits()) {
+            fits.addHDU(hdu);
+            fits.write(f);
+        }
+
+        long datasum = FitsCheckSum.getStoredDatasum(hdu.getHeader());
+        Assertions.assertEquals(hdu.getData().calcChecksum(), datasum);
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?> read = fits.readHDU();
+            Assertions.assertTrue(read.verifyIntegrity());
+            Assertions.assertEquals(datasum, FitsCheckSum.getStoredDatasum(read.getHeader()));
+            Assertions.assertEquals(FitsCheckSum.getStoredChecksum(hdu.getHeader()),
+                    FitsCheckSum.getStoredChecksum(read.getHeader()));
+        }
+    }
+
+    @Test
+    public void testChecksumOnWriteDisabled() throws Exception {
+        File f = new File("target/checksum-off.fits");
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new int[10]));
+            fits.write(f);
+        }
+
+        try (Fits fits = new Fits(f)) {
+            Assertions.assertFalse(fits.readHDU().getHeader().containsKey("CHECKSUM"));
+        }
+    }
+}
@@ -33,8 +33,14 @@ import java.io.EOFException;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -798,4 +804,115 @@ public class ColumnTableTest {
 
     }
 
+    private static Object[] createParallelColumns(int rows, boolean random) {
+        Random r = new Random(1);
+        byte[] b = new byte[rows];
+        boolean[] z = new boolean[rows];
+        short[] s = new short[rows];
+        int[] i = new int[rows];
+        long[] l = new long[rows * 2];
+        float[] f = new float[rows];
+        double[] d = new double[rows * 3];
+        boolean[] z2 = new boolean[rows * 2];
+        byte[] b5 = new byte[rows * 5];
+        char[] c = new char[rows];
+        char[] c3 = new char[rows * 3];
+
+        if (random) {
+            r.nextBytes(b);
+            r.nextBytes(b5);
+            for (int k = 0; k < rows; k++) {
+                z[k] = r.nextBoolean();
+                s[k] = (short) r.nextInt();
+                i[k] = r.nextInt();
+                l[2 * k] = r.nextLong();
+                l[2 * k + 1] = r.nextLong();
+                f[k] = r.nextFloat();
+                d[3 * k] = r.nextGaussian();
+                d[3 * k + 1] = r.nextGaussian();
+                d[3 * k + 2] = r.nextGaussian();
+                z2[2 * k] = r.nextBoolean();
+                z2[2 * k + 1] = r.nextBoolean();
+                c[k] = (char) ('A' + r.nextInt(26));
+                for (int j = 0; j < 3; j++) {
+                    c3[3 * k + j] = (char) ('a' + r.nextInt(26));
+                }
+            }
+        }
+
+        return new Object[] {b, z, s, i, l, f, d, z2, b5, c, c3};
+    }
+
+    private static final int[] PARALLEL_SIZES = {1, 1, 1, 1, 2, 1, 3, 2, 5, 1, 3};
+
+    private static void checkParallelRead(ExecutorService pool) throws Exception {
+        // Large enough to be read in more than one chunk
+        int rows = 200000;
+        ColumnTable<?> tab = new ColumnTable<>(createParallelColumns(rows, true), PARALLEL_SIZES);
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bo)) {
+            tab.write(out);
+        }
+
+        ColumnTable<?> got = new ColumnTable<>(createParallelColumns(rows, false), PARALLEL_SIZES);
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bo.toByteArray()))) {
+            got.read(in, pool, 3);
+        }
+
+        for (int col = 0; col < tab.getNCols(); col++) {
+            Assertions.assertTrue(Objects.deepEquals(tab.getColumn(col), got.getColumn(col)), "col " + col);
+        }
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            checkParallelRead(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelReadChars() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            // The pool threads use the global settings, while the reading thread has its own
+            FitsFactory.useThreadLocalSettings(true);
+            for (boolean unicode : new boolean[] {false, true}) {
+                FitsFactory.setUseUnicodeChars(unicode);
+                checkParallelRead(pool);
+            }
+        } finally {
+            FitsFactory.useThreadLocalSettings(false);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelReadRejected() throws Exception {
+        // Tasks the executor does not run are run by the calling thread
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        pool.shutdown();
+        checkParallelRead(pool);
+    }
+
+    @Test
+    public void testParallelReadSmallTable() throws Exception {
+        ColumnTable<?> tab = new ColumnTable<>(new Object[] {new int[] {1, 2, 3}}, new int[] {1});
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bo)) {
+            tab.write(out);
+        }
+
+        ColumnTable<?> got = new ColumnTable<>(new Object[] {new int[3]}, new int[] {1});
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bo.toByteArray()))) {
+            // Small tables are read serially, never touching the executor
+            got.read(in, null);
+        }
+        Assertions.assertArrayEquals(new int[] {1, 2, 3}, (int[]) got.getColumn(0));
+    }
 }
@@ -0,0 +1,210 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.ImageHDU;
+
+@SuppressWarnings("javadoc")
+public class MappedFileIOTest {
+
+    private static File createTestFile(int size) throws IOException {
+        File f = File.createTempFile("mapped", ".bin");
+        f.deleteOnExit();
+
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) {
+            b[i] = (byte) i;
+        }
+        Files.write(f.toPath(), b);
+        return f;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        FitsFactory.setDefaults();
+    }
+
+    @Test
+    public void testReadAcrossSegments() throws Exception {
+        File f = createTestFile(10000);
+
+        try (MappedFileIO io = new MappedFileIO(f, 12)) {
+            Assertions.assertEquals(3, io.getSegmentCount());
+            Assertions.assertEquals(10000, io.length());
+
+            io.position(4090);
+            byte[] b = new byte[20];
+            Assertions.assertEquals(b.length, io.read(b, 0, b.length));
+            for (int i = 0; i < b.length; i++) {
+                Assertions.assertEquals((byte) (4090 + i), b[i]);
+            }
+            Assertions.assertEquals(4110, io.position());
+
+            io.position(8191);
+            Assertions.assertEquals(8191 & 0xFF, io.read());
+            Assertions.assertEquals(8192 & 0xFF, io.read());
+        }
+    }
+
+    @Test
+    public void testReadAtEnd() throws Exception {
+        File f = createTestFile(100);
+
+        try (MappedFileIO io = new MappedFileIO(f)) {
+            io.position(90);
+            byte[] b = new byte[20];
+            Assertions.assertEquals(10, io.read(b, 0, b.length));
+            Assertions.assertEquals(-1, io.read(b, 0, b.length));
+            Assertions.assertEquals(-1, io.read());
+            Assertions.assertEquals(0, io.read(b, 0, 0));
+        }
+    }
+
+    @Test
+    public void testNegativePosition() throws Exception {
+        File f = createTestFile(100);
+
+        try (MappedFileIO io = new MappedFileIO(f)) {
+            Assertions.assertThrows(IOException.class, () -> io.position(-1));
+        }
+    }
+
+    @Test
+    public void testReadOnly() throws Exception {
+        File f = createTestFile(100);
+
+        try (MappedFileIO io = new MappedFileIO(f)) {
+            Assertions.assertNotNull(io.getChannel());
+            Assertions.assertNotNull(io.getFD());
+            Assertions.assertThrows(IOException.class, () -> io.write(1));
+            Assertions.assertThrows(IOException.class, () -> io.write(new byte[10], 0, 10));
+            Assertions.assertThrows(IOException.class, () -> io.writeUTF("abc"));
+            Assertions.assertThrows(IOException.class, () -> io.setLength(10));
+        }
+    }
+
+    @Test
+    public void testReadUTF() throws Exception {
+        File f = File.createTempFile("mapped", ".bin");
+        f.deleteOnExit();
+
+        try (FitsFile out = new FitsFile(f, "rw")) {
+            out.writeInt(1);
+            out.writeUTF("hello world");
+        }
+
+        try (MappedFileIO io = new MappedFileIO(f)) {
+            io.position(4);
+            Assertions.assertEquals("hello world", io.readUTF());
+            Assertions.assertEquals(io.length(), io.position());
+        }
+    }
+
+    @SuppressWarnings("resource")
+    @Test
+    public void testReadClosed() throws Exception {
+        File f = createTestFile(100);
+
+        MappedFileIO io = new MappedFileIO(f);
+        io.close();
+        Assertions.assertThrows(IOException.class, () -> io.read());
+        Assertions.assertThrows(IOException.class, () -> io.read(new byte[10], 0, 10));
+    }
+
+    @Test
+    public void testFitsFileArrays() throws Exception {
+        File f = File.createTempFile("mapped", ".bin");
+        f.deleteOnExit();
+
+        double[] data = new double[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i + 0.5;
+        }
+
+        try (FitsFile out = new FitsFile(f, "rw")) {
+            out.writeArray(data);
+        }
+
+        try (FitsFile in = new FitsFile(new MappedFileIO(f, 12), 1024)) {
+            double[] got = new double[data.length];
+            in.readImage(got);
+            Assertions.assertArrayEquals(data, got);
+        }
+    }
+
+    @Test
+    public void testFitsMemoryMapped() throws Exception {
+        File f = File.createTempFile("mapped", ".fits");
+        f.deleteOnExit();
+
+        int[][] im = new int[100][100];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * j;
+            }
+        }
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(im));
+            fits.addHDU(Fits.makeHDU(im));
+            fits.write(f);
+        }
+
+        Assertions.assertFalse(FitsFactory.isUseMemoryMapping());
+        FitsFactory.setUseMemoryMapping(true);
+        Assertions.assertTrue(FitsFactory.isUseMemoryMapping());
+
+        try (Fits fits = new Fits(f)) {
+            BasicHDU<?>[] hdus = fits.read();
+            Assertions.assertEquals(2, hdus.length);
+
+            ImageHDU hdu = (ImageHDU) hdus[1];
+            Assertions.assertArrayEquals(new int[] {37, 74},
+                    (int[]) hdu.getTiler().getTile(new int[] {37, 1}, new int[] {1, 2}));
+            Assertions.assertArrayEquals(im[99], ((int[][]) hdu.getKernel())[99]);
+        }
+
+        FitsFactory.setDefaults();
+        Assertions.assertFalse(FitsFactory.isUseMemoryMapping());
+    }
+}
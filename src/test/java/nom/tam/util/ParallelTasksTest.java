@@ -0,0 +1,115 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("javadoc")
+public class ParallelTasksTest {
+
+    private static List<FutureTask<Integer>> createTasks(int n, AtomicInteger count) {
+        List<FutureTask<Integer>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int k = i;
+            tasks.add(new FutureTask<>(() -> {
+                count.incrementAndGet();
+                return k * k;
+            }));
+        }
+        return tasks;
+    }
+
+    private static void check(List<FutureTask<Integer>> tasks) throws Exception {
+        for (int i = 0; i < tasks.size(); i++) {
+            Assertions.assertEquals(i * i, tasks.get(i).get());
+        }
+    }
+
+    @Test
+    public void testRunAll() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger count = new AtomicInteger();
+
+        try {
+            List<FutureTask<Integer>> tasks = createTasks(1000, count);
+            ParallelTasks.run(pool, 4, tasks);
+            check(tasks);
+            Assertions.assertEquals(1000, count.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedHelpers() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        pool.shutdown();
+
+        // The calling thread does all the work
+        List<FutureTask<Integer>> tasks = createTasks(100, new AtomicInteger());
+        ParallelTasks.run(pool, 4, tasks);
+        check(tasks);
+    }
+
+    @Test
+    public void testSingleTaskWithoutPool() throws Exception {
+        List<FutureTask<Integer>> tasks = createTasks(1, new AtomicInteger());
+        ParallelTasks.run(null, 4, tasks);
+        check(tasks);
+    }
+
+    @Test
+    public void testNestedOnSameExecutor() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+
+        try {
+            // The outer task occupies the only pool thread, so the inner tasks can only run on the calling thread.
+            FutureTask<List<FutureTask<Integer>>> outer = new FutureTask<>(() -> {
+                List<FutureTask<Integer>> tasks = createTasks(100, new AtomicInteger());
+                ParallelTasks.run(pool, 4, tasks);
+                return tasks;
+            });
+            pool.execute(outer);
+            check(outer.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
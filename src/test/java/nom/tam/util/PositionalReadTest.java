@@ -0,0 +1,163 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2026 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import nom.tam.fits.BinaryTable;
+import nom.tam.fits.BinaryTableHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.ImageHDU;
+import nom.tam.image.StandardImageTiler;
+
+@SuppressWarnings("javadoc")
+public class PositionalReadTest {
+
+    private static File createTestFile() throws Exception {
+        File f = File.createTempFile("positional", ".fits");
+        f.deleteOnExit();
+
+        int[][] im = new int[100][100];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * im[i].length + j;
+            }
+        }
+
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(new double[][] {{1.0, 2.0}, {3.0, 4.0, 5.0}, {6.0}});
+        tab.addColumn(new int[] {1, 2, 3});
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(im));
+            fits.addHDU(BinaryTableHDU.wrap(tab));
+            fits.write(f);
+        }
+
+        return f;
+    }
+
+    @Test
+    public void testPositionalReadKeepsFilePointer() throws Exception {
+        File f = createTestFile();
+
+        try (FitsFile in = new FitsFile(f, "r")) {
+            in.seek(17);
+
+            byte[] b = new byte[4];
+            in.readFully(2880, b, 0, b.length);
+            Assertions.assertEquals(17, in.getFilePointer());
+
+            int[] i = new int[3];
+            in.readArrayFully(2880 + 4 * 101, i);
+            Assertions.assertArrayEquals(new int[] {101, 102, 103}, i);
+            Assertions.assertEquals(17, in.getFilePointer());
+
+            Assertions.assertEquals(-1, in.read(in.length(), b, 0, b.length));
+        }
+    }
+
+    @Test
+    public void testPositionalReadUnbufferedChanges() throws Exception {
+        File f = createTestFile();
+
+        try (FitsFile out = new FitsFile(f, "rw")) {
+            out.seek(2880);
+            out.writeInt(-1);
+
+            // Read back data not yet flushed to the file
+            int[] i = new int[2];
+            out.readArrayFully(2880, i);
+            Assertions.assertArrayEquals(new int[] {-1, 1}, i);
+            Assertions.assertEquals(2884, out.getFilePointer());
+        }
+    }
+
+    @Test
+    public void testPositionalReadPastEnd() throws Exception {
+        File f = createTestFile();
+
+        try (FitsFile in = new FitsFile(f, "r")) {
+            byte[] b = new byte[10];
+            Assertions.assertThrows(EOFException.class, () -> in.readFully(in.length() - 5, b, 0, b.length));
+        }
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        File f = createTestFile();
+
+        try (Fits fits = new Fits(f)) {
+            ImageHDU im = (ImageHDU) fits.getHDU(0);
+            BinaryTableHDU tab = (BinaryTableHDU) fits.getHDU(1);
+            StandardImageTiler tiler = im.getTiler();
+            int[] lengths = {2, 3, 1};
+
+            ExecutorService exec = Executors.newFixedThreadPool(8);
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            try {
+                for (int k = 0; k < 200; k++) {
+                    final int row = k % 97;
+                    results.add(exec.submit(() -> {
+                        int[] tile = (int[]) tiler.getTile(new int[] {row, 2}, new int[] {3, 4});
+                        for (int i = 0; i < 3; i++) {
+                            for (int j = 0; j < 4; j++) {
+                                if (tile[i * 4 + j] != (row + i) * 100 + 2 + j) {
+                                    return false;
+                                }
+                            }
+                        }
+                        double[] d = (double[]) tab.getData().getElement(row % 3, 0);
+                        int[] n = (int[]) tab.getData().getElement(row % 3, 1);
+                        return d.length == lengths[row % 3] && n[0] == row % 3 + 1;
+                    }));
+                }
+
+                for (Future<Boolean> r : results) {
+                    Assertions.assertTrue(r.get());
+                }
+            } finally {
+                exec.shutdown();
+            }
+        }
+    }
+}